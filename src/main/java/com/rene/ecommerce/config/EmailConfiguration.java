@@ -1,16 +1,22 @@
 package com.rene.ecommerce.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.rene.ecommerce.services.email.EmailService;
+import com.rene.ecommerce.services.email.OutboxEmailService;
 import com.rene.ecommerce.services.email.SmtpEmailService;
 
 @Configuration
 public class EmailConfiguration {
 
+	@Value("${email.outbox.enabled:true}")
+	private boolean outbox;
+
+	// with the outbox, messages are persisted and sent by EmailOutboxWorker
 	@Bean
 	public EmailService emailService() {
-		return new SmtpEmailService();
+		return outbox ? new OutboxEmailService() : new SmtpEmailService();
 	}
 }
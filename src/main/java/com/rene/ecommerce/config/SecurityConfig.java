@@ -16,9 +16,13 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rene.ecommerce.security.JWTUtil;
+import com.rene.ecommerce.security.UserSS;
+import com.rene.ecommerce.security.filters.IdempotencyFilter;
 import com.rene.ecommerce.security.filters.JWTAuthenticationFilter;
 import com.rene.ecommerce.security.filters.JWTAuthorizationFilter;
+import com.rene.ecommerce.services.IdempotencyService;
 import com.rene.ecommerce.services.details.UserDetailsServiceImpl;
 
 @Configuration
@@ -31,6 +35,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 	
 	@Autowired
 	private JWTUtil jwtUtil;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private ObjectMapper mapper;
 	
 
 
@@ -41,14 +51,23 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 			
 	};
 
-	// Configure application: add auth filters, public endpoints 
+	// operational endpoints, only for the users in security.admin-emails
+	private static final String[] ADMIN_MATCHER = {
+
+			"/cache/**",
+
+	};
+
+	// Configure application: add auth and idempotency filters, public endpoints 
 	// and setting state (in this case, is STATELESS)
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
 		http.cors().and().csrf().disable();
-		http.authorizeRequests().antMatchers(PUBLIC_MATCHER).permitAll().anyRequest().authenticated();
+		http.authorizeRequests().antMatchers(PUBLIC_MATCHER).permitAll().antMatchers(ADMIN_MATCHER)
+				.hasAuthority(UserSS.ADMIN).anyRequest().authenticated();
 		http.addFilter(new JWTAuthenticationFilter(authenticationManager(), jwtUtil));
 		http.addFilter(new JWTAuthorizationFilter(authenticationManager(), jwtUtil, userDetails));
+		http.addFilterAfter(new IdempotencyFilter(idempotencyService, mapper), JWTAuthorizationFilter.class);
 		http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 	}
 	
@@ -3,6 +3,8 @@ package com.rene.ecommerce.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.rene.ecommerce.security.UserSS;
+
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -19,7 +21,7 @@ public class SwaggerConfig {
 	public Docket ecommerceApi() {
 		return new Docket(DocumentationType.SWAGGER_2).select()
 				.apis(RequestHandlerSelectors.basePackage("com.rene.ecommerce")).paths(PathSelectors.regex("/.*")).build()
-				.apiInfo(metaInfo());
+				.ignoredParameterTypes(UserSS.class).apiInfo(metaInfo());
 	}
 
 	private ApiInfo metaInfo() {
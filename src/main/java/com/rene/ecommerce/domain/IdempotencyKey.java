@@ -0,0 +1,93 @@
+package com.rene.ecommerce.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+// the response of a request made with an Idempotency-Key, by "user id:key"; no
+// status while the first request is still running
+@Entity
+@Table(name = "tb_idempotency_key", indexes = @Index(name = "idx_idempotency_key_expires", columnList = "expires_at"))
+public class IdempotencyKey implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length = 300)
+	private String id;
+
+	// hash of the method, path, query and body the key was first used with
+	@Column(nullable = false, length = 64)
+	private String fingerprint;
+
+	private Integer status;
+
+	@Column(name = "content_type")
+	private String contentType;
+
+	private byte[] body;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "expires_at", nullable = false)
+	private Date expiresAt;
+
+	public IdempotencyKey() {
+
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	public Integer getStatus() {
+		return status;
+	}
+
+	public void setStatus(Integer status) {
+		this.status = status;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public void setBody(byte[] body) {
+		this.body = body;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+}
@@ -1,15 +1,19 @@
 package com.rene.ecommerce.domain;
 
 import java.io.Serializable;
+import java.util.Date;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -17,6 +21,7 @@ import com.rene.ecommerce.domain.users.Client;
 import com.rene.ecommerce.domain.users.Seller;
 
 @Entity(name = "tb_order")
+@Table(indexes = @Index(name = "idx_order_placed_at", columnList = "placed_at, id"))
 public class Order implements Serializable{
 
 	/**
@@ -26,26 +31,39 @@ public class Order implements Serializable{
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Integer id;
-	private String instant;
+
+	// "placed_at" replaced the old varchar "instant" column (see V2__foreign_key_columns.sql)
+	@Column(name = "placed_at")
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date instant;
 	
 	
 
 	
+	// an order is a line item: quantity units of the product, bought at unitPrice each
 	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
-	@OneToOne
-	@JoinTable(name = "order_product", joinColumns = @JoinColumn(name = "order_id"), inverseJoinColumns = @JoinColumn(name = "product_id"))
+	@ManyToOne
+	@JoinColumn(name = "product_id")
 	private Product productOrder;
 
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	@Column(nullable = false)
+	private int quantity = 1;
+
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	@Column(name = "unit_price")
+	private Double unitPrice;
+
 	
 	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
 	@ManyToOne
-	@JoinTable(name = "order_client", joinColumns = @JoinColumn(name = "order_id"), inverseJoinColumns = @JoinColumn(name = "client_id"))
+	@JoinColumn(name = "client_id")
 	private Client buyer;
 
 	@JsonIgnore
 	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
 	@ManyToOne
-	@JoinTable(name = "order_seller", joinColumns = @JoinColumn(name = "order_id"), inverseJoinColumns = @JoinColumn(name = "seller_id"))
+	@JoinColumn(name = "seller_id")
 	private Seller seller;
 	
 	
@@ -55,20 +73,26 @@ public class Order implements Serializable{
 	
 	
 	
-	public Order(Integer id, String instant, Product product) {
+	public Order(Integer id, Date instant, Product product) {
+		this(id, instant, product, product.getBuyerOfTheProduct(), 1);
+	}
+
+	public Order(Integer id, Date instant, Product product, Client buyer, int quantity) {
 		this.id = id;
 		this.instant = instant;
 		this.productOrder = product;
-		this.buyer = product.getBuyerOfTheProduct();
+		this.buyer = buyer;
 		this.seller = product.getProductOwner();
+		this.quantity = quantity;
+		this.unitPrice = product.getPrice();
 	}
 
 
 
-	public String getInstant() {
+	public Date getInstant() {
 		return instant;
 	}
-	public void setInstant(String instant) {
+	public void setInstant(Date instant) {
 		this.instant = instant;
 	}
 	public Integer getId() {
@@ -118,6 +142,28 @@ public class Order implements Serializable{
 
 
 
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public Double getUnitPrice() {
+		return unitPrice;
+	}
+
+	public void setUnitPrice(Double unitPrice) {
+		this.unitPrice = unitPrice;
+	}
+
+	// what the buyer paid for the line
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	public Double getTotal() {
+		return unitPrice == null ? null : unitPrice * quantity;
+	}
+
 	@Override
 	public String toString() {
 		// TODO Auto-generated method stu
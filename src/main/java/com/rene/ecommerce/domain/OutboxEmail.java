@@ -0,0 +1,170 @@
+package com.rene.ecommerce.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+// an email waiting to be sent (or already sent/given up), stored as the full MIME message
+@Entity
+@Table(name = "tb_email_outbox", indexes = @Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at, id"))
+public class OutboxEmail implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public enum Status {
+		PENDING, SENDING, SENT, FAILED
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Integer id;
+
+	@Column(nullable = false)
+	private String recipient;
+
+	private String subject;
+
+	@Column(nullable = false)
+	private byte[] mime;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 8)
+	private Status status;
+
+	@Column(nullable = false)
+	private Integer attempts;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "next_attempt_at", nullable = false)
+	private Date nextAttemptAt;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "created_at", nullable = false)
+	private Date createdAt;
+
+	// while SENDING: when the claim of the worker sending it runs out
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "claimed_until")
+	private Date claimedUntil;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "sent_at")
+	private Date sentAt;
+
+	@Column(name = "last_error", length = 1000)
+	private String lastError;
+
+	public OutboxEmail() {
+
+	}
+
+	public OutboxEmail(String recipient, String subject, byte[] mime, Date createdAt) {
+		this.recipient = recipient;
+		this.subject = subject;
+		this.mime = mime;
+		this.status = Status.PENDING;
+		this.attempts = 0;
+		this.nextAttemptAt = createdAt;
+		this.createdAt = createdAt;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getRecipient() {
+		return recipient;
+	}
+
+	public void setRecipient(String recipient) {
+		this.recipient = recipient;
+	}
+
+	public String getSubject() {
+		return subject;
+	}
+
+	public void setSubject(String subject) {
+		this.subject = subject;
+	}
+
+	public byte[] getMime() {
+		return mime;
+	}
+
+	public void setMime(byte[] mime) {
+		this.mime = mime;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public Integer getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(Integer attempts) {
+		this.attempts = attempts;
+	}
+
+	public Date getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(Date nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Date getClaimedUntil() {
+		return claimedUntil;
+	}
+
+	public void setClaimedUntil(Date claimedUntil) {
+		this.claimedUntil = claimedUntil;
+	}
+
+	public Date getSentAt() {
+		return sentAt;
+	}
+
+	public void setSentAt(Date sentAt) {
+		this.sentAt = sentAt;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+}
@@ -3,6 +3,7 @@ package com.rene.ecommerce.domain;
 import java.io.Serializable;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -12,19 +13,25 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Formula;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.rene.ecommerce.domain.users.Client;
 import com.rene.ecommerce.domain.users.Seller;
 
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 @Entity
 public class Product implements Serializable {
 
 	public Product() {
 		setBuyerOfTheProduct(null);
-		setHasBeenSold("Unsold");
+		setSold(false);
 	}
 
 	public Product(Integer id, String name, Double price,  Seller productOwner, String description) {
@@ -39,8 +46,11 @@ public class Product implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	// ids are taken from product_seq in blocks of 50 (V4__product_id_sequence.sql), which
+	// lets inserts be batched
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+	@SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
 	private Integer id;
 
 	private String name;
@@ -48,18 +58,34 @@ public class Product implements Serializable {
 	private String description;
 	
 
-	@Column
-	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
-	private String hasBeenSold;
+	// units left: the sum of the product's stock slices (V5__product_stock.sql), read
+	// when the product is loaded. Purchases change the slices, not this row, so it's
+	// only as fresh as the cached product; set on a new product for its first stock
+	@Formula("(select coalesce(sum(s.stock), 0) from product_stock_slice s where s.product_id = id)")
+	private Integer stock;
+
+	// set once the product's stock has run out; the rows neither sold nor delisted
+	// are the ones for sale, covered by the partial index idx_product_unsold
+	// (V3__product_sold_flag.sql, V11__product_delisted_flag.sql)
+	@JsonIgnore
+	@Column(name = "sold", nullable = false)
+	private boolean sold;
+
+	// taken off sale by its seller after units of it were bought, the row kept for
+	// the orders; see isForSale
+	@JsonIgnore
+	@Column(name = "delisted", nullable = false)
+	private boolean delisted;
 
 
 	@ManyToOne
-	@JoinTable(name = "SELLER_PRODUCT", joinColumns = @JoinColumn(name = "product_id"), inverseJoinColumns = @JoinColumn(name = "seller_id"))
+	@JoinColumn(name = "seller_id")
 	private Seller productOwner;
 
+	// the buyer of the last unit
 	@JsonIgnore
 	@ManyToOne
-	@JoinTable(name = "CLIENT_PRODUCT", joinColumns = @JoinColumn(name = "product_id"), inverseJoinColumns = @JoinColumn(name = "client_id"))
+	@JoinColumn(name = "client_id")
 	private Client buyerOfTheProduct;
 	
 	@JsonIgnore
@@ -67,11 +93,6 @@ public class Product implements Serializable {
 	@JoinTable(name = "WISHLIST", joinColumns = @JoinColumn(name = "product_id"), inverseJoinColumns = @JoinColumn(name = "client_id"))
 	private Set<Client> whoWhishesThisProduct;
 	
-	
-	@JsonIgnore
-	@OneToOne(mappedBy = "productOrder")
-	private Order order;
-	
 
 	
 	
@@ -128,12 +149,12 @@ public class Product implements Serializable {
 
 	
 
-	public Order getOrder() {
-		return order;
+	public Integer getStock() {
+		return stock;
 	}
 
-	public void setOrder(Order order) {
-		this.order = order;
+	public void setStock(Integer stock) {
+		this.stock = stock;
 	}
 
 	public String getDescription() {
@@ -146,21 +167,32 @@ public class Product implements Serializable {
 	
 	
 
+	// kept as "Sold"/"Unsold" in the JSON
+	@JsonProperty(value = "hasBeenSold", access = JsonProperty.Access.READ_ONLY)
 	public String hasBeenSold() {
-		return hasBeenSold;
+		return sold ? "Sold" : "Unsold";
 	}
 
-	public void setHasBeenSold(String isSold) {
-		this.hasBeenSold = isSold;
+	public void setSold(boolean sold) {
+		this.sold = sold;
 	}
 
 	public static boolean isSold(Product obj) {
+		return obj.sold;
+	}
+
+	@JsonProperty(value = "delisted", access = JsonProperty.Access.READ_ONLY)
+	public boolean isDelisted() {
+		return delisted;
+	}
+
+	public void setDelisted(boolean delisted) {
+		this.delisted = delisted;
+	}
 
-		if (obj.getBuyerOfTheProduct() != null) {
-			
-			return true;
-		}
-		return false;
+	// neither sold out nor delisted
+	public static boolean isForSale(Product obj) {
+		return !obj.sold && !obj.delisted;
 	}
 
 	@Override
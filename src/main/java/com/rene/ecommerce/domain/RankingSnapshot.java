@@ -0,0 +1,135 @@
+package com.rene.ecommerce.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// one row of a leaderboard as it was when the snapshot was taken
+@Entity
+@Table(name = "tb_ranking_snapshot", indexes = @Index(name = "idx_ranking_snapshot_board", columnList = "board, ranking_window, taken_at"))
+public class RankingSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@JsonIgnore
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Integer id;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "taken_at", nullable = false)
+	private Date takenAt;
+
+	// "Client" or "Seller", like User.type
+	@Column(nullable = false, length = 8)
+	private String board;
+
+	@Column(name = "ranking_window", nullable = false, length = 8)
+	private String window;
+
+	private Integer position;
+	private Integer userId;
+	private String name;
+	private Integer sellsOrBuys;
+	private Double money;
+
+	public RankingSnapshot() {
+
+	}
+
+	public RankingSnapshot(Date takenAt, String board, String window, Integer position, Integer userId, String name,
+			Integer sellsOrBuys, Double money) {
+		this.takenAt = takenAt;
+		this.board = board;
+		this.window = window;
+		this.position = position;
+		this.userId = userId;
+		this.name = name;
+		this.sellsOrBuys = sellsOrBuys;
+		this.money = money;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Date getTakenAt() {
+		return takenAt;
+	}
+
+	public void setTakenAt(Date takenAt) {
+		this.takenAt = takenAt;
+	}
+
+	public String getBoard() {
+		return board;
+	}
+
+	public void setBoard(String board) {
+		this.board = board;
+	}
+
+	public String getWindow() {
+		return window;
+	}
+
+	public void setWindow(String window) {
+		this.window = window;
+	}
+
+	public Integer getPosition() {
+		return position;
+	}
+
+	public void setPosition(Integer position) {
+		this.position = position;
+	}
+
+	public Integer getUserId() {
+		return userId;
+	}
+
+	public void setUserId(Integer userId) {
+		this.userId = userId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Integer getSellsOrBuys() {
+		return sellsOrBuys;
+	}
+
+	public void setSellsOrBuys(Integer sellsOrBuys) {
+		this.sellsOrBuys = sellsOrBuys;
+	}
+
+	public Double getMoney() {
+		return money;
+	}
+
+	public void setMoney(Double money) {
+		this.money = money;
+	}
+
+}
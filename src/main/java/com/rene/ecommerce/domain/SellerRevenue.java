@@ -0,0 +1,128 @@
+package com.rene.ecommerce.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// revenue and units sold by a seller in one hour or one day (UTC buckets),
+// kept up to date as orders are written
+@Entity
+@Table(name = "tb_seller_revenue", uniqueConstraints = @UniqueConstraint(name = "uk_seller_revenue_bucket", columnNames = {
+		"seller_id", "granularity", "bucket_start" }))
+public class SellerRevenue implements Serializable {
+
+	public enum Granularity {
+		HOUR(3600000L), DAY(86400000L);
+
+		private final long millis;
+
+		Granularity(long millis) {
+			this.millis = millis;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+
+		public Date bucketStart(Date instant) {
+			long time = instant.getTime();
+			return new Date(time - Math.floorMod(time, millis));
+		}
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	@JsonIgnore
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Integer id;
+
+	@JsonIgnore
+	@Column(name = "seller_id", nullable = false)
+	private Integer sellerId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 8)
+	private Granularity granularity;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "bucket_start", nullable = false)
+	private Date bucketStart;
+
+	private Double revenue;
+	private Integer units;
+
+	public SellerRevenue() {
+
+	}
+
+	public SellerRevenue(Integer sellerId, Granularity granularity, Date bucketStart, Double revenue, Integer units) {
+		this.sellerId = sellerId;
+		this.granularity = granularity;
+		this.bucketStart = bucketStart;
+		this.revenue = revenue;
+		this.units = units;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Integer getSellerId() {
+		return sellerId;
+	}
+
+	public void setSellerId(Integer sellerId) {
+		this.sellerId = sellerId;
+	}
+
+	public Granularity getGranularity() {
+		return granularity;
+	}
+
+	public void setGranularity(Granularity granularity) {
+		this.granularity = granularity;
+	}
+
+	public Date getBucketStart() {
+		return bucketStart;
+	}
+
+	public void setBucketStart(Date bucketStart) {
+		this.bucketStart = bucketStart;
+	}
+
+	public Double getRevenue() {
+		return revenue;
+	}
+
+	public void setRevenue(Double revenue) {
+		this.revenue = revenue;
+	}
+
+	public Integer getUnits() {
+		return units;
+	}
+
+	public void setUnits(Integer units) {
+		this.units = units;
+	}
+
+}
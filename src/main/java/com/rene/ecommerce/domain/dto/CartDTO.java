@@ -0,0 +1,54 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// the cart of a client: the products and units in it, in the order they were added,
+// and when it is dropped if left untouched
+public class CartDTO {
+
+	public static class Item {
+
+		private Integer productId;
+		private int quantity;
+
+		public Item() {
+
+		}
+
+		public Item(Integer productId, int quantity) {
+			this.productId = productId;
+			this.quantity = quantity;
+		}
+
+		public Integer getProductId() {
+			return productId;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+	}
+
+	private List<Item> items = new ArrayList<>();
+	private Date expiresAt;
+
+	public CartDTO() {
+
+	}
+
+	public CartDTO(List<Item> items, Date expiresAt) {
+		this.items = items;
+		this.expiresAt = expiresAt;
+	}
+
+	public List<Item> getItems() {
+		return items;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+}
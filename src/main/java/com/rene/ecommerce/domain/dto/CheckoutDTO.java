@@ -0,0 +1,28 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.List;
+
+// outcome of a checkout: the order written for each item and what was paid in total
+public class CheckoutDTO {
+
+	private List<Integer> orders;
+	private Double total;
+
+	public CheckoutDTO() {
+
+	}
+
+	public CheckoutDTO(List<Integer> orders, Double total) {
+		this.orders = orders;
+		this.total = total;
+	}
+
+	public List<Integer> getOrders() {
+		return orders;
+	}
+
+	public Double getTotal() {
+		return total;
+	}
+
+}
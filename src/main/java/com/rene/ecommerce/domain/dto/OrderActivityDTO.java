@@ -0,0 +1,20 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.Date;
+
+// buyer/seller/price of an order, used to warm up the windowed leaderboards
+public interface OrderActivityDTO {
+
+	Date getPlacedAt();
+
+	Double getPrice();
+
+	Integer getBuyerId();
+
+	String getBuyerName();
+
+	Integer getSellerId();
+
+	String getSellerName();
+
+}
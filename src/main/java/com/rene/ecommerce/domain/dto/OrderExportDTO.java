@@ -0,0 +1,23 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.Date;
+
+// flat, read-only row of a seller's order used by the streaming export
+// (a projection, so rows never enter the persistence context)
+public interface OrderExportDTO {
+
+	Integer getOrderId();
+
+	Date getPlacedAt();
+
+	Integer getProductId();
+
+	String getProductName();
+
+	Double getPrice();
+
+	Integer getBuyerId();
+
+	String getBuyerName();
+
+}
@@ -0,0 +1,12 @@
+package com.rene.ecommerce.domain.dto;
+
+// id/price/seller of an unsold product, used to load the filter columns
+public interface PricedProductDTO {
+
+	Integer getId();
+
+	Double getPrice();
+
+	Integer getSellerId();
+
+}
@@ -0,0 +1,28 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.List;
+
+// outcome of a bulk reprice or delisting: how many products it changed and their ids
+public class ProductBulkChangeDTO {
+
+	private int changed;
+	private List<Integer> ids;
+
+	public ProductBulkChangeDTO() {
+
+	}
+
+	public ProductBulkChangeDTO(List<Integer> ids) {
+		this.changed = ids.size();
+		this.ids = ids;
+	}
+
+	public int getChanged() {
+		return changed;
+	}
+
+	public List<Integer> getIds() {
+		return ids;
+	}
+
+}
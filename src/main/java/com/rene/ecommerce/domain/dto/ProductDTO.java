@@ -15,6 +15,9 @@ public class ProductDTO implements Serializable {
 	private Double price;
 	private String description;
 
+	// units for sale; a new product without it has 1
+	private Integer stock;
+
 	
 	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
 	private Seller productOwner;
@@ -88,6 +91,14 @@ public class ProductDTO implements Serializable {
 		this.description = description;
 	}
 
+	public Integer getStock() {
+		return stock;
+	}
+
+	public void setStock(Integer stock) {
+		this.stock = stock;
+	}
+
 	public static boolean isSold(ProductDTO obj) {
     	
     	if(obj.getBuyerOfTheProduct() == null) {
@@ -0,0 +1,75 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+// outcome of a bulk product import: the counts, and per row read (numbered from 1)
+// either the id of the created product or why it was rejected
+public class ProductImportDTO {
+
+	@JsonInclude(Include.NON_NULL)
+	public static class Row {
+
+		private int row;
+		private Integer id;
+		private String error;
+
+		public Row() {
+
+		}
+
+		public Row(int row, Integer id, String error) {
+			this.row = row;
+			this.id = id;
+			this.error = error;
+		}
+
+		public int getRow() {
+			return row;
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		public String getError() {
+			return error;
+		}
+	}
+
+	private int created;
+	private int rejected;
+	private List<Row> rows = new ArrayList<>();
+
+	public void created(int row, Integer id) {
+		created++;
+		rows.add(new Row(row, id, null));
+	}
+
+	public void rejected(int row, String error) {
+		rejected++;
+		rows.add(new Row(row, null, error));
+	}
+
+	// rows are recorded as their batch completes, so rejected ones come first
+	public void sortRows() {
+		rows.sort(Comparator.comparingInt(Row::getRow));
+	}
+
+	public int getCreated() {
+		return created;
+	}
+
+	public int getRejected() {
+		return rejected;
+	}
+
+	public List<Row> getRows() {
+		return rows;
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.rene.ecommerce.domain.dto;
+
+public class ProductSearchDTO {
+
+	private Integer id;
+	private String name;
+	private Double price;
+	private Float score;
+
+	public ProductSearchDTO() {
+
+	}
+
+	public ProductSearchDTO(Integer id, String name, Double price, Float score) {
+		this.id = id;
+		this.name = name;
+		this.price = price;
+		this.score = score;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Double getPrice() {
+		return price;
+	}
+
+	public void setPrice(Double price) {
+		this.price = price;
+	}
+
+	public Float getScore() {
+		return score;
+	}
+
+	public void setScore(Float score) {
+		this.score = score;
+	}
+
+}
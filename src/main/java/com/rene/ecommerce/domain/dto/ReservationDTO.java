@@ -0,0 +1,34 @@
+package com.rene.ecommerce.domain.dto;
+
+import java.util.Date;
+
+// units of a product held for a client until expiresAt
+public class ReservationDTO {
+
+	private Integer productId;
+	private int quantity;
+	private Date expiresAt;
+
+	public ReservationDTO() {
+
+	}
+
+	public ReservationDTO(Integer productId, int quantity, Date expiresAt) {
+		this.productId = productId;
+		this.quantity = quantity;
+		this.expiresAt = expiresAt;
+	}
+
+	public Integer getProductId() {
+		return productId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+}
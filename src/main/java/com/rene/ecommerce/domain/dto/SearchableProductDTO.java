@@ -0,0 +1,15 @@
+package com.rene.ecommerce.domain.dto;
+
+// id/name/description/price of an unsold product, used to load the search index
+// (a projection, so rows never enter the persistence context)
+public interface SearchableProductDTO {
+
+	Integer getId();
+
+	String getName();
+
+	String getDescription();
+
+	Double getPrice();
+
+}
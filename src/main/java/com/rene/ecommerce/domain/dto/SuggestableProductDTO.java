@@ -0,0 +1,12 @@
+package com.rene.ecommerce.domain.dto;
+
+// id/name of an unsold product and how many clients wish it, used to load the suggestions
+public interface SuggestableProductDTO {
+
+	Integer getId();
+
+	String getName();
+
+	Long getWishes();
+
+}
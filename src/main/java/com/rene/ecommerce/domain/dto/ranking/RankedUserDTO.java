@@ -0,0 +1,14 @@
+package com.rene.ecommerce.domain.dto.ranking;
+
+// id/name/totals of a user that has bought or sold something, used to load the rank index
+public interface RankedUserDTO {
+
+	Integer getId();
+
+	String getName();
+
+	Integer getSellsOrBuys();
+
+	Double getMoney();
+
+}
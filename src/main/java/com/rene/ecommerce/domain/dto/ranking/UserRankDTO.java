@@ -0,0 +1,65 @@
+package com.rene.ecommerce.domain.dto.ranking;
+
+import java.util.List;
+
+public class UserRankDTO<T extends UserDTO> {
+
+	private Integer rank;
+	private Integer rankedUsers;
+	private T user;
+	private List<T> above;
+	private List<T> below;
+
+	public UserRankDTO() {
+
+	}
+
+	public UserRankDTO(Integer rank, Integer rankedUsers, T user, List<T> above, List<T> below) {
+		this.rank = rank;
+		this.rankedUsers = rankedUsers;
+		this.user = user;
+		this.above = above;
+		this.below = below;
+	}
+
+	public Integer getRank() {
+		return rank;
+	}
+
+	public void setRank(Integer rank) {
+		this.rank = rank;
+	}
+
+	public Integer getRankedUsers() {
+		return rankedUsers;
+	}
+
+	public void setRankedUsers(Integer rankedUsers) {
+		this.rankedUsers = rankedUsers;
+	}
+
+	public T getUser() {
+		return user;
+	}
+
+	public void setUser(T user) {
+		this.user = user;
+	}
+
+	public List<T> getAbove() {
+		return above;
+	}
+
+	public void setAbove(List<T> above) {
+		this.above = above;
+	}
+
+	public List<T> getBelow() {
+		return below;
+	}
+
+	public void setBelow(List<T> below) {
+		this.below = below;
+	}
+
+}
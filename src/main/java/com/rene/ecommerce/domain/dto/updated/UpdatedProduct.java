@@ -12,6 +12,9 @@ public class UpdatedProduct implements Serializable{
 	private String name;
 	private Double price;
 	private String description;
+
+	// the new stock, if given; the stock is left alone otherwise
+	private Integer stock;
 	
 	public UpdatedProduct() {
 		
@@ -49,6 +52,13 @@ public class UpdatedProduct implements Serializable{
 	public void setDescription(String description) {
 		this.description = description;
 	}
-	
+
+	public Integer getStock() {
+		return stock;
+	}
+
+	public void setStock(Integer stock) {
+		this.stock = stock;
+	}
 
 }
@@ -1,8 +1,11 @@
 package com.rene.ecommerce.domain.users;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -11,12 +14,18 @@ import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.rene.ecommerce.domain.Order;
 import com.rene.ecommerce.domain.Product;
 
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "client")
 @Entity
 @Table(name = "TB_CLIENTS")
 public class Client extends User {
@@ -28,7 +37,6 @@ public class Client extends User {
 		
 	}
 
-	private List<Product> boughtProducts;
 	private Set<Product> productsWished;
 	private List<Order> orders;
 
@@ -85,14 +93,16 @@ public class Client extends User {
 		return super.getType();
 	}
 
-	@OneToMany(mappedBy = "buyerOfTheProduct")
-
+	// a product has many buyers once it has a stock, so what a client bought is
+	// read from their orders; not serialized, as it walks all of them: the API
+	// pages them through GET /client/orders
+	@Transient
+	@JsonIgnore
 	public List<Product> getBoughtProducts() {
-		return boughtProducts;
-	}
-
-	public void setBoughtProducts(List<Product> boughtProducts) {
-		this.boughtProducts = boughtProducts;
+		if (orders == null) {
+			return new ArrayList<>();
+		}
+		return orders.stream().map(Order::getProductOrder).distinct().collect(Collectors.toList());
 	}
 
 	public Integer getNumberOfBuys() {
@@ -3,6 +3,7 @@ package com.rene.ecommerce.domain.users;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -11,11 +12,16 @@ import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.rene.ecommerce.domain.Order;
 import com.rene.ecommerce.domain.Product;
 
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "seller")
 @Entity
 @Table(name = "TB_SELLERS")
 public class Seller extends User {
@@ -36,6 +42,12 @@ public class Seller extends User {
 	@Column
 	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
 	private Double howMuchMoneyThisSellerHasSold;
+
+	// one summary email per interval instead of one email per sale
+	private Boolean saleDigest;
+
+	// last order already included in a sent digest
+	private Integer saleDigestLastOrderId;
 	
 	
 	@Override
@@ -119,6 +131,26 @@ public class Seller extends User {
 	public void addSoldMoneyWhenSellerSellAProduct(Double productPrice) {
 		this.howMuchMoneyThisSellerHasSold += productPrice;
 	}
+
+	@Column
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	public Boolean getSaleDigest() {
+		return saleDigest;
+	}
+
+	public void setSaleDigest(Boolean saleDigest) {
+		this.saleDigest = saleDigest;
+	}
+
+	@JsonIgnore
+	@Column
+	public Integer getSaleDigestLastOrderId() {
+		return saleDigestLastOrderId;
+	}
+
+	public void setSaleDigestLastOrderId(Integer saleDigestLastOrderId) {
+		this.saleDigestLastOrderId = saleDigestLastOrderId;
+	}
 	
 	
 	
@@ -0,0 +1,26 @@
+package com.rene.ecommerce.exceptions;
+
+public class InvalidParameterException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 
+	 */
+
+	public InvalidParameterException() {
+		super("One of the parameters has an invalid value");
+	}
+
+	public InvalidParameterException(String msg) {
+		super(msg);
+	}
+
+	public InvalidParameterException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
+}
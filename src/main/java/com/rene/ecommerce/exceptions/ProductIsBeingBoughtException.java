@@ -0,0 +1,26 @@
+package com.rene.ecommerce.exceptions;
+
+public class ProductIsBeingBoughtException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 
+	 */
+
+	public ProductIsBeingBoughtException() {
+		super("The units left of the product are being bought by other buyers");
+	}
+
+	public ProductIsBeingBoughtException(String msg) {
+		super(msg);
+	}
+
+	public ProductIsBeingBoughtException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
+}
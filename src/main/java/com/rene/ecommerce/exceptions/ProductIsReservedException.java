@@ -0,0 +1,26 @@
+package com.rene.ecommerce.exceptions;
+
+public class ProductIsReservedException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 
+	 */
+
+	public ProductIsReservedException() {
+		super("The units left of the product are reserved by other buyers");
+	}
+
+	public ProductIsReservedException(String msg) {
+		super(msg);
+	}
+
+	public ProductIsReservedException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
+}
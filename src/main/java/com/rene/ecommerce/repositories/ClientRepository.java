@@ -2,23 +2,34 @@ package com.rene.ecommerce.repositories;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
 import javax.transaction.Transactional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
 import com.rene.ecommerce.domain.users.Client;
 
 
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Integer> {
 
+	// looked up by the JWT filter on every request
 	@Transactional
+	@QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+			@QueryHint(name = "org.hibernate.cacheRegion", value = "users-by-email") })
 	Client findByEmail(String email);
 	
 	@Modifying
 	@Query(value="select * from tb_clients order by how_Much_Money_This_Client_Has_Spent DESC limit 10 ",nativeQuery = true)
 	List<Client> returnRankingClient();
+
+	@Query(value = "select id as id, name as name, number_of_buys as sellsOrBuys, "
+			+ "how_much_money_this_client_has_spent as money from tb_clients "
+			+ "where how_much_money_this_client_has_spent > 0", nativeQuery = true)
+	List<RankedUserDTO> findRankedClients();
 }
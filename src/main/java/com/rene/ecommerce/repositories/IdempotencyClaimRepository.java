@@ -0,0 +1,20 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+
+// Claiming, completing and releasing idempotency keys. They run once per keyed
+// request, so they are native SQL implemented by hand to tell Hibernate they only
+// touch tb_idempotency_key (see WishlistRepository). Each is its own transaction.
+public interface IdempotencyClaimRepository {
+
+	// true when the key is now ours: it was unused, or its previous use had expired
+	boolean claim(String id, String fingerprint, Date now, Date expiresAt);
+
+	void complete(String id, int status, String contentType, byte[] body, Date expiresAt);
+
+	// gives up a claim whose request failed, so a retry can run again
+	void release(String id);
+
+	int deleteExpired(Date now);
+
+}
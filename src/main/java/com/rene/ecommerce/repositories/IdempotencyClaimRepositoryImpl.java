@@ -0,0 +1,60 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import javax.transaction.Transactional;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BinaryType;
+import org.hibernate.type.StringType;
+
+public class IdempotencyClaimRepositoryImpl implements IdempotencyClaimRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	// one statement, so two nodes racing for the same key can't both get it
+	@Override
+	@Transactional
+	public boolean claim(String id, String fingerprint, Date now, Date expiresAt) {
+		return update("insert into tb_idempotency_key (id, fingerprint, expires_at) "
+				+ "values (:id, :fingerprint, :expiresAt) on conflict (id) do update set "
+				+ "fingerprint = excluded.fingerprint, status = null, content_type = null, body = null, "
+				+ "expires_at = excluded.expires_at where tb_idempotency_key.expires_at <= :now")
+				.setParameter("id", id).setParameter("fingerprint", fingerprint)
+				.setParameter("expiresAt", expiresAt, TemporalType.TIMESTAMP)
+				.setParameter("now", now, TemporalType.TIMESTAMP).executeUpdate() == 1;
+	}
+
+	@Override
+	@Transactional
+	public void complete(String id, int status, String contentType, byte[] body, Date expiresAt) {
+		update("update tb_idempotency_key set status = :status, content_type = :contentType, body = :body, "
+				+ "expires_at = :expiresAt where id = :id").setParameter("id", id).setParameter("status", status)
+				.setParameter("contentType", contentType, StringType.INSTANCE)
+				.setParameter("body", body, BinaryType.INSTANCE)
+				.setParameter("expiresAt", expiresAt, TemporalType.TIMESTAMP).executeUpdate();
+	}
+
+	@Override
+	@Transactional
+	public void release(String id) {
+		update("delete from tb_idempotency_key where id = :id and status is null").setParameter("id", id)
+				.executeUpdate();
+	}
+
+	@Override
+	@Transactional
+	public int deleteExpired(Date now) {
+		return update("delete from tb_idempotency_key where expires_at <= :now")
+				.setParameter("now", now, TemporalType.TIMESTAMP).executeUpdate();
+	}
+
+	private NativeQuery<?> update(String sql) {
+		return em.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace("tb_idempotency_key");
+	}
+
+}
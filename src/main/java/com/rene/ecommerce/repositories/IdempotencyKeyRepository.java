@@ -0,0 +1,11 @@
+package com.rene.ecommerce.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.rene.ecommerce.domain.IdempotencyKey;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String>, IdempotencyClaimRepository {
+
+}
@@ -0,0 +1,25 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
+
+// The writes of a checkout or a single purchase, each a single statement however
+// many items it has. The counters are incremented in SQL rather than read, changed
+// and written back, so concurrent purchases can't lose each other's updates; the
+// rows are native updates, the caller evicts the clients and sellers they change
+// from the cache.
+public interface OrderBatchRepository {
+
+	// inserts orders placed together by one buyer and sets their ids
+	void insertAll(List<Order> orders);
+
+	// adds the lines and money of a checkout to its buyer; the new totals
+	RankedUserDTO addToClientTotals(Integer clientId, int buys, double spent);
+
+	// the same for each seller of a checkout (seller id -> {lines, money}); their new totals
+	List<RankedUserDTO> addToSellerTotals(Map<Integer, double[]> sales);
+
+}
@@ -0,0 +1,143 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+
+import org.hibernate.query.NativeQuery;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
+
+public class OrderBatchRepositoryImpl implements OrderBatchRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public void insertAll(List<Order> orders) {
+		if (orders.isEmpty()) {
+			return;
+		}
+
+		Order first = orders.get(0);
+		List<?> rows = query("insert into tb_order (placed_at, client_id, product_id, seller_id, quantity, unit_price) "
+				+ "select :placedAt, :clientId, x.product_id, x.seller_id, x.quantity, x.unit_price "
+				+ "from unnest(cast(:products as integer[]), cast(:sellers as integer[]), "
+				+ "cast(:quantities as integer[]), cast(:prices as float8[])) as x(product_id, seller_id, quantity, unit_price) "
+				+ "returning id, product_id", "tb_order")
+				.setParameter("placedAt", first.getInstant(), TemporalType.TIMESTAMP)
+				.setParameter("clientId", first.getBuyer().getId())
+				.setParameter("products", array(orders, x -> x.getProductOrder().getId()))
+				.setParameter("sellers", array(orders, x -> x.getSeller() == null ? null : x.getSeller().getId()))
+				.setParameter("quantities", array(orders, Order::getQuantity))
+				.setParameter("prices", array(orders, Order::getUnitPrice)).getResultList();
+
+		// a checkout has one line per product
+		Map<Integer, Integer> ids = new HashMap<>();
+		for (Object row : rows) {
+			Object[] x = (Object[]) row;
+			ids.put(((Number) x[1]).intValue(), ((Number) x[0]).intValue());
+		}
+		for (Order order : orders) {
+			order.setId(ids.get(order.getProductOrder().getId()));
+		}
+	}
+
+	@Override
+	public RankedUserDTO addToClientTotals(Integer clientId, int buys, double spent) {
+		Object[] x = (Object[]) query("update tb_clients set number_of_buys = coalesce(number_of_buys, 0) + :buys, "
+				+ "how_much_money_this_client_has_spent = coalesce(how_much_money_this_client_has_spent, 0) + :spent "
+				+ "where id = :id returning id, name, number_of_buys, how_much_money_this_client_has_spent", "tb_clients")
+				.setParameter("id", clientId).setParameter("buys", buys).setParameter("spent", spent)
+				.getSingleResult();
+		return row(x);
+	}
+
+	@Override
+	public List<RankedUserDTO> addToSellerTotals(Map<Integer, double[]> sales) {
+		List<RankedUserDTO> totals = new ArrayList<>();
+		if (sales.isEmpty()) {
+			return totals;
+		}
+
+		// in id order, so concurrent checkouts lock the sellers they share in the same order
+		Map<Integer, double[]> sorted = new TreeMap<>(sales);
+		List<?> rows = query("update tb_sellers s set number_of_sells = coalesce(s.number_of_sells, 0) + x.sells, "
+				+ "how_much_money_this_seller_has_sold = coalesce(s.how_much_money_this_seller_has_sold, 0) + x.sold "
+				+ "from unnest(cast(:ids as integer[]), cast(:sells as integer[]), cast(:sold as float8[])) "
+				+ "as x(id, sells, sold) where s.id = x.id "
+				+ "returning s.id, s.name, s.number_of_sells, s.how_much_money_this_seller_has_sold", "tb_sellers")
+				.setParameter("ids", array(sorted.keySet()))
+				.setParameter("sells", array(sorted.values().stream().map(x -> (int) x[0]).collect(Collectors.toList())))
+				.setParameter("sold", array(sorted.values().stream().map(x -> x[1]).collect(Collectors.toList())))
+				.getResultList();
+		for (Object row : rows) {
+			totals.add(row((Object[]) row));
+		}
+		return totals;
+	}
+
+	private NativeQuery<?> query(String sql, String table) {
+		return em.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace(table);
+	}
+
+	private static <T> String array(List<T> values, Function<T, Object> field) {
+		return array(values.stream().map(field).collect(Collectors.toList()));
+	}
+
+	// a postgres array literal of numbers
+	private static String array(Collection<?> values) {
+		return values.stream().map(x -> x == null ? "NULL" : String.valueOf(x)).collect(Collectors.joining(",", "{", "}"));
+	}
+
+	private static RankedUserDTO row(Object[] x) {
+		return new Totals(((Number) x[0]).intValue(), (String) x[1], x[2] == null ? 0 : ((Number) x[2]).intValue(),
+				x[3] == null ? 0.0 : ((Number) x[3]).doubleValue());
+	}
+
+	private static final class Totals implements RankedUserDTO {
+
+		private final Integer id;
+		private final String name;
+		private final Integer sellsOrBuys;
+		private final Double money;
+
+		private Totals(Integer id, String name, Integer sellsOrBuys, Double money) {
+			this.id = id;
+			this.name = name;
+			this.sellsOrBuys = sellsOrBuys;
+			this.money = money;
+		}
+
+		@Override
+		public Integer getId() {
+			return id;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public Integer getSellsOrBuys() {
+			return sellsOrBuys;
+		}
+
+		@Override
+		public Double getMoney() {
+			return money;
+		}
+	}
+
+}
@@ -1,12 +1,64 @@
 package com.rene.ecommerce.repositories;
 
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.dto.OrderActivityDTO;
+import com.rene.ecommerce.domain.dto.OrderExportDTO;
 
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Integer> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, OrderBatchRepository {
+
+	// keyset pagination, newest first: pass the last id of the previous page as "before"
+	// placed_at range is [from, to)
+	@Query(value = "select o.* from tb_order o "
+			+ "where o.client_id = :clientId and o.id < :before and o.placed_at >= :from and o.placed_at < :to "
+			+ "order by o.id desc limit :size", nativeQuery = true)
+	List<Order> findPageOfClient(@Param("clientId") Integer clientId, @Param("before") Integer before,
+			@Param("from") Date from, @Param("to") Date to, @Param("size") Integer size);
+
+	@Query(value = "select o.* from tb_order o "
+			+ "where o.seller_id = :sellerId and o.id < :before and o.placed_at >= :from and o.placed_at < :to "
+			+ "order by o.id desc limit :size", nativeQuery = true)
+	List<Order> findPageOfSeller(@Param("sellerId") Integer sellerId, @Param("before") Integer before,
+			@Param("from") Date from, @Param("to") Date to, @Param("size") Integer size);
+
+	// forward-only cursor for the export: must be consumed inside a transaction and closed
+	@QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+	@Query(value = "select o.id as orderId, o.placed_at as placedAt, p.id as productId, p.name as productName, "
+			+ "o.unit_price * o.quantity as price, c.id as buyerId, c.name as buyerName from tb_order o "
+			+ "left join product p on p.id = o.product_id left join tb_clients c on c.id = o.client_id "
+			+ "where o.seller_id = :sellerId and o.placed_at >= :from and o.placed_at < :to order by o.id", nativeQuery = true)
+	Stream<OrderExportDTO> streamExportOfSeller(@Param("sellerId") Integer sellerId, @Param("from") Date from,
+			@Param("to") Date to);
+
+	// sales of a seller newer than the last one sent in a digest
+	@Query(value = "select o.id as orderId, o.placed_at as placedAt, p.id as productId, p.name as productName, "
+			+ "o.unit_price * o.quantity as price, c.id as buyerId, c.name as buyerName from tb_order o "
+			+ "left join product p on p.id = o.product_id left join tb_clients c on c.id = o.client_id "
+			+ "where o.seller_id = :sellerId and o.id > :afterId order by o.id", nativeQuery = true)
+	List<OrderExportDTO> findSalesOfSellerAfter(@Param("sellerId") Integer sellerId, @Param("afterId") Integer afterId);
+
+	@QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+	@Query(value = "select o.placed_at as placedAt, o.unit_price * o.quantity as price, c.id as buyerId, c.name as buyerName, "
+			+ "s.id as sellerId, s.name as sellerName from tb_order o "
+			+ "join product p on p.id = o.product_id join tb_clients c on c.id = o.client_id "
+			+ "join tb_sellers s on s.id = o.seller_id "
+			+ "where o.placed_at >= :since order by o.id", nativeQuery = true)
+	Stream<OrderActivityDTO> streamActivitySince(@Param("since") Date since);
+
+	@Query("select coalesce(max(o.id), 0) from tb_order o")
+	Integer findMaxId();
 
 }
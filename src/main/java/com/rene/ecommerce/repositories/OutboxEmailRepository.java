@@ -0,0 +1,33 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.transaction.Transactional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.rene.ecommerce.domain.OutboxEmail;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Integer> {
+
+	// due messages, and those whose sender's claim ran out; locked so concurrent
+	// workers never claim the same row
+	@Query(value = "select * from tb_email_outbox where (status = 'PENDING' and next_attempt_at <= :now) "
+			+ "or (status = 'SENDING' and claimed_until <= :now) "
+			+ "order by id limit :size for update skip locked", nativeQuery = true)
+	List<OutboxEmail> findDueForUpdate(@Param("now") Date now, @Param("size") int size);
+
+	// sent messages older than before, at most size of them
+	@Transactional
+	@Modifying
+	@Query(value = "delete from tb_email_outbox where id in (select id from tb_email_outbox "
+			+ "where status = 'SENT' and sent_at < :before limit :size)", nativeQuery = true)
+	int deleteSent(@Param("before") Date before, @Param("size") int size);
+
+}
@@ -0,0 +1,23 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.List;
+
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+
+// Set-based changes to the unsold products of one seller, native statements with
+// the ownership and sale state in their predicate. The filter is a price range
+// and/or a list of ids, every part optional (null). The statements return the rows
+// they changed; they don't touch the second-level cache, the caller evicts the
+// changed ids.
+public interface ProductBulkRepository {
+
+	// new price = max(0, price * factor + amount), rounded to cents
+	List<SearchableProductDTO> repriceUnsold(Integer sellerId, Double minPrice, Double maxPrice, List<Integer> ids,
+			double factor, double amount);
+
+	// takes the products off sale, and their wishlist rows with them: those somebody
+	// bought units of are kept, delisted with no stock left (the orders refer to
+	// them), the others are deleted. The ids of both
+	List<Integer> deleteUnsold(Integer sellerId, Double minPrice, Double maxPrice, List<Integer> ids);
+
+}
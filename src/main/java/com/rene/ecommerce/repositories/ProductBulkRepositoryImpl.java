@@ -0,0 +1,158 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.hibernate.query.NativeQuery;
+
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+
+public class ProductBulkRepositoryImpl implements ProductBulkRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public List<SearchableProductDTO> repriceUnsold(Integer sellerId, Double minPrice, Double maxPrice,
+			List<Integer> ids, double factor, double amount) {
+
+		Query query = update("update product set price = "
+				+ "greatest(0, round(cast(price * :factor + :amount as numeric), 2)) "
+				+ "where " + predicate(minPrice, maxPrice, ids) + " returning id, name, description, price", "product");
+		bind(query, sellerId, minPrice, maxPrice, ids);
+		query.setParameter("factor", factor).setParameter("amount", amount);
+
+		List<SearchableProductDTO> changed = new ArrayList<>();
+		for (Object row : query.getResultList()) {
+			Object[] x = (Object[]) row;
+			changed.add(new Row(((Number) x[0]).intValue(), (String) x[1], (String) x[2],
+					x[3] == null ? null : ((Number) x[3]).doubleValue()));
+		}
+		return changed;
+	}
+
+	@Override
+	public List<Integer> deleteUnsold(Integer sellerId, Double minPrice, Double maxPrice, List<Integer> ids) {
+
+		Query candidates = em.createNativeQuery("select id from product where " + predicate(minPrice, maxPrice, ids));
+		bind(candidates, sellerId, minPrice, maxPrice, ids);
+		List<Integer> found = ids(candidates.getResultList());
+		if (found.isEmpty()) {
+			return found;
+		}
+
+		// the stock first, then the products: the order a purchase locks them in, so an
+		// unfinished purchase of one of them is waited for and later ones wait for this
+		em.createNativeQuery("select product_id from product_stock_slice where product_id = any(cast(:ids as integer[])) "
+				+ "order by product_id, slice for update").setParameter("ids", array(found)).getResultList();
+		Query locked = em.createNativeQuery("select id from product where id = any(cast(:found as integer[])) and "
+				+ predicate(minPrice, maxPrice, ids) + " order by id for update");
+		bind(locked, sellerId, minPrice, maxPrice, ids);
+		List<Integer> doomed = ids(locked.setParameter("found", array(found)).getResultList());
+		if (doomed.isEmpty()) {
+			return doomed;
+		}
+
+		// products with orders stay, delisted with no stock left, for the orders to refer to
+		return ids(update("with ordered as (select distinct product_id as id from tb_order "
+				+ "where product_id = any(cast(:ids as integer[]))), "
+				+ "wished as (delete from wishlist where product_id = any(cast(:ids as integer[]))), "
+				+ "emptied as (update product_stock_slice set stock = 0 where product_id in (select id from ordered)), "
+				+ "delisted as (update product set delisted = true where id in (select id from ordered) returning id), "
+				+ "deleted as (delete from product where id = any(cast(:ids as integer[])) "
+				+ "and id not in (select id from ordered) returning id) "
+				+ "select id from delisted union all select id from deleted", "product", "product_stock_slice", "wishlist")
+				.setParameter("ids", array(doomed)).getResultList());
+	}
+
+	private NativeQuery<?> update(String sql, String... tables) {
+		NativeQuery<?> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+		for (String table : tables) {
+			query.addSynchronizedQuerySpace(table);
+		}
+		return query;
+	}
+
+	// "not sold and not delisted" matches the partial index idx_product_unsold
+	private static String predicate(Double minPrice, Double maxPrice, List<Integer> ids) {
+		StringBuilder sql = new StringBuilder("seller_id = :sellerId and not sold and not delisted");
+		if (minPrice != null) {
+			sql.append(" and price >= :minPrice");
+		}
+		if (maxPrice != null) {
+			sql.append(" and price <= :maxPrice");
+		}
+		if (ids != null) {
+			// one array parameter however many ids there are
+			sql.append(" and id = any(cast(:ids as integer[]))");
+		}
+		return sql.toString();
+	}
+
+	private static void bind(Query query, Integer sellerId, Double minPrice, Double maxPrice, List<Integer> ids) {
+		query.setParameter("sellerId", sellerId);
+		if (minPrice != null) {
+			query.setParameter("minPrice", minPrice);
+		}
+		if (maxPrice != null) {
+			query.setParameter("maxPrice", maxPrice);
+		}
+		if (ids != null) {
+			query.setParameter("ids", array(ids));
+		}
+	}
+
+	// one array parameter however many ids there are
+	private static String array(List<Integer> ids) {
+		return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+	}
+
+	private static List<Integer> ids(List<?> rows) {
+		List<Integer> ids = new ArrayList<>();
+		for (Object id : rows) {
+			ids.add(((Number) id).intValue());
+		}
+		return ids;
+	}
+
+	private static final class Row implements SearchableProductDTO {
+
+		private final Integer id;
+		private final String name;
+		private final String description;
+		private final Double price;
+
+		private Row(Integer id, String name, String description, Double price) {
+			this.id = id;
+			this.name = name;
+			this.description = description;
+			this.price = price;
+		}
+
+		@Override
+		public Integer getId() {
+			return id;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+
+		@Override
+		public Double getPrice() {
+			return price;
+		}
+	}
+
+}
@@ -3,27 +3,41 @@ package com.rene.ecommerce.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.PricedProductDTO;
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+import com.rene.ecommerce.domain.dto.SuggestableProductDTO;
 
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
-	
-	@Modifying
-	@Query(value="delete from wishlist where product_id = :id",nativeQuery = true)
-	void removeFromWishListWhenIsSold(@Param("id") Integer id);
-	
-	@Modifying
-	@Query(value="delete from wishlist where product_id = :productId and client_id = :clientId",nativeQuery = true)
-	void removeFromClientWishlist(@Param("productId") Integer productId, @Param("clientId") Integer clientId);
-	
-	
-	List<Product> findByHasBeenSold(String hasBeenSold);
+public interface ProductRepository extends JpaRepository<Product, Integer>, WishlistRepository, ProductBulkRepository,
+		ProductStockRepository {
 	
+	// matches the predicate of the partial index idx_product_unsold, so rows off sale are never read
+	@Query(value = "select * from product where not sold and not delisted order by id", nativeQuery = true)
+	List<Product> findUnsold();
+
+	@Query("select coalesce(max(p.id), 0) from Product p")
+	Integer findMaxId();
+
+	// one chunk [fromId, toId) of the search index, read in parallel at startup
+	@Query(value = "select id as id, name as name, description as description, price as price from product "
+			+ "where not sold and not delisted and id >= :fromId and id < :toId", nativeQuery = true)
+	List<SearchableProductDTO> findSearchableChunk(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+	// one chunk [fromId, toId) of the name suggestions, with the wishlist count as popularity
+	@Query(value = "select p.id as id, p.name as name, "
+			+ "(select count(*) from wishlist w where w.product_id = p.id) as wishes from product p "
+			+ "where not p.sold and not p.delisted and p.id >= :fromId and p.id < :toId", nativeQuery = true)
+	List<SuggestableProductDTO> findSuggestableChunk(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
+
+	// one chunk [fromId, toId) of the price/seller filter columns
+	@Query(value = "select id as id, price as price, seller_id as sellerId from product "
+			+ "where not sold and not delisted and id >= :fromId and id < :toId", nativeQuery = true)
+	List<PricedProductDTO> findPricedChunk(@Param("fromId") Integer fromId, @Param("toId") Integer toId);
 
 }
@@ -0,0 +1,37 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+import com.rene.ecommerce.domain.Product;
+
+// The stock of a product, split into up to a few slices (product_stock_slice, see
+// V5__product_stock.sql). A purchase takes its units from one slice, skipping the
+// slices other purchases are holding, so buyers of the same product don't wait for
+// each other until there are more of them than slices; no statement ever lets a
+// slice go below 0. Native SQL on a table no entity maps, so Hibernate is told
+// it touches nothing cached.
+public interface ProductStockRepository {
+
+	// the first stock of newly saved products, ids[i] getting stocks[i] units
+	void addStock(List<Integer> ids, List<Integer> stocks, int slices);
+
+	// replaces the stock of a product, waiting for the purchases holding its slices
+	void setStock(Integer productId, int stock, int slices);
+
+	// takes quantity units: the units then left in the slice(s) taken from, 0 when the
+	// product may have sold out, or -1 when there weren't quantity units left
+	int takeStock(Integer productId, int quantity);
+
+	// takeStock for several products (product id -> quantity) in one statement, falling
+	// back to one product at a time only for those it couldn't serve; the result has
+	// the units left, or -1, per product. Stops at the first product without enough
+	// units, so the caller must roll back when there is a -1
+	Map<Integer, Integer> takeStock(Map<Integer, Integer> quantities);
+
+	// locks the product row (and refreshes it) and tells whether its stock is gone;
+	// purchases emptying a slice all go through here, one at a time, so the last of
+	// them sees every other one and the sold out flag can't be missed
+	boolean lockIfSoldOut(Product product);
+
+}
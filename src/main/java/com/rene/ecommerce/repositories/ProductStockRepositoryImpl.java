@@ -0,0 +1,148 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.query.NativeQuery;
+
+import com.rene.ecommerce.domain.Product;
+
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public void addStock(List<Integer> ids, List<Integer> stocks, int slices) {
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		// the products must be in the table before their slices can reference them
+		em.flush();
+
+		// one statement for the whole batch: stock s split in min(s, slices) slices,
+		// the first ones taking the remainder
+		query("insert into product_stock_slice (product_id, slice, stock) "
+				+ "select p.id, n.slice, p.stock / n.count + case when n.slice < p.stock % n.count then 1 else 0 end "
+				+ "from unnest(cast(:ids as integer[]), cast(:stocks as integer[])) as p(id, stock) "
+				+ "cross join lateral (select s as slice, least(p.stock, :slices) as count "
+				+ "from generate_series(0, least(p.stock, :slices) - 1) s) n")
+				.setParameter("ids", array(ids)).setParameter("stocks", array(stocks))
+				.setParameter("slices", slices).executeUpdate();
+	}
+
+	@Override
+	public void setStock(Integer productId, int stock, int slices) {
+		query("select slice from product_stock_slice where product_id = :id order by slice for update")
+				.setParameter("id", productId).getResultList();
+		query("delete from product_stock_slice where product_id = :id").setParameter("id", productId)
+				.executeUpdate();
+		addStock(Collections.singletonList(productId), Collections.singletonList(stock), slices);
+	}
+
+	@Override
+	public int takeStock(Integer productId, int quantity) {
+		// any slice with enough units that no other purchase holds right now; picked by a
+		// scalar subquery, which runs once (in a join, a locking subquery with a limit may
+		// run again for each row and pick a second slice)
+		List<?> left = query("update product_stock_slice set stock = stock - :quantity "
+				+ "where product_id = :id and slice = (select slice from product_stock_slice "
+				+ "where product_id = :id and stock >= :quantity order by slice limit 1 for update skip locked) "
+				+ "returning stock")
+				.setParameter("id", productId).setParameter("quantity", quantity).getResultList();
+		if (!left.isEmpty()) {
+			return ((Number) left.get(0)).intValue();
+		}
+
+		// every slice is held, or no single one has enough: wait for all of them and
+		// take the units from as many as it needs
+		List<?> rows = query("select slice, stock from product_stock_slice where product_id = :id "
+				+ "order by slice for update").setParameter("id", productId).getResultList();
+		int total = 0;
+		for (Object row : rows) {
+			total += ((Number) ((Object[]) row)[1]).intValue();
+		}
+		if (total < quantity) {
+			return -1;
+		}
+
+		int needed = quantity;
+		for (Object row : rows) {
+			Object[] slice = (Object[]) row;
+			int take = Math.min(needed, ((Number) slice[1]).intValue());
+			if (take > 0) {
+				query("update product_stock_slice set stock = stock - :take where product_id = :id and slice = :slice")
+						.setParameter("take", take).setParameter("id", productId).setParameter("slice", slice[0])
+						.executeUpdate();
+				needed -= take;
+			}
+		}
+		return total - quantity;
+	}
+
+	@Override
+	public Map<Integer, Integer> takeStock(Map<Integer, Integer> quantities) {
+		Map<Integer, Integer> left = new HashMap<>();
+		if (quantities.isEmpty()) {
+			return left;
+		}
+
+		// in id order, so the fallbacks of concurrent purchases wait for each other's
+		// slices in the same order
+		Map<Integer, Integer> sorted = new TreeMap<>(quantities);
+		// the free slices are collected by an uncorrelated array subquery, which runs once
+		// (see above); their row ids can't change while we hold their locks
+		List<?> rows = query("update product_stock_slice s set stock = s.stock - x.quantity "
+				+ "from unnest(cast(:ids as integer[]), cast(:quantities as integer[])) as x(id, quantity) "
+				+ "where s.product_id = x.id and s.ctid = any(array("
+				+ "select free.ctid from unnest(cast(:ids as integer[]), cast(:quantities as integer[])) as y(id, quantity) "
+				+ "cross join lateral (select ctid from product_stock_slice "
+				+ "where product_id = y.id and stock >= y.quantity "
+				+ "order by slice limit 1 for update skip locked) free)) returning s.product_id, s.stock")
+				.setParameter("ids", array(new ArrayList<>(sorted.keySet())))
+				.setParameter("quantities", array(new ArrayList<>(sorted.values()))).getResultList();
+		for (Object row : rows) {
+			Object[] x = (Object[]) row;
+			left.put(((Number) x[0]).intValue(), ((Number) x[1]).intValue());
+		}
+
+		for (Map.Entry<Integer, Integer> x : sorted.entrySet()) {
+			if (!left.containsKey(x.getKey())) {
+				int units = takeStock(x.getKey(), x.getValue());
+				left.put(x.getKey(), units);
+				if (units < 0) {
+					break;
+				}
+			}
+		}
+		return left;
+	}
+
+	@Override
+	public boolean lockIfSoldOut(Product product) {
+		em.refresh(product, LockModeType.PESSIMISTIC_WRITE);
+
+		Number stock = (Number) query("select coalesce(sum(stock), 0) from product_stock_slice where product_id = :id")
+				.setParameter("id", product.getId()).getSingleResult();
+		return stock.intValue() == 0;
+	}
+
+	private NativeQuery<?> query(String sql) {
+		return em.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace("product_stock_slice");
+	}
+
+	private static String array(List<Integer> values) {
+		return values.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.rene.ecommerce.domain.RankingSnapshot;
+
+@Repository
+public interface RankingSnapshotRepository extends JpaRepository<RankingSnapshot, Integer> {
+
+	// rows of the latest snapshot of a board/window taken at or before "at"
+	@Query("select r from RankingSnapshot r where r.board = :board and r.window = :window and r.takenAt = "
+			+ "(select max(s.takenAt) from RankingSnapshot s where s.board = :board and s.window = :window and s.takenAt <= :at) "
+			+ "order by r.position")
+	List<RankingSnapshot> findSnapshot(@Param("board") String board, @Param("window") String window,
+			@Param("at") Date at);
+
+}
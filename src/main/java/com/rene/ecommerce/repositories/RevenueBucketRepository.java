@@ -0,0 +1,30 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+
+// The per-purchase revenue upsert and the steps of a rebuild. Implemented by hand
+// so Hibernate knows they only touch tb_seller_revenue (see WishlistRepository).
+// Sales and rebuilds exclude each other through a database advisory lock, so they
+// do across nodes: sales share it, a rebuild holds it alone.
+public interface RevenueBucketRepository {
+
+	void addToBucket(Integer sellerId, String granularity, Date bucketStart, Double revenue, Integer units);
+
+	// takes the lock shared for the current transaction; the highest order id the
+	// buckets already hold, or null while a rebuild holds the lock
+	Integer lockForSales();
+
+	// takes the lock alone for the current transaction, waiting for the sales holding it
+	void lockForRebuild();
+
+	// the transactions running now, as text
+	String currentSnapshot();
+
+	// whether every transaction running at the snapshot has ended
+	boolean endedSince(String snapshot);
+
+	// replaces the buckets with the rebuilt ones in one transaction and records the
+	// highest order id they hold; the number of buckets
+	int swapInRebuild(int rebuiltThrough);
+
+}
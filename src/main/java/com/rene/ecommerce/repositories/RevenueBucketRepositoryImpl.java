@@ -0,0 +1,82 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import javax.transaction.Transactional;
+
+import org.hibernate.query.NativeQuery;
+
+public class RevenueBucketRepositoryImpl implements RevenueBucketRepository {
+
+	// the advisory lock of the revenue buckets
+	private static final long LOCK = 0x5E11E7L;
+
+	@PersistenceContext
+	private EntityManager em;
+
+	// single-statement upsert, safe with concurrent purchases of the same seller
+	@Override
+	@Transactional
+	public void addToBucket(Integer sellerId, String granularity, Date bucketStart, Double revenue, Integer units) {
+		em.createNativeQuery("insert into tb_seller_revenue (seller_id, granularity, bucket_start, revenue, units) "
+				+ "values (:sellerId, :granularity, :bucketStart, :revenue, :units) "
+				+ "on conflict (seller_id, granularity, bucket_start) do update set "
+				+ "revenue = tb_seller_revenue.revenue + excluded.revenue, units = tb_seller_revenue.units + excluded.units")
+				.unwrap(NativeQuery.class).addSynchronizedQuerySpace("tb_seller_revenue")
+				.setParameter("sellerId", sellerId).setParameter("granularity", granularity)
+				.setParameter("bucketStart", bucketStart, TemporalType.TIMESTAMP).setParameter("revenue", revenue)
+				.setParameter("units", units).executeUpdate();
+	}
+
+	@Override
+	@Transactional
+	public Integer lockForSales() {
+		Boolean locked = (Boolean) em.createNativeQuery("select pg_try_advisory_xact_lock_shared(:key)")
+				.setParameter("key", LOCK).getSingleResult();
+		if (!locked) {
+			return null;
+		}
+		return ((Number) em.createNativeQuery("select rebuilt_through from tb_seller_revenue_rebuilt")
+				.getSingleResult()).intValue();
+	}
+
+	@Override
+	@Transactional
+	public void lockForRebuild() {
+		em.createNativeQuery("select count(*) from (select pg_advisory_xact_lock(:key)) x").setParameter("key", LOCK)
+				.getSingleResult();
+	}
+
+	@Override
+	public String currentSnapshot() {
+		return (String) em.createNativeQuery("select cast(txid_current_snapshot() as text)").getSingleResult();
+	}
+
+	@Override
+	public boolean endedSince(String snapshot) {
+		return (Boolean) em.createNativeQuery("select txid_snapshot_xmin(txid_current_snapshot()) "
+				+ ">= txid_snapshot_xmax(cast(:snapshot as txid_snapshot))").setParameter("snapshot", snapshot)
+				.getSingleResult();
+	}
+
+	@Override
+	@Transactional
+	public int swapInRebuild(int rebuiltThrough) {
+		em.createNativeQuery("delete from tb_seller_revenue").unwrap(NativeQuery.class)
+				.addSynchronizedQuerySpace("tb_seller_revenue").executeUpdate();
+		int buckets = em.createNativeQuery("insert into tb_seller_revenue (seller_id, granularity, bucket_start, revenue, units) "
+				+ "select seller_id, granularity, bucket_start, revenue, units from tb_seller_revenue_rebuild "
+				+ "order by seller_id, granularity, bucket_start").unwrap(NativeQuery.class)
+				.addSynchronizedQuerySpace("tb_seller_revenue").executeUpdate();
+		em.createNativeQuery("delete from tb_seller_revenue_rebuild").unwrap(NativeQuery.class)
+				.addSynchronizedQuerySpace("tb_seller_revenue_rebuild").executeUpdate();
+		em.createNativeQuery("update tb_seller_revenue_rebuilt set rebuilt_through = :id").unwrap(NativeQuery.class)
+				.addSynchronizedQuerySpace("tb_seller_revenue_rebuilt").setParameter("id", rebuiltThrough)
+				.executeUpdate();
+		return buckets;
+	}
+
+}
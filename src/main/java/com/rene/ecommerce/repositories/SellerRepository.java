@@ -2,22 +2,50 @@ package com.rene.ecommerce.repositories;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
 import javax.transaction.Transactional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
 import com.rene.ecommerce.domain.users.Seller;
 
 @Repository
 public interface SellerRepository extends JpaRepository<Seller, Integer> {
 
+	// looked up by the JWT filter on every request
 	@Transactional
+	@QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+			@QueryHint(name = "org.hibernate.cacheRegion", value = "users-by-email") })
 	Seller findByEmail(String email);
 
 	@Modifying
 	@Query(value = "select * from tb_sellers order by how_much_money_this_seller_has_sold DESC limit 10 ", nativeQuery = true)
 	List<Seller> returnRankingSeller();
+
+	@Query(value = "select id as id, name as name, number_of_sells as sellsOrBuys, "
+			+ "how_much_money_this_seller_has_sold as money from tb_sellers "
+			+ "where how_much_money_this_seller_has_sold > 0", nativeQuery = true)
+	List<RankedUserDTO> findRankedSellers();
+
+	List<Seller> findBySaleDigestTrue();
+
+	@Transactional
+	@Modifying
+	@Query("update Seller s set s.saleDigest = :enabled, s.saleDigestLastOrderId = :lastOrderId where s.id = :id")
+	int updateSaleDigest(@Param("id") Integer id, @Param("enabled") boolean enabled,
+			@Param("lastOrderId") Integer lastOrderId);
+
+	// only moves forward, so a late digest can't make older sales be sent again.
+	// JPQL instead of native SQL: Hibernate then only evicts the seller cache region
+	@Transactional
+	@Modifying
+	@Query("update Seller s set s.saleDigestLastOrderId = :orderId where s.id = :id "
+			+ "and (s.saleDigestLastOrderId is null or s.saleDigestLastOrderId < :orderId)")
+	int advanceSaleDigest(@Param("id") Integer id, @Param("orderId") Integer orderId);
 }
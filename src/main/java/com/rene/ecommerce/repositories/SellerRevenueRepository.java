@@ -0,0 +1,47 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.transaction.Transactional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.rene.ecommerce.domain.SellerRevenue;
+import com.rene.ecommerce.domain.SellerRevenue.Granularity;
+
+@Repository
+public interface SellerRevenueRepository extends JpaRepository<SellerRevenue, Integer>, RevenueBucketRepository {
+
+	@Query("select r from SellerRevenue r where r.sellerId = :sellerId and r.granularity = :granularity "
+			+ "and r.bucketStart >= :from and r.bucketStart < :to order by r.bucketStart")
+	List<SellerRevenue> findBuckets(@Param("sellerId") Integer sellerId, @Param("granularity") Granularity granularity,
+			@Param("from") Date from, @Param("to") Date to);
+
+	// aggregates the orders with id in [fromId, toId) and adds them to the buckets
+	// being rebuilt; timestamps are stored in UTC, so date_trunc matches
+	// Granularity.bucketStart. Rows are upserted in (seller, bucket) order so
+	// parallel chunks can't deadlock
+	@Transactional
+	@Modifying
+	@Query(value = "insert into tb_seller_revenue_rebuild (seller_id, granularity, bucket_start, revenue, units) "
+			+ "select o.seller_id, :granularity, date_trunc(lower(:granularity), o.placed_at), "
+			+ "sum(o.unit_price * o.quantity), sum(o.quantity) from tb_order o "
+			+ "where o.product_id is not null and o.id >= :fromId and o.id < :toId and o.placed_at is not null and o.seller_id is not null "
+			+ "group by 1, 3 order by 1, 3 "
+			+ "on conflict (seller_id, granularity, bucket_start) do update set "
+			+ "revenue = tb_seller_revenue_rebuild.revenue + excluded.revenue, "
+			+ "units = tb_seller_revenue_rebuild.units + excluded.units", nativeQuery = true)
+	int rebuildChunk(@Param("granularity") String granularity, @Param("fromId") Integer fromId,
+			@Param("toId") Integer toId);
+
+	@Transactional
+	@Modifying
+	@Query(value = "truncate tb_seller_revenue_rebuild", nativeQuery = true)
+	void clearRebuild();
+
+}
@@ -0,0 +1,18 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Collection;
+
+// Deletes on the wishlist join table. They are native SQL, so they are
+// implemented by hand to tell Hibernate which table they touch; a native
+// update without that evicts every second-level cache region.
+public interface WishlistRepository {
+
+	void removeFromWishListWhenIsSold(Integer id);
+
+	// the same for all the products sold out by one checkout, in one statement
+	void removeFromWishListWhenAreSold(Collection<Integer> ids);
+
+	// the number of rows deleted (0 when the product wasn't in the wishlist)
+	int removeFromClientWishlist(Integer productId, Integer clientId);
+
+}
@@ -0,0 +1,37 @@
+package com.rene.ecommerce.repositories;
+
+import java.util.Collection;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.query.NativeQuery;
+
+public class WishlistRepositoryImpl implements WishlistRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public void removeFromWishListWhenIsSold(Integer id) {
+		update("delete from wishlist where product_id = :id").setParameter("id", id).executeUpdate();
+	}
+
+	@Override
+	public void removeFromWishListWhenAreSold(Collection<Integer> ids) {
+		if (!ids.isEmpty()) {
+			update("delete from wishlist where product_id in (:ids)").setParameter("ids", ids).executeUpdate();
+		}
+	}
+
+	@Override
+	public int removeFromClientWishlist(Integer productId, Integer clientId) {
+		return update("delete from wishlist where product_id = :productId and client_id = :clientId")
+				.setParameter("productId", productId).setParameter("clientId", clientId).executeUpdate();
+	}
+
+	private NativeQuery<?> update(String sql) {
+		return em.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace("wishlist");
+	}
+
+}
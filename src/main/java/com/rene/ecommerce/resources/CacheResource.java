@@ -0,0 +1,34 @@
+package com.rene.ecommerce.resources;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.rene.ecommerce.domain.dto.CacheRegionDTO;
+import com.rene.ecommerce.services.CacheStatisticsService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@RestController
+@Api(value = "Cache statistics")
+@CrossOrigin
+@RequestMapping
+public class CacheResource {
+
+	@Autowired
+	private CacheStatisticsService service;
+
+	@GetMapping("/cache/statistics")
+	@ApiOperation(value = "Return the hits and misses of the second-level cache regions")
+	public ResponseEntity<List<CacheRegionDTO>> findStatistics() {
+
+		return ResponseEntity.ok().body(service.findStatistics());
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.rene.ecommerce.resources;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.rene.ecommerce.domain.dto.CartDTO;
+import com.rene.ecommerce.domain.dto.CheckoutDTO;
+import com.rene.ecommerce.security.ClientSS;
+import com.rene.ecommerce.security.CurrentUser;
+import com.rene.ecommerce.services.CartService;
+import com.rene.ecommerce.services.CheckoutService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@RestController
+@Api(value = "Cart resource")
+@CrossOrigin
+@RequestMapping
+public class CartResource {
+
+	@Autowired
+	private CartService service;
+
+	@Autowired
+	private CheckoutService checkoutService;
+
+	@ApiOperation(value = "Return the client's cart")
+	@GetMapping("/cart")
+	public ResponseEntity<CartDTO> find(@CurrentUser ClientSS client) {
+
+		return ResponseEntity.ok().body(service.find(client.getId()));
+	}
+
+	@PutMapping("/cart/{productId}")
+	@ApiOperation(value = "Put units of a product in the cart (0 takes it out)")
+	public ResponseEntity<CartDTO> put(@CurrentUser ClientSS client, @PathVariable Integer productId,
+			@RequestParam(value = "quantity", required = false) Integer quantity) {
+
+		return ResponseEntity.ok().body(service.put(client.getId(), productId, quantity));
+	}
+
+	@DeleteMapping("/cart/{productId}")
+	@ApiOperation(value = "Take a product out of the cart")
+	public ResponseEntity<CartDTO> remove(@CurrentUser ClientSS client, @PathVariable Integer productId) {
+
+		return ResponseEntity.ok().body(service.remove(client.getId(), productId));
+	}
+
+	@DeleteMapping("/cart")
+	@ApiOperation(value = "Empty the cart")
+	public ResponseEntity<Void> clear(@CurrentUser ClientSS client) {
+
+		service.clear(client.getId());
+		return ResponseEntity.noContent().build();
+	}
+
+	@PostMapping("/cart/checkout")
+	@ApiOperation(value = "Buy everything in the cart")
+	public ResponseEntity<CheckoutDTO> checkout(@CurrentUser ClientSS client) {
+
+		return ResponseEntity.ok().body(checkoutService.checkout(client.getId()));
+	}
+
+}
@@ -1,8 +1,14 @@
 package com.rene.ecommerce.resources;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,13 +17,21 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.rene.ecommerce.domain.RankingSnapshot;
 import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserRankDTO;
 import com.rene.ecommerce.domain.dto.updated.UpdatedClient;
 import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.security.ClientSS;
+import com.rene.ecommerce.security.CurrentUser;
 import com.rene.ecommerce.services.ClientService;
 import com.rene.ecommerce.services.RankingService;
+import com.rene.ecommerce.services.ranking.RankingResponseCache;
+import com.rene.ecommerce.services.ranking.RankingResponseCache.CachedJson;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -34,6 +48,9 @@ public class ClientResource {
 	@Autowired
 	private RankingService ranking;
 
+	@Autowired
+	private RankingResponseCache rankingCache;
+
 	@GetMapping("/clients")
 	@ApiOperation(value = "Return all clients")
 	public ResponseEntity<List<Client>> findAll() {
@@ -75,11 +92,37 @@ public class ClientResource {
 	}
 	
 
-	@ApiOperation(value = "Return a list of clients who buys the most")
+	@ApiOperation(value = "Return a list of clients who buys the most (optional window: daily, weekly or monthly)",
+			response = ClientRankingDTO.class, responseContainer = "List")
 	@GetMapping("/clients/ranking")
-	public ResponseEntity<List<ClientRankingDTO>> returnRankingClient() {
-		
-		
-		return ResponseEntity.ok().body(ranking.returnRankingClient());
+	public ResponseEntity<byte[]> returnRankingClient(
+			@RequestParam(value = "window", required = false) String window, WebRequest request) {
+
+		// pre-rendered JSON: repeat polls with If-None-Match get a 304
+		CachedJson json = rankingCache.clients(window);
+		if (request.checkNotModified(json.getEtag())) {
+			return null;
+		}
+
+		return ResponseEntity.ok().eTag(json.getEtag())
+				.cacheControl(CacheControl.maxAge(rankingCache.getMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic())
+				.contentType(MediaType.APPLICATION_JSON).body(json.getBody());
+	}
+
+	@ApiOperation(value = "Return your position in the clients ranking and the clients around you")
+	@GetMapping("/client/rank")
+	public ResponseEntity<UserRankDTO<ClientRankingDTO>> returnRankOfClient(@CurrentUser ClientSS client,
+			@RequestParam(value = "neighbors", required = false) Integer neighbors) {
+
+		return ResponseEntity.ok().body(ranking.returnRankOfClient(client.getId(), neighbors));
+	}
+
+	@ApiOperation(value = "Return the latest saved client ranking of a window taken at or before 'at'")
+	@GetMapping("/clients/ranking/history")
+	public ResponseEntity<List<RankingSnapshot>> returnRankingClientHistory(
+			@RequestParam(value = "window", defaultValue = "daily") String window,
+			@RequestParam(value = "at", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date at) {
+
+		return ResponseEntity.ok().body(ranking.returnRankingClientHistory(window, at));
 	}
 }
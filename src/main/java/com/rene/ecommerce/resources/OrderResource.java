@@ -1,16 +1,27 @@
 package com.rene.ecommerce.resources;
 
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.security.CurrentUser;
+import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.services.OrderExportService;
+import com.rene.ecommerce.services.OrderExportService.Format;
 import com.rene.ecommerce.services.OrderService;
 
 import io.swagger.annotations.Api;
@@ -25,6 +36,9 @@ public class OrderResource {
 	@Autowired
 	private OrderService service;
 
+	@Autowired
+	private OrderExportService exportService;
+
 	@ApiOperation(value = "Return a client order by id")
 	@GetMapping("client/order/{id}")
 	public ResponseEntity<Order> findByIdAsClient(@PathVariable Integer id) {
@@ -35,12 +49,15 @@ public class OrderResource {
 		
 		return ResponseEntity.ok().body(obj);
 	}
-	@ApiOperation(value = "Return all client orders")
+	@ApiOperation(value = "Return client orders, newest first (pass the last id as 'before' for the next page, optional ISO 'from'/'to')")
 	@GetMapping("client/orders")
-	public ResponseEntity<List<Order>> findAllAsClient() {
+	public ResponseEntity<List<Order>> findAllAsClient(@RequestParam(value = "before", required = false) Integer before,
+			@RequestParam(value = "size", required = false) Integer size,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to) {
 		
 		// true means that the user is a client
-		return ResponseEntity.ok().body(service.findAll(true));
+		return ResponseEntity.ok().body(service.findAll(true, before, size, from, to));
 	}
 	
 	@ApiOperation(value = "Return a seller order by id")
@@ -53,13 +70,36 @@ public class OrderResource {
 		
 		return ResponseEntity.ok().body(obj);
 	}
-	@ApiOperation(value = "Return all seller orders")
+	@ApiOperation(value = "Return seller orders, newest first (pass the last id as 'before' for the next page, optional ISO 'from'/'to')")
 	@GetMapping("seller/orders")
-	public ResponseEntity<List<Order>> findAll() {
+	public ResponseEntity<List<Order>> findAll(@RequestParam(value = "before", required = false) Integer before,
+			@RequestParam(value = "size", required = false) Integer size,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to) {
 		
 		// false means that the user is a seller
-		return ResponseEntity.ok().body(service.findAll(false));
+		return ResponseEntity.ok().body(service.findAll(false, before, size, from, to));
 	}
-	
-	
+
+	@ApiOperation(value = "Stream all seller orders as csv or ndjson (optional gzip and ISO 'from'/'to')")
+	@GetMapping("seller/orders/export")
+	public ResponseEntity<StreamingResponseBody> exportAsSeller(@CurrentUser SellerSS seller,
+			@RequestParam(value = "format", defaultValue = "csv") String format,
+			@RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to) {
+
+		// resolved on the request thread: the export body itself runs asynchronously
+		Integer sellerId = seller.getId();
+		Format exportFormat = OrderExportService.parseFormat(format);
+		String fileName = "orders." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+
+		StreamingResponseBody body = out -> exportService.export(sellerId, exportFormat, gzip, from, to, out);
+
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+				.contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+				.body(body);
+	}
+
 }
@@ -1,8 +1,11 @@
 package com.rene.ecommerce.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,13 +14,28 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductBulkChangeDTO;
 import com.rene.ecommerce.domain.dto.ProductDTO;
+import com.rene.ecommerce.domain.dto.ProductImportDTO;
+import com.rene.ecommerce.domain.dto.ProductSearchDTO;
+import com.rene.ecommerce.domain.dto.ReservationDTO;
 import com.rene.ecommerce.domain.dto.updated.UpdatedProduct;
+import com.rene.ecommerce.security.ClientSS;
+import com.rene.ecommerce.security.CurrentUser;
+import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.services.FlashSaleService;
+import com.rene.ecommerce.services.ProductBulkEditService;
+import com.rene.ecommerce.services.ProductImportService;
 import com.rene.ecommerce.services.ProductService;
+import com.rene.ecommerce.services.reservation.ReservationService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -31,6 +49,24 @@ public class ProductResource {
 	@Autowired
 	private ProductService service;
 
+	@Autowired
+	private ProductImportService importService;
+
+	@Autowired
+	private ProductBulkEditService bulkEditService;
+
+	@Autowired
+	private ProductSearchService searchService;
+
+	@Autowired
+	private ProductSuggestService suggestService;
+
+	@Autowired
+	private ReservationService reservationService;
+
+	@Autowired
+	private FlashSaleService flashSaleService;
+
 	@GetMapping("/product/{id}")
 	@ApiOperation(value = "Return a product by id")
 	public ResponseEntity<ProductDTO> findById(@PathVariable Integer id) {
@@ -38,19 +74,45 @@ public class ProductResource {
 		Product obj = service.findById(id);
 		ProductDTO dto = new ProductDTO(obj.getId(), obj.getName(), obj.getPrice(), obj.getProductOwner(),
 				obj.getBuyerOfTheProduct(), obj.getDescription());
+		dto.setStock(obj.getStock());
 		return ResponseEntity.ok().body(dto);
 	}
 
 	@GetMapping("/products")
-	@ApiOperation(value = "Return all products")
+	@ApiOperation(value = "Return all products, or one page of them filtered by price and seller and sorted by id, price or -price")
+
+	public ResponseEntity<List<Product>> findAll(@RequestParam(value = "minPrice", required = false) Double minPrice,
+			@RequestParam(value = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(value = "seller", required = false) Integer seller,
+			@RequestParam(value = "sort", required = false) String sort,
+			@RequestParam(value = "page", required = false) Integer page,
+			@RequestParam(value = "size", required = false) Integer size) {
 
-	public ResponseEntity<List<Product>> findAll() {
+		if (minPrice == null && maxPrice == null && seller == null && sort == null && page == null && size == null) {
+			return ResponseEntity.ok().body(service.findAll());
+		}
 
-		List<Product> products = service.findAll();
+		List<Product> products = service.findAll(minPrice, maxPrice, seller, sort, page, size);
 		return ResponseEntity.ok().body(products);
 	}
 	
 
+	@GetMapping("/products/search")
+	@ApiOperation(value = "Search the products for sale by name and description, best matches first")
+	public ResponseEntity<List<ProductSearchDTO>> search(@RequestParam(value = "q") String q,
+			@RequestParam(value = "limit", required = false) Integer limit) {
+
+		return ResponseEntity.ok().body(searchService.search(q, limit));
+	}
+
+	@GetMapping("/products/suggest")
+	@ApiOperation(value = "Complete a product name being typed, most popular names first")
+	public ResponseEntity<List<String>> suggest(@RequestParam(value = "prefix") String prefix,
+			@RequestParam(value = "limit", required = false) Integer limit) {
+
+		return ResponseEntity.ok().body(suggestService.suggest(prefix, limit));
+	}
+
 	@GetMapping("/ownproducts")
 	@ApiOperation(value = "Return own products")
 
@@ -60,18 +122,52 @@ public class ProductResource {
 		return ResponseEntity.ok().body(products);
 	}
 
+	@PutMapping("/ownproducts/price")
+	@ApiOperation(value = "Change the price of the own unsold products in a price range and/or with the given ids, by a percent or an amount")
+	public ResponseEntity<ProductBulkChangeDTO> repriceOwnProducts(@CurrentUser SellerSS seller,
+			@RequestParam(value = "minPrice", required = false) Double minPrice,
+			@RequestParam(value = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(value = "ids", required = false) List<Integer> ids,
+			@RequestParam(value = "percent", required = false) Double percent,
+			@RequestParam(value = "amount", required = false) Double amount) {
+
+		return ResponseEntity.ok()
+				.body(bulkEditService.reprice(seller.getId(), minPrice, maxPrice, ids, percent, amount));
+	}
+
+	@DeleteMapping("/ownproducts")
+	@ApiOperation(value = "Delete the own unsold products in a price range and/or with the given ids")
+	public ResponseEntity<ProductBulkChangeDTO> delistOwnProducts(@CurrentUser SellerSS seller,
+			@RequestParam(value = "minPrice", required = false) Double minPrice,
+			@RequestParam(value = "maxPrice", required = false) Double maxPrice,
+			@RequestParam(value = "ids", required = false) List<Integer> ids) {
+
+		return ResponseEntity.ok().body(bulkEditService.delist(seller.getId(), minPrice, maxPrice, ids));
+	}
+
 
 	@ApiOperation(value = "Create a product")
 	@PostMapping("/product")
 	public ResponseEntity<Product> insert(@RequestBody ProductDTO obj) {
 
 		Product product = new Product(null, obj.getName(), obj.getPrice(), null, obj.getDescription());
+		product.setStock(obj.getStock());
 
 		service.insert(product);
 
 		return ResponseEntity.ok().body(product);
 	}
 
+	@ApiOperation(value = "Create many products from a JSON array or a CSV file (header: name,price,description,stock), with a result per row")
+	@PostMapping(value = "/products/import", consumes = { "application/json", "text/csv" })
+	public ResponseEntity<ProductImportDTO> importProducts(@CurrentUser SellerSS seller,
+			@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+
+		ProductImportDTO result = importService.importProducts(seller.getId(),
+				ProductImportService.parseFormat(contentType), body);
+		return ResponseEntity.ok().body(result);
+	}
+
 	@ApiOperation(value = "Update a product")
 	@PutMapping("/product/{productId}")
 	public ResponseEntity<Product> update(@RequestBody UpdatedProduct obj,
@@ -82,15 +178,32 @@ public class ProductResource {
 		return ResponseEntity.ok().body(product);
 	}
 
-	@ApiOperation(value = "Buy a product and send a confirmation email to client and to the seller")
+	@ApiOperation(value = "Buy one or more units of a product and send a confirmation email to client and to the seller")
 	@PutMapping("buy/{productId}")
-	public ResponseEntity<Void> buyProduct(@PathVariable Integer productId) {
+	public ResponseEntity<Void> buyProduct(@PathVariable Integer productId,
+			@RequestParam(value = "quantity", required = false) Integer quantity) {
 
-		service.buyProduct(productId);
+		flashSaleService.buyProduct(productId, quantity);
 		return ResponseEntity.ok().build();
 
 	}
 
+	@ApiOperation(value = "Hold units of a product for a short while, so other buyers can't buy them meanwhile")
+	@PutMapping("reserve/{productId}")
+	public ResponseEntity<ReservationDTO> reserve(@CurrentUser ClientSS client, @PathVariable Integer productId,
+			@RequestParam(value = "quantity", required = false) Integer quantity) {
+
+		return ResponseEntity.ok().body(reservationService.reserve(client.getId(), productId, quantity));
+	}
+
+	@ApiOperation(value = "Give up a hold on a product")
+	@DeleteMapping("reserve/{productId}")
+	public ResponseEntity<Void> release(@CurrentUser ClientSS client, @PathVariable Integer productId) {
+
+		reservationService.release(client.getId(), productId);
+		return ResponseEntity.noContent().build();
+	}
+
 	@ApiOperation(value = "Delete a product")
 	@DeleteMapping("product/{id}")
 	public ResponseEntity<Void> delete(@PathVariable Integer id) {
@@ -1,8 +1,14 @@
 package com.rene.ecommerce.resources;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,13 +17,24 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.rene.ecommerce.domain.RankingSnapshot;
+import com.rene.ecommerce.domain.SellerRevenue;
 import com.rene.ecommerce.domain.dto.ranking.SellerRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserRankDTO;
 import com.rene.ecommerce.domain.dto.updated.UpdatedSeller;
 import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.security.CurrentUser;
+import com.rene.ecommerce.security.SellerSS;
 import com.rene.ecommerce.services.RankingService;
+import com.rene.ecommerce.services.RevenueRollupService;
 import com.rene.ecommerce.services.SellerService;
+import com.rene.ecommerce.services.email.SaleDigestService;
+import com.rene.ecommerce.services.ranking.RankingResponseCache;
+import com.rene.ecommerce.services.ranking.RankingResponseCache.CachedJson;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -34,6 +51,15 @@ public class SellerResource {
 	@Autowired
 	private RankingService ranking;
 
+	@Autowired
+	private RankingResponseCache rankingCache;
+
+	@Autowired
+	private RevenueRollupService rollups;
+
+	@Autowired
+	private SaleDigestService saleDigest;
+
 	@ApiOperation(value = "Return your own profile as Seller")
 	@GetMapping("/seller")
 	public ResponseEntity<Seller> find() {
@@ -74,11 +100,57 @@ public class SellerResource {
 		return ResponseEntity.noContent().build();
 	}
 
-	@ApiOperation(value = "Return a list of sellers who sells the most")
+	@ApiOperation(value = "Return a list of sellers who sells the most (optional window: daily, weekly or monthly)",
+			response = SellerRankingDTO.class, responseContainer = "List")
 	@GetMapping("/sellers/ranking")
-	public ResponseEntity<List<SellerRankingDTO>> returnRankingSeller() {
+	public ResponseEntity<byte[]> returnRankingSeller(
+			@RequestParam(value = "window", required = false) String window, WebRequest request) {
+
+		// pre-rendered JSON: repeat polls with If-None-Match get a 304
+		CachedJson json = rankingCache.sellers(window);
+		if (request.checkNotModified(json.getEtag())) {
+			return null;
+		}
+
+		return ResponseEntity.ok().eTag(json.getEtag())
+				.cacheControl(CacheControl.maxAge(rankingCache.getMaxAgeSeconds(), TimeUnit.SECONDS).cachePublic())
+				.contentType(MediaType.APPLICATION_JSON).body(json.getBody());
+	}
+
+	@ApiOperation(value = "Return your position in the sellers ranking and the sellers around you")
+	@GetMapping("/seller/rank")
+	public ResponseEntity<UserRankDTO<SellerRankingDTO>> returnRankOfSeller(@CurrentUser SellerSS seller,
+			@RequestParam(value = "neighbors", required = false) Integer neighbors) {
+
+		return ResponseEntity.ok().body(ranking.returnRankOfSeller(seller.getId(), neighbors));
+	}
+
+	@ApiOperation(value = "Return the latest saved seller ranking of a window taken at or before 'at'")
+	@GetMapping("/sellers/ranking/history")
+	public ResponseEntity<List<RankingSnapshot>> returnRankingSellerHistory(
+			@RequestParam(value = "window", defaultValue = "daily") String window,
+			@RequestParam(value = "at", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date at) {
+
+		return ResponseEntity.ok().body(ranking.returnRankingSellerHistory(window, at));
+	}
+
+	@ApiOperation(value = "Return your revenue and units sold per hour or day (optional ISO 'from'/'to')")
+	@GetMapping("/seller/stats")
+	public ResponseEntity<List<SellerRevenue>> returnStats(@CurrentUser SellerSS seller,
+			@RequestParam(value = "granularity", defaultValue = "day") String granularity,
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to) {
 
-		return ResponseEntity.ok().body(ranking.returnRankingSeller());
+		return ResponseEntity.ok().body(rollups.findStatsOfSeller(seller.getId(), granularity, from, to));
+	}
+
+	@ApiOperation(value = "Receive one summary email per interval instead of one email per sale")
+	@PutMapping("/seller/digest")
+	public ResponseEntity<Void> updateSaleDigest(@CurrentUser SellerSS seller,
+			@RequestParam(value = "enabled") boolean enabled) {
+		saleDigest.updateSaleDigest(seller.getId(), enabled);
+
+		return ResponseEntity.noContent().build();
 	}
 
 }
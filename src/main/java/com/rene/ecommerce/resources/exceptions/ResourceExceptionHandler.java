@@ -11,8 +11,11 @@ import com.rene.ecommerce.exceptions.AuthorizationException;
 import com.rene.ecommerce.exceptions.UserHasProductsRelationshipsException;
 import com.rene.ecommerce.exceptions.ClientOrSellerHasThisSameEntryException;
 import com.rene.ecommerce.exceptions.DuplicateEntryException;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
 import com.rene.ecommerce.exceptions.ObjectNotFoundException;
 import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.exceptions.ProductIsBeingBoughtException;
+import com.rene.ecommerce.exceptions.ProductIsReservedException;
 import com.rene.ecommerce.exceptions.YouHaveAlreadyAddThisProductInYourWishlistException;
 
 @ControllerAdvice
@@ -28,6 +31,24 @@ public class ResourceExceptionHandler {
 	        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(err);
 	    }
 	  
+	  @ExceptionHandler(ProductIsReservedException.class)
+	    public ResponseEntity<StandardError> productIsReserved(ProductIsReservedException e, HttpServletRequest request) {
+
+	        StandardError err = new StandardError(System.currentTimeMillis(), HttpStatus.CONFLICT.value(),
+	                "Product is reserved", e.getMessage(), request.getRequestURI());
+
+	        return ResponseEntity.status(HttpStatus.CONFLICT).body(err);
+	    }
+	  
+	  @ExceptionHandler(ProductIsBeingBoughtException.class)
+	    public ResponseEntity<StandardError> productIsBeingBought(ProductIsBeingBoughtException e, HttpServletRequest request) {
+
+	        StandardError err = new StandardError(System.currentTimeMillis(), HttpStatus.CONFLICT.value(),
+	                "Product is being bought", e.getMessage(), request.getRequestURI());
+
+	        return ResponseEntity.status(HttpStatus.CONFLICT).body(err);
+	    }
+	  
 	  @ExceptionHandler(ObjectNotFoundException.class)
 	    public ResponseEntity<StandardError> objectNotFound(ObjectNotFoundException e, HttpServletRequest request) {
 
@@ -80,4 +101,13 @@ public class ResourceExceptionHandler {
 
 	        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(err);
 	    }
+	  
+	  @ExceptionHandler(InvalidParameterException.class)
+	    public ResponseEntity<StandardError> invalidParameter(InvalidParameterException e, HttpServletRequest request) {
+
+	        StandardError err = new StandardError(System.currentTimeMillis(), HttpStatus.BAD_REQUEST.value(),
+	                "Invalid parameter", e.getMessage(), request.getRequestURI());
+
+	        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(err);
+	    }
 }
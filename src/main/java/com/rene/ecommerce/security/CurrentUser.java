@@ -0,0 +1,17 @@
+package com.rene.ecommerce.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Controller parameter of type ClientSS, SellerSS or UserSS that receives the
+// logged in user. Requests by nobody, or by the other type of user, are
+// rejected with 403 before the controller runs (see CurrentUserArgumentResolver).
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+
+}
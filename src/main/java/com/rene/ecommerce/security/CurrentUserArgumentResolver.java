@@ -0,0 +1,33 @@
+package com.rene.ecommerce.security;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.rene.ecommerce.exceptions.AuthorizationException;
+import com.rene.ecommerce.services.UserService;
+
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+	@Override
+	public boolean supportsParameter(MethodParameter parameter) {
+		return parameter.hasParameterAnnotation(CurrentUser.class)
+				&& UserSS.class.isAssignableFrom(parameter.getParameterType());
+	}
+
+	@Override
+	public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+			NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+
+		UserSS user = UserService.authenticated();
+
+		// the role check is a type check on the principal, nothing is thrown for the common case
+		if (!parameter.getParameterType().isInstance(user)) {
+			throw new AuthorizationException();
+		}
+		return user;
+	}
+
+}
@@ -13,6 +13,10 @@ public abstract class UserSS implements UserDetails {
 	
 	
 	private static final long serialVersionUID = 1L;
+
+	// granted besides Client or Seller to the emails in security.admin-emails
+	public static final String ADMIN = "Admin";
+
 	private Integer id;
 	private String email;
 	private String password;
@@ -0,0 +1,213 @@
+package com.rene.ecommerce.security.filters;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rene.ecommerce.resources.exceptions.StandardError;
+import com.rene.ecommerce.security.UserSS;
+import com.rene.ecommerce.services.IdempotencyService;
+
+// Requests to the purchase and listing endpoints that carry an Idempotency-Key header
+// run at most once per user and key: a retry gets the first response replayed
+// (marked with Idempotent-Replayed) without reaching the controller. Runs after
+// JWTAuthorizationFilter, so the user is known; requests without a user, a key or
+// to other endpoints pass through untouched.
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+	public static final String HEADER = "Idempotency-Key";
+	public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	// method and path of the endpoints that honour the header
+	private static final String[][] ENDPOINTS = { { "PUT", "/buy/*" }, { "POST", "/product" },
+			{ "POST", "/cart/checkout" } };
+
+	private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+	private final IdempotencyService idempotency;
+	private final ObjectMapper mapper;
+
+	public IdempotencyFilter(IdempotencyService idempotency, ObjectMapper mapper) {
+		this.idempotency = idempotency;
+		this.mapper = mapper;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		String key = request.getHeader(HEADER);
+		Integer userId = userId();
+		if (key == null || userId == null || !honoursKey(request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		if (key.trim().isEmpty() || key.length() > MAX_KEY_LENGTH) {
+			error(request, response, HttpStatus.BAD_REQUEST,
+					HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters");
+			return;
+		}
+
+		BufferedRequest buffered = new BufferedRequest(request);
+		String fingerprint = fingerprint(buffered);
+		IdempotencyService.Claim claim = idempotency.claim(userId, key, fingerprint);
+
+		switch (claim.getOutcome()) {
+		case REPLAY:
+			IdempotencyService.StoredResponse stored = claim.getResponse();
+			response.setStatus(stored.getStatus());
+			if (stored.getContentType() != null) {
+				response.setContentType(stored.getContentType());
+			}
+			response.setHeader(REPLAYED_HEADER, "true");
+			response.getOutputStream().write(stored.getBody());
+			return;
+		case IN_PROGRESS:
+			error(request, response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still running");
+			return;
+		case MISMATCH:
+			error(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+					"This " + HEADER + " was used for a different request");
+			return;
+		default:
+			break;
+		}
+
+		ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+		try {
+			chain.doFilter(buffered, captured);
+		} catch (IOException | ServletException | RuntimeException e) {
+			idempotency.release(userId, key);
+			throw e;
+		}
+		idempotency.complete(userId, key, fingerprint, captured.getStatus(), captured.getContentType(),
+				captured.getContentAsByteArray());
+		captured.copyBodyToResponse();
+	}
+
+	private static Integer userId() {
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+		if (auth == null || !(auth.getPrincipal() instanceof UserSS)) {
+			return null;
+		}
+		return ((UserSS) auth.getPrincipal()).getId();
+	}
+
+	private static boolean honoursKey(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		for (String[] endpoint : ENDPOINTS) {
+			if (endpoint[0].equals(request.getMethod()) && MATCHER.match(endpoint[1], path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the same key sent with another method, path, query or body is a different request
+	private static String fingerprint(BufferedRequest request) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update((request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString() + "\n")
+					.getBytes(StandardCharsets.UTF_8));
+			digest.update(request.body);
+
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void error(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+			throws IOException {
+		response.setStatus(status.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		mapper.writeValue(response.getOutputStream(), new StandardError(System.currentTimeMillis(), status.value(),
+				status.getReasonPhrase(), message, request.getRequestURI()));
+	}
+
+	// the body is read once for the fingerprint and served again to the controller
+	private static final class BufferedRequest extends HttpServletRequestWrapper {
+
+		private final byte[] body;
+
+		private BufferedRequest(HttpServletRequest request) throws IOException {
+			super(request);
+			body = StreamUtils.copyToByteArray(request.getInputStream());
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			ByteArrayInputStream in = new ByteArrayInputStream(body);
+			return new ServletInputStream() {
+
+				@Override
+				public int read() {
+					return in.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					return in.read(b, off, len);
+				}
+
+				@Override
+				public boolean isFinished() {
+					return in.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				// the whole body is in memory, so it is all available at once
+				@Override
+				public void setReadListener(ReadListener listener) {
+					try {
+						if (!isFinished()) {
+							listener.onDataAvailable();
+						}
+						listener.onAllDataRead();
+					} catch (IOException e) {
+						listener.onError(e);
+					}
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			String encoding = getCharacterEncoding();
+			return new BufferedReader(new InputStreamReader(getInputStream(),
+					encoding == null ? StandardCharsets.UTF_8.name() : encoding));
+		}
+	}
+
+}
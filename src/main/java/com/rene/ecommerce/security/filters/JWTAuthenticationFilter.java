@@ -18,9 +18,8 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rene.ecommerce.domain.dto.AuthDTO;
-import com.rene.ecommerce.security.ClientSS;
 import com.rene.ecommerce.security.JWTUtil;
-import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.security.UserSS;
 
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
@@ -58,14 +57,7 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
 	protected void successfulAuthentication(HttpServletRequest req, HttpServletResponse res, FilterChain chain,
 			Authentication auth) throws IOException, ServletException {
 
-		String username = "";
-
-		try {
-			username = ((ClientSS) auth.getPrincipal()).getUsername();
-
-		} catch (ClassCastException e) {
-			username = ((SellerSS) auth.getPrincipal()).getUsername();
-		}
+		String username = ((UserSS) auth.getPrincipal()).getUsername();
 
 		String token = jwtUtil.generateToken(username);
 		res.addHeader("Authorization", "Bearer " + token);
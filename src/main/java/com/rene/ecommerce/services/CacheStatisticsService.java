@@ -0,0 +1,52 @@
+package com.rene.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.dto.CacheRegionDTO;
+import com.rene.ecommerce.exceptions.ObjectNotFoundException;
+
+// Hit/miss counters of the second-level cache regions configured in application.conf.
+// Hibernate only counts them with cache.statistics.enabled, which costs on every session
+@Service
+public class CacheStatisticsService {
+
+	public static final String[] ENTITY_REGIONS = { "product", "seller", "client" };
+	public static final String[] QUERY_REGIONS = { "users-by-email" };
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	public List<CacheRegionDTO> findStatistics() {
+		Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+		if (!stats.isStatisticsEnabled()) {
+			throw new ObjectNotFoundException("Cache statistics are off, see cache.statistics.enabled");
+		}
+
+		List<CacheRegionDTO> regions = new ArrayList<>();
+		for (String region : ENTITY_REGIONS) {
+			regions.add(toDTO(region, stats.getDomainDataRegionStatistics(region)));
+		}
+		for (String region : QUERY_REGIONS) {
+			// null until the first query used the region
+			regions.add(toDTO(region, stats.getQueryRegionStatistics(region)));
+		}
+		return regions;
+	}
+
+	private static CacheRegionDTO toDTO(String region, CacheRegionStatistics stats) {
+		if (stats == null) {
+			return new CacheRegionDTO(region, 0L, 0L, 0L);
+		}
+		return new CacheRegionDTO(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount());
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.rene.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.CartDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+
+// Carts of the clients, kept in memory by client id: product id -> units. A cart
+// nobody has touched for cart.ttl-millis is dropped, on its next use or by the
+// periodic sweep, whichever comes first. Nothing is reserved by a cart; the stock
+// is only taken by the checkout.
+@Service
+public class CartService {
+
+	private static final class Cart {
+
+		private final Map<Integer, Integer> items = new LinkedHashMap<>();
+		private long expiresAt;
+	}
+
+	@Autowired
+	private ProductService productService;
+
+	@Value("${cart.ttl-millis:3600000}")
+	private long ttlMillis = 3600000L;
+
+	@Value("${cart.max-items:100}")
+	private int maxItems = 100;
+
+	private final Map<Integer, Cart> carts = new ConcurrentHashMap<>();
+
+	public CartDTO find(Integer clientId) {
+		Cart cart = carts.get(clientId);
+		if (cart == null) {
+			return new CartDTO();
+		}
+		synchronized (cart) {
+			if (expired(cart)) {
+				return new CartDTO();
+			}
+			return toDTO(cart);
+		}
+	}
+
+	// sets the units of a product in the cart; 0 takes it out
+	public CartDTO put(Integer clientId, Integer productId, Integer quantity) {
+		int units = quantity == null ? 1 : quantity;
+		if (units < 0) {
+			throw new InvalidParameterException("Quantity must not be negative");
+		}
+		if (units == 0) {
+			return remove(clientId, productId);
+		}
+
+		Product product = productService.findById(productId);
+		if (!Product.isForSale(product)) {
+			throw new ProductHasAlreadyBeenSold();
+		}
+
+		while (true) {
+			Cart cart = carts.computeIfAbsent(clientId, id -> new Cart());
+			synchronized (cart) {
+				if (carts.get(clientId) != cart) {
+					// dropped by the sweep meanwhile
+					continue;
+				}
+				if (expired(cart)) {
+					cart.items.clear();
+				}
+				if (!cart.items.containsKey(productId) && cart.items.size() >= maxItems) {
+					throw new InvalidParameterException("A cart can't hold more than " + maxItems + " products");
+				}
+				cart.items.put(productId, units);
+				touch(cart);
+				return toDTO(cart);
+			}
+		}
+	}
+
+	public CartDTO remove(Integer clientId, Integer productId) {
+		Cart cart = carts.get(clientId);
+		if (cart == null) {
+			return new CartDTO();
+		}
+		synchronized (cart) {
+			if (expired(cart)) {
+				cart.items.clear();
+			}
+			cart.items.remove(productId);
+			touch(cart);
+			return toDTO(cart);
+		}
+	}
+
+	public void clear(Integer clientId) {
+		carts.remove(clientId);
+	}
+
+	// what the cart holds right now (product id -> units), empty once expired
+	public Map<Integer, Integer> items(Integer clientId) {
+		Cart cart = carts.get(clientId);
+		if (cart == null) {
+			return new LinkedHashMap<>();
+		}
+		synchronized (cart) {
+			return expired(cart) ? new LinkedHashMap<>() : new LinkedHashMap<>(cart.items);
+		}
+	}
+
+	// what's left of a cart after a checkout: the items added or changed while it ran
+	public void checkedOut(Integer clientId, Map<Integer, Integer> bought) {
+		Cart cart = carts.get(clientId);
+		if (cart == null) {
+			return;
+		}
+		synchronized (cart) {
+			cart.items.entrySet().removeIf(x -> x.getValue().equals(bought.get(x.getKey())));
+			if (cart.items.isEmpty()) {
+				carts.remove(clientId, cart);
+			}
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${cart.sweep-millis:60000}")
+	public void sweep() {
+		carts.entrySet().removeIf(x -> {
+			synchronized (x.getValue()) {
+				return expired(x.getValue());
+			}
+		});
+	}
+
+	int size() {
+		return carts.size();
+	}
+
+	private boolean expired(Cart cart) {
+		return cart.expiresAt <= System.currentTimeMillis();
+	}
+
+	private void touch(Cart cart) {
+		cart.expiresAt = System.currentTimeMillis() + ttlMillis;
+	}
+
+	private static CartDTO toDTO(Cart cart) {
+		List<CartDTO.Item> items = new ArrayList<>();
+		for (Map.Entry<Integer, Integer> x : cart.items.entrySet()) {
+			items.add(new CartDTO.Item(x.getKey(), x.getValue()));
+		}
+		return new CartDTO(items, new Date(cart.expiresAt));
+	}
+
+}
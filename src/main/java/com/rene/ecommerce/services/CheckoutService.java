@@ -0,0 +1,209 @@
+package com.rene.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.CheckoutDTO;
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.ProductRepository;
+import com.rene.ecommerce.services.email.EmailService;
+import com.rene.ecommerce.services.email.SaleDigestService;
+import com.rene.ecommerce.services.ranking.UserRankService;
+import com.rene.ecommerce.services.ranking.WindowedRankingService;
+import com.rene.ecommerce.services.reservation.ReservationService;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
+
+// Buys everything in a client's cart in one transaction: all of it or nothing. The
+// database work doesn't grow with the number of items: one read of the products,
+// one statement taking their stock, one inserting the orders, one per kind of
+// counter (buyer, sellers) and one clearing the wishlists of what sold out. Only
+// products selling out get a statement of their own, the lock confirming it.
+// The emails, rollups and rankings follow in one background thread, as for a
+// single purchase.
+@Service
+public class CheckoutService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CheckoutService.class);
+
+	private static final class Purchase {
+
+		private final List<Order> orders = new ArrayList<>();
+		private final List<Integer> soldOut = new ArrayList<>();
+		private RankedUserDTO buyerTotals;
+		private List<RankedUserDTO> sellerTotals;
+		private double total;
+	}
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private ClientService clientService;
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Autowired
+	private OrderRepository orderRepo;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	@Autowired
+	private EmailService emailService;
+
+	@Autowired
+	private RevenueRollupService revenueRollupService;
+
+	@Autowired
+	private WindowedRankingService windowedRankingService;
+
+	@Autowired
+	private UserRankService userRankService;
+
+	@Autowired
+	private SaleDigestService saleDigestService;
+
+	@Autowired
+	private ProductSearchService productSearch;
+
+	@Autowired
+	private ProductSuggestService productSuggest;
+
+	@Autowired
+	private ProductFilterService productFilter;
+
+	@Autowired
+	private ReservationService reservations;
+
+	public CheckoutDTO checkout(Integer clientId) {
+		Map<Integer, Integer> items = cartService.items(clientId);
+		if (items.isEmpty()) {
+			throw new InvalidParameterException("The cart is empty");
+		}
+
+		Purchase purchase = new TransactionTemplate(transactionManager).execute(status -> buy(clientId, items));
+		cartService.checkedOut(clientId, items);
+
+		// the counters and stock were changed in SQL, behind the cached entities
+		Cache cache = emf.getCache();
+		cache.evict(Client.class, clientId);
+		for (Order order : purchase.orders) {
+			cache.evict(Product.class, order.getProductOrder().getId());
+			if (order.getSeller() != null) {
+				cache.evict(Seller.class, order.getSeller().getId());
+			}
+		}
+
+		for (Order order : purchase.orders) {
+			Integer id = order.getProductOrder().getId();
+			reservations.bought(clientId, id, order.getQuantity(), purchase.soldOut.contains(id));
+		}
+		for (Integer id : purchase.soldOut) {
+			productSearch.remove(id);
+			productSuggest.remove(id);
+		}
+		productFilter.removeAll(purchase.soldOut);
+		userRankService.recordTotals(purchase.buyerTotals, purchase.sellerTotals);
+		threadAfterCheckout(purchase);
+
+		List<Integer> ids = new ArrayList<>();
+		purchase.orders.forEach(x -> ids.add(x.getId()));
+		LOG.info("Client " + clientId + " checked out " + ids.size() + " products");
+		return new CheckoutDTO(ids, purchase.total);
+	}
+
+	private Purchase buy(Integer clientId, Map<Integer, Integer> items) {
+		Client buyer = clientService.findById(clientId);
+
+		Map<Integer, Product> products = new HashMap<>();
+		for (Product product : productRepo.findAllById(items.keySet())) {
+			products.put(product.getId(), product);
+		}
+		for (Integer id : items.keySet()) {
+			Product product = products.get(id);
+			if (product == null || !Product.isForSale(product)) {
+				throw new ProductHasAlreadyBeenSold("Product " + id + " is no longer for sale");
+			}
+			reservations.checkAvailable(clientId, id, items.get(id), product.getStock());
+		}
+
+		Map<Integer, Integer> left = productRepo.takeStock(items);
+		for (Map.Entry<Integer, Integer> x : left.entrySet()) {
+			if (x.getValue() < 0) {
+				throw new ProductHasAlreadyBeenSold("There are fewer than " + items.get(x.getKey()) + " units of "
+						+ products.get(x.getKey()).getName() + " left");
+			}
+		}
+
+		Purchase purchase = new Purchase();
+		Date now = new Date(System.currentTimeMillis());
+		Map<Integer, double[]> sales = new LinkedHashMap<>();
+		for (Map.Entry<Integer, Integer> item : items.entrySet()) {
+			Product product = products.get(item.getKey());
+			if (left.get(product.getId()) == 0 && productRepo.lockIfSoldOut(product)) {
+				product.setBuyerOfTheProduct(buyer);
+				product.setSold(true);
+				purchase.soldOut.add(product.getId());
+			}
+
+			Order order = new Order(null, now, product, buyer, item.getValue());
+			purchase.orders.add(order);
+			double total = order.getTotal() == null ? 0 : order.getTotal();
+			purchase.total += total;
+			if (order.getSeller() != null) {
+				double[] sale = sales.computeIfAbsent(order.getSeller().getId(), id -> new double[2]);
+				sale[0]++;
+				sale[1] += total;
+			}
+		}
+
+		productRepo.removeFromWishListWhenAreSold(purchase.soldOut);
+		orderRepo.insertAll(purchase.orders);
+		purchase.buyerTotals = orderRepo.addToClientTotals(clientId, purchase.orders.size(), purchase.total);
+		purchase.sellerTotals = orderRepo.addToSellerTotals(sales);
+		return purchase;
+	}
+
+	private void threadAfterCheckout(Purchase purchase) {
+		Thread threadAfterCheckout = new Thread() {
+			public void run() {
+				revenueRollupService.recordSales(purchase.orders);
+				for (Order order : purchase.orders) {
+					windowedRankingService.recordPurchase(order);
+					saleDigestService.recordSale(order);
+					emailService.sendConfirmationEmailHtml(ProductService.receipt(order.getProductOrder(),
+							order.getBuyer()));
+				}
+			}
+		};
+		threadAfterCheckout.start();
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.rene.ecommerce.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.exceptions.ProductIsBeingBoughtException;
+
+// Flash-sale mode of PUT /buy (flash-sale.enabled): the purchases of a product on
+// this node go through a lane of the product, which runs them one at a time, in
+// the order they came in, so they don't queue up on the product's stock rows and
+// the connection pool. A purchase is only let into the lane while the units the
+// purchases in it are buying leave enough for it; any other is turned down at once
+// without touching the database, and so are those beyond flash-sale.max-queued.
+// A lane exists while purchases are in it and starts from the product's stock as
+// it's cached; the database still has the last word on every purchase.
+@Service
+public class FlashSaleService {
+
+	private static final class Lane {
+
+		// fair, so the waiting purchases take their turn first come first served
+		private final ReentrantLock turn = new ReentrantLock(true);
+		// units left as far as this node knows
+		private int left;
+		// units and number of the purchases in the lane
+		private int claimed;
+		private int queued;
+		private boolean closed;
+
+		private Lane(int left) {
+			this.left = left;
+		}
+	}
+
+	@Autowired
+	private ProductService productService;
+
+	@Value("${flash-sale.enabled:false}")
+	private boolean enabled = false;
+
+	@Value("${flash-sale.max-queued:50}")
+	private int maxQueued = 50;
+
+	private final Map<Integer, Lane> lanes = new ConcurrentHashMap<>();
+
+	public Product buyProduct(Integer productId, Integer quantity) {
+		int units = quantity == null ? 1 : quantity;
+		if (!enabled || units < 1) {
+			return productService.buyProduct(productId, quantity);
+		}
+
+		Lane lane = enter(productId, units);
+		boolean bought = false;
+		boolean outOfStock = false;
+		lane.turn.lock();
+		try {
+			Product product = productService.buyProduct(productId, units);
+			bought = true;
+			return product;
+		} catch (ProductHasAlreadyBeenSold e) {
+			outOfStock = true;
+			throw e;
+		} finally {
+			leave(productId, lane, units, bought, outOfStock);
+			lane.turn.unlock();
+		}
+	}
+
+	int size() {
+		return lanes.size();
+	}
+
+	private Lane enter(Integer productId, int units) {
+		while (true) {
+			Lane lane = lanes.get(productId);
+			if (lane == null) {
+				Product product = productService.findById(productId);
+				int stock = !Product.isForSale(product) || product.getStock() == null ? 0 : product.getStock();
+				Lane fresh = new Lane(stock);
+				lane = lanes.putIfAbsent(productId, fresh);
+				if (lane == null) {
+					lane = fresh;
+				}
+			}
+
+			synchronized (lane) {
+				if (lane.closed) {
+					// emptied and dropped meanwhile
+					continue;
+				}
+				if (units > lane.left) {
+					close(productId, lane);
+					throw units == 1 ? new ProductHasAlreadyBeenSold()
+							: new ProductHasAlreadyBeenSold("There are fewer than " + units + " units of the product left");
+				}
+				if (lane.claimed + units > lane.left) {
+					throw new ProductIsBeingBoughtException();
+				}
+				if (lane.queued >= maxQueued) {
+					throw new ProductIsBeingBoughtException("Too many buyers are buying the product right now");
+				}
+				lane.claimed += units;
+				lane.queued++;
+				return lane;
+			}
+		}
+	}
+
+	private void leave(Integer productId, Lane lane, int units, boolean bought, boolean outOfStock) {
+		synchronized (lane) {
+			lane.claimed -= units;
+			lane.queued--;
+			if (bought) {
+				lane.left -= units;
+			} else if (outOfStock) {
+				// sold elsewhere: by a checkout or on another node
+				lane.left = Math.min(lane.left, units - 1);
+			}
+			close(productId, lane);
+		}
+	}
+
+	// drops an empty lane, so the next purchase starts from the product's stock again
+	private void close(Integer productId, Lane lane) {
+		if (lane.queued == 0) {
+			lane.closed = true;
+			lanes.remove(productId, lane);
+		}
+	}
+
+}
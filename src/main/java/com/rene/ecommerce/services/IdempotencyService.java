@@ -0,0 +1,197 @@
+package com.rene.ecommerce.services;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rene.ecommerce.domain.IdempotencyKey;
+import com.rene.ecommerce.repositories.IdempotencyKeyRepository;
+
+// Idempotency keys of the write endpoints (see IdempotencyFilter), per user. The
+// first request with a key claims it in tb_idempotency_key, which every node sees,
+// and its response is stored there once it is done. A retry gets that response
+// back: from memory when it reaches the same node, else from the table, and then
+// it is kept in memory too. Responses are kept for idempotency.ttl-millis; at most
+// idempotency.memory.max-entries of them in memory, the least used ones making
+// room for the new ones, and all of them in the table.
+@Service
+public class IdempotencyService {
+
+	public enum Outcome {
+		// the key is ours, run the request and complete or release it
+		CLAIMED,
+		// the key was already used: replay its response
+		REPLAY,
+		// the key's first request is still running
+		IN_PROGRESS,
+		// the key was used for a different request
+		MISMATCH
+	}
+
+	public static final class StoredResponse {
+
+		private final String fingerprint;
+		private final int status;
+		private final String contentType;
+		private final byte[] body;
+		private final long expiresAt;
+
+		public StoredResponse(String fingerprint, int status, String contentType, byte[] body, long expiresAt) {
+			this.fingerprint = fingerprint;
+			this.status = status;
+			this.contentType = contentType;
+			this.body = body;
+			this.expiresAt = expiresAt;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public byte[] getBody() {
+			return Arrays.copyOf(body, body.length);
+		}
+	}
+
+	public static final class Claim {
+
+		private final Outcome outcome;
+		private final StoredResponse response;
+
+		public Claim(Outcome outcome, StoredResponse response) {
+			this.outcome = outcome;
+			this.response = response;
+		}
+
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		// the response to replay, for REPLAY
+		public StoredResponse getResponse() {
+			return response;
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(IdempotencyService.class);
+
+	@Autowired
+	private IdempotencyKeyRepository keyRepo;
+
+	@Value("${idempotency.ttl-millis:86400000}")
+	private long ttlMillis = 86400000L;
+
+	// how long a claim holds while its request runs; a node that dies mid-request
+	// doesn't block the key for longer than this
+	@Value("${idempotency.in-progress-millis:60000}")
+	private long inProgressMillis = 60000L;
+
+	@Value("${idempotency.memory.max-entries:10000}")
+	private int maxEntries = 10000;
+
+	private Cache<String, StoredResponse> responses;
+
+	@PostConstruct
+	void buildCache() {
+		responses = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	public Claim claim(Integer userId, String key, String fingerprint) {
+		String id = id(userId, key);
+		long now = System.currentTimeMillis();
+
+		// one read from the table may be older than the ttl of the cache
+		StoredResponse cached = responses.getIfPresent(id);
+		if (cached != null && cached.expiresAt > now) {
+			return replay(cached, fingerprint);
+		}
+
+		if (keyRepo.claim(id, fingerprint, new Date(now), new Date(now + inProgressMillis))) {
+			return new Claim(Outcome.CLAIMED, null);
+		}
+
+		IdempotencyKey stored = keyRepo.findById(id).orElse(null);
+		if (stored == null) {
+			// deleted by the sweep in between; it is unused now
+			return keyRepo.claim(id, fingerprint, new Date(now), new Date(now + inProgressMillis))
+					? new Claim(Outcome.CLAIMED, null)
+					: new Claim(Outcome.IN_PROGRESS, null);
+		}
+		if (stored.getStatus() == null) {
+			return stored.getFingerprint().equals(fingerprint) ? new Claim(Outcome.IN_PROGRESS, null)
+					: new Claim(Outcome.MISMATCH, null);
+		}
+
+		StoredResponse response = new StoredResponse(stored.getFingerprint(), stored.getStatus(),
+				stored.getContentType(), stored.getBody() == null ? new byte[0] : stored.getBody(),
+				stored.getExpiresAt().getTime());
+		remember(id, response);
+		return replay(response, fingerprint);
+	}
+
+	// the response of a claimed key; server errors aren't kept, so the request can be retried
+	public void complete(Integer userId, String key, String fingerprint, int status, String contentType,
+			byte[] body) {
+		String id = id(userId, key);
+		if (status >= 500) {
+			release(userId, key);
+			return;
+		}
+
+		long expiresAt = System.currentTimeMillis() + ttlMillis;
+		keyRepo.complete(id, status, contentType, body, new Date(expiresAt));
+		remember(id, new StoredResponse(fingerprint, status, contentType, body, expiresAt));
+	}
+
+	public void release(Integer userId, String key) {
+		keyRepo.release(id(userId, key));
+	}
+
+	@Scheduled(fixedDelayString = "${idempotency.sweep-millis:600000}")
+	public void sweep() {
+		long now = System.currentTimeMillis();
+		try {
+			int deleted = keyRepo.deleteExpired(new Date(now));
+			if (deleted > 0) {
+				LOG.info("Deleted " + deleted + " expired idempotency keys");
+			}
+		} catch (RuntimeException e) {
+			LOG.info("Could not delete the expired idempotency keys: " + e.getMessage());
+		}
+	}
+
+	int size() {
+		responses.cleanUp();
+		return (int) responses.estimatedSize();
+	}
+
+	private void remember(String id, StoredResponse response) {
+		responses.put(id, response);
+	}
+
+	private static Claim replay(StoredResponse response, String fingerprint) {
+		return response.fingerprint.equals(fingerprint) ? new Claim(Outcome.REPLAY, response)
+				: new Claim(Outcome.MISMATCH, null);
+	}
+
+	private static String id(Integer userId, String key) {
+		return userId + ":" + key;
+	}
+
+}
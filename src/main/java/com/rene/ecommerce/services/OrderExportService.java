@@ -0,0 +1,195 @@
+package com.rene.ecommerce.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.rene.ecommerce.domain.dto.OrderExportDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.OrderRepository;
+
+@Service
+public class OrderExportService {
+
+	public enum Format {
+		CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+		private final String contentType;
+		private final String extension;
+
+		Format(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	private static final String CSV_HEADER = "order_id,placed_at,product_id,product_name,price,buyer_id,buyer_name";
+
+	// rows are flushed to the client in chunks of this size
+	private static final int FLUSH_EVERY = 500;
+
+	@Autowired
+	private OrderRepository orderRepo;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	public static Format parseFormat(String format) {
+		try {
+			return Format.valueOf(format.trim().toUpperCase());
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw new InvalidParameterException("Export format must be csv or ndjson");
+		}
+	}
+
+	// streams the seller's orders from a forward-only cursor, so memory stays
+	// constant no matter how many orders the seller has
+	@Transactional
+	public void export(Integer sellerId, Format format, boolean gzip, Date from, Date to, OutputStream out)
+			throws IOException {
+
+		if (from == null) {
+			from = OrderService.MIN_DATE;
+		}
+		if (to == null) {
+			to = OrderService.MAX_DATE;
+		}
+
+		GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 8192) : null;
+		Writer writer = new BufferedWriter(
+				new OutputStreamWriter(gzip ? gzipOut : out, StandardCharsets.UTF_8), 16384);
+
+		try (Stream<OrderExportDTO> rows = orderRepo.streamExportOfSeller(sellerId, from, to)) {
+			if (format == Format.NDJSON) {
+				writeNdjson(rows.iterator(), writer);
+			} else {
+				writeCsv(rows.iterator(), writer);
+			}
+		}
+
+		writer.flush();
+		if (gzipOut != null) {
+			gzipOut.finish();
+		}
+	}
+
+	private void writeCsv(Iterator<OrderExportDTO> rows, Writer writer) throws IOException {
+		writer.write(CSV_HEADER);
+		writer.write("\r\n");
+
+		int count = 0;
+		while (rows.hasNext()) {
+			OrderExportDTO row = rows.next();
+
+			writer.write(toText(row.getOrderId()));
+			writer.write(',');
+			writer.write(toText(row.getPlacedAt()));
+			writer.write(',');
+			writer.write(toText(row.getProductId()));
+			writer.write(',');
+			writer.write(csvField(row.getProductName()));
+			writer.write(',');
+			writer.write(toText(row.getPrice()));
+			writer.write(',');
+			writer.write(toText(row.getBuyerId()));
+			writer.write(',');
+			writer.write(csvField(row.getBuyerName()));
+			writer.write("\r\n");
+
+			if (++count % FLUSH_EVERY == 0) {
+				writer.flush();
+			}
+		}
+	}
+
+	private void writeNdjson(Iterator<OrderExportDTO> rows, Writer writer) throws IOException {
+		JsonGenerator gen = jsonFactory.createGenerator(writer);
+		gen.setRootValueSeparator(new SerializedString("\n"));
+		gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		int count = 0;
+		while (rows.hasNext()) {
+			OrderExportDTO row = rows.next();
+
+			gen.writeStartObject();
+			writeNumberField(gen, "orderId", row.getOrderId());
+			gen.writeStringField("placedAt", row.getPlacedAt() == null ? null : toText(row.getPlacedAt()));
+			writeNumberField(gen, "productId", row.getProductId());
+			gen.writeStringField("productName", row.getProductName());
+			if (row.getPrice() == null) {
+				gen.writeNullField("price");
+			} else {
+				gen.writeNumberField("price", BigDecimal.valueOf(row.getPrice()));
+			}
+			writeNumberField(gen, "buyerId", row.getBuyerId());
+			gen.writeStringField("buyerName", row.getBuyerName());
+			gen.writeEndObject();
+
+			if (++count % FLUSH_EVERY == 0) {
+				gen.flush();
+			}
+		}
+
+		if (count > 0) {
+			gen.writeRaw('\n');
+		}
+		gen.close();
+	}
+
+	private static void writeNumberField(JsonGenerator gen, String name, Integer value) throws IOException {
+		if (value == null) {
+			gen.writeNullField(name);
+		} else {
+			gen.writeNumberField(name, value);
+		}
+	}
+
+	private static String toText(Object value) {
+		if (value == null) {
+			return "";
+		}
+		if (value instanceof Date) {
+			return DateTimeFormatter.ISO_INSTANT.format(((Date) value).toInstant());
+		}
+		if (value instanceof Double) {
+			return BigDecimal.valueOf((Double) value).toPlainString();
+		}
+		return value.toString();
+	}
+
+	// RFC 4180: quote fields with separators, quotes or line breaks
+	static String csvField(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+}
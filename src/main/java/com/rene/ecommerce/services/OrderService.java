@@ -1,5 +1,6 @@
 package com.rene.ecommerce.services;
 
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -8,8 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.rene.ecommerce.domain.Order;
-import com.rene.ecommerce.domain.users.Client;
-import com.rene.ecommerce.domain.users.Seller;
 import com.rene.ecommerce.exceptions.AuthorizationException;
 import com.rene.ecommerce.exceptions.ObjectNotFoundException;
 import com.rene.ecommerce.repositories.OrderRepository;
@@ -18,22 +17,16 @@ import com.rene.ecommerce.security.SellerSS;
 
 @Service
 public class OrderService {
-	@Autowired
-	private OrderRepository orderRepo;
-
-	@Autowired
-	private ClientService clientService;
 
-	@Autowired
-	private SellerService sellerService;
+	public static final int DEFAULT_PAGE_SIZE = 20;
+	public static final int MAX_PAGE_SIZE = 100;
 
-	private Client findClientById(Integer id) {
-		return clientService.findById(id);
-	}
+	// open bounds for the placed_at range when "from"/"to" are not given
+	public static final Date MIN_DATE = new Date(0L);
+	public static final Date MAX_DATE = new Date(253402300799000L);
 
-	private Seller findSellerById(Integer id) {
-		return sellerService.findById(id);
-	}
+	@Autowired
+	private OrderRepository orderRepo;
 
 	public Order findById(Integer id, boolean isClient) {
 		Optional<Order> obj = orderRepo.findById(id);
@@ -45,63 +38,91 @@ public class OrderService {
 
 	}
 
-	public List<Order> findAll(boolean isClient) {
-		
-		if(isClient) {
-			return findAllAsClient();
+	// before: id of the last order of the previous page (null for the first page)
+	// from/to: optional placed_at range, from inclusive and to exclusive
+	public List<Order> findAll(boolean isClient, Integer before, Integer size, Date from, Date to) {
+
+		if (before == null) {
+			before = Integer.MAX_VALUE;
+		}
+		if (size == null || size <= 0) {
+			size = DEFAULT_PAGE_SIZE;
+		}
+		size = Math.min(size, MAX_PAGE_SIZE);
+
+		if (from == null) {
+			from = MIN_DATE;
+		}
+		if (to == null) {
+			to = MAX_DATE;
 		}
-		return findAllAsSeller();
-		
+
+		if (isClient) {
+			return findAllAsClient(before, size, from, to);
+		}
+		return findAllAsSeller(before, size, from, to);
 
 	}
 
 	private Order findByIdAsSeller(Integer id, Optional<Order> obj) {
 		SellerSS user = UserService.sellerAuthenticated();
-		Seller sel = findSellerById(user.getId());
 
-		if (!sel.getOrders().contains(obj.get())) {
+		if (user == null) {
 			throw new AuthorizationException();
+		}
 
-		} else {
-
-			try {
-				return obj.get();
+		try {
+			Order order = obj.get();
 
-			} catch (NoSuchElementException e) {
-				throw new ObjectNotFoundException();
+			// buyer and seller are loaded with the order, no need to ask the database again
+			if (order.getSeller() == null || !user.getId().equals(order.getSeller().getId())) {
+				throw new AuthorizationException();
 			}
+			return order;
+
+		} catch (NoSuchElementException e) {
+			throw new ObjectNotFoundException();
 		}
 	}
 
 	private Order findByIdAsClient(Integer id, Optional<Order> obj) {
 		ClientSS user = UserService.clientAuthenticated();
-		Client cli = findClientById(user.getId());
 
-		if (!cli.getOrders().contains(obj.get())) {
+		if (user == null) {
 			throw new AuthorizationException();
+		}
 
-		} else {
-
-			try {
-				return obj.get();
+		try {
+			Order order = obj.get();
 
-			} catch (NoSuchElementException e) {
-				throw new ObjectNotFoundException();
+			// buyer and seller are loaded with the order, no need to ask the database again
+			if (order.getBuyer() == null || !user.getId().equals(order.getBuyer().getId())) {
+				throw new AuthorizationException();
 			}
+			return order;
+
+		} catch (NoSuchElementException e) {
+			throw new ObjectNotFoundException();
 		}
 	}
-	
-	private List<Order> findAllAsClient(){
+
+	private List<Order> findAllAsClient(Integer before, Integer size, Date from, Date to) {
 		ClientSS user = UserService.clientAuthenticated();
-		Client cli = findClientById(user.getId());
 
-		return cli.getOrders();
+		if (user == null) {
+			throw new AuthorizationException();
+		}
+
+		return orderRepo.findPageOfClient(user.getId(), before, from, to, size);
 	}
-	
-	private List<Order> findAllAsSeller(){
+
+	private List<Order> findAllAsSeller(Integer before, Integer size, Date from, Date to) {
 		SellerSS user = UserService.sellerAuthenticated();
-		Seller sel = findSellerById(user.getId());
 
-		return sel.getOrders();
+		if (user == null) {
+			throw new AuthorizationException();
+		}
+
+		return orderRepo.findPageOfSeller(user.getId(), before, from, to, size);
 	}
 }
@@ -0,0 +1,137 @@
+package com.rene.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductBulkChangeDTO;
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.ProductRepository;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
+
+// Reprices or delists many of a seller's unsold products at once. Each change is a
+// single statement (no product is loaded, owned or sold products simply don't match),
+// and once it has committed the changed ids leave the entity cache and the
+// in-memory indexes together.
+@Service
+public class ProductBulkEditService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductBulkEditService.class);
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	@Autowired
+	private ProductSearchService productSearch;
+
+	@Autowired
+	private ProductSuggestService productSuggest;
+
+	@Autowired
+	private ProductFilterService productFilter;
+
+	// either a percentage (-10 is 10% off) or an absolute amount added to each price;
+	// prices never go below 0
+	public ProductBulkChangeDTO reprice(Integer sellerId, Double minPrice, Double maxPrice, List<Integer> ids,
+			Double percent, Double amount) {
+
+		if ((percent == null) == (amount == null)) {
+			throw new InvalidParameterException("Give either a percent or an amount");
+		}
+		if (percent != null && !(percent > -100 && percent < 10000)) {
+			throw new InvalidParameterException("Percent must be more than -100 and less than 10000");
+		}
+		if (amount != null && (amount.isNaN() || amount.isInfinite())) {
+			throw new InvalidParameterException("Amount is not a number");
+		}
+		List<Integer> idFilter = idFilter(ids);
+
+		double factor = percent == null ? 1 : 1 + percent / 100;
+		double plus = amount == null ? 0 : amount;
+		List<SearchableProductDTO> rows = new TransactionTemplate(transactionManager)
+				.execute(status -> productRepo.repriceUnsold(sellerId, minPrice, maxPrice, idFilter, factor, plus));
+
+		Seller owner = new Seller();
+		owner.setId(sellerId);
+		List<Integer> changed = new ArrayList<>();
+		List<Product> products = new ArrayList<>();
+		for (SearchableProductDTO x : rows) {
+			Product product = new Product(x.getId(), x.getName(), x.getPrice(), owner, x.getDescription());
+			product.setSold(false);
+			products.add(product);
+			changed.add(x.getId());
+		}
+
+		evict(changed);
+		for (Product product : products) {
+			productSearch.put(product);
+		}
+		productFilter.putAll(products);
+
+		LOG.info("Seller " + sellerId + " repriced " + changed.size() + " products");
+		return new ProductBulkChangeDTO(changed);
+	}
+
+	public ProductBulkChangeDTO delist(Integer sellerId, Double minPrice, Double maxPrice, List<Integer> ids) {
+
+		if (minPrice == null && maxPrice == null && ids == null) {
+			throw new InvalidParameterException("Give a price range or the ids of the products to delist");
+		}
+		List<Integer> idFilter = idFilter(ids);
+
+		List<Integer> deleted = new TransactionTemplate(transactionManager)
+				.execute(status -> productRepo.deleteUnsold(sellerId, minPrice, maxPrice, idFilter));
+
+		evict(deleted);
+		for (Integer id : deleted) {
+			productSearch.remove(id);
+			productSuggest.remove(id);
+		}
+		productFilter.removeAll(deleted);
+
+		LOG.info("Seller " + sellerId + " delisted " + deleted.size() + " products");
+		return new ProductBulkChangeDTO(deleted);
+	}
+
+	// "ids=" with nothing after it selects nothing rather than everything
+	private static List<Integer> idFilter(List<Integer> ids) {
+		if (ids == null) {
+			return null;
+		}
+		List<Integer> filter = new ArrayList<>();
+		for (Integer id : ids) {
+			if (id != null) {
+				filter.add(id);
+			}
+		}
+		return filter;
+	}
+
+	private void evict(List<Integer> ids) {
+		Cache cache = emf.getCache();
+		for (Integer id : ids) {
+			cache.evict(Product.class, id);
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.rene.ecommerce.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductImportDTO;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.ProductRepository;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
+
+// Bulk listing: rows are parsed off the upload as it arrives and inserted in
+// batches, each batch one transaction sent as JDBC batches (product ids come from a
+// pooled sequence, so Hibernate doesn't need an insert round trip per id). A batch
+// that fails is reported row by row and doesn't undo the batches before it.
+@Service
+public class ProductImportService {
+
+	public enum Format {
+		JSON, CSV
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductImportService.class);
+
+	// the product columns are varchar(255)
+	private static final int MAX_TEXT = 255;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Autowired
+	private ProductSearchService productSearch;
+
+	@Autowired
+	private ProductSuggestService productSuggest;
+
+	@Autowired
+	private ProductFilterService productFilter;
+
+	@Value("${products.import.batch-size:500}")
+	private int batchSize = 500;
+
+	@Value("${products.stock.slices:4}")
+	private int stockSlices = 4;
+
+	public static Format parseFormat(String contentType) {
+		String type = contentType == null ? "" : contentType.toLowerCase();
+		if (type.contains("csv")) {
+			return Format.CSV;
+		}
+		if (type.contains("json")) {
+			return Format.JSON;
+		}
+		throw new InvalidParameterException("Products must be imported as application/json or text/csv");
+	}
+
+	public ProductImportDTO importProducts(Integer sellerId, Format format, InputStream in) throws IOException {
+		ProductImportDTO result = new ProductImportDTO();
+		ProductRowReader reader = format == Format.CSV ? ProductRowReader.csv(in) : ProductRowReader.json(in);
+
+		List<ProductRowReader.Row> batch = new ArrayList<>();
+		try {
+			for (ProductRowReader.Row row = reader.next(); row != null; row = reader.next()) {
+				String error = validate(row);
+				if (error != null) {
+					result.rejected(row.number, error);
+					continue;
+				}
+
+				batch.add(row);
+				if (batch.size() >= batchSize) {
+					insert(sellerId, batch, result);
+					batch.clear();
+				}
+			}
+		} catch (ProductRowReader.MalformedInputException e) {
+			result.rejected(e.getRow(), "Malformed input, nothing after this row was read: " + e.getMessage());
+		}
+		insert(sellerId, batch, result);
+
+		result.sortRows();
+		LOG.info("Seller " + sellerId + " imported " + result.getCreated() + " products (" + result.getRejected()
+				+ " rejected)");
+		return result;
+	}
+
+	static String validate(ProductRowReader.Row row) {
+		if (row.error != null) {
+			return row.error;
+		}
+		if (row.name == null || row.name.trim().isEmpty()) {
+			return "Name is required";
+		}
+		if (row.name.length() > MAX_TEXT) {
+			return "Name is longer than " + MAX_TEXT + " characters";
+		}
+		if (row.description != null && row.description.length() > MAX_TEXT) {
+			return "Description is longer than " + MAX_TEXT + " characters";
+		}
+		if (row.price == null || row.price.trim().isEmpty()) {
+			return "Price is required";
+		}
+		try {
+			double price = Double.parseDouble(row.price.trim());
+			if (!(price >= 0) || Double.isInfinite(price)) {
+				return "Price must not be negative";
+			}
+		} catch (NumberFormatException e) {
+			return "Price is not a number";
+		}
+		if (stock(row) < 1) {
+			return "Stock must be a whole number of at least 1";
+		}
+		return null;
+	}
+
+	// 1 when the row has no stock, 0 when it isn't a number
+	static int stock(ProductRowReader.Row row) {
+		if (row.stock == null || row.stock.trim().isEmpty()) {
+			return 1;
+		}
+		try {
+			return Integer.parseInt(row.stock.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private void insert(Integer sellerId, List<ProductRowReader.Row> batch, ProductImportDTO result) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		List<Product> saved;
+		try {
+			saved = new TransactionTemplate(transactionManager).execute(status -> {
+				// freshly imported listings would only push the hot products out of the entity cache
+				Session session = em.unwrap(Session.class);
+				session.setJdbcBatchSize(batchSize);
+				session.setCacheMode(CacheMode.IGNORE);
+
+				Seller seller = em.getReference(Seller.class, sellerId);
+				List<Product> products = new ArrayList<>();
+				List<Integer> ids = new ArrayList<>();
+				List<Integer> stocks = new ArrayList<>();
+				for (ProductRowReader.Row row : batch) {
+					Product product = new Product(null, row.name.trim(), Double.parseDouble(row.price.trim()), seller,
+							row.description);
+					product.setSold(false);
+					product.setStock(stock(row));
+					em.persist(product);
+					products.add(product);
+					ids.add(product.getId());
+					stocks.add(product.getStock());
+				}
+				productRepo.addStock(ids, stocks, stockSlices);
+
+				// the request's persistence context outlives the transaction (open in view), so
+				// the batch is detached or every later flush would dirty-check it again
+				em.flush();
+				em.clear();
+				return products;
+			});
+		} catch (RuntimeException e) {
+			LOG.info("Could not import a batch of " + batch.size() + " products: " + e.getMessage());
+			for (ProductRowReader.Row row : batch) {
+				result.rejected(row.number, "Not saved, its batch failed: " + e.getMessage());
+			}
+			return;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			Product product = saved.get(i);
+			result.created(batch.get(i).number, product.getId());
+			productSearch.put(product);
+			productSuggest.put(product);
+		}
+		productFilter.putAll(saved);
+	}
+
+}
@@ -0,0 +1,258 @@
+package com.rene.ecommerce.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+
+// Reads the products of a bulk import one at a time straight off the request body,
+// so an upload of any size is never held in memory as a whole.
+abstract class ProductRowReader {
+
+	static class Row {
+
+		final int number;
+		final String name;
+		final String price;
+		final String description;
+		final String stock;
+
+		// set when the row can't be a product whatever its values
+		final String error;
+
+		Row(int number, String name, String price, String description, String stock) {
+			this(number, name, price, description, stock, null);
+		}
+
+		Row(int number, String name, String price, String description, String stock, String error) {
+			this.number = number;
+			this.name = name;
+			this.price = price;
+			this.description = description;
+			this.stock = stock;
+			this.error = error;
+		}
+	}
+
+	// the input stops making sense at this row; nothing after it can be read
+	static class MalformedInputException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int row;
+
+		MalformedInputException(int row, String msg) {
+			super(msg);
+			this.row = row;
+		}
+
+		int getRow() {
+			return row;
+		}
+	}
+
+	protected int rows;
+
+	// the next row, or null at the end of the input
+	abstract Row next() throws IOException;
+
+	static ProductRowReader json(InputStream in) throws IOException {
+		return new Json(in);
+	}
+
+	static ProductRowReader csv(InputStream in) throws IOException {
+		return new Csv(in);
+	}
+
+	// a JSON array of {"name", "price", "description", "stock"} objects
+	private static class Json extends ProductRowReader {
+
+		private static final JsonFactory FACTORY = new JsonFactory();
+
+		private final JsonParser parser;
+
+		private Json(InputStream in) throws IOException {
+			parser = FACTORY.createParser(in);
+			try {
+				if (parser.nextToken() != JsonToken.START_ARRAY) {
+					throw new InvalidParameterException("The import must be a JSON array of products");
+				}
+			} catch (JsonProcessingException e) {
+				throw new InvalidParameterException("The import must be a JSON array of products");
+			}
+		}
+
+		@Override
+		Row next() throws IOException {
+			int number = rows + 1;
+			try {
+				JsonToken token = parser.nextToken();
+				if (token == JsonToken.END_ARRAY) {
+					return null;
+				}
+				if (token == null) {
+					throw new MalformedInputException(number, "Unexpected end of input");
+				}
+
+				rows = number;
+				if (token != JsonToken.START_OBJECT) {
+					parser.skipChildren();
+					return new Row(number, null, null, null, null, "Not a JSON object");
+				}
+
+				String name = null;
+				String price = null;
+				String description = null;
+				String stock = null;
+				while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+					String field = parser.getCurrentName();
+					JsonToken value = parser.nextToken();
+					if (value == null) {
+						break;
+					}
+					if (value.isStructStart()) {
+						parser.skipChildren();
+						continue;
+					}
+					String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+					if (field.equals("name")) {
+						name = text;
+					} else if (field.equals("price")) {
+						price = text;
+					} else if (field.equals("description")) {
+						description = text;
+					} else if (field.equals("stock")) {
+						stock = text;
+					}
+				}
+				if (token != JsonToken.END_OBJECT) {
+					throw new MalformedInputException(number, "Unexpected end of input");
+				}
+				return new Row(number, name, price, description, stock);
+
+			} catch (JsonProcessingException e) {
+				throw new MalformedInputException(number, e.getOriginalMessage());
+			}
+		}
+	}
+
+	// RFC 4180 CSV with a header naming the name, price and (optional) description and
+	// stock columns, in any order; quoted fields may hold commas, quotes and line breaks
+	private static class Csv extends ProductRowReader {
+
+		private final Reader in;
+		private final int nameColumn;
+		private final int priceColumn;
+		private final int descriptionColumn;
+		private final int stockColumn;
+
+		private int c;
+
+		private Csv(InputStream stream) throws IOException {
+			in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+			c = in.read();
+			if (c == '\uFEFF') {
+				c = in.read();
+			}
+
+			List<String> header = record();
+			int name = -1;
+			int price = -1;
+			int description = -1;
+			int stock = -1;
+			for (int i = 0; header != null && i < header.size(); i++) {
+				String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+				if (column.equals("name")) {
+					name = i;
+				} else if (column.equals("price")) {
+					price = i;
+				} else if (column.equals("description")) {
+					description = i;
+				} else if (column.equals("stock")) {
+					stock = i;
+				}
+			}
+			if (name < 0 || price < 0) {
+				throw new InvalidParameterException("The CSV header must have name and price columns");
+			}
+			nameColumn = name;
+			priceColumn = price;
+			descriptionColumn = description;
+			stockColumn = stock;
+		}
+
+		@Override
+		Row next() throws IOException {
+			List<String> record = record();
+			while (record != null && record.size() == 1 && record.get(0).isEmpty()) {
+				record = record();
+			}
+			if (record == null) {
+				return null;
+			}
+			return new Row(++rows, field(record, nameColumn), field(record, priceColumn),
+					field(record, descriptionColumn), field(record, stockColumn));
+		}
+
+		private static String field(List<String> record, int column) {
+			return column >= 0 && column < record.size() ? record.get(column) : null;
+		}
+
+		// the fields of the next line, or null at the end of the input
+		private List<String> record() throws IOException {
+			if (c < 0) {
+				return null;
+			}
+
+			List<String> fields = new ArrayList<>();
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			while (true) {
+				if (quoted) {
+					if (c < 0) {
+						throw new MalformedInputException(rows + 1, "Unterminated quoted field");
+					}
+					if (c == '"') {
+						c = in.read();
+						if (c != '"') {
+							quoted = false;
+							continue;
+						}
+					}
+					field.append((char) c);
+				} else if (c == '"' && field.length() == 0) {
+					quoted = true;
+				} else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else if (c == '\n' || c == '\r' || c < 0) {
+					if (c == '\r') {
+						c = in.read();
+						if (c == '\n') {
+							c = in.read();
+						}
+					} else if (c == '\n') {
+						c = in.read();
+					}
+					fields.add(field.toString());
+					return fields;
+				} else {
+					field.append((char) c);
+				}
+				c = in.read();
+			}
+		}
+	}
+
+}
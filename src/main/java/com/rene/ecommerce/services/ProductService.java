@@ -1,23 +1,30 @@
 package com.rene.ecommerce.services;
 
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.rene.ecommerce.domain.Order;
 import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
 import com.rene.ecommerce.domain.dto.updated.UpdatedProduct;
 import com.rene.ecommerce.domain.users.Client;
 import com.rene.ecommerce.domain.users.Seller;
 import com.rene.ecommerce.exceptions.AuthorizationException;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
 import com.rene.ecommerce.exceptions.ObjectNotFoundException;
 import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
 import com.rene.ecommerce.repositories.OrderRepository;
@@ -25,6 +32,13 @@ import com.rene.ecommerce.repositories.ProductRepository;
 import com.rene.ecommerce.security.ClientSS;
 import com.rene.ecommerce.security.SellerSS;
 import com.rene.ecommerce.services.email.EmailService;
+import com.rene.ecommerce.services.email.SaleDigestService;
+import com.rene.ecommerce.services.ranking.UserRankService;
+import com.rene.ecommerce.services.ranking.WindowedRankingService;
+import com.rene.ecommerce.services.reservation.ReservationService;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
 
 @Service
 public class ProductService {
@@ -45,7 +59,34 @@ public class ProductService {
 	private EmailService emailService;
 
 	@Autowired
-	private WishlistService wishlistService;
+	private RevenueRollupService revenueRollupService;
+
+	@Autowired
+	private WindowedRankingService windowedRankingService;
+
+	@Autowired
+	private UserRankService userRankService;
+
+	@Autowired
+	private SaleDigestService saleDigestService;
+
+	@Autowired
+	private ProductSearchService productSearch;
+
+	@Autowired
+	private ProductSuggestService productSuggest;
+
+	@Autowired
+	private ProductFilterService productFilter;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	@Autowired
+	private ReservationService reservations;
+
+	@Value("${products.stock.slices:4}")
+	private int stockSlices = 4;
 
 	public Product findById(Integer id) {
 		Optional<Product> obj = productRepo.findById(id);
@@ -55,7 +96,6 @@ public class ProductService {
 		} catch (NoSuchElementException e) {
 			throw new ObjectNotFoundException();
 		}
-
 	}
 
 	@Transactional
@@ -63,10 +103,16 @@ public class ProductService {
 
 		SellerSS user = UserService.sellerAuthenticated();
 
+		int stock = validStock(obj.getStock() == null ? 1 : obj.getStock());
 		obj.setId(null);
 		obj.setProductOwner(sellerService.findById(user.getId()));
-		obj.setHasBeenSold("Unsold");
-		return productRepo.save(obj);
+		obj.setSold(false);
+
+		Product saved = productRepo.save(obj);
+		productRepo.addStock(Collections.singletonList(saved.getId()), Collections.singletonList(stock), stockSlices);
+		saved.setStock(stock);
+		afterCommit(() -> index(saved));
+		return saved;
 
 	}
 
@@ -81,17 +127,31 @@ public class ProductService {
 		if (!product.getProductOwner().equals(seller)) {
 			throw new AuthorizationException("You're not owner of this product");
 		}
-		if (Product.isSold(findById(product.getId()))) {
+		if (!Product.isForSale(product)) {
 			throw new ProductHasAlreadyBeenSold();
 		}
 		product.setName(obj.getName());
 		product.setDescription(obj.getDescription());
 		product.setPrice(obj.getPrice());
+		boolean stockChanged = obj.getStock() != null;
+		if (stockChanged) {
+			productRepo.setStock(productId, validStock(obj.getStock()), stockSlices);
+		}
 
-		return productRepo.save(product);
+		Product saved = productRepo.save(product);
+		afterCommit(() -> {
+			if (stockChanged) {
+				// the stock isn't a column of the product row, its cached copy must go
+				emf.getCache().evict(Product.class, productId);
+			}
+			index(saved);
+		});
+		return saved;
 
 	}
 
+	// a product units of were bought stays, sold out, for its orders
+	@Transactional
 	public void delete(Integer id) {
 		SellerSS user = UserService.sellerAuthenticated();
 		Seller seller = sellerService.findById(user.getId());
@@ -100,16 +160,40 @@ public class ProductService {
 		if (!obj.getProductOwner().equals(seller)) {
 			throw new AuthorizationException("You're not owner of this product");
 		}
-		if (Product.isSold(findById(id))) {
+		if (!Product.isForSale(obj)) {
+			throw new ProductHasAlreadyBeenSold();
+		}
+		if (productRepo.deleteUnsold(seller.getId(), null, null, Collections.singletonList(id)).isEmpty()) {
+			// sold out or delisted meanwhile
 			throw new ProductHasAlreadyBeenSold();
 		}
-		productRepo.deleteById(id);
+		afterCommit(() -> {
+			emf.getCache().evict(Product.class, id);
+			productSearch.remove(id);
+			productSuggest.remove(id);
+			productFilter.remove(id);
+		});
 
 	}
 
 	public List<Product> findAll() {
 
-		return productRepo.findByHasBeenSold("Unsold");
+		return productRepo.findUnsold();
+	}
+
+	// one page of the unsold products matching the filter, in its order
+	public List<Product> findAll(Double minPrice, Double maxPrice, Integer sellerId, String sort, Integer page,
+			Integer size) {
+
+		List<Product> products = new ArrayList<>();
+		for (Integer id : productFilter.filter(minPrice, maxPrice, sellerId, sort, page, size)) {
+			try {
+				products.add(findById(id));
+			} catch (ObjectNotFoundException e) {
+				// deleted after the page was selected
+			}
+		}
+		return products;
 	}
 	
 	public List<Product> findOwnProducts() {
@@ -123,82 +207,129 @@ public class ProductService {
 
 	@Transactional
 	public Product buyProduct(Integer productId) {
+		return buyProduct(productId, 1);
+	}
 
-		if (Product.isSold(findById(productId))) {
-			throw new ProductHasAlreadyBeenSold();
+	// takes the units from the product's stock without touching the product row, which
+	// is only written by the purchase that sells the last unit
+	@Transactional
+	public Product buyProduct(Integer productId, Integer quantity) {
+
+		int units = quantity == null ? 1 : quantity;
+		if (units < 1) {
+			throw new InvalidParameterException("Quantity must be at least 1");
 		}
 
-		ClientSS user = UserService.clientAuthenticated();
-		Client buyer = clientService.findById(user.getId());
 		Product boughtProduct = findById(productId);
 
-		buyer.setBoughtProducts(Arrays.asList(boughtProduct));
-		boughtProduct.setBuyerOfTheProduct(buyer);
-		boughtProduct.setHasBeenSold("Sold");
+		if (!Product.isForSale(boughtProduct)) {
+			throw new ProductHasAlreadyBeenSold();
+		}
 
-		// method to add: number of buys and sells | money spent and sold
-		addNumberOfBuysAndSellsAndMoneySoldAndSpent(boughtProduct, buyer);
+		ClientSS user = UserService.clientAuthenticated();
+		// units held by other buyers are turned down here, without a database round trip
+		reservations.checkAvailable(user.getId(), productId, units, boughtProduct.getStock());
+		Client buyer = clientService.findById(user.getId());
 
-		// remove product from wishList
-		threadRemoveProductFromWishlist(boughtProduct);
+		int left = productRepo.takeStock(productId, units);
+		if (left < 0) {
+			throw units == 1 ? new ProductHasAlreadyBeenSold()
+					: new ProductHasAlreadyBeenSold("There are fewer than " + units + " units of the product left");
+		}
 
-		// thread to send email
-		threadSendEmail(boughtProduct);
+		boolean soldOut = left == 0 && productRepo.lockIfSoldOut(boughtProduct);
+		if (soldOut) {
+			boughtProduct.setBuyerOfTheProduct(buyer);
+			boughtProduct.setSold(true);
+		}
 
-		// Save order entity
-		threadSaveOrder(boughtProduct);
+		// the counters are incremented in SQL, as by a checkout: concurrent purchases
+		// neither overwrite each other's totals nor write back the whole buyer and seller rows
+		Order order = new Order(null, new Date(System.currentTimeMillis()), boughtProduct, buyer, units);
+		double total = order.getTotal() == null ? 0 : order.getTotal();
+		Integer sellerId = order.getSeller() == null ? null : order.getSeller().getId();
+		RankedUserDTO buyerTotals = orderRepo.addToClientTotals(buyer.getId(), 1, total);
+		List<RankedUserDTO> sellerTotals = sellerId == null ? Collections.emptyList()
+				: orderRepo.addToSellerTotals(Collections.singletonMap(sellerId, new double[] { 1, total }));
+
+		// the line item and the wishlists commit or roll back with the stock
+		orderRepo.insertAll(Collections.singletonList(order));
+		if (soldOut) {
+			productRepo.removeFromWishListWhenIsSold(productId);
+		}
 
-		return productRepo.save(boughtProduct);
+		Product saved = productRepo.save(boughtProduct);
+		// the cached product still has the stock it was loaded with, the cached buyer and
+		// seller their totals; nothing outside the database hears of a purchase before
+		// it commits
+		afterCommit(() -> {
+			Cache cache = emf.getCache();
+			cache.evict(Product.class, productId);
+			cache.evict(Client.class, buyer.getId());
+			if (sellerId != null) {
+				cache.evict(Seller.class, sellerId);
+			}
+			if (soldOut) {
+				productSearch.remove(productId);
+				productSuggest.remove(productId);
+				productFilter.remove(productId);
+			}
+			reservations.bought(user.getId(), productId, units, soldOut);
+			userRankService.recordTotals(buyerTotals, sellerTotals);
+			threadAfterPurchase(order, receipt(boughtProduct, buyer));
+		});
+		return saved;
 
 	}
 
-	private void threadSendEmail(Product boughtProduct) {
-		Thread threadEmail = new Thread() {
-			public void run() {
-				emailService.sendConfirmationEmailHtml(boughtProduct);
-
-			}
-		};
-		threadEmail.start();
+	private static int validStock(int stock) {
+		if (stock < 1) {
+			throw new InvalidParameterException("Stock must be at least 1");
+		}
+		return stock;
 	}
 
-	private void addNumberOfBuysAndSellsAndMoneySoldAndSpent(Product boughtProduct, Client buyer) {
-		Seller sel = boughtProduct.getProductOwner();
-		Double price = boughtProduct.getPrice();
-
-		buyer.addNumberOfBuys();
-		sel.addNumberOfSells();
-
-		buyer.addSpentMoneyWhenClientBuyAProduct(price);
-		sel.addSoldMoneyWhenSellerSellAProduct(price);
+	// the product as the emails show it: bought by the buyer of this purchase, who
+	// can't be set on the product itself unless it sold out
+	static Product receipt(Product product, Client buyer) {
+		Product receipt = new Product(product.getId(), product.getName(), product.getPrice(),
+				product.getProductOwner(), product.getDescription());
+		receipt.setBuyerOfTheProduct(buyer);
+		receipt.setSold(true);
+		return receipt;
+	}
 
+	private void index(Product product) {
+		productSearch.put(product);
+		productSuggest.put(product);
+		productFilter.put(product);
 	}
 
-	private void threadRemoveProductFromWishlist(Product boughtProduct) {
-		Thread threadRemove = new Thread() {
-			public void run() {
-				wishlistService.removeProductFromWishlistWhenIsSold(boughtProduct.getId());
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+			@Override
+			public void afterCommit() {
+				action.run();
 			}
-		};
-		threadRemove.start();
+		});
 	}
 
-	private void threadSaveOrder(Product product) {
-
-		Thread threadSaveOrder = new Thread() {
+	// the emails, rollups and rankings of a committed purchase
+	private void threadAfterPurchase(Order order, Product receipt) {
+		Thread threadAfterPurchase = new Thread() {
 			public void run() {
-
-				SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-				Date date = new Date(System.currentTimeMillis());
-				String instant = sdf.format(date);
-
-				Order order = new Order(null, instant, product);
-
-				orderRepo.save(order);
+				revenueRollupService.recordSale(order);
+				windowedRankingService.recordPurchase(order);
+				saleDigestService.recordSale(order);
+				emailService.sendConfirmationEmailHtml(receipt);
 			}
 		};
-		threadSaveOrder.start();
-
+		threadAfterPurchase.start();
 	}
 
 }
@@ -1,17 +1,23 @@
 package com.rene.ecommerce.services;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.rene.ecommerce.domain.RankingSnapshot;
 import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
 import com.rene.ecommerce.domain.dto.ranking.SellerRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserRankDTO;
 import com.rene.ecommerce.domain.users.Client;
 import com.rene.ecommerce.domain.users.Seller;
 import com.rene.ecommerce.repositories.ClientRepository;
 import com.rene.ecommerce.repositories.SellerRepository;
+import com.rene.ecommerce.services.ranking.RankingWindow;
+import com.rene.ecommerce.services.ranking.UserRankService;
+import com.rene.ecommerce.services.ranking.WindowedRankingService;
 
 @Service
 public class RankingService {
@@ -22,6 +28,12 @@ public class RankingService {
 	@Autowired
 	private SellerRepository sellerRepo;
 
+	@Autowired
+	private WindowedRankingService windowedRanking;
+
+	@Autowired
+	private UserRankService userRank;
+
 	public List<ClientRankingDTO> returnRankingClient() {
 
 		List<Client> clients = clientRepo.returnRankingClient();
@@ -44,4 +56,35 @@ public class RankingService {
 		return rankingDTO;
 	}
 
+	// window: daily, weekly or monthly; null keeps the lifetime ranking
+	public List<ClientRankingDTO> returnRankingClient(String window) {
+		if (window == null) {
+			return returnRankingClient();
+		}
+		return windowedRanking.topClients(RankingWindow.parse(window));
+	}
+
+	public List<SellerRankingDTO> returnRankingSeller(String window) {
+		if (window == null) {
+			return returnRankingSeller();
+		}
+		return windowedRanking.topSellers(RankingWindow.parse(window));
+	}
+
+	public List<RankingSnapshot> returnRankingClientHistory(String window, Date at) {
+		return windowedRanking.findSnapshot(WindowedRankingService.CLIENT_BOARD, RankingWindow.parse(window), at);
+	}
+
+	public List<RankingSnapshot> returnRankingSellerHistory(String window, Date at) {
+		return windowedRanking.findSnapshot(WindowedRankingService.SELLER_BOARD, RankingWindow.parse(window), at);
+	}
+
+	public UserRankDTO<ClientRankingDTO> returnRankOfClient(Integer clientId, Integer neighbors) {
+		return userRank.findRankOfClient(clientId, neighbors);
+	}
+
+	public UserRankDTO<SellerRankingDTO> returnRankOfSeller(Integer sellerId, Integer neighbors) {
+		return userRank.findRankOfSeller(sellerId, neighbors);
+	}
+
 }
@@ -0,0 +1,232 @@
+package com.rene.ecommerce.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.SellerRevenue;
+import com.rene.ecommerce.domain.SellerRevenue.Granularity;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.SellerRevenueRepository;
+
+@Service
+public class RevenueRollupService {
+
+	// buckets returned when the caller doesn't give "from"
+	public static final int DEFAULT_DAYS = 30;
+	public static final int DEFAULT_HOURS = 48;
+
+	private static final Logger LOG = LoggerFactory.getLogger(RevenueRollupService.class);
+
+	@Autowired
+	private SellerRevenueRepository revenueRepo;
+
+	@Autowired
+	private OrderRepository orderRepo;
+
+	@Value("${rollups.rebuild.chunk-size:50000}")
+	private int chunkSize = 50000;
+
+	@Value("${rollups.rebuild.threads:4}")
+	private int threads = 4;
+
+	@Value("${rollups.rebuild-on-startup:false}")
+	private boolean rebuildOnStartup;
+
+	// how long a rebuild waits for the transactions writing orders when it starts
+	@Value("${rollups.rebuild.wait-millis:60000}")
+	private long waitMillis = 60000L;
+
+	// how often a sale tries again while a rebuild holds the buckets
+	@Value("${rollups.retry-millis:200}")
+	private long retryMillis = 200L;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// called once per written order, adds it to its hourly and daily buckets
+	public void recordSale(Order order) {
+		recordSales(Collections.singletonList(order));
+	}
+
+	// the orders of one purchase or checkout: one upsert per seller and bucket instead
+	// of one per order. While a rebuild runs the sales wait for it, without holding a
+	// connection, and then leave out the orders it read
+	public void recordSales(List<Order> orders) {
+		while (true) {
+			Boolean recorded = new TransactionTemplate(transactionManager).execute(status -> {
+				Integer rebuiltThrough = revenueRepo.lockForSales();
+				if (rebuiltThrough == null) {
+					return false;
+				}
+				addToBuckets(orders, rebuiltThrough);
+				return true;
+			});
+			if (Boolean.TRUE.equals(recorded)) {
+				return;
+			}
+			try {
+				Thread.sleep(retryMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOG.info("Interrupted before recording the sales of " + orders.size() + " orders");
+				return;
+			}
+		}
+	}
+
+	private void addToBuckets(List<Order> orders, int rebuiltThrough) {
+		// seller -> granularity -> bucket start -> revenue, units
+		Map<Integer, Map<Granularity, Map<Date, double[]>>> sales = new LinkedHashMap<>();
+		for (Order order : orders) {
+			if (order.getSeller() == null || order.getProductOrder() == null || order.getInstant() == null
+					|| (order.getId() != null && order.getId() <= rebuiltThrough)) {
+				continue;
+			}
+			for (Granularity granularity : Granularity.values()) {
+				double[] x = sales.computeIfAbsent(order.getSeller().getId(), id -> new LinkedHashMap<>())
+						.computeIfAbsent(granularity, g -> new LinkedHashMap<>())
+						.computeIfAbsent(granularity.bucketStart(order.getInstant()), d -> new double[2]);
+				x[0] += order.getTotal() == null ? 0 : order.getTotal();
+				x[1] += order.getQuantity();
+			}
+		}
+
+		for (Map.Entry<Integer, Map<Granularity, Map<Date, double[]>>> seller : sales.entrySet()) {
+			for (Map.Entry<Granularity, Map<Date, double[]>> granularity : seller.getValue().entrySet()) {
+				for (Map.Entry<Date, double[]> x : granularity.getValue().entrySet()) {
+					revenueRepo.addToBucket(seller.getKey(), granularity.getKey().name(), x.getKey(),
+							x.getValue()[0], (int) x.getValue()[1]);
+				}
+			}
+		}
+	}
+
+	public List<SellerRevenue> findStatsOfSeller(Integer sellerId, String granularity, Date from, Date to) {
+		Granularity g = parseGranularity(granularity);
+
+		if (to == null) {
+			Date now = new Date(System.currentTimeMillis());
+			to = new Date(g.bucketStart(now).getTime() + g.getMillis());
+		}
+		if (from == null) {
+			long buckets = g == Granularity.DAY ? DEFAULT_DAYS : DEFAULT_HOURS;
+			from = new Date(to.getTime() - buckets * g.getMillis());
+		}
+
+		return revenueRepo.findBuckets(sellerId, g, from, to);
+	}
+
+	public static Granularity parseGranularity(String granularity) {
+		try {
+			return Granularity.valueOf(granularity.trim().toUpperCase());
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw new InvalidParameterException("Granularity must be hour or day");
+		}
+	}
+
+	// recomputes every bucket from tb_order, splitting the order ids in chunks that
+	// are aggregated in parallel into tb_seller_revenue_rebuild (each chunk is its
+	// own transaction), then swaps them in at once. The rebuild holds the lock of
+	// the buckets throughout, on every node. It reads the orders up to the highest
+	// id committed when it starts, once the transactions running then have ended:
+	// any order up to that id is then either committed and read, or never will be,
+	// so the sales that waited for the rebuild can leave all of them out
+	public synchronized int rebuild() {
+		TransactionTemplate step = new TransactionTemplate(transactionManager);
+		step.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			revenueRepo.lockForRebuild();
+			step.execute(x -> {
+				revenueRepo.clearRebuild();
+				return null;
+			});
+
+			int maxId = orderRepo.findMaxId();
+			// taken after the max id: the transactions that may still commit an order up
+			// to it were running then
+			awaitEnded(revenueRepo.currentSnapshot());
+
+			int rows = rebuildChunks(maxId);
+			int buckets = step.execute(x -> revenueRepo.swapInRebuild(maxId));
+
+			LOG.info("Rebuilt seller revenue rollups through order " + maxId + ": " + rows + " rows written, "
+					+ buckets + " buckets");
+			return rows;
+		});
+	}
+
+	private void awaitEnded(String snapshot) {
+		long deadline = System.currentTimeMillis() + waitMillis;
+		while (!revenueRepo.endedSince(snapshot)) {
+			if (System.currentTimeMillis() >= deadline) {
+				throw new IllegalStateException("Rollup rebuild gave up waiting for the running transactions");
+			}
+			try {
+				Thread.sleep(Math.min(retryMillis, Math.max(1L, deadline - System.currentTimeMillis())));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Rollup rebuild interrupted", e);
+			}
+		}
+	}
+
+	private int rebuildChunks(int maxId) {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> chunks = new ArrayList<>();
+
+		try {
+			for (long start = 0; start <= maxId; start += chunkSize) {
+				int fromId = (int) start;
+				int toId = (int) Math.min(start + chunkSize, (long) maxId + 1);
+
+				for (Granularity granularity : Granularity.values()) {
+					chunks.add(pool.submit(() -> revenueRepo.rebuildChunk(granularity.name(), fromId, toId)));
+				}
+			}
+
+			int rows = 0;
+			for (Future<Integer> chunk : chunks) {
+				rows += chunk.get();
+			}
+			return rows;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Rollup rebuild interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Rollup rebuild failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		if (rebuildOnStartup) {
+			rebuild();
+		}
+	}
+
+}
@@ -1,34 +1,40 @@
 package com.rene.ecommerce.services;
 
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import com.rene.ecommerce.security.ClientSS;
 import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.security.UserSS;
 
 @Service
 public class UserService {
 
 
 
-	// return the user logged in the system
+	// return the user logged in the system, null if there is none (or it is
+	// of the other type); type checks only, so nothing is thrown on the way
 
-	public static ClientSS clientAuthenticated() {
-		try {
-			return (ClientSS) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+	public static UserSS authenticated() {
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 
-		} catch (Exception e) {
+		if (auth == null || !(auth.getPrincipal() instanceof UserSS)) {
 			return null;
 		}
+		return (UserSS) auth.getPrincipal();
+	}
+
+	public static ClientSS clientAuthenticated() {
+		UserSS user = authenticated();
+
+		return user instanceof ClientSS ? (ClientSS) user : null;
 	}
 
 	public static SellerSS sellerAuthenticated() {
-		try {
-			return (SellerSS) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+		UserSS user = authenticated();
 
-		} catch (Exception e) {
-			return null;
-		}
+		return user instanceof SellerSS ? (SellerSS) user : null;
 	}
 
 
@@ -14,6 +14,7 @@ import com.rene.ecommerce.exceptions.YouHaveAlreadyAddThisProductInYourWishlistE
 import com.rene.ecommerce.repositories.ClientRepository;
 import com.rene.ecommerce.repositories.ProductRepository;
 import com.rene.ecommerce.security.ClientSS;
+import com.rene.ecommerce.services.search.ProductSuggestService;
 
 @Service
 public class WishlistService {
@@ -30,6 +31,9 @@ public class WishlistService {
 	@Autowired
 	private ProductRepository productRepo;
 
+	@Autowired
+	private ProductSuggestService productSuggest;
+
 	private Client findClientById(Integer id) {
 		return clientService.findById(id);
 	}
@@ -51,7 +55,7 @@ public class WishlistService {
 		ClientSS user = UserService.clientAuthenticated();
 		Client client = findClientById(user.getId());
 
-		if (Product.isSold(product)) {
+		if (!Product.isForSale(product)) {
 			throw new ProductHasAlreadyBeenSold();
 		}
 
@@ -64,13 +68,16 @@ public class WishlistService {
 
 		clientRepo.save(client);
 		productRepo.save(product);
+		productSuggest.wished(productId, 1);
 	}
 
 	@Transactional
 	public void delete(Integer productId) {
 		ClientSS user = UserService.clientAuthenticated();
 
-		productRepo.removeFromClientWishlist(productId, user.getId());
+		if (productRepo.removeFromClientWishlist(productId, user.getId()) > 0) {
+			productSuggest.wished(productId, -1);
+		}
 	}
 	
 	@Transactional
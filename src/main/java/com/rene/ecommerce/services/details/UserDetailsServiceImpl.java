@@ -1,8 +1,12 @@
 package com.rene.ecommerce.services.details;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -14,6 +18,7 @@ import com.rene.ecommerce.repositories.ClientRepository;
 import com.rene.ecommerce.repositories.SellerRepository;
 import com.rene.ecommerce.security.ClientSS;
 import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.security.UserSS;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
@@ -24,6 +29,10 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 	@Autowired
 	private SellerRepository sellerRepo;
 
+	// comma-separated; none by default, so no one reads the admin endpoints
+	@Value("${security.admin-emails:}")
+	private Set<String> adminEmails = Collections.emptySet();
+
 	@Override
 	public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
 
@@ -37,7 +46,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 			selSS.setId(sel.getId());
 			selSS.setEmail(sel.getEmail());
 			selSS.setPassword(sel.getPassword());
-			selSS.setAuthorities(Arrays.asList(sel.getType()));
+			selSS.setAuthorities(authorities(sel.getType(), sel.getEmail()));
 
 			return selSS;
 		}
@@ -47,9 +56,18 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 		cliSS.setId(cli.getId());
 		cliSS.setEmail(cli.getEmail());
 		cliSS.setPassword(cli.getPassword());
-		cliSS.setAuthorities(Arrays.asList(cli.getType()));
+		cliSS.setAuthorities(authorities(cli.getType(), cli.getEmail()));
 
 		return cliSS;
 	}
 
+	private List<String> authorities(String type, String email) {
+		List<String> authorities = new ArrayList<>();
+		authorities.add(type);
+		if (adminEmails.contains(email)) {
+			authorities.add(UserSS.ADMIN);
+		}
+		return authorities;
+	}
+
 }
@@ -1,27 +1,34 @@
 package com.rene.ecommerce.services.email;
 
 import java.util.Date;
+import java.util.List;
 
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.scheduling.annotation.Scheduled;
 
 import com.rene.ecommerce.domain.Product;
 
 public abstract class AbstractEmailService implements EmailService {
 
+	private static final Logger LOG = LoggerFactory.getLogger(AbstractEmailService.class);
+
 	@Value("${default.sender}")
 	private String sender;
 
 	@Autowired
-	private TemplateEngine templateEngine;
+	private EmailTemplates emailTemplates;
+
+	@Autowired
+	private SaleDigestService saleDigestService;
 
 	@Autowired
 	private JavaMailSender javaMailSender;
@@ -40,8 +47,17 @@ public abstract class AbstractEmailService implements EmailService {
 		// TODO Auto-generated method stub
 		
 		try {
-			MimeMessage mmClient = prepareMimeMessageFromProductClient(obj);
-			MimeMessage mmSeller= prepareMimeMessageFromProductSeller(obj);
+			// sellers with the digest get this sale in their next summary instead
+			if (SaleDigestService.wantsDigest(obj.getProductOwner())) {
+				sendEmailHtml(prepareMimeMessageFromProductClient(obj));
+				return;
+			}
+
+			// both bodies are rendered at once; the outbox keeps them for any retry
+			List<String> html = emailTemplates.renderAll(obj, EmailTemplates.CLIENT, EmailTemplates.SELLER);
+
+			MimeMessage mmClient = prepareMimeMessageFromProductClient(obj, html.get(0));
+			MimeMessage mmSeller= prepareMimeMessageFromProductSeller(obj, html.get(1));
 
 			sendEmailHtml(mmClient);
 			sendEmailHtml(mmSeller);
@@ -53,6 +69,10 @@ public abstract class AbstractEmailService implements EmailService {
 	}
 
 	protected MimeMessage prepareMimeMessageFromProductClient(Product obj) throws MessagingException {
+		return prepareMimeMessageFromProductClient(obj, htmlFromTemplateProductClient(obj));
+	}
+
+	protected MimeMessage prepareMimeMessageFromProductClient(Product obj, String html) throws MessagingException {
 		MimeMessage mm = javaMailSender.createMimeMessage();
 
 		MimeMessageHelper mmh = new MimeMessageHelper(mm, true);
@@ -60,12 +80,16 @@ public abstract class AbstractEmailService implements EmailService {
 		mmh.setFrom(sender);
 		mmh.setSubject("Your order has been completed");
 		mmh.setSentDate(new Date(System.currentTimeMillis()));
-		mmh.setText(htmlFromTemplateProductClient(obj), true);
+		mmh.setText(html, true);
 
 		return mm;
 	}
 	
 	protected MimeMessage prepareMimeMessageFromProductSeller(Product obj) throws MessagingException {
+		return prepareMimeMessageFromProductSeller(obj, htmlFromTemplateProductSeller(obj));
+	}
+
+	protected MimeMessage prepareMimeMessageFromProductSeller(Product obj, String html) throws MessagingException {
 		MimeMessage mm = javaMailSender.createMimeMessage();
 
 		MimeMessageHelper mmh = new MimeMessageHelper(mm, true);
@@ -73,12 +97,39 @@ public abstract class AbstractEmailService implements EmailService {
 		mmh.setFrom(sender);
 		mmh.setSubject("Someone has bought your product");
 		mmh.setSentDate(new Date(System.currentTimeMillis()));
-		mmh.setText(htmlFromTemplateProductSeller(obj), true);
+		mmh.setText(html, true);
 
 		return mm;
 	}
 
 
+	@Scheduled(fixedDelayString = "${email.digest.interval-millis:3600000}",
+			initialDelayString = "${email.digest.interval-millis:3600000}")
+	public void sendSaleDigests() {
+		for (SaleDigest digest : saleDigestService.drain()) {
+			try {
+				sendEmailHtml(prepareMimeMessageSaleDigest(digest));
+				saleDigestService.markSent(digest);
+			} catch (MessagingException | RuntimeException e) {
+				LOG.info("Could not send the sale digest of seller " + digest.getSellerId() + ": " + e.getMessage());
+				saleDigestService.requeue(digest);
+			}
+		}
+	}
+
+	protected MimeMessage prepareMimeMessageSaleDigest(SaleDigest digest) throws MessagingException {
+		MimeMessage mm = javaMailSender.createMimeMessage();
+
+		MimeMessageHelper mmh = new MimeMessageHelper(mm, true);
+		mmh.setTo(digest.getSellerEmail());
+		mmh.setFrom(sender);
+		mmh.setSubject("You have sold " + digest.getCount() + (digest.getCount() == 1 ? " product" : " products"));
+		mmh.setSentDate(new Date(System.currentTimeMillis()));
+		mmh.setText(emailTemplates.render(EmailTemplates.SELLER_DIGEST, "digest", digest), true);
+
+		return mm;
+	}
+
 	protected SimpleMailMessage prepareSimpleMessageFromProductToClient(Product obj) {
 		SimpleMailMessage sm = new SimpleMailMessage();
 
@@ -102,16 +153,12 @@ public abstract class AbstractEmailService implements EmailService {
 	}
 
 	protected String htmlFromTemplateProductClient(Product obj) {
-		Context context = new Context();
-		context.setVariable("product", obj);
-		return templateEngine.process("email/Client", context);
+		return emailTemplates.render(EmailTemplates.CLIENT, obj);
 
 	}
 
 	protected String htmlFromTemplateProductSeller(Product obj) {
-		Context context = new Context();
-		context.setVariable("product", obj);
-		return templateEngine.process("email/Seller", context);
+		return emailTemplates.render(EmailTemplates.SELLER, obj);
 
 	}
 	
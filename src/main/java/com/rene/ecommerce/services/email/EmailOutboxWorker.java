@@ -0,0 +1,247 @@
+package com.rene.ecommerce.services.email;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rene.ecommerce.domain.OutboxEmail;
+import com.rene.ecommerce.domain.OutboxEmail.Status;
+import com.rene.ecommerce.repositories.OutboxEmailRepository;
+
+// Drains tb_email_outbox with a fixed number of workers. Each worker keeps its
+// SMTP connection open while there is mail to send, so a batch costs one
+// handshake instead of one per message. Failed messages are retried with
+// exponential backoff until email.outbox.max-attempts, then marked FAILED. A
+// batch is claimed for email.outbox.lease-millis: rows a worker (or node) left
+// SENDING are picked up again once that is over, while those of a live worker on
+// any node are left alone. Sent messages are deleted after retention-millis.
+@Service
+public class EmailOutboxWorker {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+	@Autowired
+	private OutboxEmailRepository outboxRepo;
+
+	@Autowired
+	private JavaMailSenderImpl mailSender;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${email.outbox.enabled:true}")
+	private boolean enabled = true;
+
+	@Value("${email.outbox.workers:2}")
+	private int workers = 2;
+
+	@Value("${email.outbox.batch-size:50}")
+	private int batchSize = 50;
+
+	@Value("${email.outbox.poll-millis:1000}")
+	private long pollMillis = 1000L;
+
+	@Value("${email.outbox.max-attempts:6}")
+	private int maxAttempts = 6;
+
+	@Value("${email.outbox.backoff-millis:30000}")
+	private long backoffMillis = 30000L;
+
+	@Value("${email.outbox.max-backoff-millis:3600000}")
+	private long maxBackoffMillis = 3600000L;
+
+	// longer than sending a batch takes, or a slow batch is sent twice
+	@Value("${email.outbox.lease-millis:600000}")
+	private long leaseMillis = 600000L;
+
+	@Value("${email.outbox.retention-millis:604800000}")
+	private long retentionMillis = 604800000L;
+
+	private ScheduledExecutorService pool;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (!enabled || pool != null) {
+			return;
+		}
+
+		pool = Executors.newScheduledThreadPool(workers);
+		for (int i = 0; i < workers; i++) {
+			pool.scheduleWithFixedDelay(new Worker(), 0, pollMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${email.outbox.retention-sweep-millis:3600000}")
+	public void deleteSent() {
+		if (!enabled) {
+			return;
+		}
+		try {
+			Date before = new Date(System.currentTimeMillis() - retentionMillis);
+			int deleted = 0;
+			int n;
+			// in batches, so no statement holds many row locks for long
+			do {
+				n = outboxRepo.deleteSent(before, 1000);
+				deleted += n;
+			} while (n == 1000);
+			if (deleted > 0) {
+				LOG.info("Deleted " + deleted + " sent emails from the outbox");
+			}
+		} catch (RuntimeException e) {
+			LOG.info("Could not delete the sent emails: " + e.getMessage());
+		}
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+
+	Worker newWorker() {
+		return new Worker();
+	}
+
+	class Worker implements Runnable {
+
+		private Transport transport;
+
+		@Override
+		public void run() {
+			try {
+				// full batches mean there is a backlog: keep the connection and go on
+				int claimed;
+				do {
+					claimed = drainOnce();
+				} while (claimed == batchSize && !Thread.currentThread().isInterrupted());
+			} catch (RuntimeException e) {
+				LOG.info("Email outbox worker failed: " + e.getMessage());
+			} finally {
+				disconnect();
+			}
+		}
+
+		// sends one batch of due messages and returns how many were claimed
+		int drainOnce() {
+			List<OutboxEmail> batch = claim();
+			if (batch.isEmpty()) {
+				return 0;
+			}
+
+			long start = System.nanoTime();
+			int sent = 0;
+
+			for (OutboxEmail email : batch) {
+				try {
+					connect();
+					MimeMessage mm = new MimeMessage(mailSender.getSession(), new ByteArrayInputStream(email.getMime()));
+					transport.sendMessage(mm, mm.getAllRecipients());
+
+					email.setStatus(Status.SENT);
+					email.setClaimedUntil(null);
+					email.setSentAt(new Date(System.currentTimeMillis()));
+					email.setLastError(null);
+					sent++;
+
+				} catch (MessagingException | RuntimeException e) {
+					retryLater(email, e);
+					if (!(e instanceof SendFailedException)) {
+						// the connection may be broken, open a new one for the next message
+						disconnect();
+					}
+				}
+				email.setAttempts(email.getAttempts() + 1);
+			}
+
+			new TransactionTemplate(transactionManager).execute(status -> outboxRepo.saveAll(batch));
+
+			long millis = Math.max(1L, (System.nanoTime() - start) / 1000000L);
+			LOG.info("Email outbox: sent " + sent + " of " + batch.size() + " in " + millis + " ms ("
+					+ (sent * 1000L / millis) + " msg/s)");
+			return batch.size();
+		}
+
+		void disconnect() {
+			if (transport != null) {
+				try {
+					transport.close();
+				} catch (MessagingException e) {
+					LOG.info("Could not close the SMTP connection: " + e.getMessage());
+				}
+				transport = null;
+			}
+		}
+
+		private void connect() throws MessagingException {
+			if (transport != null && transport.isConnected()) {
+				return;
+			}
+
+			Session session = mailSender.getSession();
+			transport = session.getTransport(mailSender.getProtocol() == null ? "smtp" : mailSender.getProtocol());
+			transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(),
+					mailSender.getPassword());
+		}
+	}
+
+	// rows are marked SENDING inside a transaction holding their row locks
+	private List<OutboxEmail> claim() {
+		List<OutboxEmail> batch = new TransactionTemplate(transactionManager).execute(status -> {
+			long now = System.currentTimeMillis();
+			List<OutboxEmail> due = outboxRepo.findDueForUpdate(new Date(now), batchSize);
+			for (OutboxEmail x : due) {
+				x.setStatus(Status.SENDING);
+				x.setClaimedUntil(new Date(now + leaseMillis));
+			}
+			return outboxRepo.saveAll(due);
+		});
+		return batch == null ? Collections.emptyList() : batch;
+	}
+
+	private void retryLater(OutboxEmail email, Exception e) {
+		String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+		email.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+		email.setClaimedUntil(null);
+
+		if (email.getAttempts() + 1 >= maxAttempts) {
+			email.setStatus(Status.FAILED);
+			LOG.info("Giving up on email " + email.getId() + " to " + email.getRecipient() + ": " + error);
+			return;
+		}
+
+		// 1x, 2x, 4x ... the base delay, capped, plus up to 20% jitter
+		long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(email.getAttempts(), 20));
+		delay += ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+
+		email.setStatus(Status.PENDING);
+		email.setNextAttemptAt(new Date(System.currentTimeMillis() + delay));
+	}
+
+}
@@ -0,0 +1,158 @@
+package com.rene.ecommerce.services.email;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+
+// Renders the email templates. The templates are parsed once at startup (the
+// parsed form stays in Thymeleaf's cache), the messages of one purchase are
+// rendered in parallel, and the time spent rendering is kept per template.
+@Service
+public class EmailTemplates {
+
+	public static final String CLIENT = "email/Client";
+	public static final String SELLER = "email/Seller";
+	public static final String SELLER_DIGEST = "email/SellerDigest";
+
+	private static final Logger LOG = LoggerFactory.getLogger(EmailTemplates.class);
+
+	public static final class Timing {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+		private void record(long elapsed) {
+			count.increment();
+			nanos.add(elapsed);
+			maxNanos.accumulate(elapsed);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getAverageMicros() {
+			long n = count.sum();
+			return n == 0 ? 0 : nanos.sum() / n / 1000;
+		}
+
+		public long getMaxMicros() {
+			return maxNanos.get() / 1000;
+		}
+	}
+
+	@Autowired
+	private TemplateEngine templateEngine;
+
+	private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+	private final ExecutorService renderPool;
+
+	public EmailTemplates(@Value("${email.templates.render-threads:2}") int renderThreads) {
+		this.renderPool = Executors.newFixedThreadPool(renderThreads);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void preload() {
+		Product sample = sampleProduct();
+
+		for (String template : new String[] { CLIENT, SELLER }) {
+			try {
+				render(template, sample);
+			} catch (RuntimeException e) {
+				LOG.info("Could not preload template " + template + ": " + e.getMessage());
+			}
+		}
+		try {
+			render(SELLER_DIGEST, "digest", sampleDigest());
+		} catch (RuntimeException e) {
+			LOG.info("Could not preload template " + SELLER_DIGEST + ": " + e.getMessage());
+		}
+		LOG.info("Email templates preloaded: " + timings.keySet());
+	}
+
+	@PreDestroy
+	public void stop() {
+		renderPool.shutdownNow();
+	}
+
+	public String render(String template, Product product) {
+		return render(template, "product", product);
+	}
+
+	public String render(String template, String variable, Object value) {
+		Context context = new Context();
+		context.setVariable(variable, value);
+
+		long start = System.nanoTime();
+		String html = templateEngine.process(template, context);
+		timings.computeIfAbsent(template, x -> new Timing()).record(System.nanoTime() - start);
+
+		return html;
+	}
+
+	// the first template is rendered on the calling thread, the others on the render pool
+	public List<String> renderAll(Product product, String... templates) {
+		List<CompletableFuture<String>> others = new ArrayList<>();
+		for (int i = 1; i < templates.length; i++) {
+			String template = templates[i];
+			others.add(CompletableFuture.supplyAsync(() -> render(template, product), renderPool));
+		}
+
+		List<String> html = new ArrayList<>();
+		if (templates.length > 0) {
+			html.add(render(templates[0], product));
+		}
+		others.forEach(x -> html.add(x.join()));
+		return html;
+	}
+
+	public Timing getTiming(String template) {
+		return timings.getOrDefault(template, new Timing());
+	}
+
+	private static Product sampleProduct() {
+		Seller seller = new Seller();
+		seller.setName("Seller");
+		seller.setEmail("seller@example.com");
+
+		Client client = new Client();
+		client.setName("Client");
+		client.setEmail("client@example.com");
+
+		Product product = new Product(0, "Product", 0.0, seller, "Preload");
+		product.setBuyerOfTheProduct(client);
+		return product;
+	}
+
+	private static SaleDigest sampleDigest() {
+		SaleDigest digest = new SaleDigest(0, "Seller", "seller@example.com");
+		digest.add(new SaleDigest.Sale(0, new Date(0L), "Product", 0.0, "Client"));
+		return digest;
+	}
+
+}
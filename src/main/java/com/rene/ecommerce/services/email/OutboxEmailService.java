@@ -0,0 +1,54 @@
+package com.rene.ecommerce.services.email;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMailMessage;
+
+import com.rene.ecommerce.domain.OutboxEmail;
+import com.rene.ecommerce.repositories.OutboxEmailRepository;
+
+// Writes every message to tb_email_outbox instead of talking to the SMTP server;
+// EmailOutboxWorker sends them in the background and retries failures.
+public class OutboxEmailService extends AbstractEmailService {
+
+	@Autowired
+	private JavaMailSender javaMailSender;
+
+	@Autowired
+	private OutboxEmailRepository outboxRepo;
+
+	@Override
+	public void sendEmail(SimpleMailMessage msg) {
+		MimeMessage mm = javaMailSender.createMimeMessage();
+		msg.copyTo(new MimeMailMessage(mm));
+		sendEmailHtml(mm);
+	}
+
+	@Override
+	public void sendEmailHtml(MimeMessage msg) {
+		try {
+			msg.saveChanges();
+			ByteArrayOutputStream mime = new ByteArrayOutputStream();
+			msg.writeTo(mime);
+
+			String recipient = InternetAddress.toString(msg.getRecipients(Message.RecipientType.TO));
+			outboxRepo.save(new OutboxEmail(recipient == null ? "" : recipient, msg.getSubject(), mime.toByteArray(),
+					new Date(System.currentTimeMillis())));
+
+		} catch (MessagingException | IOException e) {
+			throw new MailPreparationException("Could not write the email to the outbox", e);
+		}
+	}
+
+}
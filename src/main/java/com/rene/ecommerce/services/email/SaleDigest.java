@@ -0,0 +1,114 @@
+package com.rene.ecommerce.services.email;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// sales of one seller waiting for the next digest email, keyed by order id
+public class SaleDigest {
+
+	// rows listed in the email; the rest only count in the totals
+	public static final int MAX_LISTED = 100;
+
+	public static final class Sale {
+
+		private final Integer orderId;
+		private final Date placedAt;
+		private final String productName;
+		private final Double price;
+		private final String buyerName;
+
+		public Sale(Integer orderId, Date placedAt, String productName, Double price, String buyerName) {
+			this.orderId = orderId;
+			this.placedAt = placedAt;
+			this.productName = productName;
+			this.price = price;
+			this.buyerName = buyerName;
+		}
+
+		public Integer getOrderId() {
+			return orderId;
+		}
+
+		public Date getPlacedAt() {
+			return placedAt;
+		}
+
+		public String getProductName() {
+			return productName;
+		}
+
+		public Double getPrice() {
+			return price;
+		}
+
+		public String getBuyerName() {
+			return buyerName;
+		}
+	}
+
+	private final Integer sellerId;
+	private String sellerName;
+	private String sellerEmail;
+	private final Map<Integer, Sale> sales = new LinkedHashMap<>();
+
+	public SaleDigest(Integer sellerId, String sellerName, String sellerEmail) {
+		this.sellerId = sellerId;
+		this.sellerName = sellerName;
+		this.sellerEmail = sellerEmail;
+	}
+
+	void add(Sale sale) {
+		sales.putIfAbsent(sale.getOrderId(), sale);
+	}
+
+	void addAll(SaleDigest other) {
+		other.sales.values().forEach(this::add);
+		if (other.sellerEmail != null) {
+			sellerName = other.sellerName;
+			sellerEmail = other.sellerEmail;
+		}
+	}
+
+	public Integer getSellerId() {
+		return sellerId;
+	}
+
+	public String getSellerName() {
+		return sellerName;
+	}
+
+	public String getSellerEmail() {
+		return sellerEmail;
+	}
+
+	public int getCount() {
+		return sales.size();
+	}
+
+	public double getTotal() {
+		return sales.values().stream().mapToDouble(x -> x.getPrice() == null ? 0.0 : x.getPrice()).sum();
+	}
+
+	public List<Sale> getListedSales() {
+		List<Sale> listed = new ArrayList<>(Math.min(sales.size(), MAX_LISTED));
+		for (Sale sale : sales.values()) {
+			if (listed.size() == MAX_LISTED) {
+				break;
+			}
+			listed.add(sale);
+		}
+		return listed;
+	}
+
+	public int getUnlistedCount() {
+		return Math.max(0, sales.size() - MAX_LISTED);
+	}
+
+	public Integer getLastOrderId() {
+		return sales.keySet().stream().max(Integer::compare).orElse(null);
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.rene.ecommerce.services.email;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.dto.OrderExportDTO;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.SellerRepository;
+
+// Buffers the sales of sellers that opted into the digest until the next digest
+// email. The buffer only lives in memory: the orders themselves are the durable
+// copy, and tb_sellers.sale_digest_last_order_id marks what was already sent, so
+// the buffer is rebuilt from tb_order on startup.
+@Service
+public class SaleDigestService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SaleDigestService.class);
+
+	@Autowired
+	private SellerRepository sellerRepo;
+
+	@Autowired
+	private OrderRepository orderRepo;
+
+	private final Map<Integer, SaleDigest> pending = new ConcurrentHashMap<>();
+
+	public static boolean wantsDigest(Seller seller) {
+		return seller != null && Boolean.TRUE.equals(seller.getSaleDigest());
+	}
+
+	public void updateSaleDigest(Integer sellerId, boolean enabled) {
+		// sales before this point were already notified one by one
+		sellerRepo.updateSaleDigest(sellerId, enabled, orderRepo.findMaxId());
+	}
+
+	// called once per written order
+	public void recordSale(Order order) {
+		Seller seller = order.getSeller();
+		if (!wantsDigest(seller) || order.getId() == null) {
+			return;
+		}
+
+		Double price = order.getProductOrder() == null ? null : order.getTotal();
+		String productName = order.getProductOrder() == null ? null : order.getProductOrder().getName();
+		String buyerName = order.getBuyer() == null ? null : order.getBuyer().getName();
+
+		add(seller, new SaleDigest.Sale(order.getId(), order.getInstant(), productName, price, buyerName));
+	}
+
+	// removes and returns every buffered digest
+	public List<SaleDigest> drain() {
+		List<SaleDigest> digests = new ArrayList<>();
+		for (Integer sellerId : pending.keySet()) {
+			SaleDigest digest = pending.remove(sellerId);
+			if (digest != null && digest.getCount() > 0) {
+				digests.add(digest);
+			}
+		}
+		return digests;
+	}
+
+	public void markSent(SaleDigest digest) {
+		sellerRepo.advanceSaleDigest(digest.getSellerId(), digest.getLastOrderId());
+	}
+
+	// the email could not be written: keep the sales for the next interval
+	public void requeue(SaleDigest digest) {
+		pending.merge(digest.getSellerId(), digest, (current, failed) -> {
+			failed.addAll(current);
+			return failed;
+		});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void recover() {
+		try {
+			int sales = 0;
+			for (Seller seller : sellerRepo.findBySaleDigestTrue()) {
+				Integer after = seller.getSaleDigestLastOrderId() == null ? 0 : seller.getSaleDigestLastOrderId();
+
+				for (OrderExportDTO x : orderRepo.findSalesOfSellerAfter(seller.getId(), after)) {
+					add(seller, new SaleDigest.Sale(x.getOrderId(), x.getPlacedAt(), x.getProductName(), x.getPrice(),
+							x.getBuyerName()));
+					sales++;
+				}
+			}
+			LOG.info("Sale digests recovered: " + sales + " unsent sales of " + pending.size() + " sellers");
+		} catch (Exception e) {
+			LOG.info("Could not recover the sale digests: " + e.getMessage());
+		}
+	}
+
+	private void add(Seller seller, SaleDigest.Sale sale) {
+		pending.compute(seller.getId(), (id, digest) -> {
+			if (digest == null) {
+				digest = new SaleDigest(id, seller.getName(), seller.getEmail());
+			}
+			digest.add(sale);
+			return digest;
+		});
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.rene.ecommerce.services.ranking;
+
+// Per-user ring buffer of (bucket, money, units) sums, oldest first.
+// Only buckets with activity take a slot, so a user who bought once in the
+// month costs one slot instead of one per bucket of the window.
+class ActivityRing {
+
+	private final Integer userId;
+	private volatile String name;
+
+	private long[] buckets = new long[2];
+	private double[] money = new double[2];
+	private int[] units = new int[2];
+	private int head;
+	private int size;
+
+	ActivityRing(Integer userId, String name) {
+		this.userId = userId;
+		this.name = name;
+	}
+
+	Integer getUserId() {
+		return userId;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	void setName(String name) {
+		this.name = name;
+	}
+
+	// late events (bucket older than the newest one) are folded into the newest bucket
+	synchronized void add(long bucket, double amount) {
+		if (size > 0) {
+			int last = index(size - 1);
+			if (buckets[last] >= bucket) {
+				money[last] += amount;
+				units[last]++;
+				return;
+			}
+		}
+		if (size == buckets.length) {
+			grow();
+		}
+		int slot = index(size++);
+		buckets[slot] = bucket;
+		money[slot] = amount;
+		units[slot] = 1;
+	}
+
+	// drops every bucket older than oldestBucket, returns true when the ring is empty
+	synchronized boolean evictBefore(long oldestBucket) {
+		while (size > 0 && buckets[head] < oldestBucket) {
+			head = (head + 1) % buckets.length;
+			size--;
+		}
+		return size == 0;
+	}
+
+	// sums of the buckets >= fromBucket: {money, units}
+	synchronized double[] sumSince(long fromBucket) {
+		double totalMoney = 0;
+		int totalUnits = 0;
+		for (int i = size - 1; i >= 0; i--) {
+			int slot = index(i);
+			if (buckets[slot] < fromBucket) {
+				break;
+			}
+			totalMoney += money[slot];
+			totalUnits += units[slot];
+		}
+		return new double[] { totalMoney, totalUnits };
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	private int index(int offset) {
+		return (head + offset) % buckets.length;
+	}
+
+	private void grow() {
+		int capacity = buckets.length * 2;
+		long[] newBuckets = new long[capacity];
+		double[] newMoney = new double[capacity];
+		int[] newUnits = new int[capacity];
+
+		for (int i = 0; i < size; i++) {
+			int slot = index(i);
+			newBuckets[i] = buckets[slot];
+			newMoney[i] = money[slot];
+			newUnits[i] = units[slot];
+		}
+		buckets = newBuckets;
+		money = newMoney;
+		units = newUnits;
+		head = 0;
+	}
+
+}
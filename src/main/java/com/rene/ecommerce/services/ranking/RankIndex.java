@@ -0,0 +1,269 @@
+package com.rene.ecommerce.services.ranking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Indexable skip list of users ordered by money (desc), then id (asc).
+// Every link stores how many entries it jumps over, so the rank of a user and
+// the user at a given rank are both found in O(log n).
+class RankIndex {
+
+	private static final int MAX_LEVEL = 32;
+
+	static final class Entry {
+
+		private final Integer id;
+		private final String name;
+		private final int count;
+		private final double money;
+
+		private final Entry[] next;
+		private final int[] span;
+
+		private Entry(Integer id, String name, int count, double money, int level) {
+			this.id = id;
+			this.name = name;
+			this.count = count;
+			this.money = money;
+			this.next = new Entry[level];
+			this.span = new int[level];
+		}
+
+		Integer getId() {
+			return id;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		double getMoney() {
+			return money;
+		}
+	}
+
+	// the entries around a user; rank is size + 1 when the user isn't ranked
+	static final class Slice {
+
+		private final int rank;
+		private final int size;
+		private final int firstRank;
+		private final List<Entry> entries;
+
+		private Slice(int rank, int size, int firstRank, List<Entry> entries) {
+			this.rank = rank;
+			this.size = size;
+			this.firstRank = firstRank;
+			this.entries = entries;
+		}
+
+		int getRank() {
+			return rank;
+		}
+
+		int getSize() {
+			return size;
+		}
+
+		int getFirstRank() {
+			return firstRank;
+		}
+
+		List<Entry> getEntries() {
+			return entries;
+		}
+	}
+
+	private final Entry head = new Entry(null, null, 0, 0.0, MAX_LEVEL);
+	private final Map<Integer, Entry> entries = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int level = 1;
+	private int size;
+
+	// totals only grow: ones with a lower count than the indexed ones are older,
+	// written by a purchase whose update arrives late, and are ignored
+	boolean putIfNewer(Integer id, String name, int count, double money) {
+		lock.writeLock().lock();
+		try {
+			Entry old = entries.get(id);
+			if (old != null) {
+				if (old.count > count) {
+					return false;
+				}
+				unlink(old);
+			}
+			entries.put(id, insert(id, name, count, money));
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			for (int i = 0; i < MAX_LEVEL; i++) {
+				head.next[i] = null;
+				head.span[i] = 0;
+			}
+			entries.clear();
+			level = 1;
+			size = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	boolean contains(Integer id) {
+		lock.readLock().lock();
+		try {
+			return entries.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// rank of the user plus up to "neighbors" entries on each side, read atomically
+	Slice around(Integer id, int neighbors) {
+		lock.readLock().lock();
+		try {
+			Entry entry = entries.get(id);
+			int rank = entry == null ? size + 1 : rankOf(entry);
+
+			int first = Math.max(1, rank - neighbors);
+			int last = Math.min(size, rank + neighbors);
+
+			List<Entry> slice = new ArrayList<>(Math.max(0, last - first + 1));
+			Entry x = first <= last ? byRank(first) : null;
+			for (int r = first; r <= last && x != null; r++) {
+				slice.add(x);
+				x = x.next[0];
+			}
+			return new Slice(rank, size, first, slice);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static boolean before(Entry a, double money, Integer id) {
+		return a.money > money || (a.money == money && a.id < id);
+	}
+
+	private Entry insert(Integer id, String name, int count, double money) {
+		Entry[] update = new Entry[MAX_LEVEL];
+		int[] rank = new int[MAX_LEVEL];
+
+		Entry x = head;
+		for (int i = level - 1; i >= 0; i--) {
+			rank[i] = i == level - 1 ? 0 : rank[i + 1];
+			while (x.next[i] != null && before(x.next[i], money, id)) {
+				rank[i] += x.span[i];
+				x = x.next[i];
+			}
+			update[i] = x;
+		}
+
+		int newLevel = randomLevel();
+		if (newLevel > level) {
+			for (int i = level; i < newLevel; i++) {
+				rank[i] = 0;
+				update[i] = head;
+				head.span[i] = size;
+			}
+			level = newLevel;
+		}
+
+		Entry entry = new Entry(id, name, count, money, newLevel);
+		for (int i = 0; i < newLevel; i++) {
+			entry.next[i] = update[i].next[i];
+			update[i].next[i] = entry;
+			entry.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+			update[i].span[i] = rank[0] - rank[i] + 1;
+		}
+		for (int i = newLevel; i < level; i++) {
+			update[i].span[i]++;
+		}
+
+		size++;
+		return entry;
+	}
+
+	private void unlink(Entry entry) {
+		Entry x = head;
+		for (int i = level - 1; i >= 0; i--) {
+			while (x.next[i] != null && x.next[i] != entry && before(x.next[i], entry.money, entry.id)) {
+				x = x.next[i];
+			}
+			if (x.next[i] == entry) {
+				x.span[i] += entry.span[i] - 1;
+				x.next[i] = entry.next[i];
+			} else {
+				x.span[i]--;
+			}
+		}
+
+		while (level > 1 && head.next[level - 1] == null) {
+			level--;
+		}
+		size--;
+	}
+
+	private int rankOf(Entry entry) {
+		int rank = 0;
+		Entry x = head;
+		for (int i = level - 1; i >= 0; i--) {
+			while (x.next[i] != null && (x.next[i] == entry || before(x.next[i], entry.money, entry.id))) {
+				rank += x.span[i];
+				x = x.next[i];
+			}
+			if (x == entry) {
+				return rank;
+			}
+		}
+		return rank;
+	}
+
+	private Entry byRank(int rank) {
+		int traversed = 0;
+		Entry x = head;
+		for (int i = level - 1; i >= 0; i--) {
+			while (x.next[i] != null && traversed + x.span[i] <= rank) {
+				traversed += x.span[i];
+				x = x.next[i];
+			}
+			if (traversed == rank) {
+				return x;
+			}
+		}
+		return null;
+	}
+
+	private static int randomLevel() {
+		int level = 1;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (level < MAX_LEVEL && random.nextInt(4) == 0) {
+			level++;
+		}
+		return level;
+	}
+
+}
@@ -0,0 +1,104 @@
+package com.rene.ecommerce.services.ranking;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rene.ecommerce.services.RankingService;
+
+// JSON bytes of the ranking responses, rendered once and served as is.
+// A single scheduled refresher re-renders every requested ranking before its
+// max-age runs out, so requests never wait on the database; only the very first
+// request of a ranking renders it, and concurrent first requests share that render.
+@Service
+public class RankingResponseCache {
+
+	public static final class CachedJson {
+
+		private final byte[] body;
+		private final String etag;
+
+		private CachedJson(byte[] body) {
+			this.body = body;
+			this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+		}
+
+		public byte[] getBody() {
+			return body;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(RankingResponseCache.class);
+
+	@Autowired
+	private RankingService ranking;
+
+	@Autowired
+	private ObjectMapper mapper;
+
+	@Value("${ranking.cache.refresh-millis:30000}")
+	private long refreshMillis = 30000L;
+
+	private final Map<String, CachedJson> entries = new ConcurrentHashMap<>();
+	private final Map<String, Supplier<Object>> loaders = new ConcurrentHashMap<>();
+
+	public CachedJson clients(String window) {
+		String name = window == null ? null : RankingWindow.parse(window).name();
+		return get("clients:" + name, () -> ranking.returnRankingClient(name));
+	}
+
+	public CachedJson sellers(String window) {
+		String name = window == null ? null : RankingWindow.parse(window).name();
+		return get("sellers:" + name, () -> ranking.returnRankingSeller(name));
+	}
+
+	// what clients and proxies may reuse without asking again: one refresh period
+	public long getMaxAgeSeconds() {
+		return Math.max(1L, refreshMillis / 1000);
+	}
+
+	@Scheduled(fixedDelayString = "${ranking.cache.refresh-millis:30000}")
+	public void refresh() {
+		for (Map.Entry<String, Supplier<Object>> loader : loaders.entrySet()) {
+			try {
+				entries.put(loader.getKey(), render(loader.getValue()));
+			} catch (RuntimeException e) {
+				// keep serving the previous bytes until the next refresh
+				LOG.info("Could not refresh ranking " + loader.getKey() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private CachedJson get(String key, Supplier<Object> loader) {
+		CachedJson json = entries.get(key);
+		if (json != null) {
+			return json;
+		}
+
+		loaders.putIfAbsent(key, loader);
+		return entries.computeIfAbsent(key, k -> render(loader));
+	}
+
+	private CachedJson render(Supplier<Object> loader) {
+		try {
+			return new CachedJson(mapper.writeValueAsBytes(loader.get()));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize ranking", e);
+		}
+	}
+
+}
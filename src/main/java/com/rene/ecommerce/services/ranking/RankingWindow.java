@@ -0,0 +1,28 @@
+package com.rene.ecommerce.services.ranking;
+
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+
+// rolling windows of the leaderboards, measured back from the current bucket
+public enum RankingWindow {
+
+	DAILY(86400000L), WEEKLY(7 * 86400000L), MONTHLY(30 * 86400000L);
+
+	private final long millis;
+
+	RankingWindow(long millis) {
+		this.millis = millis;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	public static RankingWindow parse(String window) {
+		try {
+			return RankingWindow.valueOf(window.trim().toUpperCase());
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw new InvalidParameterException("Window must be daily, weekly or monthly");
+		}
+	}
+
+}
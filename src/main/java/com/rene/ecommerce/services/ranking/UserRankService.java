@@ -0,0 +1,190 @@
+package com.rene.ecommerce.services.ranking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
+import com.rene.ecommerce.domain.dto.ranking.SellerRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserRankDTO;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.ObjectNotFoundException;
+import com.rene.ecommerce.repositories.ClientRepository;
+import com.rene.ecommerce.repositories.SellerRepository;
+
+// "What rank am I?" for clients and sellers, answered from an in-memory order
+// statistic index instead of counting rows of tb_clients/tb_sellers per request.
+// Users that never bought/sold anything aren't indexed and share the last rank;
+// they are read once and remembered as unranked until a purchase indexes them.
+@Service
+public class UserRankService {
+
+	public static final int DEFAULT_NEIGHBORS = 2;
+	public static final int MAX_NEIGHBORS = 10;
+
+	private static final Logger LOG = LoggerFactory.getLogger(UserRankService.class);
+
+	private interface RankingFactory<T extends UserDTO> {
+		T create(Integer id, String name, Integer sellsOrBuys, Double money);
+	}
+
+	@Autowired
+	private ClientRepository clientRepo;
+
+	@Autowired
+	private SellerRepository sellerRepo;
+
+	private final RankIndex clients = new RankIndex();
+	private final RankIndex sellers = new RankIndex();
+
+	// id -> name of the users read that had nothing to rank
+	private final Map<Integer, String> unrankedClients = new ConcurrentHashMap<>();
+	private final Map<Integer, String> unrankedSellers = new ConcurrentHashMap<>();
+
+	// new totals written by a purchase or checkout, as the database returned them;
+	// they may arrive out of order, the index keeps the latest
+	public void recordTotals(RankedUserDTO buyer, List<RankedUserDTO> sellers) {
+		put(clients, buyer.getId(), buyer.getName(), buyer.getSellsOrBuys(), buyer.getMoney());
+		for (RankedUserDTO x : sellers) {
+			put(this.sellers, x.getId(), x.getName(), x.getSellsOrBuys(), x.getMoney());
+		}
+	}
+
+	public UserRankDTO<ClientRankingDTO> findRankOfClient(Integer clientId, Integer neighbors) {
+		// not indexed yet (no purchase since startup, or none at all): read the totals once
+		String name = null;
+		if (!clients.contains(clientId)) {
+			name = unrankedClients.get(clientId);
+			if (name == null) {
+				Optional<Client> client = clientRepo.findById(clientId);
+				if (!client.isPresent()) {
+					throw new ObjectNotFoundException();
+				}
+				name = nonNull(client.get().getName());
+				if (!putClient(client.get())) {
+					unrankedClients.put(clientId, name);
+				}
+			}
+		}
+
+		return toRank(clients.around(clientId, clampNeighbors(neighbors)), clientId, name, ClientRankingDTO::new);
+	}
+
+	public UserRankDTO<SellerRankingDTO> findRankOfSeller(Integer sellerId, Integer neighbors) {
+		// not indexed yet (no sale since startup, or none at all): read the totals once
+		String name = null;
+		if (!sellers.contains(sellerId)) {
+			name = unrankedSellers.get(sellerId);
+			if (name == null) {
+				Optional<Seller> seller = sellerRepo.findById(sellerId);
+				if (!seller.isPresent()) {
+					throw new ObjectNotFoundException();
+				}
+				name = nonNull(seller.get().getName());
+				if (!putSeller(seller.get())) {
+					unrankedSellers.put(sellerId, name);
+				}
+			}
+		}
+
+		return toRank(sellers.around(sellerId, clampNeighbors(neighbors)), sellerId, name, SellerRankingDTO::new);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		try {
+			unrankedClients.clear();
+			unrankedSellers.clear();
+			load(clients, clientRepo.findRankedClients());
+			load(sellers, sellerRepo.findRankedSellers());
+			LOG.info("Rank index loaded: " + clients.size() + " clients, " + sellers.size() + " sellers");
+		} catch (Exception e) {
+			LOG.info("Could not load the rank index: " + e.getMessage());
+		}
+	}
+
+	private void load(RankIndex index, List<RankedUserDTO> users) {
+		index.clear();
+		for (RankedUserDTO x : users) {
+			index.putIfNewer(x.getId(), x.getName(), zeroIfNull(x.getSellsOrBuys()), zeroIfNull(x.getMoney()));
+		}
+	}
+
+	private boolean putClient(Client client) {
+		return put(clients, client.getId(), client.getName(), client.getNumberOfBuys(),
+				client.getHowMuchMoneyThisClientHasSpent());
+	}
+
+	private boolean putSeller(Seller seller) {
+		return put(sellers, seller.getId(), seller.getName(), seller.getNumberOfSells(),
+				seller.getHowMuchMoneyThisSellerHasSold());
+	}
+
+	// a user without money spent or sold isn't ranked (false); totals read from the
+	// database don't replace newer ones recorded meanwhile
+	private boolean put(RankIndex index, Integer id, String name, Integer count, Double money) {
+		if (id == null || money == null || money <= 0) {
+			return false;
+		}
+		index.putIfNewer(id, name, zeroIfNull(count), money);
+		return true;
+	}
+
+	private <T extends UserDTO> UserRankDTO<T> toRank(RankIndex.Slice slice, Integer userId, String name,
+			RankingFactory<T> factory) {
+
+		List<T> above = new ArrayList<>();
+		List<T> below = new ArrayList<>();
+		T me = null;
+
+		int rank = slice.getFirstRank();
+		for (RankIndex.Entry x : slice.getEntries()) {
+			T dto = factory.create(x.getId(), x.getName(), x.getCount(), x.getMoney());
+			if (rank < slice.getRank()) {
+				above.add(dto);
+			} else if (rank > slice.getRank()) {
+				below.add(dto);
+			} else {
+				me = dto;
+			}
+			rank++;
+		}
+
+		if (me == null) {
+			me = factory.create(userId, name, 0, 0.0);
+		}
+		return new UserRankDTO<>(slice.getRank(), slice.getSize(), me, above, below);
+	}
+
+	private static int clampNeighbors(Integer neighbors) {
+		if (neighbors == null || neighbors < 0) {
+			return DEFAULT_NEIGHBORS;
+		}
+		return Math.min(neighbors, MAX_NEIGHBORS);
+	}
+
+	private static String nonNull(String name) {
+		return name == null ? "" : name;
+	}
+
+	private static int zeroIfNull(Integer value) {
+		return value == null ? 0 : value;
+	}
+
+	private static double zeroIfNull(Double value) {
+		return value == null ? 0.0 : value;
+	}
+
+}
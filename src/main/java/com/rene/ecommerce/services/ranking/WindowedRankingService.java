@@ -0,0 +1,207 @@
+package com.rene.ecommerce.services.ranking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.RankingSnapshot;
+import com.rene.ecommerce.domain.dto.OrderActivityDTO;
+import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.SellerRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserDTO;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.RankingSnapshotRepository;
+
+// Leaderboards over rolling daily/weekly/monthly windows. Every purchase is added
+// to the current bucket of the buyer's and seller's ring; the top 10 of each window
+// is recomputed once per bucket, so requests only read a published list.
+@Service
+public class WindowedRankingService {
+
+	public static final int TOP = 10;
+	public static final String CLIENT_BOARD = "Client";
+	public static final String SELLER_BOARD = "Seller";
+
+	private static final Logger LOG = LoggerFactory.getLogger(WindowedRankingService.class);
+
+	private interface RankingFactory<T extends UserDTO> {
+		T create(Integer id, String name, Integer sellsOrBuys, Double money);
+	}
+
+	@Autowired
+	private OrderRepository orderRepo;
+
+	@Autowired
+	private RankingSnapshotRepository snapshotRepo;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${ranking.windows.bucket-millis:300000}")
+	private long bucketMillis = 300000L;
+
+	private final Map<Integer, ActivityRing> clients = new ConcurrentHashMap<>();
+	private final Map<Integer, ActivityRing> sellers = new ConcurrentHashMap<>();
+
+	private volatile Map<RankingWindow, List<ClientRankingDTO>> topClients = new EnumMap<>(RankingWindow.class);
+	private volatile Map<RankingWindow, List<SellerRankingDTO>> topSellers = new EnumMap<>(RankingWindow.class);
+
+	public void recordPurchase(Order order) {
+		if (order.getBuyer() == null || order.getSeller() == null || order.getProductOrder() == null
+				|| order.getInstant() == null) {
+			return;
+		}
+		recordPurchase(order.getBuyer().getId(), order.getBuyer().getName(), order.getSeller().getId(),
+				order.getSeller().getName(), order.getTotal(), order.getInstant());
+	}
+
+	void recordPurchase(Integer buyerId, String buyerName, Integer sellerId, String sellerName, Double price,
+			Date at) {
+		long bucket = at.getTime() / bucketMillis;
+
+		record(clients, buyerId, buyerName, bucket, price);
+		record(sellers, sellerId, sellerName, bucket, price);
+	}
+
+	public List<ClientRankingDTO> topClients(RankingWindow window) {
+		return topClients.getOrDefault(window, Collections.emptyList());
+	}
+
+	public List<SellerRankingDTO> topSellers(RankingWindow window) {
+		return topSellers.getOrDefault(window, Collections.emptyList());
+	}
+
+	// bucket rotation: drops expired buckets and publishes the new top 10 of every window
+	@Scheduled(fixedRateString = "${ranking.windows.bucket-millis:300000}")
+	public void rotate() {
+		long current = System.currentTimeMillis() / bucketMillis;
+
+		topClients = computeTop(clients, current, ClientRankingDTO::new);
+		topSellers = computeTop(sellers, current, SellerRankingDTO::new);
+	}
+
+	@Scheduled(cron = "${ranking.snapshots.cron:0 0 0 * * *}", zone = "UTC")
+	public void takeSnapshot() {
+		Date takenAt = new Date(System.currentTimeMillis());
+		List<RankingSnapshot> rows = new ArrayList<>();
+
+		for (RankingWindow window : RankingWindow.values()) {
+			addSnapshotRows(rows, takenAt, CLIENT_BOARD, window, topClients(window));
+			addSnapshotRows(rows, takenAt, SELLER_BOARD, window, topSellers(window));
+		}
+		snapshotRepo.saveAll(rows);
+	}
+
+	public List<RankingSnapshot> findSnapshot(String board, RankingWindow window, Date at) {
+		if (at == null) {
+			at = new Date(System.currentTimeMillis());
+		}
+		return snapshotRepo.findSnapshot(board, window.name(), at);
+	}
+
+	// the rings only live in memory, so replay the last month of orders on startup
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		Date since = new Date(System.currentTimeMillis() - RankingWindow.MONTHLY.getMillis());
+
+		try {
+			new TransactionTemplate(transactionManager).execute(status -> {
+				try (Stream<OrderActivityDTO> rows = orderRepo.streamActivitySince(since)) {
+					rows.forEach(x -> recordPurchase(x.getBuyerId(), x.getBuyerName(), x.getSellerId(),
+							x.getSellerName(), x.getPrice(), x.getPlacedAt()));
+				}
+				return null;
+			});
+		} catch (Exception e) {
+			LOG.info("Could not warm up the windowed rankings: " + e.getMessage());
+		}
+		rotate();
+	}
+
+	private void record(Map<Integer, ActivityRing> rings, Integer id, String name, long bucket, Double price) {
+		rings.compute(id, (key, ring) -> {
+			if (ring == null) {
+				ring = new ActivityRing(key, name);
+			} else {
+				ring.setName(name);
+			}
+			ring.add(bucket, price == null ? 0.0 : price);
+			return ring;
+		});
+	}
+
+	private long firstBucketOf(RankingWindow window, long current) {
+		long buckets = (window.getMillis() + bucketMillis - 1) / bucketMillis;
+		return current - buckets + 1;
+	}
+
+	private <T extends UserDTO> Map<RankingWindow, List<T>> computeTop(Map<Integer, ActivityRing> rings, long current,
+			RankingFactory<T> factory) {
+
+		long oldest = firstBucketOf(RankingWindow.MONTHLY, current);
+		Comparator<T> byMoney = Comparator.comparing(UserDTO::getMoney);
+
+		Map<RankingWindow, PriorityQueue<T>> heaps = new EnumMap<>(RankingWindow.class);
+		for (RankingWindow window : RankingWindow.values()) {
+			heaps.put(window, new PriorityQueue<>(TOP + 1, byMoney));
+		}
+
+		for (Integer id : rings.keySet()) {
+			// compute is atomic with record(), so a purchase can't land in a removed ring
+			ActivityRing ring = rings.computeIfPresent(id, (key, r) -> r.evictBefore(oldest) ? null : r);
+			if (ring == null) {
+				continue;
+			}
+
+			for (RankingWindow window : RankingWindow.values()) {
+				double[] sum = ring.sumSince(firstBucketOf(window, current));
+				if (sum[1] == 0) {
+					continue;
+				}
+
+				PriorityQueue<T> heap = heaps.get(window);
+				heap.offer(factory.create(ring.getUserId(), ring.getName(), (int) sum[1], sum[0]));
+				if (heap.size() > TOP) {
+					heap.poll();
+				}
+			}
+		}
+
+		Map<RankingWindow, List<T>> top = new EnumMap<>(RankingWindow.class);
+		for (RankingWindow window : RankingWindow.values()) {
+			List<T> list = new ArrayList<>(heaps.get(window));
+			list.sort(byMoney.reversed());
+			top.put(window, Collections.unmodifiableList(list));
+		}
+		return top;
+	}
+
+	private void addSnapshotRows(List<RankingSnapshot> rows, Date takenAt, String board, RankingWindow window,
+			List<? extends UserDTO> ranking) {
+		int position = 1;
+		for (UserDTO x : ranking) {
+			rows.add(new RankingSnapshot(takenAt, board, window.name(), position++, x.getId(), x.getName(),
+					x.getSellsOrBuys(), x.getMoney()));
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.rene.ecommerce.services.reservation;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ReservationDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ObjectNotFoundException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.exceptions.ProductIsReservedException;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+// Short holds on units of a product, kept in memory. A client holding units can
+// buy them while nobody else can: a purchase (or a hold) that would need units
+// others hold is rejected here, before it reaches the database. The holds of a
+// product are a small immutable map replaced as a whole, so a hold is checked and
+// taken in one atomic step without a lock shared by all products. Holds end after
+// reservations.ttl-millis; reads ignore expired holds and a timer wheel clears
+// them out.
+@Service
+public class ReservationService {
+
+	// one wheel turn is longer than any hold, so each bucket is visited once per hold
+	private static final int WHEEL_BUCKETS = 1024;
+	private static final long TICK_MILLIS = 1000L;
+
+	private static final class Hold {
+
+		private final Integer productId;
+		private final Integer clientId;
+		private final int quantity;
+		private final long expiresAt;
+
+		private Hold(Integer productId, Integer clientId, int quantity, long expiresAt) {
+			this.productId = productId;
+			this.clientId = clientId;
+			this.quantity = quantity;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Value("${reservations.ttl-millis:120000}")
+	private long ttlMillis = 120000L;
+
+	// product id -> client id -> hold
+	private final Map<Integer, Map<Integer, Hold>> holds = new ConcurrentHashMap<>();
+
+	private final TimerWheel<Hold> wheel = new TimerWheel<>(WHEEL_BUCKETS, TICK_MILLIS, System.currentTimeMillis());
+
+	// holds (or renews, or resizes) the client's units of the product
+	public ReservationDTO reserve(Integer clientId, Integer productId, Integer quantity) {
+		int units = quantity == null ? 1 : quantity;
+		if (units < 1) {
+			throw new InvalidParameterException("Quantity must be at least 1");
+		}
+
+		Product product;
+		try {
+			product = productRepo.findById(productId).get();
+		} catch (NoSuchElementException e) {
+			throw new ObjectNotFoundException();
+		}
+		int stock = product.getStock() == null ? 0 : product.getStock();
+		if (!Product.isForSale(product) || stock < units) {
+			throw units == 1 ? new ProductHasAlreadyBeenSold()
+					: new ProductHasAlreadyBeenSold("There are fewer than " + units + " units of the product left");
+		}
+
+		long now = System.currentTimeMillis();
+		Hold hold = new Hold(productId, clientId, units, now + ttlMillis);
+		holds.compute(productId, (id, current) -> {
+			if (heldByOthers(current, clientId, now) + units > stock) {
+				throw new ProductIsReservedException();
+			}
+			Map<Integer, Hold> next = live(current, clientId, now);
+			next.put(clientId, hold);
+			return Collections.unmodifiableMap(next);
+		});
+		wheel.schedule(hold, hold.expiresAt);
+		return new ReservationDTO(productId, units, new Date(hold.expiresAt));
+	}
+
+	public void release(Integer clientId, Integer productId) {
+		long now = System.currentTimeMillis();
+		holds.computeIfPresent(productId, (id, current) -> orNull(live(current, clientId, now)));
+	}
+
+	// called before a purchase of units of the product touches the database: rejects
+	// it when the stock the product was loaded with is held by others
+	public void checkAvailable(Integer clientId, Integer productId, int units, Integer stock) {
+		Map<Integer, Hold> current = holds.get(productId);
+		if (current != null && stock != null
+				&& heldByOthers(current, clientId, System.currentTimeMillis()) + units > stock) {
+			throw new ProductIsReservedException();
+		}
+	}
+
+	// after the client's purchase of units of the product committed
+	public void bought(Integer clientId, Integer productId, int units, boolean soldOut) {
+		if (soldOut) {
+			holds.remove(productId);
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		Hold[] left = new Hold[1];
+		holds.computeIfPresent(productId, (id, current) -> {
+			Hold hold = current.get(clientId);
+			if (hold == null || hold.expiresAt <= now) {
+				return current;
+			}
+			Map<Integer, Hold> next = live(current, clientId, now);
+			if (hold.quantity > units) {
+				left[0] = new Hold(productId, clientId, hold.quantity - units, hold.expiresAt);
+				next.put(clientId, left[0]);
+			}
+			return orNull(next);
+		});
+		if (left[0] != null) {
+			wheel.schedule(left[0], left[0].expiresAt);
+		}
+	}
+
+	// units of the product the client holds now
+	public int held(Integer clientId, Integer productId) {
+		Map<Integer, Hold> current = holds.get(productId);
+		Hold hold = current == null ? null : current.get(clientId);
+		return hold == null || hold.expiresAt <= System.currentTimeMillis() ? 0 : hold.quantity;
+	}
+
+	@Scheduled(fixedDelay = TICK_MILLIS)
+	public void expire() {
+		long now = System.currentTimeMillis();
+		wheel.advance(now, hold -> holds.computeIfPresent(hold.productId,
+				// a renewed or resized hold is another instance with a timeout of its own
+				(id, current) -> current.get(hold.clientId) != hold ? current
+						: orNull(live(current, hold.clientId, now))));
+	}
+
+	int size() {
+		return holds.size();
+	}
+
+	private static int heldByOthers(Map<Integer, Hold> current, Integer clientId, long now) {
+		int n = 0;
+		if (current != null) {
+			for (Hold hold : current.values()) {
+				if (hold.expiresAt > now && !hold.clientId.equals(clientId)) {
+					n += hold.quantity;
+				}
+			}
+		}
+		return n;
+	}
+
+	// the unexpired holds, but the client's
+	private static Map<Integer, Hold> live(Map<Integer, Hold> current, Integer clientId, long now) {
+		Map<Integer, Hold> next = new HashMap<>();
+		if (current != null) {
+			for (Hold hold : current.values()) {
+				if (hold.expiresAt > now && !hold.clientId.equals(clientId)) {
+					next.put(hold.clientId, hold);
+				}
+			}
+		}
+		return next;
+	}
+
+	private static Map<Integer, Hold> orNull(Map<Integer, Hold> next) {
+		return next.isEmpty() ? null : Collections.unmodifiableMap(next);
+	}
+
+}
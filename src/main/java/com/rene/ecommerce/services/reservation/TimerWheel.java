@@ -0,0 +1,89 @@
+package com.rene.ecommerce.services.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+// Hashed timer wheel: an item goes into the bucket of its deadline's tick (modulo
+// the number of buckets) and is handed back once the wheel has moved past that
+// tick. Scheduling is one append to a lock-free queue, whatever the number of
+// pending items; an item more than a turn away waits in its bucket for its turn.
+// Scheduling may be called from any thread, advance from one thread at a time.
+class TimerWheel<T> {
+
+	private static final class Timeout<T> {
+
+		private final T item;
+		private final long deadline;
+
+		private Timeout(T item, long deadline) {
+			this.item = item;
+			this.deadline = deadline;
+		}
+	}
+
+	private final ConcurrentLinkedQueue<Timeout<T>>[] buckets;
+	private final int mask;
+	private final long tickMillis;
+
+	// the last tick advance has handled
+	private volatile long tick;
+
+	@SuppressWarnings("unchecked")
+	TimerWheel(int size, long tickMillis, long now) {
+		int n = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		buckets = new ConcurrentLinkedQueue[n];
+		for (int i = 0; i < n; i++) {
+			buckets[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.mask = n - 1;
+		this.tickMillis = tickMillis;
+		this.tick = now / tickMillis - 1;
+	}
+
+	void schedule(T item, long deadline) {
+		// a deadline in a tick already handled goes to the next one; if advance is
+		// handling that very tick right now, the item waits a turn (callers check
+		// deadlines themselves, the wheel only cleans up)
+		long at = Math.max(deadline / tickMillis, tick + 1);
+		buckets[(int) (at & mask)].add(new Timeout<>(item, deadline));
+	}
+
+	// hands every item due by now to expired; the number handed. Only the ticks
+	// that are over are handled, so an item isn't found early and put back for a turn
+	int advance(long now, Consumer<T> expired) {
+		long to = now / tickMillis - 1;
+		long from = Math.max(tick + 1, to - mask);
+		int n = 0;
+		List<Timeout<T>> later = new ArrayList<>();
+
+		for (long t = from; t <= to; t++) {
+			ConcurrentLinkedQueue<Timeout<T>> bucket = buckets[(int) (t & mask)];
+			for (Timeout<T> x = bucket.poll(); x != null; x = bucket.poll()) {
+				if (x.deadline <= now) {
+					expired.accept(x.item);
+					n++;
+				} else {
+					later.add(x);
+				}
+			}
+			bucket.addAll(later);
+			later.clear();
+		}
+
+		if (to > tick) {
+			tick = to;
+		}
+		return n;
+	}
+
+	int size() {
+		int n = 0;
+		for (ConcurrentLinkedQueue<Timeout<T>> bucket : buckets) {
+			n += bucket.size();
+		}
+		return n;
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.rene.ecommerce.services.search;
+
+import java.util.Arrays;
+
+// int -> long hash map over two primitive arrays (linear probing; removal shifts
+// the following entries back instead of leaving tombstones). Not thread safe.
+class IntLongMap {
+
+	private static final int EMPTY = Integer.MIN_VALUE;
+
+	private int[] keys;
+	private long[] values;
+	private int size;
+
+	IntLongMap() {
+		this(16);
+	}
+
+	IntLongMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+		keys = new int[capacity];
+		values = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean containsKey(int key) {
+		return keys[slot(key)] == key;
+	}
+
+	// the value of the key, or missing when it isn't in the map
+	long get(int key, long missing) {
+		int i = slot(key);
+		return keys[i] == key ? values[i] : missing;
+	}
+
+	void put(int key, long value) {
+		int i = slot(key);
+		if (keys[i] != key) {
+			keys[i] = key;
+			size++;
+		}
+		values[i] = value;
+		if (size * 2 > keys.length) {
+			grow();
+		}
+	}
+
+	boolean remove(int key) {
+		int i = slot(key);
+		if (keys[i] != key) {
+			return false;
+		}
+
+		int mask = keys.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == EMPTY) {
+				break;
+			}
+			// an entry may fill the hole only if its home slot isn't between the hole and it
+			int home = home(keys[j]);
+			if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		size--;
+		return true;
+	}
+
+	private int home(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (keys.length - 1);
+	}
+
+	private int slot(int key) {
+		int mask = keys.length - 1;
+		int i = home(key);
+		while (keys[i] != EMPTY && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		long[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new long[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+}
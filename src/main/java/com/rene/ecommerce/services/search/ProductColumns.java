@@ -0,0 +1,435 @@
+package com.rene.ecommerce.services.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// The unsold catalog as three parallel primitive columns - id, price in cents and
+// seller id - kept sorted by (price, id). A price range is one contiguous run of
+// rows found by binary search, sorting by price is reading that run forwards or
+// backwards, and the seller filter is a scan of an int column inside it. A product
+// costs 16 bytes of columns plus its entry in the id -> price map used to find its
+// row, instead of a Product entity with its boxed fields.
+class ProductColumns {
+
+	enum Order {
+		ID, PRICE, PRICE_DESC
+	}
+
+	private static final long MISSING = Long.MIN_VALUE;
+
+	private int[] ids = new int[16];
+	private long[] prices = new long[16];
+	private int[] sellers = new int[16];
+	private int size;
+
+	// the price a product is filed under, which is what finds its row
+	private IntLongMap priceOf = new IntLongMap();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// ids written while a load runs: their live rows win over the loaded ones
+	private Set<Integer> changedDuringLoad;
+
+	static long cents(Double price) {
+		return price == null ? 0 : Math.round(price * 100);
+	}
+
+	void put(int id, long price, int seller) {
+		lock.writeLock().lock();
+		try {
+			markChanged(id);
+			removeRow(id);
+			insertRow(id, price, seller);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(int id) {
+		lock.writeLock().lock();
+		try {
+			markChanged(id);
+			removeRow(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// put and remove for many rows at once: one pass over the columns for the whole
+	// batch instead of one shift of the rows behind each changed row
+	void putAll(int[] batchIds, long[] batchPrices, int[] batchSellers, int k) {
+		lock.writeLock().lock();
+		try {
+			for (int x = 0; x < k; x++) {
+				markChanged(batchIds[x]);
+			}
+			removeRows(batchIds, k);
+
+			// the last write of an id wins
+			int[] addIds = new int[k];
+			long[] addPrices = new long[k];
+			int[] addSellers = new int[k];
+			IntLongMap seen = new IntLongMap(k);
+			int n = 0;
+			for (int x = k - 1; x >= 0; x--) {
+				if (!seen.containsKey(batchIds[x])) {
+					seen.put(batchIds[x], 0);
+					addIds[n] = batchIds[x];
+					addPrices[n] = batchPrices[x];
+					addSellers[n++] = batchSellers[x];
+				}
+			}
+			sort(addIds, addPrices, addSellers, 0, n - 1);
+
+			if (size + n > ids.length) {
+				int capacity = Math.max(size + n, size + (size >> 1));
+				ids = Arrays.copyOf(ids, capacity);
+				prices = Arrays.copyOf(prices, capacity);
+				sellers = Arrays.copyOf(sellers, capacity);
+			}
+
+			// merge from the back, so no row is overwritten before it has moved
+			int i = size - 1;
+			int j = n - 1;
+			for (int w = size + n - 1; j >= 0; w--) {
+				if (i >= 0 && (prices[i] > addPrices[j] || (prices[i] == addPrices[j] && ids[i] > addIds[j]))) {
+					ids[w] = ids[i];
+					prices[w] = prices[i];
+					sellers[w] = sellers[i--];
+				} else {
+					ids[w] = addIds[j];
+					prices[w] = addPrices[j];
+					sellers[w] = addSellers[j];
+					priceOf.put(addIds[j], addPrices[j]);
+					j--;
+				}
+			}
+			size += n;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void removeAll(int[] removedIds, int k) {
+		lock.writeLock().lock();
+		try {
+			for (int x = 0; x < k; x++) {
+				markChanged(removedIds[x]);
+			}
+			removeRows(removedIds, k);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// ids of the rows priced within [minPrice, maxPrice] and listed by seller (any
+	// seller when 0), in the given order, after skipping the first offset of them
+	int[] select(long minPrice, long maxPrice, int seller, Order order, int offset, int limit) {
+		lock.readLock().lock();
+		try {
+			int from = minPrice == Long.MIN_VALUE ? 0 : firstPricedAbove(minPrice - 1);
+			int to = maxPrice == Long.MAX_VALUE ? size : firstPricedAbove(maxPrice);
+			if (from >= to || limit <= 0) {
+				return new int[0];
+			}
+			if (order == Order.ID) {
+				return smallestIds(from, to, seller, offset, limit);
+			}
+
+			int[] page = new int[Math.min(limit, to - from)];
+			int n = 0;
+			int skip = offset;
+			boolean ascending = order == Order.PRICE;
+			for (int k = 0; k < to - from && n < page.length; k++) {
+				int i = ascending ? from + k : to - 1 - k;
+				if (seller != 0 && sellers[i] != seller) {
+					continue;
+				}
+				if (skip > 0) {
+					skip--;
+				} else {
+					page[n++] = ids[i];
+				}
+			}
+			return Arrays.copyOf(page, n);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	void startLoad() {
+		lock.writeLock().lock();
+		try {
+			changedDuringLoad = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// replaces the columns with the n loaded rows, keeping the live rows of the ids
+	// written since startLoad
+	void finishLoad(int[] loadedIds, long[] loadedPrices, int[] loadedSellers, int n) {
+		lock.writeLock().lock();
+		try {
+			int capacity = Math.max(16, n + changedDuringLoad.size());
+			int[] newIds = new int[capacity];
+			long[] newPrices = new long[capacity];
+			int[] newSellers = new int[capacity];
+
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (!changedDuringLoad.contains(loadedIds[i])) {
+					newIds[m] = loadedIds[i];
+					newPrices[m] = loadedPrices[i];
+					newSellers[m++] = loadedSellers[i];
+				}
+			}
+			for (Integer id : changedDuringLoad) {
+				long price = priceOf.get(id, MISSING);
+				if (price != MISSING) {
+					int row = find(id, price);
+					newIds[m] = id;
+					newPrices[m] = price;
+					newSellers[m++] = sellers[row];
+				}
+			}
+
+			sort(newIds, newPrices, newSellers, 0, m - 1);
+			IntLongMap newPriceOf = new IntLongMap(m);
+			for (int i = 0; i < m; i++) {
+				newPriceOf.put(newIds[i], newPrices[i]);
+			}
+
+			ids = newIds;
+			prices = newPrices;
+			sellers = newSellers;
+			size = m;
+			priceOf = newPriceOf;
+			changedDuringLoad = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void abortLoad() {
+		lock.writeLock().lock();
+		try {
+			changedDuringLoad = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void markChanged(int id) {
+		if (changedDuringLoad != null) {
+			changedDuringLoad.add(id);
+		}
+	}
+
+	private void insertRow(int id, long price, int seller) {
+		if (size == ids.length) {
+			int capacity = size + (size >> 1);
+			ids = Arrays.copyOf(ids, capacity);
+			prices = Arrays.copyOf(prices, capacity);
+			sellers = Arrays.copyOf(sellers, capacity);
+		}
+
+		int row = -find(id, price) - 1;
+		System.arraycopy(ids, row, ids, row + 1, size - row);
+		System.arraycopy(prices, row, prices, row + 1, size - row);
+		System.arraycopy(sellers, row, sellers, row + 1, size - row);
+		ids[row] = id;
+		prices[row] = price;
+		sellers[row] = seller;
+		size++;
+		priceOf.put(id, price);
+	}
+
+	private void removeRow(int id) {
+		long price = priceOf.get(id, MISSING);
+		if (price == MISSING) {
+			return;
+		}
+
+		int row = find(id, price);
+		System.arraycopy(ids, row + 1, ids, row, size - row - 1);
+		System.arraycopy(prices, row + 1, prices, row, size - row - 1);
+		System.arraycopy(sellers, row + 1, sellers, row, size - row - 1);
+		size--;
+		priceOf.remove(id);
+	}
+
+	private void removeRows(int[] removedIds, int k) {
+		BitSet dropped = new BitSet(size);
+		for (int x = 0; x < k; x++) {
+			long price = priceOf.get(removedIds[x], MISSING);
+			if (price != MISSING) {
+				dropped.set(find(removedIds[x], price));
+				priceOf.remove(removedIds[x]);
+			}
+		}
+
+		int w = dropped.nextSetBit(0);
+		if (w < 0) {
+			return;
+		}
+		for (int row = w; row < size; row++) {
+			if (!dropped.get(row)) {
+				ids[w] = ids[row];
+				prices[w] = prices[row];
+				sellers[w++] = sellers[row];
+			}
+		}
+		size = w;
+	}
+
+	// row of (price, id), or -(insertion point) - 1
+	private int find(int id, long price) {
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = prices[mid] != price ? Long.compare(prices[mid], price) : Integer.compare(ids[mid], id);
+			if (c < 0) {
+				lo = mid + 1;
+			} else if (c > 0) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(lo + 1);
+	}
+
+	private int firstPricedAbove(long price) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (prices[mid] <= price) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// the offset+limit smallest matching ids go through a bounded max-heap, so a
+	// page in id order costs one scan of the range instead of sorting it
+	private int[] smallestIds(int from, int to, int seller, int offset, int limit) {
+		int k = (int) Math.min((long) offset + limit, to - from);
+		if (k <= offset) {
+			return new int[0];
+		}
+
+		int[] heap = new int[k];
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			if (seller != 0 && sellers[i] != seller) {
+				continue;
+			}
+			if (n < k) {
+				heap[n] = ids[i];
+				siftUp(heap, n++);
+			} else if (ids[i] < heap[0]) {
+				heap[0] = ids[i];
+				siftDown(heap, k);
+			}
+		}
+
+		Arrays.sort(heap, 0, n);
+		return offset >= n ? new int[0] : Arrays.copyOfRange(heap, offset, n);
+	}
+
+	private static void siftUp(int[] heap, int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] >= heap[i]) {
+				return;
+			}
+			swap(heap, parent, i);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] heap, int n) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= n) {
+				return;
+			}
+			if (child + 1 < n && heap[child + 1] > heap[child]) {
+				child++;
+			}
+			if (heap[i] >= heap[child]) {
+				return;
+			}
+			swap(heap, i, child);
+			i = child;
+		}
+	}
+
+	// quicksort of the rows [lo, hi] by (price, id), moving the three columns together;
+	// ids are unique so no two rows compare equal
+	private static void sort(int[] ids, long[] prices, int[] sellers, int lo, int hi) {
+		while (lo < hi) {
+			int p = lo + ThreadLocalRandom.current().nextInt(hi - lo + 1);
+			long pivotPrice = prices[p];
+			int pivotId = ids[p];
+
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (prices[i] < pivotPrice || (prices[i] == pivotPrice && ids[i] < pivotId)) {
+					i++;
+				}
+				while (prices[j] > pivotPrice || (prices[j] == pivotPrice && ids[j] > pivotId)) {
+					j--;
+				}
+				if (i <= j) {
+					swapRows(ids, prices, sellers, i++, j--);
+				}
+			}
+
+			// recurse into the smaller side so the stack stays logarithmic
+			if (j - lo < hi - i) {
+				sort(ids, prices, sellers, lo, j);
+				lo = i;
+			} else {
+				sort(ids, prices, sellers, i, hi);
+				hi = j;
+			}
+		}
+	}
+
+	private static void swapRows(int[] ids, long[] prices, int[] sellers, int a, int b) {
+		swap(ids, a, b);
+		long price = prices[a];
+		prices[a] = prices[b];
+		prices[b] = price;
+		swap(sellers, a, b);
+	}
+
+	private static void swap(int[] x, int a, int b) {
+		int t = x[a];
+		x[a] = x[b];
+		x[b] = t;
+	}
+
+}
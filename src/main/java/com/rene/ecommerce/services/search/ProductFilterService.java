@@ -0,0 +1,216 @@
+package com.rene.ecommerce.services.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.PricedProductDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+// Price range / seller filters and price sorting over the unsold products, answered
+// from in-memory primitive columns that only hold ids; the page of products is then
+// read through the entity cache. Kept up to date by ProductService like the search
+// index, and loaded at startup the same way.
+@Service
+public class ProductFilterService {
+
+	public static final int DEFAULT_PAGE_SIZE = 24;
+	public static final int MAX_PAGE_SIZE = 100;
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductFilterService.class);
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Value("${search.rebuild.chunk-size:50000}")
+	private int chunkSize = 50000;
+
+	@Value("${search.rebuild.threads:4}")
+	private int threads = 4;
+
+	private final ProductColumns columns = new ProductColumns();
+
+	// ids of one page of the unsold products priced within [minPrice, maxPrice] (either
+	// bound optional) and listed by the seller, if given; sort is id, price or -price
+	public List<Integer> filter(Double minPrice, Double maxPrice, Integer sellerId, String sort, Integer page,
+			Integer size) {
+		ProductColumns.Order order = order(sort);
+		int n = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		long offset = page == null ? 0 : (long) Math.max(0, page) * n;
+
+		List<Integer> ids = new ArrayList<>();
+		if (offset > Integer.MAX_VALUE) {
+			return ids;
+		}
+
+		long min = minPrice == null ? Long.MIN_VALUE : ProductColumns.cents(minPrice);
+		long max = maxPrice == null ? Long.MAX_VALUE : ProductColumns.cents(maxPrice);
+		for (int id : columns.select(min, max, sellerId == null ? 0 : sellerId, order, (int) offset, n)) {
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	// a listed or edited product; sold products leave the columns
+	public void put(Product product) {
+		if (product.getId() == null) {
+			return;
+		}
+		if (!Product.isForSale(product)) {
+			columns.remove(product.getId());
+		} else {
+			int seller = product.getProductOwner() == null ? 0 : product.getProductOwner().getId();
+			columns.put(product.getId(), ProductColumns.cents(product.getPrice()), seller);
+		}
+	}
+
+	public void remove(Integer productId) {
+		columns.remove(productId);
+	}
+
+	// put for many products at once (bulk imports and edits)
+	public void putAll(Collection<Product> products) {
+		int[] ids = new int[products.size()];
+		long[] prices = new long[products.size()];
+		int[] sellers = new int[products.size()];
+		int[] sold = new int[products.size()];
+		int n = 0;
+		int m = 0;
+		for (Product product : products) {
+			if (product.getId() == null) {
+				continue;
+			}
+			if (!Product.isForSale(product)) {
+				sold[m++] = product.getId();
+			} else {
+				ids[n] = product.getId();
+				prices[n] = ProductColumns.cents(product.getPrice());
+				sellers[n++] = product.getProductOwner() == null ? 0 : product.getProductOwner().getId();
+			}
+		}
+		columns.removeAll(sold, m);
+		columns.putAll(ids, prices, sellers, n);
+	}
+
+	public void removeAll(Collection<Integer> productIds) {
+		int[] ids = new int[productIds.size()];
+		int n = 0;
+		for (Integer id : productIds) {
+			ids[n++] = id;
+		}
+		columns.removeAll(ids, n);
+	}
+
+	public int size() {
+		return columns.size();
+	}
+
+	// one chunk of rows as primitive columns, so the projections read for it can be
+	// collected while the other chunks load
+	private static final class Chunk {
+
+		private final int[] ids;
+		private final long[] prices;
+		private final int[] sellers;
+
+		private Chunk(List<PricedProductDTO> rows) {
+			ids = new int[rows.size()];
+			prices = new long[rows.size()];
+			sellers = new int[rows.size()];
+			int i = 0;
+			for (PricedProductDTO x : rows) {
+				ids[i] = x.getId();
+				prices[i] = ProductColumns.cents(x.getPrice());
+				sellers[i++] = x.getSellerId() == null ? 0 : x.getSellerId();
+			}
+		}
+	}
+
+	// reads the unsold products in id chunks, in parallel; the changes made while it
+	// runs are kept over the rows that were read
+	public synchronized int rebuild() {
+		int maxId = productRepo.findMaxId();
+		columns.startLoad();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Chunk>> chunks = new ArrayList<>();
+
+		try {
+			for (long start = 0; start <= maxId; start += chunkSize) {
+				int fromId = (int) start;
+				int toId = (int) Math.min(start + chunkSize, (long) maxId + 1);
+
+				chunks.add(pool.submit(() -> new Chunk(productRepo.findPricedChunk(fromId, toId))));
+			}
+
+			List<Chunk> loaded = new ArrayList<>();
+			int n = 0;
+			for (Future<Chunk> chunk : chunks) {
+				loaded.add(chunk.get());
+				n += loaded.get(loaded.size() - 1).ids.length;
+			}
+
+			int[] ids = new int[n];
+			long[] prices = new long[n];
+			int[] sellers = new int[n];
+			int i = 0;
+			for (Chunk chunk : loaded) {
+				System.arraycopy(chunk.ids, 0, ids, i, chunk.ids.length);
+				System.arraycopy(chunk.prices, 0, prices, i, chunk.ids.length);
+				System.arraycopy(chunk.sellers, 0, sellers, i, chunk.ids.length);
+				i += chunk.ids.length;
+			}
+			columns.finishLoad(ids, prices, sellers, n);
+
+			LOG.info("Product filter columns loaded: " + n + " products in " + chunks.size() + " chunks");
+			return n;
+
+		} catch (InterruptedException e) {
+			columns.abortLoad();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Filter columns rebuild interrupted", e);
+		} catch (ExecutionException e) {
+			columns.abortLoad();
+			throw new IllegalStateException("Filter columns rebuild failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		try {
+			rebuild();
+		} catch (Exception e) {
+			LOG.info("Could not load the product filter columns: " + e.getMessage());
+		}
+	}
+
+	private static ProductColumns.Order order(String sort) {
+		if (sort == null || sort.equals("id")) {
+			return ProductColumns.Order.ID;
+		}
+		if (sort.equals("price")) {
+			return ProductColumns.Order.PRICE;
+		}
+		if (sort.equals("-price")) {
+			return ProductColumns.Order.PRICE_DESC;
+		}
+		throw new InvalidParameterException("Sort must be id, price or -price");
+	}
+
+}
@@ -0,0 +1,515 @@
+package com.rene.ecommerce.services.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Inverted index over the name and description of the unsold products. Terms are
+// kept sorted, so a query token also matches the terms it is a prefix of. A hit
+// must match every token of the query; its score adds, per token, the idf of the
+// best matching term times its saturated weight in the product (an occurrence in
+// the name weighs more than one in the description).
+class ProductIndex {
+
+	static final float NAME_WEIGHT = 3f;
+	static final float DESCRIPTION_WEIGHT = 1f;
+
+	// a prefix match scores less than the exact term; shorter tokens aren't expanded
+	static final float PREFIX_BOOST = 0.5f;
+	static final int MIN_PREFIX = 2;
+	static final int MAX_EXPANSIONS = 64;
+
+	private static final float SATURATION = 1.2f;
+	// a product has about a dozen terms: past this ratio, walking the postings is cheaper
+	private static final int DOC_SCAN_RATIO = 16;
+	private static final int MAX_TOKEN_LENGTH = 40;
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private static final Comparator<Hit> BEST_FIRST = Comparator.comparing(Hit::getScore).reversed()
+			.thenComparing(x -> x.getDoc().getId());
+
+	static final class Doc {
+
+		private final Integer id;
+		private final String name;
+		private final Double price;
+
+		private final String[] terms;
+		private final float[] weights;
+		// where the product is in the postings of each of its terms
+		private final int[] slots;
+
+		private Doc(Integer id, String name, Double price, String[] terms, float[] weights) {
+			this.id = id;
+			this.name = name;
+			this.price = price;
+			this.terms = terms;
+			this.weights = weights;
+			this.slots = new int[terms.length];
+		}
+
+		Integer getId() {
+			return id;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		Double getPrice() {
+			return price;
+		}
+	}
+
+	static final class Hit {
+
+		private final Doc doc;
+		private final float score;
+
+		private Hit(Doc doc, float score) {
+			this.doc = doc;
+			this.score = score;
+		}
+
+		Doc getDoc() {
+			return doc;
+		}
+
+		float getScore() {
+			return score;
+		}
+	}
+
+	// ids and weights of the products having one term; removing swaps in the last
+	// entry, so it takes the slot of the product and no scan of the list
+	private static final class Postings {
+
+		private final String term;
+		private int[] ids = new int[2];
+		private float[] weights = new float[2];
+		private int size;
+
+		private Postings(String term) {
+			this.term = term;
+		}
+
+		// the slot of the entry
+		private int add(int id, float weight) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			ids[size] = id;
+			weights[size] = weight;
+			return size++;
+		}
+
+		// the id of the entry moved into the slot, or EMPTY if it was the last one
+		private int remove(int slot) {
+			size--;
+			if (slot == size) {
+				return Scores.EMPTY;
+			}
+			ids[slot] = ids[size];
+			weights[slot] = weights[size];
+			return ids[slot];
+		}
+	}
+
+	// the terms one query token matches with their idf (halved for a prefix match),
+	// and how many postings they hold together
+	private static final class Expansion {
+
+		private final List<Postings> terms = new ArrayList<>();
+		private final Map<String, Float> factors = new HashMap<>();
+		private long postings;
+	}
+
+	// product id -> score, open addressing over primitive arrays so that scoring
+	// a large posting list doesn't box every id
+	private static final class Scores {
+
+		private static final int EMPTY = Integer.MIN_VALUE;
+
+		private int[] keys;
+		private float[] values;
+		private int size;
+
+		private Scores(long expected) {
+			int capacity = Integer.highestOneBit((int) Math.min(Math.max(expected, 2L), 1L << 29) * 2 - 1) << 1;
+			keys = new int[capacity];
+			values = new float[capacity];
+			Arrays.fill(keys, EMPTY);
+		}
+
+		private int slot(int key) {
+			int mask = keys.length - 1;
+			int h = key * 0x9E3779B9;
+			int i = (h ^ (h >>> 16)) & mask;
+			while (keys[i] != EMPTY && keys[i] != key) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		private boolean contains(int key) {
+			return keys[slot(key)] == key;
+		}
+
+		private float get(int key) {
+			return values[slot(key)];
+		}
+
+		// keeps the highest score given to the key
+		private void max(int key, float score) {
+			int i = slot(key);
+			if (keys[i] == key) {
+				values[i] = Math.max(values[i], score);
+				return;
+			}
+			keys[i] = key;
+			values[i] = score;
+			if (++size * 2 > keys.length) {
+				grow();
+			}
+		}
+
+		private void grow() {
+			int[] oldKeys = keys;
+			float[] oldValues = values;
+			keys = new int[oldKeys.length * 2];
+			values = new float[oldKeys.length * 2];
+			Arrays.fill(keys, EMPTY);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != EMPTY) {
+					int j = slot(oldKeys[i]);
+					keys[j] = oldKeys[i];
+					values[j] = oldValues[i];
+				}
+			}
+		}
+	}
+
+	private final TreeMap<String, Postings> postings = new TreeMap<>();
+	private final Map<Integer, Doc> docs = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// ids put or removed while a load runs: their live state wins over the loaded rows
+	private Set<Integer> changedDuringLoad;
+
+	// lower case, accents removed, split on anything that isn't a letter or a digit
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+
+		String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+
+		int start = -1;
+		for (int i = 0; i <= folded.length(); i++) {
+			boolean inToken = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+			if (inToken && start < 0) {
+				start = i;
+			} else if (!inToken && start >= 0) {
+				if (i - start <= MAX_TOKEN_LENGTH) {
+					tokens.add(folded.substring(start, i));
+				}
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	// tokenizes outside of the lock, so documents can be prepared in parallel
+	static Doc document(Integer id, String name, String description, Double price) {
+		Map<String, Float> weights = new LinkedHashMap<>();
+		for (String term : tokenize(name)) {
+			weights.merge(term, NAME_WEIGHT, Float::sum);
+		}
+		for (String term : tokenize(description)) {
+			weights.merge(term, DESCRIPTION_WEIGHT, Float::sum);
+		}
+
+		String[] terms = new String[weights.size()];
+		float[] termWeights = new float[weights.size()];
+		int i = 0;
+		for (Map.Entry<String, Float> x : weights.entrySet()) {
+			terms[i] = x.getKey();
+			termWeights[i] = x.getValue();
+			i++;
+		}
+		return new Doc(id, name, price, terms, termWeights);
+	}
+
+	// inserts the product or replaces its previous version
+	void put(Doc doc) {
+		lock.writeLock().lock();
+		try {
+			if (changedDuringLoad != null) {
+				changedDuringLoad.add(doc.id);
+			}
+			unindex(docs.remove(doc.id));
+			index(doc);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(Integer id) {
+		lock.writeLock().lock();
+		try {
+			if (changedDuringLoad != null) {
+				changedDuringLoad.add(id);
+			}
+			unindex(docs.remove(id));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void startLoad() {
+		lock.writeLock().lock();
+		try {
+			changedDuringLoad = new HashSet<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// replaces the content with the loaded documents, keeping the ones changed since startLoad
+	void finishLoad(Collection<Doc> loaded) {
+		lock.writeLock().lock();
+		try {
+			Set<Integer> changed = changedDuringLoad == null ? Collections.emptySet() : changedDuringLoad;
+			changedDuringLoad = null;
+
+			List<Doc> kept = new ArrayList<>();
+			for (Integer id : changed) {
+				Doc doc = docs.get(id);
+				if (doc != null) {
+					kept.add(doc);
+				}
+			}
+
+			postings.clear();
+			docs.clear();
+			kept.forEach(this::index);
+			for (Doc doc : loaded) {
+				if (!changed.contains(doc.id)) {
+					index(doc);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void abortLoad() {
+		lock.writeLock().lock();
+		try {
+			changedDuringLoad = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return docs.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// best hits first; the most selective token is matched first, and the others
+	// only score the products that are still candidates
+	List<Hit> search(String query, int limit) {
+		Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+		if (tokens.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+
+		lock.readLock().lock();
+		try {
+			List<Expansion> expansions = new ArrayList<>();
+			for (String token : tokens) {
+				Expansion x = expand(token);
+				if (x.terms.isEmpty()) {
+					return Collections.emptyList();
+				}
+				expansions.add(x);
+			}
+			expansions.sort(Comparator.comparingLong(x -> x.postings));
+
+			Scores scores = null;
+			for (Expansion x : expansions) {
+				scores = scores == null ? score(x) : score(x, scores);
+				if (scores.size == 0) {
+					return Collections.emptyList();
+				}
+			}
+			return top(scores, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Expansion expand(String token) {
+		Expansion x = new Expansion();
+		float n = docs.size();
+
+		Collection<Postings> matches;
+		if (token.length() < MIN_PREFIX) {
+			Postings exact = postings.get(token);
+			matches = exact == null ? Collections.emptyList() : Collections.singletonList(exact);
+		} else {
+			// the exact term, when indexed, sorts first
+			matches = postings.subMap(token, true, token + Character.MAX_VALUE, true).values();
+		}
+
+		for (Postings p : matches) {
+			if (x.terms.size() == MAX_EXPANSIONS) {
+				break;
+			}
+			float boost = p.term.length() == token.length() ? 1f : PREFIX_BOOST;
+			x.terms.add(p);
+			x.factors.put(p.term, boost * (float) Math.log(1 + n / p.size));
+			x.postings += p.size;
+		}
+		return x;
+	}
+
+	private static float score(float factor, float weight) {
+		return factor * weight / (weight + SATURATION);
+	}
+
+	// scores of the first token
+	private Scores score(Expansion x) {
+		Scores scores = new Scores(Math.min(x.postings, docs.size()));
+		for (Postings p : x.terms) {
+			float factor = x.factors.get(p.term);
+			for (int i = 0; i < p.size; i++) {
+				scores.max(p.ids[i], score(factor, p.weights[i]));
+			}
+		}
+		return scores;
+	}
+
+	// the candidates that also match this token, with its score added; when they are
+	// few, their own terms are looked up instead of walking the token's postings
+	private Scores score(Expansion x, Scores candidates) {
+		Scores matched = new Scores(Math.min(x.postings, candidates.size));
+
+		if ((long) candidates.size * DOC_SCAN_RATIO < x.postings) {
+			for (int k = 0; k < candidates.keys.length; k++) {
+				if (candidates.keys[k] == Scores.EMPTY) {
+					continue;
+				}
+				Doc doc = docs.get(candidates.keys[k]);
+				for (int i = 0; i < doc.terms.length; i++) {
+					Float factor = x.factors.get(doc.terms[i]);
+					if (factor != null) {
+						matched.max(doc.id, score(factor, doc.weights[i]));
+					}
+				}
+			}
+		} else {
+			for (Postings p : x.terms) {
+				float factor = x.factors.get(p.term);
+				for (int i = 0; i < p.size; i++) {
+					if (candidates.contains(p.ids[i])) {
+						matched.max(p.ids[i], score(factor, p.weights[i]));
+					}
+				}
+			}
+		}
+
+		for (int k = 0; k < matched.keys.length; k++) {
+			if (matched.keys[k] != Scores.EMPTY) {
+				matched.values[k] += candidates.get(matched.keys[k]);
+			}
+		}
+		return matched;
+	}
+
+	// a Hit is only created for the products that enter the top
+	private List<Hit> top(Scores scores, int limit) {
+		PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+		for (int k = 0; k < scores.keys.length; k++) {
+			int id = scores.keys[k];
+			if (id == Scores.EMPTY) {
+				continue;
+			}
+			float score = scores.values[k];
+			if (top.size() == limit) {
+				Hit worst = top.peek();
+				if (score < worst.score || (score == worst.score && id > worst.doc.id)) {
+					continue;
+				}
+				top.poll();
+			}
+			top.add(new Hit(docs.get(id), score));
+		}
+
+		List<Hit> hits = new ArrayList<>(top);
+		hits.sort(BEST_FIRST);
+		return hits;
+	}
+
+	// the terms of the product share the strings of the term dictionary
+	private void index(Doc doc) {
+		docs.put(doc.id, doc);
+		for (int i = 0; i < doc.terms.length; i++) {
+			Postings p = postings.computeIfAbsent(doc.terms[i], Postings::new);
+			doc.slots[i] = p.add(doc.id, doc.weights[i]);
+			doc.terms[i] = p.term;
+		}
+	}
+
+	private void unindex(Doc doc) {
+		if (doc == null) {
+			return;
+		}
+		for (int i = 0; i < doc.terms.length; i++) {
+			Postings p = postings.get(doc.terms[i]);
+			int moved = p.remove(doc.slots[i]);
+			if (moved != Scores.EMPTY) {
+				Doc other = docs.get(moved);
+				other.slots[termIndex(other, p.term)] = doc.slots[i];
+			}
+			if (p.size == 0) {
+				postings.remove(p.term);
+			}
+		}
+	}
+
+	// a product has about a dozen terms, the same strings as the dictionary's
+	private static int termIndex(Doc doc, String term) {
+		for (int i = 0; i < doc.terms.length; i++) {
+			if (doc.terms[i] == term) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Product " + doc.id + " is not in the postings of " + term);
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.rene.ecommerce.services.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductSearchDTO;
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+// Full-text search over the unsold products, answered from an in-memory inverted
+// index. ProductService keeps it up to date on every listing, edit, delete and
+// sale; at startup it is loaded from the product table in parallel chunks.
+@Service
+public class ProductSearchService {
+
+	public static final int DEFAULT_LIMIT = 20;
+	public static final int MAX_LIMIT = 100;
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductSearchService.class);
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Value("${search.rebuild.chunk-size:50000}")
+	private int chunkSize = 50000;
+
+	@Value("${search.rebuild.threads:4}")
+	private int threads = 4;
+
+	private final ProductIndex index = new ProductIndex();
+
+	public List<ProductSearchDTO> search(String query, Integer limit) {
+		int n = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+
+		List<ProductSearchDTO> results = new ArrayList<>();
+		for (ProductIndex.Hit x : index.search(query, n)) {
+			results.add(new ProductSearchDTO(x.getDoc().getId(), x.getDoc().getName(), x.getDoc().getPrice(),
+					x.getScore()));
+		}
+		return results;
+	}
+
+	// a listed or edited product; sold products leave the index
+	public void put(Product product) {
+		if (product.getId() == null) {
+			return;
+		}
+		if (!Product.isForSale(product)) {
+			index.remove(product.getId());
+		} else {
+			index.put(ProductIndex.document(product.getId(), product.getName(), product.getDescription(),
+					product.getPrice()));
+		}
+	}
+
+	public void remove(Integer productId) {
+		index.remove(productId);
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	// reads the unsold products in id chunks that are tokenized in parallel; the
+	// changes made while it runs are kept over the rows that were read
+	public synchronized int rebuild() {
+		int maxId = productRepo.findMaxId();
+		index.startLoad();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<List<ProductIndex.Doc>>> chunks = new ArrayList<>();
+
+		try {
+			for (long start = 0; start <= maxId; start += chunkSize) {
+				int fromId = (int) start;
+				int toId = (int) Math.min(start + chunkSize, (long) maxId + 1);
+
+				chunks.add(pool.submit(() -> {
+					List<ProductIndex.Doc> docs = new ArrayList<>();
+					for (SearchableProductDTO x : productRepo.findSearchableChunk(fromId, toId)) {
+						docs.add(ProductIndex.document(x.getId(), x.getName(), x.getDescription(), x.getPrice()));
+					}
+					return docs;
+				}));
+			}
+
+			List<ProductIndex.Doc> docs = new ArrayList<>();
+			for (Future<List<ProductIndex.Doc>> chunk : chunks) {
+				docs.addAll(chunk.get());
+			}
+			index.finishLoad(docs);
+
+			LOG.info("Product search index loaded: " + docs.size() + " products in " + chunks.size() + " chunks");
+			return docs.size();
+
+		} catch (InterruptedException e) {
+			index.abortLoad();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Search index rebuild interrupted", e);
+		} catch (ExecutionException e) {
+			index.abortLoad();
+			throw new IllegalStateException("Search index rebuild failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		try {
+			rebuild();
+		} catch (Exception e) {
+			LOG.info("Could not load the product search index: " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+package com.rene.ecommerce.services.search;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.SuggestableProductDTO;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+// Search-as-you-type over the names of the products for sale, served from a
+// compact prefix trie. A name weighs one per unsold product listed under it plus
+// one per client wishing one of them; the trie is updated in place as products
+// are listed, renamed, sold, deleted or wished.
+@Service
+public class ProductSuggestService {
+
+	public static final int DEFAULT_LIMIT = 8;
+	public static final int MAX_LIMIT = 20;
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductSuggestService.class);
+
+	// what one product adds to the weight of its name
+	private static final class Listing {
+
+		private final String key;
+		private final String name;
+		private int wishes;
+
+		private Listing(String key, String name, int wishes) {
+			this.key = key;
+			this.name = name;
+			this.wishes = wishes;
+		}
+
+		private long weight() {
+			return 1L + wishes;
+		}
+	}
+
+	@Autowired
+	private ProductRepository productRepo;
+
+	@Value("${search.rebuild.chunk-size:50000}")
+	private int chunkSize = 50000;
+
+	// writes are serialized on this; readers only go through the trie's own lock
+	private Map<Integer, Listing> listings = new HashMap<>();
+	private volatile SuggestTrie trie = new SuggestTrie();
+
+	// ids listed or unlisted while a load runs: their live state wins over the loaded rows
+	private Set<Integer> changedDuringLoad;
+	private final Object loading = new Object();
+
+	// names and prefixes are compared on their search tokens: "T-Shirt" is "t shirt"
+	static String key(String text) {
+		return String.join(" ", ProductIndex.tokenize(text));
+	}
+
+	public List<String> suggest(String prefix, Integer limit) {
+		int n = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+
+		String key = key(prefix);
+		if (key.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return trie.complete(key, n);
+	}
+
+	// a listed or renamed product; sold products leave the suggestions
+	public synchronized void put(Product product) {
+		if (product.getId() == null) {
+			return;
+		}
+
+		Listing old = listings.get(product.getId());
+		unlist(product.getId());
+
+		String key = key(product.getName());
+		if (Product.isForSale(product) && !key.isEmpty()) {
+			list(product.getId(), new Listing(key, product.getName(), old == null ? 0 : old.wishes));
+		}
+	}
+
+	public synchronized void remove(Integer productId) {
+		unlist(productId);
+	}
+
+	// a client added (+1) or removed (-1) the product from their wishlist
+	public synchronized void wished(Integer productId, int delta) {
+		Listing x = listings.get(productId);
+		if (x == null) {
+			return;
+		}
+		markChanged(productId);
+
+		int wishes = Math.max(0, x.wishes + delta);
+		trie.add(x.key, null, wishes - x.wishes);
+		x.wishes = wishes;
+	}
+
+	// reads the unsold products in id chunks and swaps in a trie built from them; the
+	// changes made while it runs are kept over the rows that were read
+	public int rebuild() {
+		synchronized (loading) {
+			synchronized (this) {
+				changedDuringLoad = new HashSet<>();
+			}
+			try {
+				Map<Integer, Listing> loaded = new HashMap<>();
+				int maxId = productRepo.findMaxId();
+				for (long start = 0; start <= maxId; start += chunkSize) {
+					int fromId = (int) start;
+					int toId = (int) Math.min(start + chunkSize, (long) maxId + 1);
+
+					for (SuggestableProductDTO x : productRepo.findSuggestableChunk(fromId, toId)) {
+						String key = key(x.getName());
+						if (!key.isEmpty()) {
+							int wishes = x.getWishes() == null ? 0 : x.getWishes().intValue();
+							loaded.put(x.getId(), new Listing(key, x.getName(), wishes));
+						}
+					}
+				}
+
+				synchronized (this) {
+					for (Integer id : changedDuringLoad) {
+						Listing live = listings.get(id);
+						if (live == null) {
+							loaded.remove(id);
+						} else {
+							loaded.put(id, live);
+						}
+					}
+
+					SuggestTrie fresh = new SuggestTrie();
+					for (Listing x : loaded.values()) {
+						fresh.add(x.key, x.name, x.weight());
+					}
+					listings = loaded;
+					trie = fresh;
+
+					LOG.info("Product suggestions loaded: " + fresh.size() + " names of " + loaded.size() + " products");
+					return loaded.size();
+				}
+			} finally {
+				synchronized (this) {
+					changedDuringLoad = null;
+				}
+			}
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		try {
+			rebuild();
+		} catch (Exception e) {
+			LOG.info("Could not load the product suggestions: " + e.getMessage());
+		}
+	}
+
+	private void list(Integer productId, Listing x) {
+		markChanged(productId);
+		listings.put(productId, x);
+		trie.add(x.key, x.name, x.weight());
+	}
+
+	private void unlist(Integer productId) {
+		markChanged(productId);
+		Listing x = listings.remove(productId);
+		if (x != null) {
+			trie.add(x.key, null, -x.weight());
+		}
+	}
+
+	private void markChanged(Integer productId) {
+		if (changedDuringLoad != null) {
+			changedDuringLoad.add(productId);
+		}
+	}
+
+}
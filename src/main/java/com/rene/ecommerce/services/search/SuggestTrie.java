@@ -0,0 +1,259 @@
+package com.rene.ecommerce.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Path-compressed trie over the normalized product names: an edge holds a run of
+// characters and a node only exists where names branch or end, so common prefixes
+// are stored once. Every node keeps the highest weight below it, so the best
+// completions of a prefix are found by a best-first walk that only opens the
+// subtrees that can still make the top.
+class SuggestTrie {
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private static final class Node {
+
+		private char[] label;
+		private Node[] children = NO_CHILDREN;
+
+		// the name ending here (weight 0 when none) and the highest weight in the subtree
+		private String text;
+		private long weight;
+		private long best;
+
+		private Node(char[] label) {
+			this.label = label;
+		}
+	}
+
+	// a subtree still to open, or a name to emit, in the best-first walk
+	private static final class Candidate {
+
+		private final Node node;
+		private final String key;
+		private final boolean name;
+		private final long priority;
+
+		private Candidate(Node node, String key, boolean name, long priority) {
+			this.node = node;
+			this.key = key;
+			this.name = name;
+			this.priority = priority;
+		}
+	}
+
+	private final Node root = new Node(new char[0]);
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int size;
+
+	// adds delta to the weight of the key (a key whose weight drops to 0 is removed);
+	// text, when given, replaces the displayed name
+	void add(String key, String text, long delta) {
+		lock.writeLock().lock();
+		try {
+			List<Node> path = new ArrayList<>();
+			path.add(root);
+
+			Node node = root;
+			int i = 0;
+			while (i < key.length()) {
+				int c = childIndex(node, key.charAt(i));
+				if (c < 0) {
+					if (delta <= 0) {
+						return;
+					}
+					Node leaf = new Node(key.substring(i).toCharArray());
+					insertChild(node, -c - 1, leaf);
+					path.add(leaf);
+					node = leaf;
+					break;
+				}
+
+				Node child = node.children[c];
+				int common = commonPrefix(child.label, key, i);
+				if (common < child.label.length) {
+					if (delta <= 0) {
+						return;
+					}
+					child = split(node, c, common);
+				}
+				path.add(child);
+				node = child;
+				i += common;
+			}
+
+			if (node.weight == 0 && delta <= 0) {
+				return;
+			}
+			if (node.weight == 0) {
+				size++;
+			}
+			node.weight = Math.max(0, node.weight + delta);
+			if (node.weight == 0) {
+				node.text = null;
+				size--;
+			} else if (text != null) {
+				node.text = text;
+			}
+
+			for (int k = path.size() - 1; k > 0; k--) {
+				compact(path.get(k - 1), path.get(k));
+			}
+			root.best = best(root);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// the displayed names of the heaviest keys starting with prefix, heaviest first
+	List<String> complete(String prefix, int limit) {
+		lock.readLock().lock();
+		try {
+			Node node = root;
+			int i = 0;
+			while (i < prefix.length()) {
+				int c = childIndex(node, prefix.charAt(i));
+				if (c < 0) {
+					return Collections.emptyList();
+				}
+				Node child = node.children[c];
+				int common = commonPrefix(child.label, prefix, i);
+				if (common < child.label.length && i + common < prefix.length()) {
+					return Collections.emptyList();
+				}
+				node = child;
+				i += child.label.length;
+			}
+
+			// heaviest first, equal weights in alphabetical order: a subtree sorts before
+			// the names below it, so it is opened before any name that follows them
+			PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> a.priority != b.priority
+					? Long.compare(b.priority, a.priority) : a.key.compareTo(b.key));
+			queue.add(new Candidate(node, prefix.substring(0, i - node.label.length) + new String(node.label), false,
+					node.best));
+
+			List<String> names = new ArrayList<>();
+			while (!queue.isEmpty() && names.size() < limit) {
+				Candidate x = queue.poll();
+				if (x.name) {
+					names.add(x.node.text);
+					continue;
+				}
+				if (x.node.weight > 0) {
+					queue.add(new Candidate(x.node, x.key, true, x.node.weight));
+				}
+				for (Node child : x.node.children) {
+					if (child.best > 0) {
+						queue.add(new Candidate(child, x.key + new String(child.label), false, child.best));
+					}
+				}
+			}
+			return names;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// after a change below node: drops it when nothing is left, merges it into its
+	// only child when no name ends on it, and refreshes its best weight otherwise
+	private void compact(Node parent, Node node) {
+		if (node.weight > 0 || node.children.length > 1) {
+			node.best = best(node);
+			return;
+		}
+
+		int index = indexOf(parent, node);
+		if (node.children.length == 0) {
+			Node[] children = new Node[parent.children.length - 1];
+			System.arraycopy(parent.children, 0, children, 0, index);
+			System.arraycopy(parent.children, index + 1, children, index, children.length - index);
+			parent.children = children.length == 0 ? NO_CHILDREN : children;
+		} else {
+			Node child = node.children[0];
+			char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+			System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+			child.label = label;
+			parent.children[index] = child;
+		}
+	}
+
+	// splits the edge to parent.children[c] after its first "at" characters
+	private static Node split(Node parent, int c, int at) {
+		Node child = parent.children[c];
+		Node middle = new Node(Arrays.copyOf(child.label, at));
+		child.label = Arrays.copyOfRange(child.label, at, child.label.length);
+		middle.children = new Node[] { child };
+		middle.best = child.best;
+		parent.children[c] = middle;
+		return middle;
+	}
+
+	private static long best(Node node) {
+		long best = node.weight;
+		for (Node child : node.children) {
+			best = Math.max(best, child.best);
+		}
+		return best;
+	}
+
+	private static int commonPrefix(char[] label, String key, int from) {
+		int n = Math.min(label.length, key.length() - from);
+		int i = 0;
+		while (i < n && label[i] == key.charAt(from + i)) {
+			i++;
+		}
+		return i;
+	}
+
+	// index of the child whose label starts with ch, or -(insertion point) - 1
+	private static int childIndex(Node node, char ch) {
+		int lo = 0;
+		int hi = node.children.length - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char x = node.children[mid].label[0];
+			if (x < ch) {
+				lo = mid + 1;
+			} else if (x > ch) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(lo + 1);
+	}
+
+	private static int indexOf(Node parent, Node child) {
+		for (int i = 0; i < parent.children.length; i++) {
+			if (parent.children[i] == child) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Node isn't a child of its parent");
+	}
+
+	private static void insertChild(Node parent, int index, Node child) {
+		Node[] children = new Node[parent.children.length + 1];
+		System.arraycopy(parent.children, 0, children, 0, index);
+		children[index] = child;
+		System.arraycopy(parent.children, index, children, index + 1, parent.children.length - index);
+		parent.children = children;
+	}
+
+}
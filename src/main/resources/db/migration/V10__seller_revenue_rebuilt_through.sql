@@ -0,0 +1,8 @@
+-- The highest order id the last rollup rebuild read: the buckets already hold the
+-- orders up to it, so sales recorded after the rebuild skip them. One row, read
+-- and written under the rollup advisory lock (see RevenueBucketRepositoryImpl).
+create table tb_seller_revenue_rebuilt (
+	rebuilt_through integer not null
+);
+
+insert into tb_seller_revenue_rebuilt (rebuilt_through) values (0);
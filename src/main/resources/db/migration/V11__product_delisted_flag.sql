@@ -0,0 +1,7 @@
+-- A product its seller took off sale after units of it were bought: kept for the
+-- orders to refer to, neither sold nor for sale any more.
+alter table product add column delisted boolean not null default false;
+
+-- the products still for sale, as before
+drop index idx_product_unsold;
+create index idx_product_unsold on product (id) where not sold and not delisted;
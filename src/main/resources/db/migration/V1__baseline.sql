@@ -0,0 +1,112 @@
+-- The schema as ddl-auto=update left it. Databases created that way are
+-- baselined at version 0 and run this too, so every statement must be a no-op
+-- on them; columns added over time are re-added for databases that missed them.
+
+create table if not exists tb_clients (
+	id integer generated by default as identity primary key,
+	name varchar(255),
+	email varchar(255) unique,
+	password varchar(255),
+	type varchar(255),
+	number_of_buys integer,
+	how_much_money_this_client_has_spent float8
+);
+
+create table if not exists tb_sellers (
+	id integer generated by default as identity primary key,
+	name varchar(255),
+	email varchar(255) unique,
+	password varchar(255),
+	type varchar(255),
+	number_of_sells integer,
+	how_much_money_this_seller_has_sold float8
+);
+
+alter table tb_sellers add column if not exists sale_digest boolean;
+alter table tb_sellers add column if not exists sale_digest_last_order_id integer;
+
+create table if not exists product (
+	id integer generated by default as identity primary key,
+	name varchar(255),
+	price float8,
+	description varchar(255),
+	has_been_sold varchar(255)
+);
+
+create table if not exists seller_product (
+	product_id integer primary key references product (id),
+	seller_id integer references tb_sellers (id)
+);
+
+create table if not exists client_product (
+	product_id integer primary key references product (id),
+	client_id integer references tb_clients (id)
+);
+
+create table if not exists wishlist (
+	product_id integer not null references product (id),
+	client_id integer not null references tb_clients (id),
+	primary key (product_id, client_id)
+);
+
+create table if not exists tb_order (
+	id integer generated by default as identity primary key
+);
+
+alter table tb_order add column if not exists placed_at timestamp;
+
+create index if not exists idx_order_placed_at on tb_order (placed_at, id);
+
+create table if not exists order_product (
+	order_id integer primary key references tb_order (id),
+	product_id integer references product (id)
+);
+
+create table if not exists order_client (
+	order_id integer primary key references tb_order (id),
+	client_id integer references tb_clients (id)
+);
+
+create table if not exists order_seller (
+	order_id integer primary key references tb_order (id),
+	seller_id integer references tb_sellers (id)
+);
+
+create table if not exists tb_seller_revenue (
+	id integer generated by default as identity primary key,
+	seller_id integer not null,
+	granularity varchar(8) not null,
+	bucket_start timestamp not null,
+	revenue float8,
+	units integer,
+	constraint uk_seller_revenue_bucket unique (seller_id, granularity, bucket_start)
+);
+
+create table if not exists tb_ranking_snapshot (
+	id integer generated by default as identity primary key,
+	board varchar(8) not null,
+	ranking_window varchar(8) not null,
+	taken_at timestamp not null,
+	position integer,
+	user_id integer,
+	name varchar(255),
+	sells_or_buys integer,
+	money float8
+);
+
+create index if not exists idx_ranking_snapshot_board on tb_ranking_snapshot (board, ranking_window, taken_at);
+
+create table if not exists tb_email_outbox (
+	id integer generated by default as identity primary key,
+	recipient varchar(255) not null,
+	subject varchar(255),
+	mime bytea not null,
+	status varchar(8) not null,
+	attempts integer not null,
+	next_attempt_at timestamp not null,
+	created_at timestamp not null,
+	sent_at timestamp,
+	last_error varchar(1000)
+);
+
+create index if not exists idx_email_outbox_due on tb_email_outbox (status, next_attempt_at, id);
@@ -0,0 +1,56 @@
+-- The owner and buyer of a product and the product, buyer and seller of an order
+-- were each kept in a join table of their own, so every lookup by seller or
+-- client went through an extra join. They become plain foreign key columns.
+
+alter table product add column seller_id integer, add column client_id integer;
+
+update product p set seller_id = x.seller_id from seller_product x where x.product_id = p.id;
+update product p set client_id = x.client_id from client_product x where x.product_id = p.id;
+
+alter table tb_order add column product_id integer, add column client_id integer, add column seller_id integer;
+
+update tb_order o set product_id = x.product_id from order_product x where x.order_id = o.id;
+update tb_order o set client_id = x.client_id from order_client x where x.order_id = o.id;
+update tb_order o set seller_id = x.seller_id from order_seller x where x.order_id = o.id;
+
+drop table seller_product, client_product, order_product, order_client, order_seller;
+
+alter table product
+	add constraint fk_product_seller foreign key (seller_id) references tb_sellers (id),
+	add constraint fk_product_client foreign key (client_id) references tb_clients (id);
+
+alter table tb_order
+	add constraint fk_order_product foreign key (product_id) references product (id),
+	add constraint fk_order_client foreign key (client_id) references tb_clients (id),
+	add constraint fk_order_seller foreign key (seller_id) references tb_sellers (id);
+
+-- orders saved before placed_at existed only have the "dd/MM/yyyy HH:mm" text in "instant"
+do $$
+begin
+	if exists (select 1 from information_schema.columns
+			where table_schema = current_schema() and table_name = 'tb_order' and column_name = 'instant') then
+		update tb_order set placed_at = to_timestamp(instant, 'DD/MM/YYYY HH24:MI')
+			where placed_at is null and instant is not null;
+		alter table tb_order drop column instant;
+	end if;
+end
+$$;
+
+-- products of a seller / bought by a client, and the order of a product
+create index idx_product_seller on product (seller_id);
+create index idx_product_client on product (client_id);
+create index idx_order_product on tb_order (product_id);
+
+-- order history pages, newest first
+create index idx_order_client on tb_order (client_id, id);
+create index idx_order_seller on tb_order (seller_id, id);
+
+-- listing of the products still for sale
+create index idx_product_sold on product (has_been_sold);
+
+-- top 10 rankings
+create index idx_clients_money on tb_clients (how_much_money_this_client_has_spent desc);
+create index idx_sellers_money on tb_sellers (how_much_money_this_seller_has_sold desc);
+
+-- the primary key (product_id, client_id) only serves lookups by product
+create index idx_wishlist_client on wishlist (client_id, product_id);
@@ -0,0 +1,12 @@
+-- has_been_sold was free text ("Sold"/"Unsold") and could disagree with the
+-- buyer column; a product with a buyer is sold either way.
+alter table product add column sold boolean not null default false;
+
+update product set sold = true where has_been_sold = 'Sold' or client_id is not null;
+
+-- also drops idx_product_sold
+alter table product drop column has_been_sold;
+
+-- only the products still for sale are indexed, so the catalog listing stays
+-- proportional to the live inventory however many sold products pile up
+create index idx_product_unsold on product (id) where not sold;
@@ -0,0 +1,19 @@
+-- product ids come from a sequence stepping by 50 instead of an identity column:
+-- Hibernate's pooled optimizer takes each value as the top of a block of 50 ids it
+-- hands out itself, so new products no longer need one round trip each to learn
+-- their id and inserts can be sent to the database in JDBC batches.
+--
+-- The id is an identity column on databases created by V1, and a serial (a default
+-- taking product_id_seq) on those ddl-auto created, which V1 baselines: both go.
+alter table product alter column id drop identity if exists;
+alter table product alter column id drop default;
+drop sequence if exists product_id_seq;
+
+create sequence product_seq increment by 50 owned by product.id;
+
+-- the first block starts right after the existing ids
+select setval('product_seq', coalesce(max(id), 0) + 50, false) from product;
+
+-- rows inserted outside Hibernate take a value of their own, which is never part of
+-- a block handed to Hibernate
+alter table product alter column id set default nextval('product_seq');
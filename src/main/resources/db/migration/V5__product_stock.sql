@@ -0,0 +1,17 @@
+-- A product listed exactly one unit. It now has a stock, kept as a few slices per
+-- product (see ProductStockRepository) so that concurrent purchases of the same
+-- product decrement different rows instead of queueing on one row lock. The stock
+-- of a product is the sum of its slices; "sold" becomes "sold out".
+create table product_stock_slice (
+	product_id integer not null references product (id) on delete cascade,
+	slice smallint not null,
+	stock integer not null check (stock >= 0),
+	primary key (product_id, slice)
+);
+
+insert into product_stock_slice (product_id, slice, stock) select id, 0, 1 from product where not sold;
+
+-- an order is a line item: some units of one product at the price they were bought at
+alter table tb_order add column quantity integer not null default 1, add column unit_price float8;
+
+update tb_order o set unit_price = p.price from product p where p.id = o.product_id;
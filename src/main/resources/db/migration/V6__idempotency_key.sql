@@ -0,0 +1,14 @@
+-- Responses of the write endpoints called with an Idempotency-Key header, so a
+-- retried request gets the first response back instead of running again. A row
+-- without a status is a request still running; it is taken over once its expiry
+-- (short while running, the replay window once done) has passed.
+create table tb_idempotency_key (
+	id varchar(300) not null primary key,
+	fingerprint varchar(64) not null,
+	status integer,
+	content_type varchar(255),
+	body bytea,
+	expires_at timestamp not null
+);
+
+create index idx_idempotency_key_expires on tb_idempotency_key (expires_at);
@@ -0,0 +1,9 @@
+-- A worker claims outbox rows for a while (claimed_until) rather than for good:
+-- a row still SENDING past its lease belongs to a worker or node that died, and
+-- is due again. Sent messages are deleted after a retention period.
+alter table tb_email_outbox add column claimed_until timestamp;
+
+update tb_email_outbox set claimed_until = now() where status = 'SENDING';
+
+create index idx_email_outbox_lease on tb_email_outbox (claimed_until) where status = 'SENDING';
+create index idx_email_outbox_sent on tb_email_outbox (sent_at) where status = 'SENT';
@@ -0,0 +1,5 @@
+-- A client's or seller's orders within a placed_at range (order history with
+-- from/to, seller exports): (client_id, id) and (seller_id, id) of V2 make these
+-- walk all the owner's orders, these read only the range.
+create index idx_order_client_placed_at on tb_order (client_id, placed_at, id);
+create index idx_order_seller_placed_at on tb_order (seller_id, placed_at, id);
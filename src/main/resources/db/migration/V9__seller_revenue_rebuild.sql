@@ -0,0 +1,12 @@
+-- The rollup rebuild aggregates tb_order into this table, then swaps it into
+-- tb_seller_revenue in one transaction: readers never see the buckets half
+-- rebuilt, and a failed rebuild leaves the previous ones in place. Unlogged, as
+-- its rows only live until the swap.
+create unlogged table tb_seller_revenue_rebuild (
+	seller_id integer not null,
+	granularity varchar(8) not null,
+	bucket_start timestamp not null,
+	revenue float8,
+	units integer,
+	constraint uk_seller_revenue_rebuild_bucket unique (seller_id, granularity, bucket_start)
+);
@@ -0,0 +1,113 @@
+package com.rene.ecommerce.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+// Runs the migrations of db/migration against a PostgreSQL database, given by
+// -Dmigration.test.url (and .username, .password); skipped when none is reachable.
+// Every test migrates a schema of its own, dropped afterwards.
+public class SchemaMigrationTest {
+
+    private static final String URL = System.getProperty("migration.test.url",
+            "jdbc:postgresql://localhost:5432/postgres");
+    private static final String USERNAME = System.getProperty("migration.test.username", "postgres");
+    private static final String PASSWORD = System.getProperty("migration.test.password", "postgres");
+
+    private static final String SCHEMA = "migration_test";
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        try {
+            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        } catch (SQLException e) {
+            assumeTrue(false, "No PostgreSQL at " + URL + ": " + e.getMessage());
+        }
+        execute("drop schema if exists " + SCHEMA + " cascade");
+        execute("create schema " + SCHEMA);
+        execute("set search_path to " + SCHEMA);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            execute("drop schema if exists " + SCHEMA + " cascade");
+            connection.close();
+        }
+    }
+
+    private void migrate() {
+        Flyway.configure().dataSource(URL, USERNAME, PASSWORD).schemas(SCHEMA).baselineOnMigrate(true)
+                .baselineVersion("0").load().migrate();
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private String query(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private void assertProductIdsComeFromProductSeq() throws SQLException {
+        assertEquals("NO", query("select is_identity from information_schema.columns where table_schema = '"
+                + SCHEMA + "' and table_name = 'product' and column_name = 'id'"));
+        String defaultValue = query("select column_default from information_schema.columns where table_schema = '"
+                + SCHEMA + "' and table_name = 'product' and column_name = 'id'");
+        assertTrue(defaultValue.contains("product_seq"), defaultValue);
+        assertNull(query("select to_regclass('" + SCHEMA + ".product_id_seq')"));
+    }
+
+    @Test
+    public void testMigratesANewDatabase() throws SQLException {
+        migrate();
+
+        assertProductIdsComeFromProductSeq();
+        execute("insert into product (name, price) values ('Lamp', 10.0)");
+        assertEquals("1", query("select count(*) from product"));
+    }
+
+    @Test
+    public void testMigratesADatabaseCreatedByDdlAuto() throws SQLException {
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/ddl-auto-schema.sql"));
+
+        migrate();
+
+        assertProductIdsComeFromProductSeq();
+        // a product inserted outside Hibernate doesn't reuse an existing id
+        execute("insert into product (name, price) values ('Lamp', 10.0)");
+        assertEquals("3", query("select count(*) from product"));
+        assertTrue(Integer.parseInt(query("select max(id) from product")) > 2);
+
+        // the join tables became columns, the sold text a flag, the instant text a timestamp
+        assertEquals("t", query("select sold from product where name = 'Chair'"));
+        assertEquals("f", query("select sold from product where name = 'Table'"));
+        assertEquals("1", query("select client_id from product where name = 'Chair'"));
+        assertEquals("1", query("select product_id from tb_order"));
+        assertEquals("2021-03-05 14:30:00", query("select placed_at from tb_order"));
+        assertEquals("1", query("select sum(stock) from product_stock_slice"));
+        assertFalse("0".equals(query("select count(*) from flyway_schema_history where success")));
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.rene.ecommerce.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.rene.ecommerce.exceptions.AuthorizationException;
+
+public class CurrentUserArgumentResolverTest {
+
+    private final CurrentUserArgumentResolver resolver = new CurrentUserArgumentResolver();
+
+    @SuppressWarnings("unused")
+    private static class Endpoints {
+
+        void asClient(@CurrentUser ClientSS client) {
+        }
+
+        void asSeller(@CurrentUser SellerSS seller) {
+        }
+
+        void asAnyone(@CurrentUser UserSS user) {
+        }
+
+        void notAnnotated(ClientSS client) {
+        }
+
+        void notAUser(@CurrentUser String name) {
+        }
+    }
+
+    private static MethodParameter parameterOf(String method) {
+        for (Method m : Endpoints.class.getDeclaredMethods()) {
+            if (m.getName().equals(method)) {
+                return new MethodParameter(m, 0);
+            }
+        }
+        throw new IllegalArgumentException(method);
+    }
+
+    private static void logIn(UserSS user) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private Object resolve(String method) {
+        return resolver.resolveArgument(parameterOf(method), null, null, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testSupportsParameter() {
+        assertTrue(resolver.supportsParameter(parameterOf("asClient")));
+        assertTrue(resolver.supportsParameter(parameterOf("asAnyone")));
+        assertFalse(resolver.supportsParameter(parameterOf("notAnnotated")));
+        assertFalse(resolver.supportsParameter(parameterOf("notAUser")));
+    }
+
+    @Test
+    public void testResolvesThePrincipalOfTheRequestedType() {
+        ClientSS client = new ClientSS();
+        client.setId(1);
+        logIn(client);
+
+        assertSame(client, resolve("asClient"));
+        assertSame(client, resolve("asAnyone"));
+    }
+
+    @Test
+    public void testWrongRole() {
+        ClientSS client = new ClientSS();
+        client.setId(1);
+        logIn(client);
+
+        assertThrows(AuthorizationException.class, () -> resolve("asSeller"));
+    }
+
+    @Test
+    public void testWithoutLoggingIn() {
+        assertThrows(AuthorizationException.class, () -> resolve("asClient"));
+        assertThrows(AuthorizationException.class, () -> resolve("asAnyone"));
+    }
+
+    @Test
+    public void testAnonymousPrincipal() {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken("anonymousUser", null));
+
+        assertThrows(AuthorizationException.class, () -> resolve("asAnyone"));
+    }
+}
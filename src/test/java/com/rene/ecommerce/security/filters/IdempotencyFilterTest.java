@@ -0,0 +1,220 @@
+package com.rene.ecommerce.security.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rene.ecommerce.security.ClientSS;
+import com.rene.ecommerce.services.IdempotencyService;
+
+public class IdempotencyFilterTest {
+
+    private IdempotencyService idempotency;
+
+    private IdempotencyFilter filter;
+
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    public void setUp() {
+        idempotency = mock(IdempotencyService.class);
+        filter = new IdempotencyFilter(idempotency, new ObjectMapper());
+        response = new MockHttpServletResponse();
+
+        ClientSS client = new ClientSS();
+        client.setId(7);
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(client, null, client.getAuthorities()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        if (body != null) {
+            request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return request;
+    }
+
+    private static IdempotencyService.Claim claim(IdempotencyService.Outcome outcome) {
+        return new IdempotencyService.Claim(outcome, null);
+    }
+
+    @Test
+    public void testTheBufferedBodyCanBeReadWithoutBlocking() throws Exception {
+        when(idempotency.claim(eq(7), eq("k1"), anyString())).thenReturn(claim(IdempotencyService.Outcome.CLAIMED));
+
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+        FilterChain chain = (request, res) -> {
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(buffer, 0, in.read(buffer));
+                    }
+                }
+
+                public void onAllDataRead() {
+                    allRead.set(true);
+                }
+
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+        };
+        filter.doFilter(request("POST", "/product", "k1", "{\"name\":\"Chair\"}"), response, chain);
+
+        assertEquals("{\"name\":\"Chair\"}", new String(read.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(allRead.get());
+    }
+
+    @Test
+    public void testFirstRequestRunsAndItsResponseIsStored() throws Exception {
+        IdempotencyService.Claim claimed = claim(IdempotencyService.Outcome.CLAIMED);
+        when(idempotency.claim(eq(7), eq("k1"), anyString())).thenReturn(claimed);
+
+        FilterChain chain = (request, res) -> {
+            // the controller still reads the body the fingerprint was taken from
+            assertEquals("{\"name\":\"Chair\"}",
+                    StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8));
+            ((HttpServletResponse) res).setStatus(201);
+            res.setContentType("application/json");
+            res.getOutputStream().write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        };
+        filter.doFilter(request("POST", "/product", "k1", "{\"name\":\"Chair\"}"), response, chain);
+
+        ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+        verify(idempotency).complete(eq(7), eq("k1"), anyString(), eq(201), eq("application/json"), body.capture());
+        assertEquals("{\"id\":1}", new String(body.getValue(), StandardCharsets.UTF_8));
+        assertEquals("{\"id\":1}", response.getContentAsString());
+        assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void testRetryIsReplayedWithoutRunning() throws Exception {
+        IdempotencyService.StoredResponse stored = new IdempotencyService.StoredResponse("fp", 400,
+                "application/json", "{\"status\":400}".getBytes(StandardCharsets.UTF_8), Long.MAX_VALUE);
+        IdempotencyService.Claim replay = new IdempotencyService.Claim(IdempotencyService.Outcome.REPLAY, stored);
+        when(idempotency.claim(eq(7), eq("k1"), anyString())).thenReturn(replay);
+
+        FilterChain chain = mock(FilterChain.class);
+        filter.doFilter(request("PUT", "/buy/3", "k1", null), response, chain);
+
+        verifyNoInteractions(chain);
+        assertEquals(400, response.getStatus());
+        assertEquals("true", response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals("{\"status\":400}", response.getContentAsString());
+    }
+
+    @Test
+    public void testConflictsAreRejected() throws Exception {
+        IdempotencyService.Claim inProgress = claim(IdempotencyService.Outcome.IN_PROGRESS);
+        IdempotencyService.Claim mismatch = claim(IdempotencyService.Outcome.MISMATCH);
+        when(idempotency.claim(eq(7), eq("k1"), anyString())).thenReturn(inProgress);
+        when(idempotency.claim(eq(7), eq("k2"), anyString())).thenReturn(mismatch);
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request("POST", "/cart/checkout", "k1", null), response, chain);
+        assertEquals(409, response.getStatus());
+
+        response = new MockHttpServletResponse();
+        filter.doFilter(request("POST", "/cart/checkout", "k2", null), response, chain);
+        assertEquals(422, response.getStatus());
+        assertTrue(response.getContentAsString().contains("different request"));
+
+        response = new MockHttpServletResponse();
+        filter.doFilter(request("POST", "/cart/checkout", " ", null), response, chain);
+        assertEquals(400, response.getStatus());
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    public void testTheFingerprintCoversThePathQueryAndBody() throws Exception {
+        IdempotencyService.Claim claimed = claim(IdempotencyService.Outcome.CLAIMED);
+        when(idempotency.claim(eq(7), eq("k1"), anyString())).thenReturn(claimed);
+        FilterChain chain = mock(FilterChain.class);
+
+        MockHttpServletRequest first = request("PUT", "/buy/3", "k1", null);
+        MockHttpServletRequest other = request("PUT", "/buy/3", "k1", null);
+        other.setQueryString("quantity=2");
+        MockHttpServletRequest same = request("PUT", "/buy/3", "k1", null);
+        filter.doFilter(first, response, chain);
+        filter.doFilter(other, new MockHttpServletResponse(), chain);
+        filter.doFilter(same, new MockHttpServletResponse(), chain);
+
+        ArgumentCaptor<String> fingerprints = ArgumentCaptor.forClass(String.class);
+        verify(idempotency, times(3)).claim(eq(7), eq("k1"), fingerprints.capture());
+        assertNotEquals(fingerprints.getAllValues().get(0), fingerprints.getAllValues().get(1));
+        assertEquals(fingerprints.getAllValues().get(0), fingerprints.getAllValues().get(2));
+    }
+
+    @Test
+    public void testOtherRequestsPassThrough() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request("GET", "/product/3", "k1", null), response, chain);
+        filter.doFilter(request("PUT", "/buy/3", null, null), response, chain);
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request("PUT", "/buy/3", "k1", null), response, chain);
+
+        verify(chain, times(3)).doFilter(any(), any());
+        verifyNoInteractions(idempotency);
+    }
+
+    @Test
+    public void testAFailedRequestReleasesItsKey() {
+        IdempotencyService.Claim claimed = claim(IdempotencyService.Outcome.CLAIMED);
+        when(idempotency.claim(eq(7), eq("k1"), anyString())).thenReturn(claimed);
+
+        FilterChain chain = (request, res) -> {
+            throw new IOException("broken pipe");
+        };
+        assertThrows(IOException.class, () -> filter.doFilter(request("PUT", "/buy/3", "k1", null), response, chain));
+        verify(idempotency).release(7, "k1");
+        verify(idempotency, never()).complete(anyInt(), anyString(), anyString(), anyInt(), any(), any());
+    }
+}
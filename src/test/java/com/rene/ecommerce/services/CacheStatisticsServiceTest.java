@@ -0,0 +1,82 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.dto.CacheRegionDTO;
+import com.rene.ecommerce.exceptions.ObjectNotFoundException;
+
+public class CacheStatisticsServiceTest {
+
+    @InjectMocks
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Mock
+    private EntityManagerFactory emf;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(emf.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+    }
+
+    @Test
+    public void findStatistics_shouldReportEveryRegion() {
+        CacheRegionStatistics product = mock(CacheRegionStatistics.class);
+        when(product.getHitCount()).thenReturn(30L);
+        when(product.getMissCount()).thenReturn(10L);
+        when(product.getPutCount()).thenReturn(10L);
+        when(statistics.getDomainDataRegionStatistics("product")).thenReturn(product);
+        when(statistics.getDomainDataRegionStatistics("seller")).thenReturn(mock(CacheRegionStatistics.class));
+        when(statistics.getDomainDataRegionStatistics("client")).thenReturn(mock(CacheRegionStatistics.class));
+
+        List<CacheRegionDTO> regions = cacheStatisticsService.findStatistics();
+
+        assertEquals(4, regions.size());
+        assertEquals("product", regions.get(0).getRegion());
+        assertEquals(30L, regions.get(0).getHits());
+        assertEquals(10L, regions.get(0).getMisses());
+        assertEquals(0.75, regions.get(0).getHitRatio(), 0.0001);
+        assertEquals(0.0, regions.get(1).getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void findStatistics_shouldReportUnusedQueryRegionAsEmpty() {
+        List<CacheRegionDTO> regions = cacheStatisticsService.findStatistics();
+
+        CacheRegionDTO usersByEmail = regions.get(3);
+        assertEquals("users-by-email", usersByEmail.getRegion());
+        assertEquals(0L, usersByEmail.getHits());
+        assertEquals(0L, usersByEmail.getPuts());
+    }
+
+    @Test
+    public void findStatistics_shouldFailWhenStatisticsAreOff() {
+        when(statistics.isStatisticsEnabled()).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> cacheStatisticsService.findStatistics());
+    }
+}
@@ -0,0 +1,106 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.CartDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+
+public class CartServiceTest {
+
+    @InjectMocks
+    private CartService cartService;
+
+    @Mock
+    private ProductService productService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(productService.findById(anyInt())).thenAnswer(invocation -> {
+            Product product = new Product(invocation.getArgument(0), "Product", 10.0, null, null);
+            product.setSold(false);
+            return product;
+        });
+    }
+
+    private static String items(CartDTO cart) {
+        return cart.getItems().stream().map(x -> x.getProductId() + "x" + x.getQuantity())
+                .collect(Collectors.joining(","));
+    }
+
+    @Test
+    public void testPutSetsTheUnitsOfAProduct() {
+        cartService.put(1, 10, null);
+        cartService.put(1, 11, 3);
+        assertEquals("10x2,11x3", items(cartService.put(1, 10, 2)));
+        assertEquals("11x3", items(cartService.put(1, 10, 0)));
+        assertEquals("", items(cartService.remove(1, 11)));
+        assertEquals("", items(cartService.find(2)));
+
+        assertThrows(InvalidParameterException.class, () -> cartService.put(1, 10, -1));
+    }
+
+    @Test
+    public void testSoldProductsAndTooManyItemsAreRejected() {
+        Product sold = new Product(12, "Sold", 1.0, null, null);
+        sold.setSold(true);
+        when(productService.findById(12)).thenReturn(sold);
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> cartService.put(1, 12, 1));
+        Product delisted = new Product(14, "Delisted", 1.0, null, null);
+        delisted.setDelisted(true);
+        when(productService.findById(14)).thenReturn(delisted);
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> cartService.put(1, 14, 1));
+
+        ReflectionTestUtils.setField(cartService, "maxItems", 2);
+        cartService.put(1, 10, 1);
+        cartService.put(1, 11, 1);
+        assertThrows(InvalidParameterException.class, () -> cartService.put(1, 13, 1));
+        assertEquals("10x1,11x5", items(cartService.put(1, 11, 5)));
+    }
+
+    @Test
+    public void testExpiredCartsAreEmptyAndSweptAway() {
+        ReflectionTestUtils.setField(cartService, "ttlMillis", -1L);
+        cartService.put(1, 10, 1);
+
+        assertEquals("", items(cartService.find(1)));
+        assertTrue(cartService.items(1).isEmpty());
+        assertEquals(1, cartService.size());
+
+        cartService.sweep();
+        assertEquals(0, cartService.size());
+    }
+
+    @Test
+    public void testCheckedOutKeepsTheItemsChangedMeanwhile() {
+        cartService.put(1, 10, 1);
+        cartService.put(1, 11, 2);
+        Map<Integer, Integer> bought = cartService.items(1);
+        cartService.put(1, 11, 4);
+        cartService.put(1, 12, 1);
+
+        cartService.checkedOut(1, bought);
+        assertEquals("11x4,12x1", items(cartService.find(1)));
+
+        cartService.checkedOut(1, new LinkedHashMap<>(cartService.items(1)));
+        assertEquals(0, cartService.size());
+        assertTrue(cartService.find(1).getItems().isEmpty());
+    }
+}
@@ -0,0 +1,207 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.CheckoutDTO;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.ProductRepository;
+import com.rene.ecommerce.services.email.EmailService;
+import com.rene.ecommerce.services.email.SaleDigestService;
+import com.rene.ecommerce.services.ranking.UserRankService;
+import com.rene.ecommerce.services.ranking.WindowedRankingService;
+import com.rene.ecommerce.services.reservation.ReservationService;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
+
+public class CheckoutServiceTest {
+
+    @InjectMocks
+    private CheckoutService checkoutService;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private ClientService clientService;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @Mock
+    private OrderRepository orderRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManagerFactory emf;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private RevenueRollupService revenueRollupService;
+
+    @Mock
+    private WindowedRankingService windowedRankingService;
+
+    @Mock
+    private UserRankService userRankService;
+
+    @Mock
+    private SaleDigestService saleDigestService;
+
+    @Mock
+    private ProductSearchService productSearch;
+
+    @Mock
+    private ProductSuggestService productSuggest;
+
+    @Mock
+    private ProductFilterService productFilter;
+
+    @Mock
+    private ReservationService reservations;
+
+    private Map<Integer, Integer> items;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(emf.getCache()).thenReturn(cache);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        Client buyer = new Client();
+        buyer.setId(5);
+        when(clientService.findById(5)).thenReturn(buyer);
+
+        items = new LinkedHashMap<>();
+        items.put(1, 2);
+        items.put(2, 1);
+        when(cartService.items(5)).thenReturn(items);
+        when(productRepo.findAllById(items.keySet())).thenReturn(Arrays.asList(product(1, 10.0, 3), product(2, 4.5, 4)));
+
+        doAnswer(invocation -> {
+            int id = 100;
+            for (Order order : invocation.<List<Order>> getArgument(0)) {
+                order.setId(id++);
+            }
+            return null;
+        }).when(orderRepo).insertAll(any());
+    }
+
+    private static Product product(Integer id, Double price, Integer sellerId) {
+        Seller seller = new Seller();
+        seller.setId(sellerId);
+        Product product = new Product(id, "Product " + id, price, seller, null);
+        product.setSold(false);
+        return product;
+    }
+
+    private static Map<Integer, Integer> left(int first, int second) {
+        Map<Integer, Integer> left = new LinkedHashMap<>();
+        left.put(1, first);
+        left.put(2, second);
+        return left;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCheckoutWritesEveryLineInOneBatch() {
+        when(productRepo.takeStock(items)).thenReturn(left(3, 0));
+        when(productRepo.lockIfSoldOut(any())).thenReturn(true);
+
+        CheckoutDTO result = checkoutService.checkout(5);
+
+        assertEquals(Arrays.asList(100, 101), result.getOrders());
+        assertEquals(24.5, result.getTotal());
+        verify(transactionManager).commit(any());
+
+        ArgumentCaptor<List<Order>> orders = ArgumentCaptor.forClass(List.class);
+        verify(orderRepo).insertAll(orders.capture());
+        assertEquals(2, orders.getValue().get(0).getQuantity());
+        assertEquals(5, orders.getValue().get(1).getBuyer().getId());
+        assertFalse(Product.isSold(orders.getValue().get(0).getProductOrder()));
+        assertTrue(Product.isSold(orders.getValue().get(1).getProductOrder()));
+
+        verify(orderRepo).addToClientTotals(5, 2, 24.5);
+        ArgumentCaptor<Map<Integer, double[]>> sales = ArgumentCaptor.forClass(Map.class);
+        verify(orderRepo).addToSellerTotals(sales.capture());
+        assertEquals(20.0, sales.getValue().get(3)[1]);
+        assertEquals(1.0, sales.getValue().get(4)[0]);
+
+        verify(cartService).checkedOut(5, items);
+        verify(cache).evict(Client.class, 5);
+        verify(cache).evict(Product.class, 1);
+        verify(cache).evict(Seller.class, 4);
+        verify(productSearch).remove(2);
+        verify(productSearch, never()).remove(1);
+        verify(productRepo).removeFromWishListWhenAreSold(Collections.singletonList(2));
+        verify(productFilter).removeAll(Collections.singletonList(2));
+        verify(reservations).bought(5, 1, 2, false);
+        verify(reservations).bought(5, 2, 1, true);
+    }
+
+    @Test
+    public void testNothingIsBoughtWhenOneItemIsShort() {
+        when(productRepo.takeStock(items)).thenReturn(left(0, -1));
+
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> checkoutService.checkout(5));
+        verify(transactionManager).rollback(any());
+        verify(orderRepo, never()).insertAll(any());
+        verify(orderRepo, never()).addToClientTotals(anyInt(), anyInt(), anyDouble());
+        verify(cartService, never()).checkedOut(any(), any());
+    }
+
+    @Test
+    public void testSoldProductsAndEmptyCartsAreRejected() {
+        Product sold = product(2, 4.5, 4);
+        sold.setSold(true);
+        when(productRepo.findAllById(items.keySet())).thenReturn(Arrays.asList(product(1, 10.0, 3), sold));
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> checkoutService.checkout(5));
+        verify(productRepo, never()).takeStock(anyMap());
+
+        when(cartService.items(6)).thenReturn(new LinkedHashMap<>());
+        assertThrows(InvalidParameterException.class, () -> checkoutService.checkout(6));
+    }
+}
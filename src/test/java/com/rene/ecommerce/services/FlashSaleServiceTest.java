@@ -0,0 +1,142 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.exceptions.ProductIsBeingBoughtException;
+
+public class FlashSaleServiceTest {
+
+    @InjectMocks
+    private FlashSaleService flashSaleService;
+
+    @Mock
+    private ProductService productService;
+
+    private final AtomicInteger stock = new AtomicInteger();
+
+    private final CountDownLatch buying = new CountDownLatch(1);
+    private final CountDownLatch bought = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(flashSaleService, "enabled", true);
+        when(productService.findById(anyInt())).thenAnswer(invocation -> {
+            Product product = new Product(invocation.getArgument(0), "Product", 10.0, null, null);
+            product.setSold(stock.get() == 0);
+            product.setStock(stock.get());
+            return product;
+        });
+    }
+
+    // a purchase that takes its units once bought is counted down
+    private Thread slowPurchase(int units) throws InterruptedException {
+        when(productService.buyProduct(1, units)).thenAnswer(invocation -> {
+            buying.countDown();
+            assertTrue(bought.await(5, TimeUnit.SECONDS));
+            stock.addAndGet(-units);
+            return null;
+        });
+        Thread thread = new Thread(() -> flashSaleService.buyProduct(1, units));
+        thread.start();
+        assertTrue(buying.await(5, TimeUnit.SECONDS));
+        return thread;
+    }
+
+    @Test
+    public void testDisabledPassesThrough() {
+        ReflectionTestUtils.setField(flashSaleService, "enabled", false);
+
+        flashSaleService.buyProduct(1, 2);
+
+        verify(productService).buyProduct(1, 2);
+        verify(productService, never()).findById(anyInt());
+    }
+
+    @Test
+    public void testOnlyTheFirstPurchaseOfTheLastUnitRuns() throws InterruptedException {
+        stock.set(1);
+        Thread first = slowPurchase(1);
+
+        assertThrows(ProductIsBeingBoughtException.class, () -> flashSaleService.buyProduct(1, 1));
+        assertThrows(ProductIsBeingBoughtException.class, () -> flashSaleService.buyProduct(1, null));
+
+        bought.countDown();
+        first.join(5000);
+        assertEquals(0, flashSaleService.size());
+
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> flashSaleService.buyProduct(1, 1));
+        verify(productService, times(1)).buyProduct(eq(1), anyInt());
+        assertEquals(0, flashSaleService.size());
+    }
+
+    @Test
+    public void testPurchasesTheUnitsLeftCoverWaitTheirTurn() throws InterruptedException {
+        stock.set(3);
+        Thread first = slowPurchase(2);
+
+        Thread second = new Thread(() -> flashSaleService.buyProduct(1, 1));
+        second.start();
+        // the second one is in the lane: the third would need more units than are left
+        verify(productService, times(1)).buyProduct(eq(1), anyInt());
+        Thread.sleep(100);
+        assertThrows(ProductIsBeingBoughtException.class, () -> flashSaleService.buyProduct(1, 1));
+
+        bought.countDown();
+        first.join(5000);
+        second.join(5000);
+        verify(productService).buyProduct(1, 1);
+        assertEquals(0, flashSaleService.size());
+    }
+
+    @Test
+    public void testTheLaneIsBounded() throws InterruptedException {
+        ReflectionTestUtils.setField(flashSaleService, "maxQueued", 1);
+        stock.set(5);
+        Thread first = slowPurchase(1);
+
+        ProductIsBeingBoughtException e = assertThrows(ProductIsBeingBoughtException.class,
+                () -> flashSaleService.buyProduct(1, 1));
+        assertEquals("Too many buyers are buying the product right now", e.getMessage());
+
+        bought.countDown();
+        first.join(5000);
+    }
+
+    @Test
+    public void testAFailedPurchaseGivesItsUnitsBack() {
+        stock.set(2);
+        when(productService.buyProduct(1, 2)).thenThrow(new InvalidParameterException("Not enough money"))
+                .thenReturn(null);
+
+        assertThrows(InvalidParameterException.class, () -> flashSaleService.buyProduct(1, 2));
+        flashSaleService.buyProduct(1, 2);
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> flashSaleService.buyProduct(1, 3));
+
+        verify(productService, times(2)).buyProduct(1, 2);
+        verify(productService, never()).buyProduct(1, 3);
+    }
+
+}
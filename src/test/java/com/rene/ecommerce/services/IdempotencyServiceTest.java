@@ -0,0 +1,124 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rene.ecommerce.domain.IdempotencyKey;
+import com.rene.ecommerce.repositories.IdempotencyKeyRepository;
+
+public class IdempotencyServiceTest {
+
+    @InjectMocks
+    private IdempotencyService idempotency;
+
+    @Mock
+    private IdempotencyKeyRepository keyRepo;
+
+    private static final byte[] BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        idempotency.buildCache();
+    }
+
+    private static IdempotencyKey stored(String fingerprint, Integer status) {
+        IdempotencyKey key = new IdempotencyKey();
+        key.setId("7:k1");
+        key.setFingerprint(fingerprint);
+        key.setStatus(status);
+        key.setContentType(status == null ? null : "application/json");
+        key.setBody(status == null ? null : BODY);
+        key.setExpiresAt(new Date(System.currentTimeMillis() + 60000));
+        return key;
+    }
+
+    @Test
+    public void testACompletedKeyIsReplayedFromMemory() {
+        when(keyRepo.claim(anyString(), anyString(), any(), any())).thenReturn(true);
+
+        assertEquals(IdempotencyService.Outcome.CLAIMED, idempotency.claim(7, "k1", "fp").getOutcome());
+        idempotency.complete(7, "k1", "fp", 200, "application/json", BODY);
+
+        IdempotencyService.Claim retry = idempotency.claim(7, "k1", "fp");
+        assertEquals(IdempotencyService.Outcome.REPLAY, retry.getOutcome());
+        assertEquals(200, retry.getResponse().getStatus());
+        assertEquals("{\"id\":1}", new String(retry.getResponse().getBody(), StandardCharsets.UTF_8));
+        assertEquals(IdempotencyService.Outcome.MISMATCH, idempotency.claim(7, "k1", "other").getOutcome());
+
+        // keys are per user
+        idempotency.claim(8, "k1", "fp");
+        verify(keyRepo).claim(eq("8:k1"), eq("fp"), any(), any());
+        verify(keyRepo, times(1)).claim(eq("7:k1"), anyString(), any(), any());
+        verify(keyRepo).complete(eq("7:k1"), eq(200), eq("application/json"), eq(BODY), any());
+    }
+
+    @Test
+    public void testAKeyTakenOnAnotherNodeIsReadFromTheTable() {
+        when(keyRepo.claim(eq("7:k1"), anyString(), any(), any())).thenReturn(false);
+        when(keyRepo.findById("7:k1")).thenReturn(Optional.of(stored("fp", null)));
+
+        assertEquals(IdempotencyService.Outcome.IN_PROGRESS, idempotency.claim(7, "k1", "fp").getOutcome());
+        assertEquals(IdempotencyService.Outcome.MISMATCH, idempotency.claim(7, "k1", "other").getOutcome());
+
+        when(keyRepo.findById("7:k1")).thenReturn(Optional.of(stored("fp", 201)));
+        IdempotencyService.Claim replay = idempotency.claim(7, "k1", "fp");
+        assertEquals(IdempotencyService.Outcome.REPLAY, replay.getOutcome());
+        assertEquals(201, replay.getResponse().getStatus());
+
+        // and then kept in memory
+        idempotency.claim(7, "k1", "fp");
+        verify(keyRepo, times(3)).findById("7:k1");
+        assertEquals(1, idempotency.size());
+    }
+
+    @Test
+    public void testServerErrorsReleaseTheKey() {
+        idempotency.complete(7, "k1", "fp", 503, "application/json", BODY);
+
+        verify(keyRepo).release("7:k1");
+        verify(keyRepo, never()).complete(anyString(), anyInt(), any(), any(), any());
+        assertEquals(0, idempotency.size());
+    }
+
+    @Test
+    public void testMemoryIsBoundedAndSwept() throws InterruptedException {
+        ReflectionTestUtils.setField(idempotency, "maxEntries", 1);
+        idempotency.buildCache();
+        idempotency.complete(7, "k1", "fp", 200, null, new byte[0]);
+        idempotency.complete(7, "k2", "fp", 200, null, new byte[0]);
+        assertEquals(1, idempotency.size());
+
+        // a full cache keeps taking the new responses
+        idempotency.complete(7, "k3", "fp", 200, null, new byte[0]);
+        assertEquals(IdempotencyService.Outcome.REPLAY, idempotency.claim(7, "k3", "fp").getOutcome());
+        verify(keyRepo, never()).claim(eq("7:k3"), anyString(), any(), any());
+
+        ReflectionTestUtils.setField(idempotency, "ttlMillis", 1L);
+        ReflectionTestUtils.setField(idempotency, "maxEntries", 10);
+        idempotency.buildCache();
+        idempotency.complete(7, "k4", "fp", 200, null, new byte[0]);
+        Thread.sleep(20);
+        idempotency.sweep();
+        assertEquals(0, idempotency.size());
+        verify(keyRepo).deleteExpired(any());
+    }
+}
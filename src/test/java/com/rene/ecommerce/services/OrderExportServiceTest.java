@@ -0,0 +1,95 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.util.StreamUtils;
+
+import com.rene.ecommerce.domain.dto.OrderExportDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.OrderRepository;
+
+public class OrderExportServiceTest {
+
+    @InjectMocks
+    private OrderExportService exportService;
+
+    @Mock
+    private OrderRepository orderRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static OrderExportDTO row(Integer orderId, long placedAt, String productName, Double price, String buyerName) {
+        return new OrderExportDTO() {
+            public Integer getOrderId() { return orderId; }
+            public Date getPlacedAt() { return new Date(placedAt); }
+            public Integer getProductId() { return orderId + 100; }
+            public String getProductName() { return productName; }
+            public Double getPrice() { return price; }
+            public Integer getBuyerId() { return 7; }
+            public String getBuyerName() { return buyerName; }
+        };
+    }
+
+    @Test
+    public void testExportCsv() throws IOException {
+        when(orderRepo.streamExportOfSeller(1, OrderService.MIN_DATE, OrderService.MAX_DATE)).thenReturn(Stream.of(
+                row(1, 0L, "Chair", 10.5, "Ana"),
+                row(2, 60000L, "Table, \"oak\"", 12000000.0, "Bob")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(1, OrderExportService.Format.CSV, false, null, null, out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertEquals("order_id,placed_at,product_id,product_name,price,buyer_id,buyer_name", lines[0]);
+        assertEquals("1,1970-01-01T00:00:00Z,101,Chair,10.5,7,Ana", lines[1]);
+        assertEquals("2,1970-01-01T00:01:00Z,102,\"Table, \"\"oak\"\"\",12000000,7,Bob", lines[2]);
+    }
+
+    @Test
+    public void testExportNdjsonGzip() throws IOException {
+        Date from = new Date(1000L);
+        Date to = new Date(2000L);
+        when(orderRepo.streamExportOfSeller(1, from, to)).thenReturn(Stream.of(
+                row(1, 0L, "Chair", 10.5, "Ana"),
+                row(2, 0L, "Lamp", 3.0, "Bob")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(1, OrderExportService.Format.NDJSON, true, from, to, out);
+
+        String text = new String(StreamUtils.copyToByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))), StandardCharsets.UTF_8);
+        String[] lines = text.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(text.endsWith("\n"));
+        assertEquals("{\"orderId\":1,\"placedAt\":\"1970-01-01T00:00:00Z\",\"productId\":101,\"productName\":\"Chair\","
+                + "\"price\":10.5,\"buyerId\":7,\"buyerName\":\"Ana\"}", lines[0]);
+    }
+
+    @Test
+    public void testParseFormat() {
+        assertEquals(OrderExportService.Format.NDJSON, OrderExportService.parseFormat("ndjson"));
+        assertEquals(OrderExportService.Format.CSV, OrderExportService.parseFormat("CSV"));
+        assertThrows(InvalidParameterException.class, () -> OrderExportService.parseFormat("xml"));
+    }
+
+}
@@ -20,6 +20,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -36,12 +37,6 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepo;
 
-    @Mock
-    private ClientService clientService;
-
-    @Mock
-    private SellerService sellerService;
-
     @InjectMocks
     private OrderService orderService;
 
@@ -59,20 +54,23 @@ class OrderServiceTest {
 
         Order dummyOrder = new Order();
         dummyOrder.setId(1);
-        List<Order> orderList = new ArrayList<>();
-        orderList.add(dummyOrder);
-        dummyClient.setOrders(orderList);
         when(orderRepo.findById(1)).thenReturn(Optional.of(dummyOrder));
-        when(clientService.findById(100)).thenReturn(dummyClient);
+        dummyOrder.setBuyer(dummyClient);
         Order returnOrder = orderService.findById(1,true);
         assertEquals(dummyOrder.getId(), returnOrder.getId());
         userService.close();
     }
 
-    // cannot reaches throw objectNotFoundException
     @Test
     void findByIdTestClientObjNotFound() {
+        MockedStatic<UserService> userService = mockStatic(UserService.class);
+        ClientSS clientUser = new ClientSS();
+        clientUser.setId(100);
 
+        userService.when(UserService::clientAuthenticated).thenReturn(clientUser);
+        when(orderRepo.findById(1)).thenReturn(Optional.empty());
+        assertThrows(ObjectNotFoundException.class, () -> orderService.findById(1,true));
+        userService.close();
     }
 
     @Test
@@ -89,10 +87,10 @@ class OrderServiceTest {
 
         Order dummyOrder = new Order();
         dummyOrder.setId(1);
-        List<Order> orderList = new ArrayList<>();
-        dummyClient.setOrders(orderList);
         when(orderRepo.findById(1)).thenReturn(Optional.of(dummyOrder));
-        when(clientService.findById(100)).thenReturn(dummyClient);
+        Client otherClient = new Client();
+        otherClient.setId(101);
+        dummyOrder.setBuyer(otherClient);
         assertThrows(AuthorizationException.class, () -> orderService.findById(1,true));
         userService.close();
     }
@@ -109,11 +107,8 @@ class OrderServiceTest {
         userService.when(UserService::sellerAuthenticated).thenReturn(sellerSS);
         Order dummyOrder = new Order();
         dummyOrder.setId(1);
-        List<Order> orderList = new ArrayList<>();
-        orderList.add(dummyOrder);
-        seller.setOrders(orderList);
         when(orderRepo.findById(1)).thenReturn(Optional.of(dummyOrder));
-        when(sellerService.findById(1)).thenReturn(seller);
+        dummyOrder.setSeller(seller);
         Order returnOrder = orderService.findById(1,false);
         assertEquals(dummyOrder.getId(), returnOrder.getId());
         userService.close();
@@ -131,10 +126,10 @@ class OrderServiceTest {
         userService.when(UserService::sellerAuthenticated).thenReturn(sellerSS);
         Order dummyOrder = new Order();
         dummyOrder.setId(1);
-        List<Order> orderList = new ArrayList<>();
-        seller.setOrders(orderList);
         when(orderRepo.findById(1)).thenReturn(Optional.of(dummyOrder));
-        when(sellerService.findById(1)).thenReturn(seller);
+        Seller otherSeller = new Seller();
+        otherSeller.setId(2);
+        dummyOrder.setSeller(otherSeller);
         assertThrows(AuthorizationException.class, () -> orderService.findById(1,false));
         userService.close();
     }
@@ -151,9 +146,8 @@ class OrderServiceTest {
         dummyOrder.setId(1);
         List<Order> orderList = new ArrayList<>();
         orderList.add(dummyOrder);
-        dummyClient.setOrders(orderList);
-        when(clientService.findById(100)).thenReturn(dummyClient);
-        List<Order> orders = orderService.findAll(true);
+        when(orderRepo.findPageOfClient(100, Integer.MAX_VALUE, OrderService.MIN_DATE, OrderService.MAX_DATE, OrderService.DEFAULT_PAGE_SIZE)).thenReturn(orderList);
+        List<Order> orders = orderService.findAll(true, null, null, null, null);
         assertEquals(orderList.size(),orders.size());
         userService.close();
     }
@@ -173,9 +167,10 @@ class OrderServiceTest {
         dummyOrder.setId(1);
         List<Order> orderList = new ArrayList<>();
         orderList.add(dummyOrder);
-        seller.setOrders(orderList);
-        when(sellerService.findById(1)).thenReturn(seller);
-        List<Order> orders = orderService.findAll(false);
+        Date from = new Date(1000L);
+        Date to = new Date(2000L);
+        when(orderRepo.findPageOfSeller(1, 50, from, to, OrderService.MAX_PAGE_SIZE)).thenReturn(orderList);
+        List<Order> orders = orderService.findAll(false, 50, 1000, from, to);
         assertEquals(orderList.size(),orders.size());
         userService.close();
     }
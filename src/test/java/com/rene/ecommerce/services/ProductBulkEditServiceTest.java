@@ -0,0 +1,157 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductBulkChangeDTO;
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.ProductRepository;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
+
+public class ProductBulkEditServiceTest {
+
+    @InjectMocks
+    private ProductBulkEditService bulkEditService;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManagerFactory emf;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private ProductSearchService productSearch;
+
+    @Mock
+    private ProductSuggestService productSuggest;
+
+    @Mock
+    private ProductFilterService productFilter;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(emf.getCache()).thenReturn(cache);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    }
+
+    private static SearchableProductDTO row(Integer id, Double price) {
+        return new SearchableProductDTO() {
+
+            public Integer getId() {
+                return id;
+            }
+
+            public String getName() {
+                return "Product " + id;
+            }
+
+            public String getDescription() {
+                return null;
+            }
+
+            public Double getPrice() {
+                return price;
+            }
+        };
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRepriceByPercentUpdatesTheCacheAndIndexesOfTheChangedProducts() {
+        when(productRepo.repriceUnsold(3, 10.0, null, null, 0.9, 0.0))
+                .thenReturn(Arrays.asList(row(1, 9.0), row(2, 18.0)));
+
+        ProductBulkChangeDTO result = bulkEditService.reprice(3, 10.0, null, null, -10.0, null);
+
+        assertEquals(2, result.getChanged());
+        assertEquals(Arrays.asList(1, 2), result.getIds());
+        verify(transactionManager).commit(any());
+        verify(cache).evict(Product.class, 1);
+        verify(cache).evict(Product.class, 2);
+
+        ArgumentCaptor<Collection<Product>> products = ArgumentCaptor.forClass(Collection.class);
+        verify(productFilter).putAll(products.capture());
+        Product first = products.getValue().iterator().next();
+        assertEquals(9.0, first.getPrice());
+        assertEquals(3, first.getProductOwner().getId());
+        assertFalse(Product.isSold(first));
+        verify(productSearch).put(first);
+        verifyNoInteractions(productSuggest);
+    }
+
+    @Test
+    public void testRepriceByAmountWithIds() {
+        when(productRepo.repriceUnsold(3, null, null, Arrays.asList(4, 5), 1.0, 2.5))
+                .thenReturn(Collections.singletonList(row(4, 12.5)));
+
+        assertEquals(Collections.singletonList(4),
+                bulkEditService.reprice(3, null, null, Arrays.asList(4, null, 5), null, 2.5).getIds());
+    }
+
+    @Test
+    public void testRepriceNeedsExactlyOneValidChange() {
+        assertThrows(InvalidParameterException.class, () -> bulkEditService.reprice(3, null, null, null, null, null));
+        assertThrows(InvalidParameterException.class, () -> bulkEditService.reprice(3, null, null, null, 5.0, 1.0));
+        assertThrows(InvalidParameterException.class, () -> bulkEditService.reprice(3, null, null, null, -100.0, null));
+        assertThrows(InvalidParameterException.class,
+                () -> bulkEditService.reprice(3, null, null, null, null, Double.NaN));
+        verify(productRepo, never()).repriceUnsold(any(), any(), any(), any(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    public void testDelistRemovesTheDeletedProductsEverywhere() {
+        List<Integer> deleted = Arrays.asList(7, 8);
+        when(productRepo.deleteUnsold(3, null, 5.0, null)).thenReturn(deleted);
+
+        ProductBulkChangeDTO result = bulkEditService.delist(3, null, 5.0, null);
+
+        assertEquals(2, result.getChanged());
+        verify(cache).evict(Product.class, 7);
+        verify(cache).evict(Product.class, 8);
+        verify(productSearch).remove(7);
+        verify(productSuggest).remove(8);
+        verify(productFilter).removeAll(deleted);
+    }
+
+    @Test
+    public void testDelistNeedsAFilter() {
+        assertThrows(InvalidParameterException.class, () -> bulkEditService.delist(3, null, null, null));
+        verify(productRepo, never()).deleteUnsold(any(), any(), any(), any());
+    }
+}
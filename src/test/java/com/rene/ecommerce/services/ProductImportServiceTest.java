@@ -0,0 +1,186 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductImportDTO;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.ProductRepository;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
+
+public class ProductImportServiceTest {
+
+    @InjectMocks
+    private ProductImportService importService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @Mock
+    private ProductSearchService productSearch;
+
+    @Mock
+    private ProductSuggestService productSuggest;
+
+    @Mock
+    private ProductFilterService productFilter;
+
+    private int nextId;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        Seller seller = new Seller();
+        seller.setId(3);
+        when(em.unwrap(Session.class)).thenReturn(session);
+        when(em.getReference(Seller.class, 3)).thenReturn(seller);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        nextId = 100;
+        doAnswer(invocation -> {
+            ((Product) invocation.getArgument(0)).setId(nextId++);
+            return null;
+        }).when(em).persist(any(Product.class));
+    }
+
+    private ProductImportDTO importCsv(String csv) throws IOException {
+        return importService.importProducts(3, ProductImportService.Format.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ProductImportDTO importJson(String json) throws IOException {
+        return importService.importProducts(3, ProductImportService.Format.JSON,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> summary(ProductImportDTO result) {
+        return result.getRows().stream()
+                .map(x -> x.getRow() + ":" + (x.getId() != null ? x.getId() : x.getError()))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCsvIsParsedAndValidatedRowByRow() throws IOException {
+        ProductImportDTO result = importCsv("\uFEFFPrice,Name,Description\r\n"
+                + "10.5,Chair,\"Oak, solid\"\r\n"
+                + ",Table,\n"
+                + "-1,Lamp,\n"
+                + "\n"
+                + "abc,Sofa,x\n"
+                + "7,\"Desk \"\"XL\"\"\",\"two\nlines\"\n"
+                + "3,   ,\n"
+                + "2,Rug");
+
+        assertEquals(Arrays.asList("1:100", "2:Price is required", "3:Price must not be negative",
+                "4:Price is not a number", "5:101", "6:Name is required", "7:102"), summary(result));
+        assertEquals(3, result.getCreated());
+        assertEquals(4, result.getRejected());
+
+        ArgumentCaptor<Product> saved = ArgumentCaptor.forClass(Product.class);
+        verify(em, times(3)).persist(saved.capture());
+        assertEquals("Oak, solid", saved.getAllValues().get(0).getDescription());
+        assertEquals(10.5, saved.getAllValues().get(0).getPrice());
+        assertEquals("Desk \"XL\"", saved.getAllValues().get(1).getName());
+        assertEquals("two\nlines", saved.getAllValues().get(1).getDescription());
+        assertEquals(3, saved.getAllValues().get(2).getProductOwner().getId());
+        assertNull(saved.getAllValues().get(2).getDescription());
+        verify(productSearch).put(saved.getAllValues().get(2));
+        verify(productSuggest).put(saved.getAllValues().get(2));
+        verify(productFilter).putAll(saved.getAllValues());
+    }
+
+    @Test
+    public void testStockColumnIsOptionalAndAddedPerBatch() throws IOException {
+        ProductImportDTO result = importCsv("name,price,stock\nA,1,5\nB,2,\nC,3,0\nD,4,1.5\nE,5,2\n");
+
+        assertEquals(Arrays.asList("1:100", "2:101", "3:Stock must be a whole number of at least 1",
+                "4:Stock must be a whole number of at least 1", "5:102"), summary(result));
+        verify(productRepo).addStock(Arrays.asList(100, 101, 102), Arrays.asList(5, 1, 2), 4);
+    }
+
+    @Test
+    public void testCsvWithoutTheRequiredColumns() {
+        assertThrows(InvalidParameterException.class, () -> importCsv("name,description\nChair,x\n"));
+        verify(em, never()).persist(any());
+    }
+
+    @Test
+    public void testJsonStopsAtMalformedInput() throws IOException {
+        ProductImportDTO result = importJson("[{\"name\": \"Chair\", \"price\": 10, \"tags\": [\"a\"]},"
+                + " 5, {\"name\": \"Table\", \"price\": \"20.5\", \"description\": null},"
+                + " {\"name\": \"Lamp\", \"price\": ");
+
+        assertEquals(Arrays.asList("1:100", "2:Not a JSON object", "3:101"),
+                summary(result).subList(0, 3));
+        assertEquals(4, result.getRows().get(3).getRow());
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getRejected());
+
+        assertThrows(InvalidParameterException.class, () -> importJson("{\"name\": \"Chair\"}"));
+    }
+
+    @Test
+    public void testRowsAreInsertedInBatchesAndAFailedBatchDoesNotStopTheImport() throws IOException {
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        doAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            if (product.getName().equals("Bad")) {
+                throw new PersistenceException("boom");
+            }
+            product.setId(nextId++);
+            return null;
+        }).when(em).persist(any(Product.class));
+
+        ProductImportDTO result = importCsv("name,price\nA,1\nB,2\nBad,3\nC,4\nD,5\n");
+
+        assertEquals(Arrays.asList("1:100", "2:101", "3:Not saved, its batch failed: boom",
+                "4:Not saved, its batch failed: boom", "5:102"), summary(result));
+        verify(session, times(3)).setJdbcBatchSize(2);
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager).rollback(any());
+        verify(productSearch, times(3)).put(any());
+    }
+}
@@ -4,21 +4,38 @@ import com.rene.ecommerce.domain.Product;
 import com.rene.ecommerce.domain.dto.updated.UpdatedProduct;
 import com.rene.ecommerce.domain.users.Client;
 import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.repositories.OrderRepository;
 import com.rene.ecommerce.repositories.ProductRepository;
 import com.rene.ecommerce.exceptions.AuthorizationException;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
 import com.rene.ecommerce.exceptions.ObjectNotFoundException;
 import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.exceptions.ProductIsReservedException;
 
 import com.rene.ecommerce.security.ClientSS;
 import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.services.email.EmailService;
+import com.rene.ecommerce.services.email.SaleDigestService;
+import com.rene.ecommerce.services.ranking.UserRankService;
+import com.rene.ecommerce.services.ranking.WindowedRankingService;
+import com.rene.ecommerce.services.reservation.ReservationService;
+import com.rene.ecommerce.services.search.ProductFilterService;
+import com.rene.ecommerce.services.search.ProductSearchService;
+import com.rene.ecommerce.services.search.ProductSuggestService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -36,9 +53,46 @@ class ProductServiceTest {
     @Mock
     private ClientService clientService;
 
+    @Mock
+    private ProductSearchService productSearch;
+
+    @Mock
+    private ProductSuggestService productSuggest;
+
+    @Mock
+    private ProductFilterService productFilter;
+
+    @Mock
+    private EntityManagerFactory emf;
+
+    @Mock
+    private Cache cache;
+
+    @Mock
+    private ReservationService reservations;
+
+    @Mock
+    private OrderRepository orderRepo;
+
+    @Mock
+    private UserRankService userRankService;
+
+    @Mock
+    private RevenueRollupService revenueRollupService;
+
+    @Mock
+    private WindowedRankingService windowedRankingService;
+
+    @Mock
+    private SaleDigestService saleDigestService;
+
+    @Mock
+    private EmailService emailService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(emf.getCache()).thenReturn(cache);
     }
 
     // Return a product by id
@@ -77,7 +131,7 @@ class ProductServiceTest {
         // Create mock product
         Product product = new Product();
         product.setName("Product 1");
-        product.setHasBeenSold("Unsold");
+        product.setSold(false);
 
         // Create mock seller
         Seller seller = new Seller();
@@ -103,6 +157,11 @@ class ProductServiceTest {
             assertEquals(1, insertedProduct.getId());
             assertEquals("Product 1", insertedProduct.getName());
             assertEquals("Unsold", insertedProduct.hasBeenSold());
+            assertEquals(1, insertedProduct.getStock());
+            verify(productRepo).addStock(Collections.singletonList(1), Collections.singletonList(1), 4);
+            verify(productSearch).put(insertedProduct);
+            verify(productSuggest).put(insertedProduct);
+            verify(productFilter).put(insertedProduct);
         }
     }
 
@@ -112,7 +171,7 @@ class ProductServiceTest {
         // Create mock product
         Product product = new Product();
         product.setName("Product 1");
-        product.setHasBeenSold("Unsold");
+        product.setSold(false);
 
         // Create mock seller
         Seller seller = new Seller();
@@ -155,7 +214,7 @@ class ProductServiceTest {
         Product existingProduct = new Product();
         existingProduct.setId(1);
         existingProduct.setName("Old Product");
-        existingProduct.setHasBeenSold("Unsold");
+        existingProduct.setSold(false);
         existingProduct.setProductOwner(seller);
 
         // Create updated product data
@@ -196,7 +255,7 @@ class ProductServiceTest {
         Product existingProduct = new Product();
         existingProduct.setId(1);
         existingProduct.setName("Old Product");
-        existingProduct.setHasBeenSold("Sold");
+        existingProduct.setSold(true);
         existingProduct.setProductOwner(seller);
         existingProduct.setBuyerOfTheProduct(new Client());
 
@@ -239,7 +298,7 @@ class ProductServiceTest {
         Product existingProduct = new Product();
         existingProduct.setId(1);
         existingProduct.setName("Old Product");
-        existingProduct.setHasBeenSold("Sold");
+        existingProduct.setSold(true);
         existingProduct.setProductOwner(seller2);
 
         // Create updated product data
@@ -272,21 +331,21 @@ class ProductServiceTest {
         Product existingProduct = new Product();
         existingProduct.setId(1);
         existingProduct.setName("Product to Delete");
-        existingProduct.setHasBeenSold("Unsold");
+        existingProduct.setSold(false);
         existingProduct.setProductOwner(seller);
 
         // Create product not owned
         Product product2 = new Product();
         product2.setId(2);
         product2.setName("Product not owned");
-        product2.setHasBeenSold("Unsold");
+        product2.setSold(false);
         product2.setProductOwner(new Seller());
 
         // Create product that has been sold
         Product product3 = new Product();
         product3.setId(3);
         product3.setName("Product that has been sold");
-        product3.setHasBeenSold("Sold");
+        product3.setSold(true);
         product3.setProductOwner(seller);
         product3.setBuyerOfTheProduct(new Client());
 
@@ -302,11 +361,19 @@ class ProductServiceTest {
             when(productRepo.findById(product2.getId())).thenReturn(Optional.of(product2));
             when(productRepo.findById(product3.getId())).thenReturn(Optional.of(product3));
 
+            when(productRepo.deleteUnsold(1, null, null, Collections.singletonList(1)))
+                    .thenReturn(Collections.singletonList(1));
+
             // Call the method under test
             productService.delete(existingProduct.getId());
 
-            // Verify that the deleteById method was called with the correct ID
-            verify(productRepo, times(1)).deleteById(existingProduct.getId());
+            // Verify that the product was taken off sale, never deleted by id
+            verify(productRepo, times(1)).deleteUnsold(1, null, null, Collections.singletonList(1));
+            verify(productRepo, never()).deleteById(any());
+            verify(cache).evict(Product.class, existingProduct.getId());
+            verify(productSearch).remove(existingProduct.getId());
+            verify(productSuggest).remove(existingProduct.getId());
+            verify(productFilter).remove(existingProduct.getId());
 
             // When deleting the product not owned, should throw an exception
             assertThrows(AuthorizationException.class, () -> {
@@ -321,21 +388,55 @@ class ProductServiceTest {
     }
 
 
+    @Test
+    public void testDelete_PartiallySoldProduct() {
+        Seller seller = new Seller();
+        seller.setId(1);
+
+        // units of it were bought, so it has orders, but it is still for sale
+        Product product = new Product(1, "Product", 10.0, seller, null);
+        product.setSold(false);
+        product.setStock(2);
+
+        SellerSS sellerSS = new SellerSS();
+        sellerSS.setId(1);
+
+        try (MockedStatic<UserService> userService = Mockito.mockStatic(UserService.class)) {
+            userService.when(UserService::sellerAuthenticated).thenReturn(sellerSS);
+            when(sellerService.findById(1)).thenReturn(seller);
+            when(productRepo.findById(1)).thenReturn(Optional.of(product));
+            // kept, delisted, for its orders
+            when(productRepo.deleteUnsold(1, null, null, Collections.singletonList(1)))
+                    .thenReturn(Collections.singletonList(1));
+
+            productService.delete(1);
+
+            verify(productRepo, never()).deleteById(any());
+            verify(productSearch).remove(1);
+            verify(productFilter).remove(1);
+
+            // sold out by a purchase between the check and the delist
+            when(productRepo.deleteUnsold(1, null, null, Collections.singletonList(1)))
+                    .thenReturn(Collections.emptyList());
+            assertThrows(ProductHasAlreadyBeenSold.class, () -> productService.delete(1));
+        }
+    }
+
     @Test
     public void testFindAll_Success() {
         // Create mock products
         Product product1 = new Product();
         product1.setId(1);
         product1.setName("Product 1");
-        product1.setHasBeenSold("Unsold");
+        product1.setSold(false);
 
         Product product2 = new Product();
         product2.setId(2);
         product2.setName("Product 2");
-        product2.setHasBeenSold("Unsold");
+        product2.setSold(false);
 
         // Define behavior of mocked methods
-        when(productRepo.findByHasBeenSold("Unsold")).thenReturn(Arrays.asList(product1, product2));
+        when(productRepo.findUnsold()).thenReturn(Arrays.asList(product1, product2));
 
         // Call the method under test
         List<Product> products = productService.findAll();
@@ -344,6 +445,23 @@ class ProductServiceTest {
         assertEquals(Arrays.asList(product1, product2), products);
     }
 
+    @Test
+    public void testFindAllFiltered_KeepsTheFilterOrderAndSkipsDeletedProducts() {
+        Product product1 = new Product();
+        product1.setId(1);
+        Product product3 = new Product();
+        product3.setId(3);
+
+        when(productFilter.filter(10.0, 50.0, 7, "price", 0, 24)).thenReturn(Arrays.asList(3, 2, 1));
+        when(productRepo.findById(1)).thenReturn(Optional.of(product1));
+        when(productRepo.findById(2)).thenReturn(Optional.empty());
+        when(productRepo.findById(3)).thenReturn(Optional.of(product3));
+
+        List<Product> products = productService.findAll(10.0, 50.0, 7, "price", 0, 24);
+
+        assertEquals(Arrays.asList(product3, product1), products);
+    }
+
 
     @Test
     public void testFindOwnProducts_Success() {
@@ -397,7 +515,7 @@ class ProductServiceTest {
         product.setId(1);
         product.setName("Product 1");
         product.setProductOwner(seller);
-        product.setHasBeenSold("Unsold");
+        product.setSold(false);
         product.setPrice(100.0);
 
         // Create mock authenticated client
@@ -409,6 +527,8 @@ class ProductServiceTest {
             when(clientService.findById(clientSS.getId())).thenReturn(client);
             when(productRepo.findById(product.getId())).thenReturn(Optional.of(product));
             when(productRepo.save(product)).thenReturn(product);
+            when(productRepo.takeStock(product.getId(), 1)).thenReturn(0);
+            when(productRepo.lockIfSoldOut(product)).thenReturn(true);
 
             // Call the method under test
             Product boughtProduct = productService.buyProduct(product.getId());
@@ -416,6 +536,132 @@ class ProductServiceTest {
             // Assert that the product is successfully bought
             assertEquals("Sold", boughtProduct.hasBeenSold());
             assertEquals(client, boughtProduct.getBuyerOfTheProduct());
+            verify(orderRepo).insertAll(argThat(x -> x.size() == 1 && x.get(0).getQuantity() == 1
+                    && x.get(0).getProductOrder() == product && x.get(0).getBuyer() == client));
+            verify(productRepo).removeFromWishListWhenIsSold(product.getId());
+            verify(productSearch).remove(product.getId());
+            verify(productSuggest).remove(product.getId());
+            verify(productFilter).remove(product.getId());
+            verify(cache).evict(Product.class, product.getId());
+        }
+    }
+
+    @Test
+    public void testBuyProduct_UnitsLeftKeepTheProductForSale() {
+        Client client = new Client();
+        client.setId(1);
+        client.setHowMuchMoneyThisClientHasSpent(0.0);
+
+        Seller seller = new Seller();
+        seller.setId(1);
+        seller.setHowMuchMoneyThisSellerHasSold(0.0);
+
+        Product product = new Product(1, "Product 1", 10.0, seller, null);
+        product.setSold(false);
+
+        ClientSS clientSS = new ClientSS();
+        clientSS.setId(1);
+
+        try (MockedStatic<UserService> userService = Mockito.mockStatic(UserService.class)) {
+            userService.when(UserService::clientAuthenticated).thenReturn(clientSS);
+            when(clientService.findById(1)).thenReturn(client);
+            when(productRepo.findById(1)).thenReturn(Optional.of(product));
+            when(productRepo.save(product)).thenReturn(product);
+            when(productRepo.takeStock(1, 3)).thenReturn(2);
+
+            Product boughtProduct = productService.buyProduct(1, 3);
+
+            assertEquals("Unsold", boughtProduct.hasBeenSold());
+            assertNull(boughtProduct.getBuyerOfTheProduct());
+            // the totals are added in SQL, the entities are left alone
+            assertEquals(0.0, client.getHowMuchMoneyThisClientHasSpent());
+            assertEquals(0.0, seller.getHowMuchMoneyThisSellerHasSold());
+            verify(orderRepo).addToClientTotals(1, 1, 30.0);
+            verify(orderRepo).addToSellerTotals(argThat(x -> x.size() == 1 && x.get(1)[0] == 1 && x.get(1)[1] == 30.0));
+            verify(cache).evict(Client.class, 1);
+            verify(cache).evict(Seller.class, 1);
+            verify(userRankService).recordTotals(any(), any());
+            verify(productRepo, never()).lockIfSoldOut(any());
+            verifyNoInteractions(productSearch, productSuggest, productFilter);
+            verify(reservations).bought(1, 1, 3, false);
+        }
+    }
+
+    @Test
+    public void testBuyProduct_NothingLeavesTheTransactionBeforeItCommits() {
+        Client client = new Client();
+        client.setId(1);
+
+        Product product = new Product(1, "Product 1", 10.0, new Seller(), null);
+        product.setSold(false);
+
+        ClientSS clientSS = new ClientSS();
+        clientSS.setId(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try (MockedStatic<UserService> userService = Mockito.mockStatic(UserService.class)) {
+            userService.when(UserService::clientAuthenticated).thenReturn(clientSS);
+            when(clientService.findById(1)).thenReturn(client);
+            when(productRepo.findById(1)).thenReturn(Optional.of(product));
+            when(productRepo.save(product)).thenReturn(product);
+            when(productRepo.takeStock(1, 1)).thenReturn(0);
+            when(productRepo.lockIfSoldOut(product)).thenReturn(true);
+
+            productService.buyProduct(1, 1);
+
+            verify(orderRepo).insertAll(any());
+            verifyNoInteractions(productSearch, productSuggest, productFilter, userRankService, cache);
+            verify(reservations, never()).bought(anyInt(), anyInt(), anyInt(), anyBoolean());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(productSearch).remove(1);
+            verify(productFilter).remove(1);
+            verify(cache).evict(Product.class, 1);
+            verify(reservations).bought(1, 1, 1, true);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testBuyProduct_UnitsHeldByOtherBuyers() {
+        Product product = new Product(1, "Product 1", 10.0, new Seller(), null);
+        product.setSold(false);
+        product.setStock(1);
+
+        ClientSS clientSS = new ClientSS();
+        clientSS.setId(1);
+
+        try (MockedStatic<UserService> userService = Mockito.mockStatic(UserService.class)) {
+            userService.when(UserService::clientAuthenticated).thenReturn(clientSS);
+            when(productRepo.findById(1)).thenReturn(Optional.of(product));
+            doThrow(new ProductIsReservedException()).when(reservations).checkAvailable(1, 1, 1, 1);
+
+            assertThrows(ProductIsReservedException.class, () -> productService.buyProduct(1, 1));
+            verify(productRepo, never()).takeStock(anyInt(), anyInt());
+            verifyNoInteractions(clientService);
+        }
+    }
+
+    @Test
+    public void testBuyProduct_NotEnoughUnitsLeft() {
+        Product product = new Product(1, "Product 1", 10.0, new Seller(), null);
+        product.setSold(false);
+
+        ClientSS clientSS = new ClientSS();
+        clientSS.setId(1);
+
+        try (MockedStatic<UserService> userService = Mockito.mockStatic(UserService.class)) {
+            userService.when(UserService::clientAuthenticated).thenReturn(clientSS);
+            when(clientService.findById(1)).thenReturn(new Client());
+            when(productRepo.findById(1)).thenReturn(Optional.of(product));
+            when(productRepo.takeStock(1, 5)).thenReturn(-1);
+
+            ProductHasAlreadyBeenSold e = assertThrows(ProductHasAlreadyBeenSold.class,
+                    () -> productService.buyProduct(1, 5));
+            assertEquals("There are fewer than 5 units of the product left", e.getMessage());
+            assertThrows(InvalidParameterException.class, () -> productService.buyProduct(1, 0));
+            verify(productRepo, never()).save(any());
         }
     }
 
@@ -425,7 +671,7 @@ class ProductServiceTest {
         Product product = new Product();
         product.setId(1);
         product.setName("Product 1");
-        product.setHasBeenSold("Sold");
+        product.setSold(true);
         product.setBuyerOfTheProduct(new Client());
         product.setProductOwner(new Seller());
         product.setPrice(100.0);
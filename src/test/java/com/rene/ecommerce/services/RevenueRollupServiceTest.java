@@ -0,0 +1,178 @@
+package com.rene.ecommerce.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.SellerRevenue;
+import com.rene.ecommerce.domain.SellerRevenue.Granularity;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.SellerRevenueRepository;
+
+public class RevenueRollupServiceTest {
+
+    private static final long HOUR = 3600000L;
+    private static final long DAY = 86400000L;
+
+    @InjectMocks
+    private RevenueRollupService rollupService;
+
+    @Mock
+    private SellerRevenueRepository revenueRepo;
+
+    @Mock
+    private OrderRepository orderRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(rollupService, "retryMillis", 0L);
+        when(revenueRepo.lockForSales()).thenReturn(0);
+        when(revenueRepo.currentSnapshot()).thenReturn("10:12:");
+        when(revenueRepo.endedSince("10:12:")).thenReturn(true);
+    }
+
+    private Order order(Integer id, int quantity) {
+        Seller seller = new Seller();
+        seller.setId(2);
+        Product product = new Product(10, "Chair", 25.0, seller, "wood");
+        return new Order(id, new Date(DAY), product, new Client(), quantity);
+    }
+
+    @Test
+    public void testBucketStartIsTruncatedInUtc() {
+        Date instant = new Date(3 * DAY + 5 * HOUR + 1234L);
+
+        assertEquals(new Date(3 * DAY + 5 * HOUR), Granularity.HOUR.bucketStart(instant));
+        assertEquals(new Date(3 * DAY), Granularity.DAY.bucketStart(instant));
+    }
+
+    @Test
+    public void testRecordSale() {
+        Seller seller = new Seller();
+        seller.setId(2);
+        Product product = new Product(10, "Chair", 25.0, seller, "wood");
+        product.setBuyerOfTheProduct(new Client());
+        Order order = new Order(null, new Date(DAY + 2 * HOUR + 10L), product);
+
+        rollupService.recordSale(order);
+
+        verify(revenueRepo).addToBucket(2, "HOUR", new Date(DAY + 2 * HOUR), 25.0, 1);
+        verify(revenueRepo).addToBucket(2, "DAY", new Date(DAY), 25.0, 1);
+    }
+
+    @Test
+    public void testFindStatsOfSeller() {
+        Date from = new Date(0L);
+        Date to = new Date(7 * DAY);
+        List<SellerRevenue> buckets = Arrays.asList(new SellerRevenue(2, Granularity.DAY, new Date(0L), 25.0, 1));
+
+        when(revenueRepo.findBuckets(2, Granularity.DAY, from, to)).thenReturn(buckets);
+
+        assertEquals(buckets, rollupService.findStatsOfSeller(2, "day", from, to));
+        assertThrows(InvalidParameterException.class, () -> rollupService.findStatsOfSeller(2, "week", from, to));
+    }
+
+
+    @Test
+    public void testSalesWaitForARunningRebuild() {
+        when(revenueRepo.lockForSales()).thenReturn(null, null, 0);
+
+        rollupService.recordSale(order(5, 1));
+
+        verify(revenueRepo, times(3)).lockForSales();
+        verify(revenueRepo).addToBucket(2, "DAY", new Date(DAY), 25.0, 1);
+    }
+
+    @Test
+    public void testSalesTheRebuildReadAreNotAddedAgain() {
+        when(revenueRepo.lockForSales()).thenReturn(100);
+
+        rollupService.recordSales(Arrays.asList(order(100, 1), order(101, 2)));
+
+        verify(revenueRepo).addToBucket(2, "DAY", new Date(DAY), 50.0, 2);
+        verify(revenueRepo, times(2)).addToBucket(anyInt(), anyString(), any(), anyDouble(), anyInt());
+    }
+
+    @Test
+    public void testRebuildSplitsOrdersInChunks() {
+        when(orderRepo.findMaxId()).thenReturn(120000);
+        when(revenueRepo.rebuildChunk(anyString(), anyInt(), anyInt())).thenReturn(1);
+
+        // chunks of 50000 ids: [0, 50000), [50000, 100000), [100000, 120001) for each granularity
+        assertEquals(6, rollupService.rebuild());
+
+        InOrder inOrder = inOrder(revenueRepo, orderRepo);
+        inOrder.verify(revenueRepo).lockForRebuild();
+        inOrder.verify(revenueRepo).clearRebuild();
+        inOrder.verify(orderRepo).findMaxId();
+        inOrder.verify(revenueRepo).currentSnapshot();
+        inOrder.verify(revenueRepo).endedSince("10:12:");
+        verify(revenueRepo).rebuildChunk("DAY", 100000, 120001);
+        verify(revenueRepo).rebuildChunk("HOUR", 0, 50000);
+        verify(revenueRepo, times(6)).rebuildChunk(anyString(), anyInt(), anyInt());
+        verify(revenueRepo).swapInRebuild(120000);
+    }
+
+    @Test
+    public void testRebuildWaitsForTheRunningTransactions() {
+        when(orderRepo.findMaxId()).thenReturn(10);
+        when(revenueRepo.endedSince("10:12:")).thenReturn(false, false, true);
+
+        rollupService.rebuild();
+
+        verify(revenueRepo, times(3)).endedSince("10:12:");
+        verify(revenueRepo).swapInRebuild(10);
+    }
+
+    @Test
+    public void testRebuildGivesUpWaitingForTheRunningTransactions() {
+        ReflectionTestUtils.setField(rollupService, "waitMillis", 0L);
+        when(orderRepo.findMaxId()).thenReturn(10);
+        when(revenueRepo.endedSince("10:12:")).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> rollupService.rebuild());
+
+        verify(revenueRepo, never()).rebuildChunk(anyString(), anyInt(), anyInt());
+        verify(revenueRepo, never()).swapInRebuild(anyInt());
+    }
+
+    @Test
+    public void testAFailedRebuildKeepsTheBuckets() {
+        when(orderRepo.findMaxId()).thenReturn(10);
+        when(revenueRepo.rebuildChunk(anyString(), anyInt(), anyInt())).thenThrow(new IllegalStateException("down"));
+
+        assertThrows(IllegalStateException.class, () -> rollupService.rebuild());
+
+        verify(revenueRepo, never()).swapInRebuild(anyInt());
+    }
+}
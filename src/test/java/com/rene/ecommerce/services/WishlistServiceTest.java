@@ -8,6 +8,7 @@ import com.rene.ecommerce.exceptions.YouHaveAlreadyAddThisProductInYourWishlistE
 import com.rene.ecommerce.repositories.ClientRepository;
 import com.rene.ecommerce.repositories.ProductRepository;
 import com.rene.ecommerce.security.ClientSS;
+import com.rene.ecommerce.services.search.ProductSuggestService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -42,6 +43,9 @@ class WishlistServiceTest {
     @Mock
     private ProductRepository productRepo;
 
+    @Mock
+    private ProductSuggestService productSuggest;
+
     @BeforeEach
     public void setUp() {
         openMocks(this);
@@ -95,7 +99,7 @@ class WishlistServiceTest {
 
         Product product2 = new Product();
         product2.setId(102);
-        product2.setHasBeenSold("Sold");
+        product2.setSold(true);
         product2.setBuyerOfTheProduct(client);
 
         // Mock ClientSS to simulate authenticated client
@@ -114,6 +118,7 @@ class WishlistServiceTest {
             // and the repositories were called to save the changes
             verify(clientRepo).save(client);
             verify(productRepo).save(product);
+            verify(productSuggest).wished(product.getId(), 1);
 
             // assert that repeating adding an added product leads to an exception
             assertThrows(YouHaveAlreadyAddThisProductInYourWishlistException.class,
@@ -132,7 +137,7 @@ class WishlistServiceTest {
 
         Product product2 = new Product();
         product2.setId(102);
-        product2.setHasBeenSold("Sold");
+        product2.setSold(true);
         product2.setBuyerOfTheProduct(client);
 
         // Mock ClientSS to simulate authenticated client
@@ -164,11 +169,14 @@ class WishlistServiceTest {
             // Define productId to be removed from the wishlist
             Integer productId = 101;
 
+            when(productRepo.removeFromClientWishlist(productId, 1)).thenReturn(1);
+
             // Call the method under test
             wishlistService.delete(productId);
 
             // Assert that the product was removed from the client's wishlist by calling the appropriate repository method
             verify(productRepo).removeFromClientWishlist(productId, 1);
+            verify(productSuggest).wished(productId, -1);
         }
     }
 
@@ -3,11 +3,18 @@ package com.rene.ecommerce.services.details;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
@@ -17,6 +24,7 @@ import com.rene.ecommerce.repositories.ClientRepository;
 import com.rene.ecommerce.repositories.SellerRepository;
 import com.rene.ecommerce.security.ClientSS;
 import com.rene.ecommerce.security.SellerSS;
+import com.rene.ecommerce.security.UserSS;
 
 public class UserDetailsServiceImplTest {
 
@@ -76,4 +84,28 @@ public class UserDetailsServiceImplTest {
         assertEquals(seller.getEmail(), userDetails.getUsername());
         assertEquals(seller.getPassword(), userDetails.getPassword());
     }
+
+    @Test
+    public void loadUserByUsername_Admin() {
+        ReflectionTestUtils.setField(userDetailsService, "adminEmails", Collections.singleton("seller@example.com"));
+        Seller seller = new Seller();
+        seller.setId(1);
+        seller.setEmail("seller@example.com");
+        seller.setType("SELLER");
+        Client client = new Client();
+        client.setId(2);
+        client.setEmail("client@example.com");
+        client.setType("CLIENT");
+
+        when(sellerRepo.findByEmail("seller@example.com")).thenReturn(seller);
+        when(clientRepo.findByEmail("client@example.com")).thenReturn(client);
+
+        assertEquals(Arrays.asList("SELLER", UserSS.ADMIN), authorities("seller@example.com"));
+        assertEquals(Collections.singletonList("CLIENT"), authorities("client@example.com"));
+    }
+
+    private List<String> authorities(String email) {
+        return userDetailsService.loadUserByUsername(email).getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,197 @@
+package com.rene.ecommerce.services.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Provider;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.rene.ecommerce.domain.OutboxEmail;
+import com.rene.ecommerce.domain.OutboxEmail.Status;
+import com.rene.ecommerce.repositories.OutboxEmailRepository;
+
+public class EmailOutboxWorkerTest {
+
+    // SMTP stand-in: records the messages and how many connections were opened
+    public static class FakeTransport extends Transport {
+
+        static final List<String> SENT = Collections.synchronizedList(new ArrayList<>());
+        static int connections;
+
+        public FakeTransport(Session session, URLName urlname) {
+            super(session, urlname);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) {
+            connections++;
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message msg, Address[] addresses) throws MessagingException {
+            String to = addresses[0].toString();
+            if (to.startsWith("bounce")) {
+                throw new SendFailedException("Mailbox unavailable");
+            }
+            SENT.add(to);
+        }
+    }
+
+    @InjectMocks
+    private EmailOutboxWorker worker;
+
+    @Mock
+    private OutboxEmailRepository outboxRepo;
+
+    @Mock
+    private JavaMailSenderImpl mailSender;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private Session session;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        FakeTransport.SENT.clear();
+        FakeTransport.connections = 0;
+
+        session = Session.getInstance(new Properties());
+        session.setProvider(new Provider(Provider.Type.TRANSPORT, "smtp", FakeTransport.class.getName(), "test", "1"));
+        when(mailSender.getSession()).thenReturn(session);
+        when(mailSender.getProtocol()).thenReturn("smtp");
+        when(outboxRepo.saveAll(anyList())).thenAnswer(x -> x.getArgument(0));
+    }
+
+    private OutboxEmail email(Integer id, String to) throws Exception {
+        MimeMessage mm = new MimeMessage(session);
+        mm.setFrom(new InternetAddress("shop@example.com"));
+        mm.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+        mm.setSubject("Your order has been completed");
+        mm.setText("hello");
+        mm.saveChanges();
+
+        ByteArrayOutputStream mime = new ByteArrayOutputStream();
+        mm.writeTo(mime);
+
+        OutboxEmail email = new OutboxEmail(to, mm.getSubject(), mime.toByteArray(), new Date(0L));
+        email.setId(id);
+        return email;
+    }
+
+    @Test
+    public void testBatchIsSentOverOneConnection() throws Exception {
+        List<OutboxEmail> batch = Arrays.asList(email(1, "a@example.com"), email(2, "b@example.com"),
+                email(3, "c@example.com"));
+        when(outboxRepo.findDueForUpdate(any(Date.class), anyInt())).thenReturn(batch);
+        // claimed for the lease before any is sent
+        List<Date> leases = new ArrayList<>();
+        when(outboxRepo.saveAll(anyList())).thenAnswer(x -> {
+            List<OutboxEmail> saved = x.getArgument(0);
+            leases.add(saved.get(0).getClaimedUntil());
+            return saved;
+        });
+
+        long before = System.currentTimeMillis();
+        EmailOutboxWorker.Worker w = worker.newWorker();
+        assertEquals(3, w.drainOnce());
+        w.disconnect();
+
+        assertEquals(Arrays.asList("a@example.com", "b@example.com", "c@example.com"), FakeTransport.SENT);
+        assertEquals(1, FakeTransport.connections);
+        for (OutboxEmail email : batch) {
+            assertEquals(Status.SENT, email.getStatus());
+            assertEquals(1, email.getAttempts());
+            assertNotNull(email.getSentAt());
+            assertNull(email.getClaimedUntil());
+        }
+        assertTrue(leases.get(0).getTime() >= before + 600000L);
+        assertNull(leases.get(1));
+    }
+
+    @Test
+    public void testFailedMessageIsRetriedWithBackoff() throws Exception {
+        OutboxEmail bounce = email(1, "bounce@example.com");
+        OutboxEmail ok = email(2, "ok@example.com");
+        when(outboxRepo.findDueForUpdate(any(Date.class), anyInt())).thenReturn(Arrays.asList(bounce, ok));
+
+        long before = System.currentTimeMillis();
+        worker.newWorker().drainOnce();
+
+        assertEquals(Status.PENDING, bounce.getStatus());
+        assertEquals(1, bounce.getAttempts());
+        assertEquals("Mailbox unavailable", bounce.getLastError());
+        assertTrue(bounce.getNextAttemptAt().getTime() >= before + 30000L);
+        assertNull(bounce.getSentAt());
+
+        // a rejected recipient doesn't drop the connection
+        assertEquals(Status.SENT, ok.getStatus());
+        assertEquals(1, FakeTransport.connections);
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        OutboxEmail bounce = email(1, "bounce@example.com");
+        bounce.setAttempts(5);
+        when(outboxRepo.findDueForUpdate(any(Date.class), anyInt())).thenReturn(Arrays.asList(bounce));
+
+        worker.newWorker().drainOnce();
+
+        assertEquals(Status.FAILED, bounce.getStatus());
+        assertEquals(6, bounce.getAttempts());
+    }
+
+    @Test
+    public void testNothingDue() {
+        when(outboxRepo.findDueForUpdate(any(Date.class), anyInt())).thenReturn(Collections.emptyList());
+
+        assertEquals(0, worker.newWorker().drainOnce());
+        assertEquals(0, FakeTransport.connections);
+    }
+
+    @Test
+    public void testSentMessagesAreDeletedInBatches() {
+        when(outboxRepo.deleteSent(any(Date.class), anyInt())).thenReturn(1000, 1000, 3);
+
+        long before = System.currentTimeMillis();
+        worker.deleteSent();
+
+        verify(outboxRepo, times(3)).deleteSent(argThat(x -> x.getTime() <= before - 604800000L + 1000L), eq(1000));
+    }
+}
@@ -0,0 +1,95 @@
+package com.rene.ecommerce.services.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+
+public class EmailTemplatesTest {
+
+    private EmailTemplates emailTemplates;
+
+    @BeforeEach
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setCacheable(true);
+
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        emailTemplates = new EmailTemplates(2);
+        ReflectionTestUtils.setField(emailTemplates, "templateEngine", templateEngine);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        emailTemplates.stop();
+    }
+
+    private static Product product() {
+        Seller seller = new Seller();
+        seller.setName("Shop");
+        seller.setEmail("shop@example.com");
+
+        Client client = new Client();
+        client.setName("Ana");
+        client.setEmail("ana@example.com");
+
+        Product product = new Product(7, "Chair", 25.0, seller, "wood");
+        product.setBuyerOfTheProduct(client);
+        return product;
+    }
+
+    @Test
+    public void testRenderAllKeepsTheOrderOfTheTemplates() {
+        List<String> html = emailTemplates.renderAll(product(), EmailTemplates.CLIENT, EmailTemplates.SELLER);
+
+        assertEquals(2, html.size());
+        assertTrue(html.get(0).contains("Seller name: <span>Shop</span>"));
+        assertTrue(html.get(1).contains("Client name: <span>Ana</span>"));
+    }
+
+    @Test
+    public void testRenderTimeIsRecordedPerTemplate() {
+        emailTemplates.preload();
+        for (int i = 0; i < 100; i++) {
+            emailTemplates.renderAll(product(), EmailTemplates.CLIENT, EmailTemplates.SELLER);
+        }
+
+        EmailTemplates.Timing client = emailTemplates.getTiming(EmailTemplates.CLIENT);
+        assertEquals(101, client.getCount());
+        assertEquals(101, emailTemplates.getTiming(EmailTemplates.SELLER).getCount());
+        assertTrue(client.getAverageMicros() <= client.getMaxMicros());
+        assertEquals(0, emailTemplates.getTiming("email/Unknown").getCount());
+    }
+
+    @Test
+    public void testRenderSaleDigest() {
+        SaleDigest digest = new SaleDigest(1, "Shop", "shop@example.com");
+        for (int i = 0; i < SaleDigest.MAX_LISTED + 3; i++) {
+            digest.add(new SaleDigest.Sale(i, null, "Chair " + i, 2.0, "Ana"));
+        }
+
+        String html = emailTemplates.render(EmailTemplates.SELLER_DIGEST, "digest", digest);
+
+        assertTrue(html.contains("Products sold: <span>103</span>"));
+        assertTrue(html.contains("Total: <span>206.0</span>"));
+        assertTrue(html.contains("Chair 99"));
+        assertFalse(html.contains("Chair 100"));
+        assertTrue(html.contains("And <span>3</span> more"));
+    }
+}
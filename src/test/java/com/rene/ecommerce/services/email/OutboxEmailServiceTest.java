@@ -0,0 +1,70 @@
+package com.rene.ecommerce.services.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.util.Properties;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import com.rene.ecommerce.domain.OutboxEmail;
+import com.rene.ecommerce.domain.OutboxEmail.Status;
+import com.rene.ecommerce.repositories.OutboxEmailRepository;
+
+public class OutboxEmailServiceTest {
+
+    @Mock
+    private JavaMailSender javaMailSender;
+
+    @Mock
+    private OutboxEmailRepository outboxRepo;
+
+    @InjectMocks
+    private OutboxEmailService outboxEmailService;
+
+    private final Session session = Session.getInstance(new Properties());
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(javaMailSender.createMimeMessage()).thenReturn(new MimeMessage(session));
+    }
+
+    @Test
+    public void testSendEmailIsWrittenToTheOutbox() throws Exception {
+        SimpleMailMessage msg = new SimpleMailMessage();
+        msg.setTo("client@example.com");
+        msg.setFrom("shop@example.com");
+        msg.setSubject("New password");
+        msg.setText("New password: abc");
+
+        outboxEmailService.sendEmail(msg);
+
+        ArgumentCaptor<OutboxEmail> saved = ArgumentCaptor.forClass(OutboxEmail.class);
+        verify(outboxRepo).save(saved.capture());
+
+        OutboxEmail email = saved.getValue();
+        assertEquals("client@example.com", email.getRecipient());
+        assertEquals("New password", email.getSubject());
+        assertEquals(Status.PENDING, email.getStatus());
+        assertEquals(0, email.getAttempts());
+
+        // the stored bytes are a complete message the worker can send as is
+        MimeMessage stored = new MimeMessage(session, new ByteArrayInputStream(email.getMime()));
+        assertEquals("New password", stored.getSubject());
+        assertTrue(stored.getContent().toString().contains("New password: abc"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.rene.ecommerce.services.email;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.Order;
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.OrderExportDTO;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.SellerRepository;
+
+public class SaleDigestServiceTest {
+
+    @InjectMocks
+    private SaleDigestService saleDigestService;
+
+    @Mock
+    private SellerRepository sellerRepo;
+
+    @Mock
+    private OrderRepository orderRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Seller seller(Integer id, Boolean digest) {
+        Seller seller = new Seller();
+        seller.setId(id);
+        seller.setName("Shop " + id);
+        seller.setEmail("shop" + id + "@example.com");
+        seller.setSaleDigest(digest);
+        return seller;
+    }
+
+    private static Order order(Integer id, Seller seller, double price) {
+        Client client = new Client();
+        client.setName("Ana");
+        Product product = new Product(id + 100, "Chair", price, seller, "wood");
+        product.setBuyerOfTheProduct(client);
+
+        return new Order(id, new Date(0L), product);
+    }
+
+    @Test
+    public void testOnlySellersWithTheDigestAreBuffered() {
+        Seller digest = seller(1, true);
+        Seller perSale = seller(2, null);
+
+        saleDigestService.recordSale(order(10, digest, 20.0));
+        saleDigestService.recordSale(order(11, digest, 5.0));
+        saleDigestService.recordSale(order(11, digest, 5.0));
+        saleDigestService.recordSale(order(12, perSale, 7.0));
+
+        List<SaleDigest> digests = saleDigestService.drain();
+        assertEquals(1, digests.size());
+        assertEquals(1, digests.get(0).getSellerId());
+        assertEquals("shop1@example.com", digests.get(0).getSellerEmail());
+        assertEquals(2, digests.get(0).getCount());
+        assertEquals(25.0, digests.get(0).getTotal());
+        assertEquals(11, digests.get(0).getLastOrderId());
+
+        assertTrue(saleDigestService.drain().isEmpty());
+    }
+
+    @Test
+    public void testRequeueKeepsSalesForTheNextDigest() {
+        Seller digest = seller(1, true);
+        saleDigestService.recordSale(order(10, digest, 20.0));
+        SaleDigest failed = saleDigestService.drain().get(0);
+
+        saleDigestService.recordSale(order(11, digest, 5.0));
+        saleDigestService.requeue(failed);
+
+        List<SaleDigest> digests = saleDigestService.drain();
+        assertEquals(1, digests.size());
+        assertEquals(2, digests.get(0).getCount());
+    }
+
+    @Test
+    public void testMarkSentMovesTheWatermark() {
+        saleDigestService.recordSale(order(10, seller(1, true), 20.0));
+
+        saleDigestService.markSent(saleDigestService.drain().get(0));
+
+        verify(sellerRepo).advanceSaleDigest(1, 10);
+    }
+
+    @Test
+    public void testRecoverRebuildsUnsentSales() {
+        Seller seller = seller(1, true);
+        seller.setSaleDigestLastOrderId(9);
+        OrderExportDTO sale = new OrderExportDTO() {
+            public Integer getOrderId() { return 10; }
+            public Date getPlacedAt() { return new Date(0L); }
+            public Integer getProductId() { return 110; }
+            public String getProductName() { return "Chair"; }
+            public Double getPrice() { return 20.0; }
+            public Integer getBuyerId() { return 7; }
+            public String getBuyerName() { return "Ana"; }
+        };
+        when(sellerRepo.findBySaleDigestTrue()).thenReturn(Arrays.asList(seller));
+        when(orderRepo.findSalesOfSellerAfter(1, 9)).thenReturn(Arrays.asList(sale));
+
+        saleDigestService.recover();
+
+        List<SaleDigest> digests = saleDigestService.drain();
+        assertEquals(1, digests.size());
+        assertEquals("Chair", digests.get(0).getListedSales().get(0).getProductName());
+    }
+
+    @Test
+    public void testUpdateSaleDigest() {
+        when(orderRepo.findMaxId()).thenReturn(42);
+
+        saleDigestService.updateSaleDigest(1, true);
+
+        verify(sellerRepo).updateSaleDigest(1, true, 42);
+    }
+}
@@ -0,0 +1,91 @@
+package com.rene.ecommerce.services.ranking;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.SellerRankingDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.services.RankingService;
+import com.rene.ecommerce.services.ranking.RankingResponseCache.CachedJson;
+
+public class RankingResponseCacheTest {
+
+    @InjectMocks
+    private RankingResponseCache rankingCache;
+
+    @Mock
+    private RankingService ranking;
+
+    @Spy
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void testRendersOnceAndServesTheSameBytes() {
+        when(ranking.returnRankingClient(null))
+                .thenReturn(Arrays.asList(new ClientRankingDTO(1, "Ana", 2, 30.0)));
+
+        CachedJson first = rankingCache.clients(null);
+        CachedJson second = rankingCache.clients(null);
+
+        assertSame(first, second);
+        assertEquals("[{\"id\":1,\"name\":\"Ana\",\"sellsOrBuys\":2,\"money\":30.0}]",
+                new String(first.getBody(), StandardCharsets.UTF_8));
+        assertEquals(34, first.getEtag().length());
+        verify(ranking, times(1)).returnRankingClient(null);
+    }
+
+    @Test
+    public void testRefreshReplacesChangedRankings() {
+        when(ranking.returnRankingSeller("WEEKLY"))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(Arrays.asList(new SellerRankingDTO(3, "Shop", 1, 10.0)));
+
+        CachedJson before = rankingCache.sellers("weekly");
+        rankingCache.refresh();
+        CachedJson after = rankingCache.sellers("WEEKLY");
+
+        assertArrayEquals("[]".getBytes(StandardCharsets.UTF_8), before.getBody());
+        assertNotEquals(before.getEtag(), after.getEtag());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsThePreviousBytes() {
+        when(ranking.returnRankingClient(null))
+                .thenReturn(Collections.emptyList())
+                .thenThrow(new IllegalStateException("database down"));
+
+        CachedJson before = rankingCache.clients(null);
+        rankingCache.refresh();
+
+        assertSame(before, rankingCache.clients(null));
+    }
+
+    @Test
+    public void testInvalidWindow() {
+        assertThrows(InvalidParameterException.class, () -> rankingCache.clients("yearly"));
+    }
+}
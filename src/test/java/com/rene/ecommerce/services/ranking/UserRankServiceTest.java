@@ -0,0 +1,186 @@
+package com.rene.ecommerce.services.ranking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.RankedUserDTO;
+import com.rene.ecommerce.domain.dto.ranking.UserRankDTO;
+import com.rene.ecommerce.domain.users.Client;
+import com.rene.ecommerce.repositories.ClientRepository;
+import com.rene.ecommerce.repositories.SellerRepository;
+
+public class UserRankServiceTest {
+
+    @InjectMocks
+    private UserRankService rankService;
+
+    @Mock
+    private ClientRepository clientRepo;
+
+    @Mock
+    private SellerRepository sellerRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Client client(Integer id, String name, int buys, double money) {
+        Client client = new Client();
+        client.setId(id);
+        client.setName(name);
+        client.setNumberOfBuys(buys);
+        client.setHowMuchMoneyThisClientHasSpent(money);
+        return client;
+    }
+
+    private static RankedUserDTO totals(Integer id, String name, int sellsOrBuys, double money) {
+        return new RankedUserDTO() {
+
+            public Integer getId() {
+                return id;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public Integer getSellsOrBuys() {
+                return sellsOrBuys;
+            }
+
+            public Double getMoney() {
+                return money;
+            }
+        };
+    }
+
+
+    @Test
+    public void testIndexMatchesSortedOrder() {
+        RankIndex index = new RankIndex();
+        Map<Integer, Integer> counts = new HashMap<>();
+        Map<Integer, Double> money = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            int id = random.nextInt(500);
+            double value = random.nextInt(50);
+            if (counts.containsKey(id) && random.nextInt(10) == 0) {
+                // an older total arriving late moves nobody
+                assertFalse(index.putIfNewer(id, "User " + id, counts.get(id) - 1, value));
+            } else {
+                int count = counts.merge(id, 1, Integer::sum);
+                assertTrue(index.putIfNewer(id, "User " + id, count, value));
+                money.put(id, value);
+            }
+        }
+
+        List<Integer> sorted = new ArrayList<>(money.keySet());
+        sorted.sort(Comparator.comparing((Integer id) -> -money.get(id)).thenComparing(id -> id));
+
+        assertEquals(sorted.size(), index.size());
+        for (int r = 0; r < sorted.size(); r++) {
+            RankIndex.Slice slice = index.around(sorted.get(r), 1);
+            assertEquals(r + 1, slice.getRank());
+            if (r > 0) {
+                assertEquals(sorted.get(r - 1), slice.getEntries().get(0).getId());
+            }
+        }
+    }
+
+    @Test
+    public void testFindRankOfClient() {
+        when(clientRepo.findById(2)).thenReturn(Optional.of(client(2, "Bob", 2, 50.0)));
+
+        // Bob isn't indexed yet, so he is read once from the repository
+        UserRankDTO<ClientRankingDTO> rank = rankService.findRankOfClient(2, null);
+        assertEquals(1, rank.getRank());
+        assertEquals(1, rank.getRankedUsers());
+        assertEquals("Bob", rank.getUser().getName());
+        assertTrue(rank.getAbove().isEmpty());
+
+        verify(clientRepo).findById(2);
+    }
+
+    @Test
+    public void testNeighborsOfClient() {
+        for (int i = 1; i <= 6; i++) {
+            when(clientRepo.findById(i)).thenReturn(Optional.of(client(i, "Client " + i, 1, i * 10.0)));
+        }
+
+        for (int i = 1; i <= 6; i++) {
+            rankService.findRankOfClient(i, 0);
+        }
+
+        UserRankDTO<ClientRankingDTO> rank = rankService.findRankOfClient(3, 2);
+
+        assertEquals(4, rank.getRank());
+        assertEquals(6, rank.getRankedUsers());
+        assertEquals(30.0, rank.getUser().getMoney());
+        assertEquals(2, rank.getAbove().size());
+        assertEquals(50.0, rank.getAbove().get(0).getMoney());
+        assertEquals(40.0, rank.getAbove().get(1).getMoney());
+        assertEquals(2, rank.getBelow().size());
+        assertEquals(10.0, rank.getBelow().get(1).getMoney());
+    }
+
+    @Test
+    public void testClientWithoutPurchasesSharesTheLastRank() {
+        when(clientRepo.findById(1)).thenReturn(Optional.of(client(1, "Ana", 1, 10.0)));
+        when(clientRepo.findById(2)).thenReturn(Optional.of(client(2, "Bob", 0, 0.0)));
+
+        rankService.findRankOfClient(1, 0);
+        rankService.findRankOfClient(2, 1);
+        UserRankDTO<ClientRankingDTO> rank = rankService.findRankOfClient(2, 1);
+
+        assertEquals(2, rank.getRank());
+        assertEquals(1, rank.getRankedUsers());
+        assertEquals("Bob", rank.getUser().getName());
+        assertEquals("Ana", rank.getAbove().get(0).getName());
+        assertTrue(rank.getBelow().isEmpty());
+        // read once, then known to be unranked
+        verify(clientRepo).findById(2);
+
+        rankService.recordTotals(totals(2, "Bob", 1, 20.0), Collections.emptyList());
+        assertEquals(1, rankService.findRankOfClient(2, 0).getRank());
+    }
+
+    @Test
+    public void testOlderTotalsArrivingLateAreIgnored() {
+        rankService.recordTotals(totals(1, "Ana", 3, 30.0),
+                Collections.singletonList(totals(5, "Shop", 7, 70.0)));
+        rankService.recordTotals(totals(1, "Ana", 2, 20.0),
+                Collections.singletonList(totals(5, "Shop", 6, 60.0)));
+        when(clientRepo.findById(2)).thenReturn(Optional.of(client(2, "Bob", 1, 25.0)));
+        rankService.findRankOfClient(2, 0);
+
+        UserRankDTO<ClientRankingDTO> rank = rankService.findRankOfClient(1, 1);
+        assertEquals(1, rank.getRank());
+        assertEquals(30.0, rank.getUser().getMoney());
+        assertEquals(3, rank.getUser().getSellsOrBuys());
+        assertEquals(70.0, rankService.findRankOfSeller(5, 0).getUser().getMoney());
+        verify(sellerRepo, never()).findById(5);
+    }
+
+}
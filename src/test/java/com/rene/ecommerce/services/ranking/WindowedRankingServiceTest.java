@@ -0,0 +1,126 @@
+package com.rene.ecommerce.services.ranking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.RankingSnapshot;
+import com.rene.ecommerce.domain.dto.ranking.ClientRankingDTO;
+import com.rene.ecommerce.domain.dto.ranking.SellerRankingDTO;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.OrderRepository;
+import com.rene.ecommerce.repositories.RankingSnapshotRepository;
+
+public class WindowedRankingServiceTest {
+
+    private static final long DAY = 86400000L;
+
+    @InjectMocks
+    private WindowedRankingService rankingService;
+
+    @Mock
+    private OrderRepository orderRepo;
+
+    @Mock
+    private RankingSnapshotRepository snapshotRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Date daysAgo(long days) {
+        return new Date(System.currentTimeMillis() - days * DAY);
+    }
+
+    @Test
+    public void testTopClientsOfEachWindow() {
+        // client 1: one old big purchase, client 2: two recent small ones
+        rankingService.recordPurchase(1, "Ana", 10, "Shop", 100.0, daysAgo(20));
+        rankingService.recordPurchase(2, "Bob", 10, "Shop", 30.0, daysAgo(3));
+        rankingService.recordPurchase(2, "Bob", 10, "Shop", 20.0, daysAgo(0));
+
+        rankingService.rotate();
+
+        List<ClientRankingDTO> daily = rankingService.topClients(RankingWindow.DAILY);
+        assertEquals(1, daily.size());
+        assertEquals("Bob", daily.get(0).getName());
+        assertEquals(20.0, daily.get(0).getMoney());
+
+        List<ClientRankingDTO> weekly = rankingService.topClients(RankingWindow.WEEKLY);
+        assertEquals(1, weekly.size());
+        assertEquals(2, weekly.get(0).getSellsOrBuys());
+        assertEquals(50.0, weekly.get(0).getMoney());
+
+        List<ClientRankingDTO> monthly = rankingService.topClients(RankingWindow.MONTHLY);
+        assertEquals(2, monthly.size());
+        assertEquals("Ana", monthly.get(0).getName());
+        assertEquals("Bob", monthly.get(1).getName());
+
+        List<SellerRankingDTO> sellers = rankingService.topSellers(RankingWindow.MONTHLY);
+        assertEquals(1, sellers.size());
+        assertEquals(3, sellers.get(0).getSellsOrBuys());
+        assertEquals(150.0, sellers.get(0).getMoney());
+    }
+
+    @Test
+    public void testKeepsOnlyTheTopTen() {
+        for (int i = 1; i <= WindowedRankingService.TOP + 5; i++) {
+            rankingService.recordPurchase(i, "Client " + i, 100 + i, "Seller " + i, (double) i, daysAgo(0));
+        }
+
+        rankingService.rotate();
+
+        List<ClientRankingDTO> daily = rankingService.topClients(RankingWindow.DAILY);
+        assertEquals(WindowedRankingService.TOP, daily.size());
+        assertEquals(15.0, daily.get(0).getMoney());
+        assertEquals(6.0, daily.get(WindowedRankingService.TOP - 1).getMoney());
+    }
+
+    @Test
+    public void testPurchasesOlderThanAMonthAreEvicted() {
+        rankingService.recordPurchase(1, "Ana", 10, "Shop", 100.0, daysAgo(40));
+
+        rankingService.rotate();
+
+        assertTrue(rankingService.topClients(RankingWindow.MONTHLY).isEmpty());
+        assertTrue(rankingService.topSellers(RankingWindow.MONTHLY).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTakeSnapshot() {
+        rankingService.recordPurchase(1, "Ana", 10, "Shop", 100.0, daysAgo(0));
+        rankingService.rotate();
+
+        rankingService.takeSnapshot();
+
+        ArgumentCaptor<List<RankingSnapshot>> rows = ArgumentCaptor.forClass(List.class);
+        verify(snapshotRepo).saveAll(rows.capture());
+
+        // one client and one seller row for each of the three windows
+        assertEquals(6, rows.getValue().size());
+        RankingSnapshot first = rows.getValue().get(0);
+        assertEquals(WindowedRankingService.CLIENT_BOARD, first.getBoard());
+        assertEquals("DAILY", first.getWindow());
+        assertEquals(1, first.getPosition());
+        assertEquals("Ana", first.getName());
+    }
+
+    @Test
+    public void testParseWindow() {
+        assertEquals(RankingWindow.WEEKLY, RankingWindow.parse("weekly"));
+        assertThrows(InvalidParameterException.class, () -> RankingWindow.parse("yearly"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.rene.ecommerce.services.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.exceptions.ProductHasAlreadyBeenSold;
+import com.rene.ecommerce.exceptions.ProductIsReservedException;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+public class ReservationServiceTest {
+
+    @InjectMocks
+    private ReservationService reservations;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(productRepo.findById(1)).thenReturn(Optional.of(product(1, 3)));
+        when(productRepo.findById(2)).thenReturn(Optional.of(product(2, 1)));
+    }
+
+    private static Product product(Integer id, int stock) {
+        Product product = new Product(id, "Product " + id, 10.0, null, null);
+        product.setSold(false);
+        product.setStock(stock);
+        return product;
+    }
+
+    @Test
+    public void testHoldsAreBoundedByTheStock() {
+        assertEquals(2, reservations.reserve(10, 1, 2).getQuantity());
+        assertThrows(ProductIsReservedException.class, () -> reservations.reserve(11, 1, 2));
+        assertEquals(1, reservations.reserve(11, 1, 1).getQuantity());
+
+        // a client's new hold replaces the old one
+        assertEquals(1, reservations.reserve(10, 1, 1).getQuantity());
+        assertEquals(1, reservations.held(10, 1));
+        assertEquals(1, reservations.reserve(12, 1, null).getQuantity());
+
+        assertThrows(ProductHasAlreadyBeenSold.class, () -> reservations.reserve(10, 2, 2));
+        assertThrows(InvalidParameterException.class, () -> reservations.reserve(10, 2, 0));
+    }
+
+    @Test
+    public void testOnlyTheHolderCanBuyHeldUnits() {
+        reservations.reserve(10, 2, 1);
+
+        assertThrows(ProductIsReservedException.class, () -> reservations.checkAvailable(11, 2, 1, 1));
+        assertDoesNotThrow(() -> reservations.checkAvailable(10, 2, 1, 1));
+        // not reserved at all
+        assertDoesNotThrow(() -> reservations.checkAvailable(11, 1, 3, 3));
+
+        reservations.bought(10, 2, 1, true);
+        assertEquals(0, reservations.size());
+        assertDoesNotThrow(() -> reservations.checkAvailable(11, 2, 1, 1));
+    }
+
+    @Test
+    public void testBuyingPartOfAHoldKeepsTheRest() {
+        reservations.reserve(10, 1, 3);
+        reservations.bought(10, 1, 1, false);
+
+        assertEquals(2, reservations.held(10, 1));
+        assertThrows(ProductIsReservedException.class, () -> reservations.checkAvailable(11, 1, 1, 2));
+
+        reservations.bought(10, 1, 2, false);
+        assertEquals(0, reservations.size());
+    }
+
+    @Test
+    public void testReleasedAndExpiredHoldsFreeTheUnits() {
+        reservations.reserve(10, 2, 1);
+        reservations.release(10, 2);
+        assertEquals(1, reservations.reserve(11, 2, 1).getQuantity());
+
+        ReflectionTestUtils.setField(reservations, "ttlMillis", -1L);
+        reservations.reserve(10, 1, 3);
+        assertEquals(0, reservations.held(10, 1));
+        assertDoesNotThrow(() -> reservations.reserve(12, 1, 3));
+    }
+
+    @Test
+    public void testTheWheelHandsBackItemsWhenDue() {
+        TimerWheel<String> wheel = new TimerWheel<>(8, 100, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 250 + 8 * 100);
+        wheel.schedule("c", 50);
+        wheel.schedule("d", 5000);
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(1, wheel.advance(150, expired::add));
+        assertEquals(0, wheel.advance(240, expired::add));
+        assertEquals(1, wheel.advance(300, expired::add));
+        assertEquals(2, wheel.size());
+
+        // far behind: every bucket is visited once
+        assertEquals(2, wheel.advance(10000, expired::add));
+        assertEquals("[c, a, b, d]", expired.toString());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,206 @@
+package com.rene.ecommerce.services.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.PricedProductDTO;
+import com.rene.ecommerce.domain.users.Seller;
+import com.rene.ecommerce.exceptions.InvalidParameterException;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+public class ProductFilterServiceTest {
+
+    @InjectMocks
+    private ProductFilterService filterService;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Product product(Integer id, Double price, Integer sellerId) {
+        Seller seller = new Seller();
+        seller.setId(sellerId);
+        Product product = new Product(id, "Product " + id, price, seller, null);
+        product.setSold(false);
+        return product;
+    }
+
+    private static PricedProductDTO row(Integer id, Double price, Integer sellerId) {
+        return new PricedProductDTO() {
+
+            public Integer getId() {
+                return id;
+            }
+
+            public Double getPrice() {
+                return price;
+            }
+
+            public Integer getSellerId() {
+                return sellerId;
+            }
+        };
+    }
+
+    @Test
+    public void testColumnsMatchABruteForceFilter() {
+        ProductColumns columns = new ProductColumns();
+        Map<Integer, long[]> live = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(3000) + 1;
+            if (i % 100 == 0) {
+                // a batch, which may write the same id twice
+                int k = random.nextInt(200);
+                int[] ids = new int[k];
+                long[] prices = new long[k];
+                int[] sellers = new int[k];
+                for (int x = 0; x < k; x++) {
+                    ids[x] = random.nextInt(3000) + 1;
+                    prices[x] = random.nextInt(50) * 100;
+                    sellers[x] = random.nextInt(5) + 1;
+                    live.put(ids[x], new long[] { prices[x], sellers[x] });
+                }
+                columns.putAll(ids, prices, sellers, k);
+            } else if (i % 100 == 50) {
+                int k = random.nextInt(100);
+                int[] ids = new int[k];
+                for (int x = 0; x < k; x++) {
+                    ids[x] = random.nextInt(3000) + 1;
+                    live.remove(ids[x]);
+                }
+                columns.removeAll(ids, k);
+            } else if (random.nextInt(4) == 0) {
+                columns.remove(id);
+                live.remove(id);
+            } else {
+                long price = random.nextInt(50) * 100;
+                int seller = random.nextInt(5) + 1;
+                columns.put(id, price, seller);
+                live.put(id, new long[] { price, seller });
+            }
+        }
+
+        assertEquals(live.size(), columns.size());
+
+        for (int k = 0; k < 200; k++) {
+            long min = random.nextInt(60) * 100 - 500;
+            long max = min + random.nextInt(3000);
+            int seller = random.nextInt(6);
+            int offset = random.nextInt(40);
+            int limit = random.nextInt(30) + 1;
+
+            List<Map.Entry<Integer, long[]>> matches = live.entrySet().stream()
+                    .filter(x -> x.getValue()[0] >= min && x.getValue()[0] <= max)
+                    .filter(x -> seller == 0 || x.getValue()[1] == seller).collect(Collectors.toList());
+
+            Comparator<Map.Entry<Integer, long[]>> byPrice = Comparator
+                    .<Map.Entry<Integer, long[]>> comparingLong(x -> x.getValue()[0])
+                    .thenComparing(Map.Entry::getKey);
+
+            assertEquals(page(matches, Map.Entry.comparingByKey(), offset, limit),
+                    ids(columns.select(min, max, seller, ProductColumns.Order.ID, offset, limit)));
+            assertEquals(page(matches, byPrice, offset, limit),
+                    ids(columns.select(min, max, seller, ProductColumns.Order.PRICE, offset, limit)));
+            assertEquals(page(matches, byPrice.reversed(), offset, limit),
+                    ids(columns.select(min, max, seller, ProductColumns.Order.PRICE_DESC, offset, limit)));
+        }
+    }
+
+    private static List<Integer> page(List<Map.Entry<Integer, long[]>> matches,
+            Comparator<Map.Entry<Integer, long[]>> order, int offset, int limit) {
+        return matches.stream().sorted(order).skip(offset).limit(limit).map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFilterByPriceAndSeller() {
+        filterService.put(product(1, 19.99, 1));
+        filterService.put(product(2, 5.0, 2));
+        filterService.put(product(3, 20.0, 1));
+        filterService.put(product(4, null, 1));
+
+        assertEquals(Arrays.asList(1, 2, 3, 4), filterService.filter(null, null, null, null, null, null));
+        assertEquals(Arrays.asList(1, 3), filterService.filter(10.0, 20.0, null, null, null, null));
+        assertEquals(Arrays.asList(4, 1, 3), filterService.filter(null, null, 1, "price", null, null));
+        assertEquals(Arrays.asList(3, 1, 2), filterService.filter(0.01, null, null, "-price", null, null));
+        assertEquals(Collections.singletonList(2), filterService.filter(null, 19.98, 2, null, null, null));
+        assertTrue(filterService.filter(30.0, 10.0, null, null, null, null).isEmpty());
+    }
+
+    @Test
+    public void testPaging() {
+        for (int i = 1; i <= 60; i++) {
+            filterService.put(product(i, 100.0 - i, 1));
+        }
+
+        assertEquals(ProductFilterService.DEFAULT_PAGE_SIZE, filterService.filter(null, null, null, null, null, null).size());
+        assertEquals(Arrays.asList(60, 59, 58), filterService.filter(null, null, null, "price", 0, 3));
+        assertEquals(Arrays.asList(57, 56, 55), filterService.filter(null, null, null, "price", 1, 3));
+        assertEquals(Arrays.asList(51, 52, 53, 54, 55), filterService.filter(null, null, null, "id", 10, 5));
+        assertTrue(filterService.filter(null, null, null, null, 3, 20).isEmpty());
+        assertThrows(InvalidParameterException.class, () -> filterService.filter(null, null, null, "name", null, null));
+    }
+
+    @Test
+    public void testRepriceSellAndDelete() {
+        filterService.put(product(1, 10.0, 1));
+        filterService.put(product(2, 20.0, 1));
+
+        filterService.put(product(1, 30.0, 1));
+        assertEquals(Arrays.asList(2, 1), filterService.filter(null, null, null, "price", null, null));
+
+        Product sold = product(2, 20.0, 1);
+        sold.setSold(true);
+        filterService.put(sold);
+        filterService.remove(3);
+        assertEquals(Collections.singletonList(1), filterService.filter(null, null, null, null, null, null));
+
+        filterService.remove(1);
+        assertEquals(0, filterService.size());
+    }
+
+    @Test
+    public void testRebuildReadsEveryChunk() {
+        when(productRepo.findMaxId()).thenReturn(120000);
+        when(productRepo.findPricedChunk(anyInt(), anyInt())).thenReturn(Collections.emptyList());
+        when(productRepo.findPricedChunk(0, 50000)).thenReturn(Arrays.asList(row(1, 15.0, 1), row(2, 5.0, 2)));
+        when(productRepo.findPricedChunk(100000, 120001)).thenReturn(Arrays.asList(row(100001, 10.0, 1)));
+
+        filterService.put(product(7, 1.0, 1));
+        assertEquals(3, filterService.rebuild());
+
+        verify(productRepo, times(3)).findPricedChunk(anyInt(), anyInt());
+        assertEquals(Arrays.asList(2, 100001, 1), filterService.filter(null, null, null, "price", null, null));
+    }
+}
@@ -0,0 +1,171 @@
+package com.rene.ecommerce.services.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.ProductSearchDTO;
+import com.rene.ecommerce.domain.dto.SearchableProductDTO;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+public class ProductSearchServiceTest {
+
+    @InjectMocks
+    private ProductSearchService searchService;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Product product(Integer id, String name, String description) {
+        Product product = new Product(id, name, 10.0, null, description);
+        product.setSold(false);
+        return product;
+    }
+
+    private static SearchableProductDTO row(Integer id, String name, String description) {
+        return new SearchableProductDTO() {
+
+            public Integer getId() {
+                return id;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public String getDescription() {
+                return description;
+            }
+
+            public Double getPrice() {
+                return 10.0;
+            }
+        };
+    }
+
+    private List<Integer> ids(String query) {
+        return searchService.search(query, null).stream().map(ProductSearchDTO::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSearchByNameAndDescription() {
+        searchService.put(product(1, "Wooden chair", "Solid oak"));
+        searchService.put(product(2, "Table", "Goes well with a wooden chair"));
+        searchService.put(product(3, "Lamp", "Bright"));
+
+        // an occurrence in the name weighs more than one in the description
+        assertEquals(Arrays.asList(1, 2), ids("chair"));
+        assertEquals(Arrays.asList(1, 2), ids("WOODEN Chair"));
+        assertEquals(Collections.singletonList(1), ids("oak chair"));
+        assertTrue(ids("sofa").isEmpty());
+        assertTrue(ids("  ").isEmpty());
+    }
+
+    @Test
+    public void testPrefixAndAccents() {
+        searchService.put(product(1, "Cadeira de escritório", null));
+        searchService.put(product(2, "Chair", null));
+        searchService.put(product(3, "Chairs", null));
+
+        assertEquals(Collections.singletonList(1), ids("escrit"));
+        assertEquals(Collections.singletonList(1), ids("escritorio"));
+        // the exact term scores above the terms it is a prefix of
+        assertEquals(Arrays.asList(2, 3), ids("chair"));
+        assertEquals(Arrays.asList(2, 3), ids("cha"));
+        // a single letter isn't expanded
+        assertTrue(ids("c").isEmpty());
+    }
+
+    @Test
+    public void testUpdateSellAndDelete() {
+        searchService.put(product(1, "Red bike", null));
+        searchService.put(product(2, "Blue bike", null));
+
+        searchService.put(product(1, "Green bike", null));
+        assertTrue(ids("red").isEmpty());
+        assertEquals(Collections.singletonList(1), ids("green"));
+
+        Product sold = product(2, "Blue bike", null);
+        sold.setSold(true);
+        searchService.put(sold);
+        assertEquals(Collections.singletonList(1), ids("bike"));
+
+        searchService.remove(1);
+        assertTrue(ids("bike").isEmpty());
+        assertEquals(0, searchService.size());
+    }
+
+    @Test
+    public void testRemovingKeepsTheOtherPostingsFindable() {
+        for (int i = 1; i <= 8; i++) {
+            searchService.put(product(i, "Bike " + (i % 2 == 0 ? "red" : "blue"), "Bike number " + i));
+        }
+
+        // from the middle, the end and the start of the postings, and an update in between
+        searchService.remove(4);
+        searchService.remove(8);
+        searchService.put(product(3, "Bike green", "Bike number 3"));
+        searchService.remove(1);
+
+        assertEquals(Arrays.asList(2, 3, 5, 6, 7), ids("bike"));
+        assertEquals(Arrays.asList(2, 6), ids("red"));
+        assertEquals(Arrays.asList(5, 7), ids("blue"));
+        assertEquals(Collections.singletonList(3), ids("green"));
+        assertEquals(Collections.singletonList(6), ids("6"));
+
+        for (int i : Arrays.asList(7, 2, 3, 6, 5)) {
+            searchService.remove(i);
+        }
+        assertTrue(ids("bike").isEmpty());
+        assertEquals(0, searchService.size());
+    }
+
+    @Test
+    public void testLimit() {
+        for (int i = 1; i <= 30; i++) {
+            searchService.put(product(i, "Book " + i, null));
+        }
+
+        assertEquals(ProductSearchService.DEFAULT_LIMIT, searchService.search("book", null).size());
+        assertEquals(5, searchService.search("book", 5).size());
+        assertEquals(1, searchService.search("book", 0).size());
+        assertEquals(Arrays.asList(1, 2, 3), searchService.search("book", 3).stream().map(ProductSearchDTO::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testRebuildReadsEveryChunk() {
+        when(productRepo.findMaxId()).thenReturn(120000);
+        when(productRepo.findSearchableChunk(anyInt(), anyInt())).thenReturn(Collections.emptyList());
+        when(productRepo.findSearchableChunk(0, 50000)).thenReturn(Arrays.asList(row(1, "Desk", null)));
+        when(productRepo.findSearchableChunk(100000, 120001))
+                .thenReturn(Arrays.asList(row(100001, "Desk lamp", "For the desk")));
+
+        searchService.put(product(7, "Stale", null));
+        assertEquals(2, searchService.rebuild());
+
+        verify(productRepo, times(3)).findSearchableChunk(anyInt(), anyInt());
+        assertEquals(Arrays.asList(100001, 1), ids("desk"));
+        assertTrue(ids("stale").isEmpty());
+    }
+}
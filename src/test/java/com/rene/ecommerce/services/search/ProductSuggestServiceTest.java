@@ -0,0 +1,164 @@
+package com.rene.ecommerce.services.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.rene.ecommerce.domain.Product;
+import com.rene.ecommerce.domain.dto.SuggestableProductDTO;
+import com.rene.ecommerce.repositories.ProductRepository;
+
+public class ProductSuggestServiceTest {
+
+    @InjectMocks
+    private ProductSuggestService suggestService;
+
+    @Mock
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Product product(Integer id, String name) {
+        Product product = new Product(id, name, 10.0, null, null);
+        product.setSold(false);
+        return product;
+    }
+
+    private static SuggestableProductDTO row(Integer id, String name, long wishes) {
+        return new SuggestableProductDTO() {
+
+            public Integer getId() {
+                return id;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public Long getWishes() {
+                return wishes;
+            }
+        };
+    }
+
+    @Test
+    public void testTrieMatchesABruteForceIndex() {
+        SuggestTrie trie = new SuggestTrie();
+        Map<String, Long> weights = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                key.append("ab c".charAt(random.nextInt(4)));
+            }
+            String k = key.toString();
+            long current = weights.getOrDefault(k, 0L);
+
+            long delta = random.nextInt(4) == 0 ? -current : random.nextInt(3) + 1;
+            trie.add(k, k, delta);
+            if (current + delta > 0) {
+                weights.put(k, current + delta);
+            } else {
+                weights.remove(k);
+            }
+        }
+
+        assertEquals(weights.size(), trie.size());
+
+        for (String prefix : Arrays.asList("", "a", "b", "ab", "ba", "a b", "cc", "abc", "c a")) {
+            List<Long> expected = weights.entrySet().stream().filter(x -> x.getKey().startsWith(prefix))
+                    .map(Map.Entry::getValue).sorted(Collections.reverseOrder()).limit(7)
+                    .collect(Collectors.toList());
+
+            List<String> names = trie.complete(prefix, 7);
+            assertEquals(names.size(), new HashSet<>(names).size());
+            assertTrue(names.stream().allMatch(x -> x.startsWith(prefix)));
+            assertEquals(expected, names.stream().map(weights::get).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testSuggestByPopularity() {
+        suggestService.put(product(1, "Office chair"));
+        suggestService.put(product(2, "Office desk"));
+        suggestService.put(product(3, "Office desk"));
+        suggestService.put(product(4, "Offline game"));
+        suggestService.put(product(5, "Lamp"));
+
+        // two desks listed weigh more than one chair
+        assertEquals(Arrays.asList("Office desk", "Office chair", "Offline game"), suggestService.suggest("off", null));
+
+        // a wish counts as much as a listing
+        suggestService.wished(1, 1);
+        suggestService.wished(1, 1);
+        assertEquals(Arrays.asList("Office chair", "Office desk"), suggestService.suggest("OFFICE", null));
+
+        assertEquals(Collections.singletonList("Office chair"), suggestService.suggest("off", 1));
+        assertEquals(Collections.singletonList("Office chair"), suggestService.suggest("office c", null));
+        assertTrue(suggestService.suggest("offices", null).isEmpty());
+        assertTrue(suggestService.suggest(" ", null).isEmpty());
+    }
+
+    @Test
+    public void testNamesAreMatchedOnTheirTokens() {
+        suggestService.put(product(1, "T-Shirt Básica"));
+
+        assertEquals(Collections.singletonList("T-Shirt Básica"), suggestService.suggest("t sh", null));
+        assertEquals(Collections.singletonList("T-Shirt Básica"), suggestService.suggest("t-shirt basi", null));
+    }
+
+    @Test
+    public void testRenameSellAndDelete() {
+        suggestService.put(product(1, "Red bike"));
+        suggestService.put(product(2, "Red bicycle"));
+        suggestService.wished(2, 1);
+
+        suggestService.put(product(2, "Blue bicycle"));
+        assertEquals(Collections.singletonList("Red bike"), suggestService.suggest("red", null));
+        assertEquals(Collections.singletonList("Blue bicycle"), suggestService.suggest("b", null));
+
+        Product sold = product(1, "Red bike");
+        sold.setSold(true);
+        suggestService.put(sold);
+        assertTrue(suggestService.suggest("red", null).isEmpty());
+
+        suggestService.wished(2, -1);
+        suggestService.remove(2);
+        assertTrue(suggestService.suggest("b", null).isEmpty());
+    }
+
+    @Test
+    public void testRebuild() {
+        when(productRepo.findMaxId()).thenReturn(60000);
+        when(productRepo.findSuggestableChunk(anyInt(), anyInt())).thenReturn(new ArrayList<>());
+        when(productRepo.findSuggestableChunk(0, 50000))
+                .thenReturn(Arrays.asList(row(1, "Garden hose", 0), row(2, "Garden chair", 3)));
+        when(productRepo.findSuggestableChunk(50000, 60001)).thenReturn(Arrays.asList(row(50001, "Garden hose", 0)));
+
+        suggestService.put(product(7, "Garden stale"));
+        assertEquals(3, suggestService.rebuild());
+
+        assertEquals(Arrays.asList("Garden chair", "Garden hose"), suggestService.suggest("garden", null));
+    }
+}
@@ -0,0 +1,39 @@
+-- The schema spring.jpa.hibernate.ddl-auto=update created from the entities before
+-- the Flyway migrations (Hibernate 5.4, PostgreSQL dialect): serial ids, join tables.
+create table client_product (client_id int4, product_id int4 not null, primary key (product_id));
+create table order_client (client_id int4, order_id int4 not null, primary key (order_id));
+create table order_product (product_id int4, order_id int4 not null, primary key (order_id));
+create table order_seller (seller_id int4, order_id int4 not null, primary key (order_id));
+create table product (id  serial not null, description varchar(255), has_been_sold varchar(255), name varchar(255), price float8, primary key (id));
+create table seller_product (seller_id int4, product_id int4 not null, primary key (product_id));
+create table tb_clients (id  serial not null, email varchar(255), name varchar(255), password varchar(255), type varchar(255), how_much_money_this_client_has_spent float8, number_of_buys int4, primary key (id));
+create table tb_order (id  serial not null, instant varchar(255), primary key (id));
+create table tb_sellers (id  serial not null, email varchar(255), name varchar(255), password varchar(255), type varchar(255), how_much_money_this_seller_has_sold float8, number_of_sells int4, primary key (id));
+create table wishlist (product_id int4 not null, client_id int4 not null, primary key (product_id, client_id));
+alter table if exists order_product add constraint UK_order_product_product unique (product_id);
+alter table if exists tb_clients add constraint UK_clients_email unique (email);
+alter table if exists tb_sellers add constraint UK_sellers_email unique (email);
+alter table if exists client_product add constraint FK_client_product_client foreign key (client_id) references tb_clients;
+alter table if exists client_product add constraint FK_client_product_product foreign key (product_id) references product;
+alter table if exists order_client add constraint FK_order_client_client foreign key (client_id) references tb_clients;
+alter table if exists order_client add constraint FK_order_client_order foreign key (order_id) references tb_order;
+alter table if exists order_product add constraint FK_order_product_product foreign key (product_id) references product;
+alter table if exists order_product add constraint FK_order_product_order foreign key (order_id) references tb_order;
+alter table if exists order_seller add constraint FK_order_seller_seller foreign key (seller_id) references tb_sellers;
+alter table if exists order_seller add constraint FK_order_seller_order foreign key (order_id) references tb_order;
+alter table if exists seller_product add constraint FK_seller_product_seller foreign key (seller_id) references tb_sellers;
+alter table if exists seller_product add constraint FK_seller_product_product foreign key (product_id) references product;
+alter table if exists wishlist add constraint FK_wishlist_client foreign key (client_id) references tb_clients;
+alter table if exists wishlist add constraint FK_wishlist_product foreign key (product_id) references product;
+
+-- a seller with one product sold and one for sale
+insert into tb_sellers (email, name, type, number_of_sells, how_much_money_this_seller_has_sold) values ('seller@example.com', 'Seller', 'Seller', 1, 20.0);
+insert into tb_clients (email, name, type, number_of_buys, how_much_money_this_client_has_spent) values ('client@example.com', 'Client', 'Client', 1, 20.0);
+insert into product (name, price, description, has_been_sold) values ('Chair', 20.0, 'Oak', 'Sold');
+insert into product (name, price, description, has_been_sold) values ('Table', 50.0, 'Oak', 'Unsold');
+insert into seller_product (product_id, seller_id) select id, 1 from product;
+insert into client_product (product_id, client_id) values (1, 1);
+insert into tb_order (instant) values ('05/03/2021 14:30');
+insert into order_product (order_id, product_id) values (1, 1);
+insert into order_client (order_id, client_id) values (1, 1);
+insert into order_seller (order_id, seller_id) values (1, 1);